@@ -48,6 +48,7 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.plugin.ComponentLifecycleEvent;
 import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgDataType;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.common.msg.tools.TbRateLimits;
@@ -643,7 +644,8 @@ public class ActorSystemContext {
                         .eventEntity(tbMsg.getOriginator())
                         .msgId(tbMsg.getId())
                         .msgType(tbMsg.getType())
-                        .dataType(tbMsg.getDataType().name())
+                        // TS_KV_LIST data is rendered as JSON by getData()
+                        .dataType(tbMsg.getDataType() == TbMsgDataType.TS_KV_LIST ? TbMsgDataType.JSON.name() : tbMsg.getDataType().name())
                         .relationType(relationType)
                         .data(tbMsg.getData())
                         .metadata(mapper.writeValueAsString(tbMsg.getMetaData().getData()));
@@ -162,6 +162,11 @@ class DefaultTbContext implements TbContext {
         scheduleMsgWithDelay(new RuleNodeToSelfMsg(this, msg), delayMs, nodeCtx.getSelfActor());
     }
 
+    @Override
+    public boolean hasPendingMsgs() {
+        return nodeCtx.getSelfActor().hasPendingMsgs();
+    }
+
     @Override
     public void input(TbMsg msg, RuleChainId ruleChainId) {
         msg.pushToStack(nodeCtx.getSelf().getRuleChainId(), nodeCtx.getSelf().getId());
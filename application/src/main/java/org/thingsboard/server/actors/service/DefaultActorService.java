@@ -24,13 +24,18 @@ import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.actors.ActorSystemContext;
 import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.DispatcherType;
+import org.thingsboard.server.actors.MailboxOverflowPolicy;
+import org.thingsboard.server.actors.MailboxType;
 import org.thingsboard.server.actors.TbActorRef;
 import org.thingsboard.server.actors.TbActorSystem;
 import org.thingsboard.server.actors.TbActorSystemSettings;
 import org.thingsboard.server.actors.app.AppActor;
 import org.thingsboard.server.actors.app.AppInitMsg;
+import org.thingsboard.server.actors.stats.ActorMailboxStats;
 import org.thingsboard.server.actors.stats.StatsActor;
 import org.thingsboard.server.common.msg.queue.PartitionChangeMsg;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.queue.discovery.TbApplicationEventListener;
 import org.thingsboard.server.queue.discovery.event.PartitionChangeEvent;
 import org.thingsboard.server.queue.util.AfterStartUp;
@@ -39,6 +44,7 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @Slf4j
@@ -52,6 +58,9 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Autowired
     private ActorSystemContext actorContext;
 
+    @Autowired
+    private StatsFactory statsFactory;
+
     private TbActorSystem system;
 
     private TbActorRef appActor;
@@ -65,6 +74,30 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.scheduler_pool_size:1}")
     private int schedulerPoolSize;
 
+    @Value("${actors.system.mailbox.type:LINKED}")
+    private MailboxType mailboxType;
+
+    @Value("${actors.system.mailbox.device_capacity:0}")
+    private int deviceMailboxCapacity;
+
+    @Value("${actors.system.mailbox.rule_capacity:0}")
+    private int ruleMailboxCapacity;
+
+    @Value("${actors.system.mailbox.overflow_policy:REJECT}")
+    private MailboxOverflowPolicy mailboxOverflowPolicy;
+
+    @Value("${actors.system.mailbox.stats.enabled:false}")
+    private boolean mailboxStatsEnabled;
+
+    @Value("${actors.system.mailbox.stats.sampling_rate:0.01}")
+    private double mailboxStatsSamplingRate;
+
+    @Value("${actors.system.mailbox.stats.top_n:10}")
+    private int mailboxStatsTopN;
+
+    @Value("${actors.system.mailbox.stats.print_interval_ms:60000}")
+    private long mailboxStatsPrintIntervalMs;
+
     @Value("${actors.system.app_dispatcher_pool_size:1}")
     private int appDispatcherSize;
 
@@ -77,17 +110,44 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
     @Value("${actors.system.rule_dispatcher_pool_size:4}")
     private int ruleDispatcherSize;
 
+    @Value("${actors.system.app_dispatcher_type:POOL}")
+    private DispatcherType appDispatcherType;
+
+    @Value("${actors.system.tenant_dispatcher_type:POOL}")
+    private DispatcherType tenantDispatcherType;
+
+    @Value("${actors.system.device_dispatcher_type:POOL}")
+    private DispatcherType deviceDispatcherType;
+
+    @Value("${actors.system.rule_dispatcher_type:POOL}")
+    private DispatcherType ruleDispatcherType;
+
     @PostConstruct
     public void initActorSystem() {
         log.info("Initializing actor system.");
         actorContext.setActorService(this);
-        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts);
-        system = new DefaultTbActorSystem(settings);
+        TbActorSystemSettings settings = new TbActorSystemSettings(actorThroughput, schedulerPoolSize, maxActorInitAttempts,
+                mailboxType, 0, mailboxOverflowPolicy);
+        boolean boundedMailboxes = mailboxType == MailboxType.MPSC && (deviceMailboxCapacity > 0 || ruleMailboxCapacity > 0);
+        // overflows of bounded mailboxes are always counted, even if the rest of the mailbox stats is disabled
+        ActorMailboxStats mailboxStats = mailboxStatsEnabled || boundedMailboxes ?
+                new ActorMailboxStats(statsFactory, mailboxStatsEnabled ? mailboxStatsSamplingRate : 0, mailboxStatsTopN) : null;
+        system = new DefaultTbActorSystem(settings, mailboxStats);
+        if (mailboxStatsEnabled) {
+            system.getScheduler().scheduleWithFixedDelay(() -> {
+                try {
+                    mailboxStats.report(system);
+                } catch (Exception e) {
+                    log.warn("Failed to report actor mailbox stats", e);
+                }
+            }, mailboxStatsPrintIntervalMs, mailboxStatsPrintIntervalMs, TimeUnit.MILLISECONDS);
+        }
 
-        system.createDispatcher(APP_DISPATCHER_NAME, initDispatcherExecutor(APP_DISPATCHER_NAME, appDispatcherSize));
-        system.createDispatcher(TENANT_DISPATCHER_NAME, initDispatcherExecutor(TENANT_DISPATCHER_NAME, tenantDispatcherSize));
-        system.createDispatcher(DEVICE_DISPATCHER_NAME, initDispatcherExecutor(DEVICE_DISPATCHER_NAME, deviceDispatcherSize));
-        system.createDispatcher(RULE_DISPATCHER_NAME, initDispatcherExecutor(RULE_DISPATCHER_NAME, ruleDispatcherSize));
+        // app and tenant actors only route messages to their children, so their mailboxes are never bounded
+        initDispatcher(APP_DISPATCHER_NAME, appDispatcherType, appDispatcherSize, 0);
+        initDispatcher(TENANT_DISPATCHER_NAME, tenantDispatcherType, tenantDispatcherSize, 0);
+        initDispatcher(DEVICE_DISPATCHER_NAME, deviceDispatcherType, deviceDispatcherSize, deviceMailboxCapacity);
+        initDispatcher(RULE_DISPATCHER_NAME, ruleDispatcherType, ruleDispatcherSize, ruleMailboxCapacity);
 
         actorContext.setActorSystem(system);
 
@@ -100,6 +160,19 @@ public class DefaultActorService extends TbApplicationEventListener<PartitionCha
         log.info("Actor system initialized.");
     }
 
+    private void initDispatcher(String dispatcherName, DispatcherType type, int poolSize, int mailboxCapacity) {
+        if (type == DispatcherType.VIRTUAL) {
+            try {
+                system.createDispatcher(dispatcherName, ThingsBoardExecutors.newVirtualThreadPerTaskExecutor(dispatcherName), type, mailboxCapacity);
+                log.info("[{}] Using virtual thread per mailbox dispatcher", dispatcherName);
+                return;
+            } catch (UnsupportedOperationException e) {
+                log.warn("[{}] {}. Falling back to the pool of {} threads", dispatcherName, e.getMessage(), poolSize);
+            }
+        }
+        system.createDispatcher(dispatcherName, initDispatcherExecutor(dispatcherName, poolSize), DispatcherType.POOL, mailboxCapacity);
+    }
+
     private ExecutorService initDispatcherExecutor(String dispatcherName, int poolSize) {
         if (poolSize == 0) {
             int cores = Runtime.getRuntime().availableProcessors();
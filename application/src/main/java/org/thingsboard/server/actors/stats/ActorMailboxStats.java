@@ -0,0 +1,222 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors.stats;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.actors.MailboxOverflowPolicy;
+import org.thingsboard.server.actors.MailboxStatsCollector;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Mailbox stats aggregated by the entity type of the actor: sampled wait and processing time,
+ * number of dispatcher resubmissions, number of pending messages and number of messages rejected or dropped by bounded mailboxes. Actors with the deepest mailboxes
+ * and the slowest sampled messages are printed on every {@link #report(TbActorSystem)}.
+ */
+@Slf4j
+public class ActorMailboxStats implements MailboxStatsCollector {
+
+    private static final String STATS_KEY = "actors.mailbox";
+    private static final String ENTITY_TYPE_TAG = "entityType";
+    private static final String NO_ENTITY_TYPE = "NONE";
+
+    private final StatsFactory statsFactory;
+    private final double samplingRate;
+    private final int topN;
+    private final ConcurrentMap<String, EntityTypeStats> statsByEntityType = new ConcurrentHashMap<>();
+    private final List<ActorStat> slowestActors = new ArrayList<>();
+
+    public ActorMailboxStats(StatsFactory statsFactory, double samplingRate, int topN) {
+        this.statsFactory = statsFactory;
+        this.samplingRate = samplingRate;
+        this.topN = topN;
+    }
+
+    @Override
+    public boolean sample() {
+        return samplingRate > 0 && ThreadLocalRandom.current().nextDouble() < samplingRate;
+    }
+
+    @Override
+    public void onMsgProcessed(TbActorId actorId, long waitTimeNs, long processingTimeNs) {
+        EntityTypeStats stats = getStats(actorId);
+        stats.waitTimer.record(waitTimeNs, TimeUnit.NANOSECONDS);
+        stats.processingTimer.record(processingTimeNs, TimeUnit.NANOSECONDS);
+        synchronized (slowestActors) {
+            updateSlowestActors(actorId, waitTimeNs);
+        }
+    }
+
+    @Override
+    public void onMailboxResubmitted(TbActorId actorId) {
+        getStats(actorId).resubmissions.increment();
+    }
+
+    @Override
+    public void onMailboxOverflow(TbActorId actorId, MailboxOverflowPolicy policy) {
+        getStats(actorId).overflows.increment();
+    }
+
+    public void report(TbActorSystem actorSystem) {
+        Map<String, long[]> pendingByEntityType = new HashMap<>();
+        PriorityQueue<ActorStat> deepestActors = new PriorityQueue<>(Comparator.comparingLong(ActorStat::getValue));
+        actorSystem.forEachMailbox((actorId, pending) -> {
+            // {total pending, max pending}
+            long[] pendingStats = pendingByEntityType.computeIfAbsent(getEntityType(actorId), type -> new long[2]);
+            pendingStats[0] += pending;
+            pendingStats[1] = Math.max(pendingStats[1], pending);
+            if (pending > 0) {
+                deepestActors.add(new ActorStat(actorId, pending));
+                if (deepestActors.size() > topN) {
+                    deepestActors.poll();
+                }
+            }
+        });
+        pendingByEntityType.forEach((entityType, pendingStats) -> statsByEntityType.computeIfAbsent(entityType, this::createStats));
+        statsByEntityType.forEach((entityType, stats) -> {
+            long[] pendingStats = pendingByEntityType.getOrDefault(entityType, new long[2]);
+            stats.pendingMsgs.set(pendingStats[0]);
+            stats.maxPendingMsgs.set(pendingStats[1]);
+        });
+
+        List<ActorStat> slowest;
+        synchronized (slowestActors) {
+            slowest = new ArrayList<>(slowestActors);
+            slowestActors.clear();
+        }
+        if (log.isInfoEnabled()) {
+            String statsStr = statsByEntityType.entrySet().stream()
+                    .filter(e -> e.getValue().pendingMsgs.get() > 0 || e.getValue().resubmissions.get() > 0 || e.getValue().overflows.get() > 0)
+                    .map(e -> e.getKey() + " [pending: " + e.getValue().pendingMsgs.get() + ", maxPending: " + e.getValue().maxPendingMsgs.get()
+                            + ", resubmissions: " + e.getValue().resubmissions.get() + ", overflows: " + e.getValue().overflows.get() + "]")
+                    .collect(Collectors.joining(", "));
+            if (!statsStr.isEmpty()) {
+                log.info("Actor mailboxes: {}", statsStr);
+            }
+            if (!deepestActors.isEmpty()) {
+                List<ActorStat> deepest = new ArrayList<>(deepestActors);
+                deepest.sort(Comparator.comparingLong(ActorStat::getValue).reversed());
+                log.info("Top {} actors by pending messages: {}", deepest.size(), deepest);
+            }
+            if (!slowest.isEmpty()) {
+                slowest.sort(Comparator.comparingLong(ActorStat::getValue).reversed());
+                log.info("Top {} actors by sampled message wait time (ms): {}", slowest.size(), slowest.stream()
+                        .map(stat -> new ActorStat(stat.actorId, TimeUnit.NANOSECONDS.toMillis(stat.value)))
+                        .collect(Collectors.toList()));
+            }
+        }
+        statsByEntityType.values().forEach(stats -> {
+            stats.resubmissions.clear();
+            stats.overflows.clear();
+        });
+    }
+
+    private void updateSlowestActors(TbActorId actorId, long waitTimeNs) {
+        ActorStat min = null;
+        for (ActorStat stat : slowestActors) {
+            if (stat.actorId.equals(actorId)) {
+                stat.value = Math.max(stat.value, waitTimeNs);
+                return;
+            }
+            if (min == null || stat.value < min.value) {
+                min = stat;
+            }
+        }
+        if (slowestActors.size() < topN) {
+            slowestActors.add(new ActorStat(actorId, waitTimeNs));
+        } else if (min != null && min.value < waitTimeNs) {
+            min.actorId = actorId;
+            min.value = waitTimeNs;
+        }
+    }
+
+    private EntityTypeStats getStats(TbActorId actorId) {
+        String entityType = getEntityType(actorId);
+        EntityTypeStats stats = statsByEntityType.get(entityType);
+        return stats != null ? stats : statsByEntityType.computeIfAbsent(entityType, this::createStats);
+    }
+
+    private EntityTypeStats createStats(String entityType) {
+        return new EntityTypeStats(
+                statsFactory.createTimer(STATS_KEY + ".waitTime", ENTITY_TYPE_TAG, entityType),
+                statsFactory.createTimer(STATS_KEY + ".processingTime", ENTITY_TYPE_TAG, entityType),
+                statsFactory.createDefaultCounter(STATS_KEY + ".resubmissions", ENTITY_TYPE_TAG, entityType),
+                statsFactory.createDefaultCounter(STATS_KEY + ".overflows", ENTITY_TYPE_TAG, entityType),
+                statsFactory.createGauge(STATS_KEY + ".pending", new AtomicLong(), ENTITY_TYPE_TAG, entityType),
+                statsFactory.createGauge(STATS_KEY + ".maxPending", new AtomicLong(), ENTITY_TYPE_TAG, entityType));
+    }
+
+    private static String getEntityType(TbActorId actorId) {
+        EntityType entityType = actorId.getEntityType();
+        return entityType != null ? entityType.name() : NO_ENTITY_TYPE;
+    }
+
+    private static class EntityTypeStats {
+        private final Timer waitTimer;
+        private final Timer processingTimer;
+        private final DefaultCounter resubmissions;
+        private final DefaultCounter overflows;
+        private final AtomicLong pendingMsgs;
+        private final AtomicLong maxPendingMsgs;
+
+        private EntityTypeStats(Timer waitTimer, Timer processingTimer, DefaultCounter resubmissions, DefaultCounter overflows,
+                                AtomicLong pendingMsgs, AtomicLong maxPendingMsgs) {
+            this.waitTimer = waitTimer;
+            this.processingTimer = processingTimer;
+            this.resubmissions = resubmissions;
+            this.overflows = overflows;
+            this.pendingMsgs = pendingMsgs;
+            this.maxPendingMsgs = maxPendingMsgs;
+        }
+    }
+
+    private static class ActorStat {
+        private TbActorId actorId;
+        private long value;
+
+        private ActorStat(TbActorId actorId, long value) {
+            this.actorId = actorId;
+            this.value = value;
+        }
+
+        private long getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return actorId + "=" + value;
+        }
+    }
+
+}
@@ -149,7 +149,7 @@ public class TenantActor extends RuleChainManagerActor {
                 onQueueToRuleEngineMsg((QueueToRuleEngineMsg) msg);
                 break;
             case TRANSPORT_TO_DEVICE_ACTOR_MSG:
-                onToDeviceActorMsg((DeviceAwareMsg) msg, false);
+                onToDeviceActorMsg((DeviceAwareMsg) msg, ((TransportToDeviceActorMsgWrapper) msg).isSessionLifecycleMsg());
                 break;
             case DEVICE_ATTRIBUTES_UPDATE_TO_DEVICE_ACTOR_MSG:
             case DEVICE_CREDENTIALS_UPDATE_TO_DEVICE_ACTOR_MSG:
@@ -881,7 +881,12 @@ public class ControllerConstants {
                     "  }\n" +
                     "}" +
                     MARKDOWN_CODE_BLOCK_END +
-                    "\n\n Example mentioned above search all devices which have attribute 'active' set to 'true'. Now let's review available entity filters and key filters syntax:" +
+                    "\n\n Example mentioned above search all devices which have attribute 'active' set to 'true'. " +
+                    "\n\n For deep paging over large number of entities the page link supports optional parameters. " +
+                    "Set **'lastEntityId'** (and **'lastSortValue'** when sorting by an entity field) to the id and sort field value of the last entity of the previous page " +
+                    "to fetch the next page without skipping all previous rows. Set **'countMode'** to 'CACHED' to reuse the total count for a short time " +
+                    "or to 'ESTIMATED' to use the database planner estimate instead of the exact count. " +
+                    "Now let's review available entity filters and key filters syntax:" +
                     ENTITY_FILTERS +
                     KEY_FILTERS +
                     ControllerConstants.TENANT_OR_CUSTOMER_AUTHORITY_PARAGRAPH;
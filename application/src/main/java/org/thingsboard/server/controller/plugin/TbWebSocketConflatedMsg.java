@@ -0,0 +1,55 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.controller.plugin;
+
+import lombok.Getter;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.service.ws.WsUpdateConflator;
+
+/**
+ * Pending subscription update that absorbs newer updates of the same subscription until it is sent.
+ * Serialized to text only when it is taken from the queue.
+ */
+public class TbWebSocketConflatedMsg implements TbWebSocketMsg<String> {
+
+    @Getter
+    private final int subscriptionId;
+    private Object update;
+
+    public TbWebSocketConflatedMsg(int subscriptionId, Object update) {
+        this.subscriptionId = subscriptionId;
+        this.update = update;
+    }
+
+    boolean merge(Object newUpdate) {
+        Object merged = WsUpdateConflator.merge(update, newUpdate);
+        if (merged != null) {
+            update = merged;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public TbWebSocketMsgType getType() {
+        return TbWebSocketMsgType.TEXT;
+    }
+
+    @Override
+    public String getMsg() {
+        return JacksonUtil.toString(update);
+    }
+}
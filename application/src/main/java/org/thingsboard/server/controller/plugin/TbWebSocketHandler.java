@@ -54,6 +54,8 @@ import javax.websocket.Session;
 import java.io.IOException;
 import java.net.URI;
 import java.security.InvalidParameterException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
 import java.util.Set;
@@ -226,6 +228,8 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
 
         private final AtomicBoolean isSending = new AtomicBoolean(false);
         private final Queue<TbWebSocketMsg<?>> msgQueue;
+        // queued updates that are not sent yet and may absorb newer updates of the same subscription
+        private final Map<Integer, TbWebSocketConflatedMsg> pendingUpdates = new HashMap<>();
 
         private volatile long lastActivityTime;
 
@@ -270,12 +274,36 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
             sendMsg(new TbWebSocketTextMsg(msg));
         }
 
-        synchronized void sendMsg(TbWebSocketMsg<?> msg) {
+        synchronized void sendMsg(int subscriptionId, String msg) {
+            // newer updates of the subscription must not overtake this message
+            pendingUpdates.remove(subscriptionId);
+            sendMsg(new TbWebSocketTextMsg(msg));
+        }
+
+        synchronized void sendConflatableMsg(int subscriptionId, Object update) {
+            TbWebSocketConflatedMsg pending = pendingUpdates.get(subscriptionId);
+            if (pending != null && pending.merge(update)) {
+                log.trace("[{}] Merged update into pending update of subscription [{}]", session.getId(), subscriptionId);
+                return;
+            }
+            TbWebSocketConflatedMsg msg = new TbWebSocketConflatedMsg(subscriptionId, update);
+            if (sendMsg(msg)) {
+                pendingUpdates.put(subscriptionId, msg);
+            } else {
+                pendingUpdates.remove(subscriptionId);
+            }
+        }
+
+        /**
+         * @return true if the message was queued, false if it was sent immediately or rejected
+         */
+        synchronized boolean sendMsg(TbWebSocketMsg<?> msg) {
             if (isSending.compareAndSet(false, true)) {
                 sendMsgInternal(msg);
             } else {
                 try {
                     msgQueue.add(msg);
+                    return true;
                 } catch (RuntimeException e) {
                     if (log.isTraceEnabled()) {
                         log.trace("[{}][{}] Session closed due to queue error", sessionRef.getSecurityCtx().getTenantId(), session.getId(), e);
@@ -285,13 +313,13 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                     closeSession(CloseStatus.POLICY_VIOLATION.withReason("Max pending updates limit reached!"));
                 }
             }
+            return false;
         }
 
         private void sendMsgInternal(TbWebSocketMsg<?> msg) {
             try {
                 if (TbWebSocketMsgType.TEXT.equals(msg.getType())) {
-                    TbWebSocketTextMsg textMsg = (TbWebSocketTextMsg) msg;
-                    this.asyncRemote.sendText(textMsg.getMsg(), this);
+                    this.asyncRemote.sendText((String) msg.getMsg(), this);
                 } else {
                     TbWebSocketPingMsg pingMsg = (TbWebSocketPingMsg) msg;
                     this.asyncRemote.sendPing(pingMsg.getMsg());
@@ -314,19 +342,41 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
         }
 
         private void processNextMsg() {
-            TbWebSocketMsg<?> msg = msgQueue.poll();
+            TbWebSocketMsg<?> msg;
+            synchronized (this) {
+                msg = msgQueue.poll();
+                if (msg instanceof TbWebSocketConflatedMsg) {
+                    pendingUpdates.remove(((TbWebSocketConflatedMsg) msg).getSubscriptionId(), msg);
+                } else if (msg == null) {
+                    isSending.set(false);
+                }
+            }
             if (msg != null) {
                 sendMsgInternal(msg);
-            } else {
-                isSending.set(false);
             }
         }
     }
 
     @Override
     public void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException {
+        log.debug("[{}] Processing {}", sessionRef.getSessionId(), msg);
+        SessionMetaData sessionMd = getSessionForUpdate(sessionRef, subscriptionId);
+        if (sessionMd != null) {
+            sessionMd.sendMsg(subscriptionId, msg);
+        }
+    }
+
+    @Override
+    public void sendConflatable(WebSocketSessionRef sessionRef, int subscriptionId, Object update) throws IOException {
+        log.debug("[{}] Processing {}", sessionRef.getSessionId(), update);
+        SessionMetaData sessionMd = getSessionForUpdate(sessionRef, subscriptionId);
+        if (sessionMd != null) {
+            sessionMd.sendConflatableMsg(subscriptionId, update);
+        }
+    }
+
+    private SessionMetaData getSessionForUpdate(WebSocketSessionRef sessionRef, int subscriptionId) {
         String externalId = sessionRef.getSessionId();
-        log.debug("[{}] Processing {}", externalId, msg);
         String internalId = externalSessionMap.get(externalId);
         if (internalId != null) {
             SessionMetaData sessionMd = internalSessionMap.get(internalId);
@@ -339,9 +389,9 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                             if (blacklistedSessions.putIfAbsent(externalId, sessionRef) == null) {
                                 log.info("[{}][{}][{}] Failed to process session update. Max session updates limit reached"
                                         , sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), externalId);
-                                sessionMd.sendMsg("{\"subscriptionId\":" + subscriptionId + ", \"errorCode\":" + ThingsboardErrorCode.TOO_MANY_UPDATES.getErrorCode() + ", \"errorMsg\":\"Too many updates!\"}");
+                                sessionMd.sendMsg(subscriptionId, "{\"subscriptionId\":" + subscriptionId + ", \"errorCode\":" + ThingsboardErrorCode.TOO_MANY_UPDATES.getErrorCode() + ", \"errorMsg\":\"Too many updates!\"}");
                             }
-                            return;
+                            return null;
                         } else {
                             log.debug("[{}][{}][{}] Session is no longer blacklisted.", sessionRef.getSecurityCtx().getTenantId(), sessionRef.getSecurityCtx().getId(), externalId);
                             blacklistedSessions.remove(externalId);
@@ -350,13 +400,14 @@ public class TbWebSocketHandler extends TextWebSocketHandler implements WebSocke
                         perSessionUpdateLimits.remove(sessionRef.getSessionId());
                     }
                 }
-                sessionMd.sendMsg(msg);
+                return sessionMd;
             } else {
                 log.warn("[{}][{}] Failed to find session by internal id", externalId, internalId);
             }
         } else {
             log.warn("[{}] Failed to find session by external id", externalId);
         }
+        return null;
     }
 
     @Override
@@ -44,6 +44,7 @@ import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
 import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineNotificationMsg;
 import org.thingsboard.server.queue.TbQueueConsumer;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.common.ToRuleEngineMsgBatchUtil;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.discovery.QueueKey;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
@@ -270,6 +271,7 @@ public class DefaultTbRuleEngineConsumerService extends AbstractConsumerService<
                 if (msgs.isEmpty()) {
                     continue;
                 }
+                msgs = ToRuleEngineMsgBatchUtil.unpack(msgs);
                 final TbRuleEngineSubmitStrategy submitStrategy = getSubmitStrategy(configuration);
                 final TbRuleEngineProcessingStrategy ackStrategy = getAckStrategy(configuration);
                 submitStrategy.init(msgs);
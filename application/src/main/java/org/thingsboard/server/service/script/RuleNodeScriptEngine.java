@@ -27,10 +27,15 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.TbMsg;
 
 import javax.script.ScriptException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 
 
 @Slf4j
@@ -67,6 +72,19 @@ public abstract class RuleNodeScriptEngine<T extends ScriptInvokeService, R> imp
 
     protected abstract ListenableFuture<List<TbMsg>> executeUpdateTransform(TbMsg msg, R result);
 
+    @Override
+    public List<ListenableFuture<List<TbMsg>>> executeUpdateBatchAsync(List<TbMsg> msgs) {
+        List<ListenableFuture<R>> results = executeScriptBatchAsync(msgs);
+        List<ListenableFuture<List<TbMsg>>> updates = new ArrayList<>(msgs.size());
+        for (int i = 0; i < msgs.size(); i++) {
+            TbMsg msg = msgs.get(i);
+            updates.add(Futures.transformAsync(results.get(i),
+                    json -> executeUpdateTransform(msg, json),
+                    MoreExecutors.directExecutor()));
+        }
+        return updates;
+    }
+
     @Override
     public ListenableFuture<TbMsg> executeGenerateAsync(TbMsg prevMsg) {
         return Futures.transformAsync(executeScriptAsync(prevMsg),
@@ -89,6 +107,13 @@ public abstract class RuleNodeScriptEngine<T extends ScriptInvokeService, R> imp
                 MoreExecutors.directExecutor());
     }
 
+    @Override
+    public List<ListenableFuture<Boolean>> executeFilterBatchAsync(List<TbMsg> msgs) {
+        return executeScriptBatchAsync(msgs).stream()
+                .map(result -> Futures.transformAsync(result, this::executeFilterTransform, MoreExecutors.directExecutor()))
+                .collect(Collectors.toList());
+    }
+
     protected abstract ListenableFuture<String> executeToStringTransform(R result);
 
     protected abstract ListenableFuture<Boolean> executeFilterTransform(R result);
@@ -109,7 +134,31 @@ public abstract class RuleNodeScriptEngine<T extends ScriptInvokeService, R> imp
     }
 
     ListenableFuture<R> executeScriptAsync(CustomerId customerId, Object... args) {
-        return Futures.transformAsync(scriptInvokeService.invokeScript(tenantId, customerId, this.scriptId, args),
+        return convertResultAsync(scriptInvokeService.invokeScript(tenantId, customerId, this.scriptId, args));
+    }
+
+    List<ListenableFuture<R>> executeScriptBatchAsync(List<TbMsg> msgs) {
+        log.trace("execute script batch async, batch size {}", msgs.size());
+        List<ListenableFuture<R>> results = new ArrayList<>(Collections.nCopies(msgs.size(), null));
+        Map<CustomerId, List<Integer>> msgIdxsByCustomer = new LinkedHashMap<>();
+        for (int i = 0; i < msgs.size(); i++) {
+            msgIdxsByCustomer.computeIfAbsent(msgs.get(i).getCustomerId(), k -> new ArrayList<>()).add(i);
+        }
+        msgIdxsByCustomer.forEach((customerId, msgIdxs) -> {
+            List<Object[]> argsList = new ArrayList<>(msgIdxs.size());
+            for (Integer msgIdx : msgIdxs) {
+                argsList.add(prepareArgs(msgs.get(msgIdx)));
+            }
+            List<ListenableFuture<Object>> futures = scriptInvokeService.invokeScripts(tenantId, customerId, this.scriptId, argsList);
+            for (int i = 0; i < msgIdxs.size(); i++) {
+                results.set(msgIdxs.get(i), convertResultAsync(futures.get(i)));
+            }
+        });
+        return results;
+    }
+
+    private ListenableFuture<R> convertResultAsync(ListenableFuture<Object> resultFuture) {
+        return Futures.transformAsync(resultFuture,
                 o -> {
                     try {
                         return Futures.immediateFuture(convertResult(o));
@@ -17,6 +17,8 @@ package org.thingsboard.server.service.script;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -35,6 +37,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -44,6 +47,17 @@ import java.util.stream.Collectors;
 @Slf4j
 public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeService, Object> {
 
+    private static final int PARSED_MSG_DATA_CACHE_SIZE = 10000;
+
+    /**
+     * Parsed message data keyed by the identity of the data string. Several TBEL nodes of the same chain usually
+     * receive the very same data string, so it is parsed only once and each invocation gets its own copy.
+     */
+    private static final Cache<String, Object> parsedMsgDataCache = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(PARSED_MSG_DATA_CACHE_SIZE)
+            .build();
+
     public RuleNodeTbelScriptEngine(TenantId tenantId, TbelInvokeService scriptInvokeService, String script, String... argNames) {
         super(tenantId, scriptInvokeService, script, argNames);
     }
@@ -124,7 +138,7 @@ public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeSer
     protected Object[] prepareArgs(TbMsg msg) {
         Object[] args = new Object[3];
         if (msg.getData() != null) {
-            args[0] = JacksonUtil.fromString(msg.getData(), Object.class);
+            args[0] = copyMsgData(parsedMsgDataCache.get(msg.getData(), data -> JacksonUtil.fromString(data, Object.class)));
         } else {
             args[0] = new HashMap<>();
         }
@@ -133,6 +147,23 @@ public class RuleNodeTbelScriptEngine extends RuleNodeScriptEngine<TbelInvokeSer
         return args;
     }
 
+    static Object copyMsgData(Object data) {
+        if (data instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) data;
+            Map<Object, Object> copy = new LinkedHashMap<>(Math.max((int) (map.size() / .75f) + 1, 16));
+            map.forEach((k, v) -> copy.put(k, copyMsgData(v)));
+            return copy;
+        } else if (data instanceof List) {
+            List<?> list = (List<?>) data;
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object v : list) {
+                copy.add(copyMsgData(v));
+            }
+            return copy;
+        }
+        return data;
+    }
+
     private static TbMsg unbindMsg(Map msgData, TbMsg msg) {
         String data = null;
         Map<String, String> metadata = null;
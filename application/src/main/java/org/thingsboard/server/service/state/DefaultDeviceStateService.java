@@ -23,6 +23,8 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.SettableFuture;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
@@ -39,6 +41,7 @@ import org.thingsboard.server.cluster.TbClusterService;
 import org.thingsboard.server.common.data.ApiUsageRecordKey;
 import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.DeviceAttributesInfo;
 import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.StringUtils;
@@ -54,6 +57,7 @@ import org.thingsboard.server.common.data.kv.LongDataEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.PageDataIterable;
+import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.common.data.query.EntityData;
 import org.thingsboard.server.common.data.query.EntityDataPageLink;
 import org.thingsboard.server.common.data.query.EntityDataQuery;
@@ -66,6 +70,7 @@ import org.thingsboard.server.common.msg.TbMsgMetaData;
 import org.thingsboard.server.common.msg.queue.ServiceType;
 import org.thingsboard.server.common.msg.queue.TbCallback;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
@@ -160,6 +165,8 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     private final TbApiUsageReportClient apiUsageReportClient;
     @Autowired @Lazy
     private TelemetrySubscriptionService tsSubService;
+    @Autowired
+    private StatsFactory statsFactory;
 
     @Value("${state.defaultInactivityTimeoutInSec}")
     @Getter
@@ -188,6 +195,29 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     @Getter
     private int initFetchPackSize;
 
+    @Value("${state.inactivityTimingWheelEnabled:false}")
+    @Getter
+    @Setter
+    private boolean inactivityTimingWheelEnabled;
+
+    @Value("${state.streamingBootstrapEnabled:false}")
+    @Getter
+    @Setter
+    private boolean streamingBootstrapEnabled;
+
+    @Value("${state.streamingBootstrapFetchSize:1000}")
+    @Getter
+    private int streamingBootstrapFetchSize;
+
+    @Value("${state.streamingBootstrapRateLimit:0}")
+    @Getter
+    private int streamingBootstrapRateLimit;
+
+    DeviceInactivityTimingWheel inactivityTimingWheel;
+
+    // Percentage of the device table scanned by the current streaming bootstrap, 100 when nothing is being loaded
+    private AtomicInteger bootstrapProgress;
+
     private ListeningExecutorService deviceStateExecutor;
 
     final ConcurrentMap<DeviceId, DeviceStateData> deviceStates = new ConcurrentHashMap<>();
@@ -197,6 +227,12 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         super.init();
         deviceStateExecutor = MoreExecutors.listeningDecorator(ThingsBoardExecutors.newWorkStealingPool(
                 Math.max(4, Runtime.getRuntime().availableProcessors()), "device-state"));
+        if (inactivityTimingWheelEnabled) {
+            inactivityTimingWheel = new DeviceInactivityTimingWheel(TimeUnit.SECONDS.toMillis(defaultStateCheckIntervalInSec));
+        }
+        if (streamingBootstrapEnabled) {
+            bootstrapProgress = statsFactory.createGauge("deviceState.bootstrap.progress", new AtomicInteger(100));
+        }
         scheduledExecutor.scheduleWithFixedDelay(this::checkStates, new Random().nextInt(defaultStateCheckIntervalInSec), defaultStateCheckIntervalInSec, TimeUnit.SECONDS);
         scheduledExecutor.scheduleWithFixedDelay(this::reportActivityStats, defaultActivityStatsIntervalInSec, defaultActivityStatsIntervalInSec, TimeUnit.SECONDS);
     }
@@ -257,6 +293,10 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 save(deviceId, ACTIVITY_STATE, true);
                 pushRuleEngineMessage(stateData, ACTIVITY_EVENT);
             }
+            if (stateData.getScheduledTick() == 0L) {
+                // Scheduled devices are moved to the new deadline when their current slot is due
+                scheduleInactivityCheck(stateData);
+            }
         } else {
             log.debug("updateActivityState - fetched state IN NULL for device {}, lastReportedActivity {}", deviceId, lastReportedActivity);
             cleanupEntity(deviceId);
@@ -343,6 +383,9 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
 
     @Override
     protected Map<TopicPartitionInfo, List<ListenableFuture<?>>> onAddedPartitions(Set<TopicPartitionInfo> addedPartitions) {
+        if (streamingBootstrapEnabled && !persistToTelemetry) {
+            return streamDeviceStates(addedPartitions);
+        }
         var result = new HashMap<TopicPartitionInfo, List<ListenableFuture<?>>>();
         PageDataIterable<DeviceIdInfo> deviceIdInfos = new PageDataIterable<>(deviceService::findDeviceIdInfos, initFetchPackSize);
         Map<TopicPartitionInfo, List<DeviceIdInfo>> tpiDeviceMap = new HashMap<>();
@@ -400,6 +443,73 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         private volatile ListenableFuture<?> future;
     }
 
+    /**
+     * Loads states of the added partitions with a single scan over devices and their activity attributes, fetched in pages by device id.
+     * Each partition gets its own future, so a partition removed during the scan is skipped without stopping the others.
+     * The rate limit is applied between page queries, so throttling never keeps a database transaction open.
+     */
+    private Map<TopicPartitionInfo, List<ListenableFuture<?>>> streamDeviceStates(Set<TopicPartitionInfo> addedPartitions) {
+        var result = new HashMap<TopicPartitionInfo, List<ListenableFuture<?>>>();
+        Map<TopicPartitionInfo, SettableFuture<Void>> partitionFutures = new HashMap<>();
+        for (TopicPartitionInfo tpi : addedPartitions) {
+            SettableFuture<Void> future = SettableFuture.create();
+            partitionFutures.put(tpi, future);
+            result.put(tpi, new ArrayList<>(Collections.singletonList(future)));
+        }
+        RateLimiter rateLimiter = streamingBootstrapRateLimit > 0 ? RateLimiter.create(streamingBootstrapRateLimit) : null;
+        deviceStateExecutor.submit(() -> {
+            try {
+                long total = Math.max(1L, deviceService.findDeviceIdInfos(new PageLink(1)).getTotalElements());
+                Map<TopicPartitionInfo, AtomicInteger> loaded = new HashMap<>();
+                AtomicInteger scanned = new AtomicInteger();
+                setBootstrapProgress(0);
+                log.info("Streaming device states for {} partitions, {} devices to scan", addedPartitions.size(), total);
+                deviceService.streamDeviceAttributesInfos(SERVER_SCOPE, PERSISTENT_ATTRIBUTES, streamingBootstrapFetchSize, info -> {
+                    setBootstrapProgress((int) Math.min(99, scanned.incrementAndGet() * 100L / total));
+                    DeviceIdInfo idInfo = info.getIdInfo();
+                    TopicPartitionInfo tpi;
+                    try {
+                        tpi = partitionService.resolve(ServiceType.TB_CORE, idInfo.getTenantId(), idInfo.getDeviceId());
+                    } catch (Exception e) {
+                        log.warn("Failed to resolve partition for device with id [{}], tenant id [{}], customer id [{}]. Reason: {}",
+                                idInfo.getDeviceId(), idInfo.getTenantId(), idInfo.getCustomerId(), e.getMessage());
+                        return true;
+                    }
+                    SettableFuture<Void> future = partitionFutures.get(tpi);
+                    if (future == null || deviceStates.containsKey(idInfo.getDeviceId())) {
+                        return true;
+                    }
+                    if (future.isCancelled()) {
+                        return !partitionFutures.values().stream().allMatch(SettableFuture::isCancelled);
+                    }
+                    if (rateLimiter != null) {
+                        rateLimiter.acquire();
+                    }
+                    DeviceStateData state = toDeviceStateData(info);
+                    if (addDeviceUsingState(tpi, state)) {
+                        checkAndUpdateState(state.getDeviceId(), state);
+                        loaded.computeIfAbsent(tpi, tmp -> new AtomicInteger()).incrementAndGet();
+                    }
+                    return true;
+                });
+                loaded.forEach((tpi, counter) -> log.info("[{}] Initialized {} device states", tpi.getPartition().orElse(0), counter.get()));
+                partitionFutures.values().forEach(future -> future.set(null));
+            } catch (Throwable t) {
+                log.error("Unexpected exception while streaming device states", t);
+                partitionFutures.values().forEach(future -> future.setException(t));
+            } finally {
+                setBootstrapProgress(100);
+            }
+        });
+        return result;
+    }
+
+    private void setBootstrapProgress(int progress) {
+        if (bootstrapProgress != null) {
+            bootstrapProgress.set(progress);
+        }
+    }
+
     void checkAndUpdateState(@Nonnull DeviceId deviceId, @Nonnull DeviceStateData state) {
         if (state.getState().isActive()) {
             updateInactivityStateIfExpired(System.currentTimeMillis(), deviceId, state);
@@ -409,11 +519,24 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 updateActivityState(deviceId, state, state.getState().getLastActivityTime());
             }
         }
+        scheduleInactivityCheck(state);
+    }
+
+    void scheduleInactivityCheck(DeviceStateData stateData) {
+        if (inactivityTimingWheel == null) {
+            return;
+        }
+        DeviceState state = stateData.getState();
+        if (state.getLastInactivityAlarmTime() == 0L || state.getLastInactivityAlarmTime() < state.getLastActivityTime()) {
+            long deadline = Math.max(state.getLastActivityTime(), stateData.getDeviceCreationTime()) + state.getInactivityTimeout();
+            inactivityTimingWheel.schedule(stateData, deadline);
+        }
     }
 
     private boolean addDeviceUsingState(TopicPartitionInfo tpi, DeviceStateData state) {
         Set<DeviceId> deviceIds = partitionedEntities.get(tpi);
         if (deviceIds != null) {
+            state.setTpi(tpi);
             deviceIds.add(state.getDeviceId());
             deviceStates.putIfAbsent(state.getDeviceId(), state);
             return true;
@@ -424,6 +547,10 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     void checkStates() {
+        if (inactivityTimingWheel != null) {
+            checkExpiredStates();
+            return;
+        }
         try {
             final long ts = System.currentTimeMillis();
             partitionedEntities.forEach((tpi, deviceIds) -> {
@@ -438,7 +565,7 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                         continue;
                     }
                     try {
-                        updateInactivityStateIfExpired(ts, deviceId, stateData);
+                        updateInactivityStateIfExpired(ts, deviceId, stateData, tpi);
                     } catch (Exception e) {
                         if (e instanceof TenantNotFoundException) {
                             idsFromRemovedTenant.add(deviceId);
@@ -454,6 +581,40 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    void checkExpiredStates() {
+        try {
+            final long ts = System.currentTimeMillis();
+            List<DeviceStateData> expiring = inactivityTimingWheel.poll(ts);
+            log.debug("Calculating state updates for {} expiring devices, {} scheduled", expiring.size(), inactivityTimingWheel.size());
+            for (DeviceStateData stateData : expiring) {
+                DeviceId deviceId = stateData.getDeviceId();
+                if (deviceStates.get(deviceId) != stateData) {
+                    // Device was removed or its state was re-fetched and scheduled separately
+                    continue;
+                }
+                try {
+                    updateInactivityStateIfExpired(ts, deviceId, stateData, getPartition(stateData));
+                    if (deviceStates.containsKey(deviceId)) {
+                        scheduleInactivityCheck(stateData);
+                    }
+                } catch (Exception e) {
+                    if (e instanceof TenantNotFoundException) {
+                        cleanupEntity(deviceId);
+                        Set<DeviceId> deviceIds = stateData.getTpi() != null ? partitionedEntities.get(stateData.getTpi()) : null;
+                        if (deviceIds != null) {
+                            deviceIds.remove(deviceId);
+                        }
+                    } else {
+                        log.warn("[{}] Failed to update inactivity state [{}]", deviceId, e.getMessage());
+                        scheduleInactivityCheck(stateData);
+                    }
+                }
+            }
+        } catch (Throwable t) {
+            log.warn("Failed to check devices states", t);
+        }
+    }
+
     void reportActivityStats() {
         try{
             Map<TenantId, Pair<AtomicInteger, AtomicInteger>> stats = new HashMap<>();
@@ -482,13 +643,20 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
     }
 
     void updateInactivityStateIfExpired(long ts, DeviceId deviceId, DeviceStateData stateData) {
+        updateInactivityStateIfExpired(ts, deviceId, stateData, null);
+    }
+
+    /**
+     * @param tpi core partition of the device if it is already known to the caller
+     */
+    void updateInactivityStateIfExpired(long ts, DeviceId deviceId, DeviceStateData stateData, TopicPartitionInfo tpi) {
         log.trace("Processing state {} for device {}", stateData, deviceId);
         if (stateData != null) {
             DeviceState state = stateData.getState();
             if (!isActive(ts, state)
                     && (state.getLastInactivityAlarmTime() == 0L || state.getLastInactivityAlarmTime() < state.getLastActivityTime())
                     && stateData.getDeviceCreationTime() + state.getInactivityTimeout() < ts) {
-                if (partitionService.resolve(ServiceType.TB_CORE, stateData.getTenantId(), deviceId).isMyPartition()) {
+                if (partitionedEntities.containsKey(tpi != null ? tpi : getPartition(stateData))) {
                     state.setActive(false);
                     state.setLastInactivityAlarmTime(ts);
                     save(deviceId, ACTIVITY_STATE, false);
@@ -504,6 +672,21 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
         }
     }
 
+    private TopicPartitionInfo getPartition(DeviceStateData stateData) {
+        TopicPartitionInfo tpi = stateData.getTpi();
+        if (tpi == null) {
+            tpi = partitionService.resolve(ServiceType.TB_CORE, stateData.getTenantId(), stateData.getDeviceId());
+            stateData.setTpi(tpi);
+        }
+        return tpi;
+    }
+
+    @Override
+    protected void onRepartitionEvent() {
+        // Tenant isolation changes may move devices to other topics
+        deviceStates.values().forEach(stateData -> stateData.setTpi(null));
+    }
+
     boolean isActive(long ts, DeviceState state) {
         return ts < state.getLastActivityTime() + state.getInactivityTimeout();
     }
@@ -704,6 +887,30 @@ public class DefaultDeviceStateService extends AbstractPartitionBasedService<Dev
                 .state(deviceState).build();
     }
 
+    DeviceStateData toDeviceStateData(DeviceAttributesInfo info) {
+        List<AttributeKvEntry> data = info.getAttributes();
+        //Actual active state by wall-clock will updated outside this method. This method is only for fetch persistent state
+        DeviceState deviceState = DeviceState.builder()
+                .active(getEntryValue(data, ACTIVITY_STATE, false))
+                .lastConnectTime(getEntryValue(data, LAST_CONNECT_TIME, 0L))
+                .lastDisconnectTime(getEntryValue(data, LAST_DISCONNECT_TIME, 0L))
+                .lastActivityTime(getEntryValue(data, LAST_ACTIVITY_TIME, 0L))
+                .lastInactivityAlarmTime(getEntryValue(data, INACTIVITY_ALARM_TIME, 0L))
+                .inactivityTimeout(getEntryValue(data, INACTIVITY_TIMEOUT, defaultInactivityTimeoutMs))
+                .build();
+        TbMsgMetaData md = new TbMsgMetaData();
+        md.putValue("deviceName", info.getName());
+        md.putValue("deviceLabel", info.getLabel());
+        md.putValue("deviceType", info.getType());
+        return DeviceStateData.builder()
+                .customerId(info.getIdInfo().getCustomerId())
+                .tenantId(info.getIdInfo().getTenantId())
+                .deviceId(info.getIdInfo().getDeviceId())
+                .deviceCreationTime(info.getCreatedTime())
+                .metaData(md)
+                .state(deviceState).build();
+    }
+
     private EntityKeyType getKeyType() {
         return persistToTelemetry ? EntityKeyType.TIME_SERIES : EntityKeyType.SERVER_ATTRIBUTE;
     }
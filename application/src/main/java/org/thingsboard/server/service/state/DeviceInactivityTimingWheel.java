@@ -0,0 +1,95 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Timing wheel of device inactivity deadlines. Deadlines are rounded up to the tick, so every slot holds the devices
+ * that expire within the same check interval. Only due slots are touched on each check.
+ * <p>
+ * A device is kept in a single slot at a time. Moving it to another slot leaves a stale entry in the old one,
+ * which is skipped on poll, so rescheduling does not search for the previous position.
+ */
+class DeviceInactivityTimingWheel {
+
+    private final long tickMs;
+    private final TreeMap<Long, List<DeviceStateData>> slots = new TreeMap<>();
+    private long lastPolledTick;
+    private int size;
+
+    DeviceInactivityTimingWheel(long tickMs) {
+        this.tickMs = tickMs;
+    }
+
+    void schedule(DeviceStateData stateData, long deadline) {
+        long tick = Math.floorDiv(deadline, tickMs) + 1;
+        synchronized (this) {
+            if (tick <= lastPolledTick) {
+                tick = lastPolledTick + 1;
+            }
+            if (stateData.getScheduledTick() == tick) {
+                return;
+            }
+            stateData.setScheduledTick(tick);
+            slots.computeIfAbsent(tick, t -> new ArrayList<>()).add(stateData);
+            size++;
+        }
+    }
+
+    /**
+     * Removes all slots that are due at the given time.
+     *
+     * @return devices that are still scheduled in the removed slots
+     */
+    List<DeviceStateData> poll(long ts) {
+        long currentTick = Math.floorDiv(ts, tickMs);
+        List<List<DeviceStateData>> dueSlots;
+        synchronized (this) {
+            Map<Long, List<DeviceStateData>> due = slots.headMap(currentTick, true);
+            if (due.isEmpty()) {
+                lastPolledTick = Math.max(lastPolledTick, currentTick);
+                return Collections.emptyList();
+            }
+            dueSlots = new ArrayList<>(due.size());
+            for (Map.Entry<Long, List<DeviceStateData>> slot : due.entrySet()) {
+                dueSlots.add(slot.getValue());
+                size -= slot.getValue().size();
+            }
+            due.clear();
+            lastPolledTick = Math.max(lastPolledTick, currentTick);
+        }
+        List<DeviceStateData> result = new ArrayList<>();
+        for (List<DeviceStateData> slot : dueSlots) {
+            for (DeviceStateData stateData : slot) {
+                long tick = stateData.getScheduledTick();
+                if (tick != 0 && tick <= currentTick) {
+                    stateData.setScheduledTick(0);
+                    result.add(stateData);
+                }
+            }
+        }
+        return result;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+}
@@ -17,10 +17,13 @@ package org.thingsboard.server.service.state;
 
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 
 /**
  * Created by ashvayka on 01.05.18.
@@ -35,5 +38,13 @@ class DeviceStateData {
     private final long deviceCreationTime;
     private TbMsgMetaData metaData;
     private final DeviceState state;
-    
+    // Core partition of the device, resolved once and reset on repartitioning
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile TopicPartitionInfo tpi;
+    // Slot of the device in DeviceInactivityTimingWheel, 0 if not scheduled
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private volatile long scheduledTick;
+
 }
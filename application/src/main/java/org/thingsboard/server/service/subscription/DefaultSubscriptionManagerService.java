@@ -17,6 +17,7 @@ package org.thingsboard.server.service.subscription;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.thingsboard.common.util.DonAsynchron;
 import org.thingsboard.common.util.JacksonUtil;
@@ -79,6 +80,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Predicate;
 
@@ -98,10 +100,11 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     private final DeviceStateService deviceStateService;
     private final TbClusterService clusterService;
 
-    private final Map<EntityId, Set<TbSubscription>> subscriptionsByEntityId = new ConcurrentHashMap<>();
+    private final Map<EntityId, TbEntitySubscriptions> subscriptionsByEntityId = new ConcurrentHashMap<>();
     private final Map<String, Map<Integer, TbSubscription>> subscriptionsByWsSessionId = new ConcurrentHashMap<>();
     private final ConcurrentMap<TopicPartitionInfo, Set<TbSubscription>> partitionedSubscriptions = new ConcurrentHashMap<>();
     private final Set<TopicPartitionInfo> currentPartitions = ConcurrentHashMap.newKeySet();
+    private final SubscriptionServiceStatistics stats = new SubscriptionServiceStatistics();
 
     private ExecutorService tsCallBackExecutor;
     private String serviceId;
@@ -135,7 +138,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
             callback.onFailure(new RuntimeException("Entity belongs to external partition " + tpi.getFullTopicName() + "!"));
         }
         boolean newSubscription = subscriptionsByEntityId
-                .computeIfAbsent(subscription.getEntityId(), k -> ConcurrentHashMap.newKeySet()).add(subscription);
+                .computeIfAbsent(subscription.getEntityId(), k -> new TbEntitySubscriptions()).add(subscription);
         subscriptionsByWsSessionId.computeIfAbsent(subscription.getSessionId(), k -> new ConcurrentHashMap<>()).put(subscription.getSubscriptionId(), subscription);
         if (newSubscription) {
             switch (subscription.getType()) {
@@ -199,24 +202,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     @Override
     public void onTimeSeriesUpdate(TenantId tenantId, EntityId entityId, List<TsKvEntry> ts, TbCallback callback) {
         onLocalTelemetrySubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.TIMESERIES.equals(s.getType())) {
-                        return (TbTimeseriesSubscription) s;
-                    } else {
-                        return null;
-                    }
-                }, s -> true, s -> {
-                    List<TsKvEntry> subscriptionUpdate = null;
-                    for (TsKvEntry kv : ts) {
-                        if ((s.isAllKeys() || s.getKeyStates().containsKey((kv.getKey())))) {
-                            if (subscriptionUpdate == null) {
-                                subscriptionUpdate = new ArrayList<>();
-                            }
-                            subscriptionUpdate.add(kv);
-                        }
-                    }
-                    return subscriptionUpdate;
-                }, true);
+                subs -> subs.matchTimeseries(ts, TsKvEntry::getKey, Function.identity()), true);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             updateDeviceInactivityTimeout(tenantId, entityId, ts);
         }
@@ -231,26 +217,8 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     @Override
     public void onAttributesUpdate(TenantId tenantId, EntityId entityId, String scope, List<AttributeKvEntry> attributes, boolean notifyDevice, TbCallback callback) {
         onLocalTelemetrySubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.ATTRIBUTES.equals(s.getType())) {
-                        return (TbAttributeSubscription) s;
-                    } else {
-                        return null;
-                    }
-                },
-                s -> (TbAttributeSubscriptionScope.ANY_SCOPE.equals(s.getScope()) || scope.equals(s.getScope().name())),
-                s -> {
-                    List<TsKvEntry> subscriptionUpdate = null;
-                    for (AttributeKvEntry kv : attributes) {
-                        if (s.isAllKeys() || s.getKeyStates().containsKey(kv.getKey())) {
-                            if (subscriptionUpdate == null) {
-                                subscriptionUpdate = new ArrayList<>();
-                            }
-                            subscriptionUpdate.add(new BasicTsKvEntry(kv.getLastUpdateTs(), kv));
-                        }
-                    }
-                    return subscriptionUpdate;
-                }, true);
+                subs -> subs.matchAttributes(attributes, AttributeKvEntry::getKey, kv -> new BasicTsKvEntry(kv.getLastUpdateTs(), kv),
+                        s -> (TbAttributeSubscriptionScope.ANY_SCOPE.equals(s.getScope()) || scope.equals(s.getScope().name()))), true);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             if (TbAttributeSubscriptionScope.SERVER_SCOPE.name().equalsIgnoreCase(scope)) {
                 updateDeviceInactivityTimeout(tenantId, entityId, attributes);
@@ -313,11 +281,11 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
 
     @Override
     public void onNotificationUpdate(TenantId tenantId, UserId recipientId, NotificationUpdate notificationUpdate, TbCallback callback) {
-        Set<TbSubscription> subscriptions = subscriptionsByEntityId.get(recipientId);
+        TbEntitySubscriptions subscriptions = subscriptionsByEntityId.get(recipientId);
         if (subscriptions != null) {
             NotificationsSubscriptionUpdate subscriptionUpdate = new NotificationsSubscriptionUpdate(notificationUpdate);
             log.trace("Handling notificationUpdate for user {}: {}", recipientId, notificationUpdate);
-            subscriptions.stream()
+            subscriptions.getSubscriptions().stream()
                     .filter(subscription -> subscription.getType() == TbSubscriptionType.NOTIFICATIONS
                             || subscription.getType() == TbSubscriptionType.NOTIFICATIONS_COUNT)
                     .forEach(subscription -> onNotificationsSubUpdate(subscriptionUpdate, subscription));
@@ -333,7 +301,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
                 return;
             }
             log.trace("Handling notificationRequestUpdate for user {}: {}", entityId, notificationRequestUpdate);
-            subscriptions.forEach(subscription -> {
+            subscriptions.getSubscriptions().forEach(subscription -> {
                 if (subscription.getType() != TbSubscriptionType.NOTIFICATIONS &&
                         subscription.getType() != TbSubscriptionType.NOTIFICATIONS_COUNT) {
                     return;
@@ -366,26 +334,8 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     @Override
     public void onAttributesDelete(TenantId tenantId, EntityId entityId, String scope, List<String> keys, boolean notifyDevice, TbCallback callback) {
         onLocalTelemetrySubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.ATTRIBUTES.equals(s.getType())) {
-                        return (TbAttributeSubscription) s;
-                    } else {
-                        return null;
-                    }
-                },
-                s -> (TbAttributeSubscriptionScope.ANY_SCOPE.equals(s.getScope()) || scope.equals(s.getScope().name())),
-                s -> {
-                    List<TsKvEntry> subscriptionUpdate = null;
-                    for (String key : keys) {
-                        if (s.isAllKeys() || s.getKeyStates().containsKey(key)) {
-                            if (subscriptionUpdate == null) {
-                                subscriptionUpdate = new ArrayList<>();
-                            }
-                            subscriptionUpdate.add(new BasicTsKvEntry(0, new StringDataEntry(key, "")));
-                        }
-                    }
-                    return subscriptionUpdate;
-                }, false);
+                subs -> subs.matchAttributes(keys, Function.identity(), key -> new BasicTsKvEntry(0, new StringDataEntry(key, "")),
+                        s -> (TbAttributeSubscriptionScope.ANY_SCOPE.equals(s.getScope()) || scope.equals(s.getScope().name()))), false);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             if (TbAttributeSubscriptionScope.SERVER_SCOPE.name().equalsIgnoreCase(scope)
                     || TbAttributeSubscriptionScope.ANY_SCOPE.name().equalsIgnoreCase(scope)) {
@@ -401,24 +351,7 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     @Override
     public void onTimeSeriesDelete(TenantId tenantId, EntityId entityId, List<String> keys, TbCallback callback) {
         onLocalTelemetrySubUpdate(entityId,
-                s -> {
-                    if (TbSubscriptionType.TIMESERIES.equals(s.getType())) {
-                        return (TbTimeseriesSubscription) s;
-                    } else {
-                        return null;
-                    }
-                }, s -> true, s -> {
-                    List<TsKvEntry> subscriptionUpdate = null;
-                    for (String key : keys) {
-                        if (s.isAllKeys() || s.getKeyStates().containsKey(key)) {
-                            if (subscriptionUpdate == null) {
-                                subscriptionUpdate = new ArrayList<>();
-                            }
-                            subscriptionUpdate.add(new BasicTsKvEntry(0, new StringDataEntry(key, "")));
-                        }
-                    }
-                    return subscriptionUpdate;
-                }, false);
+                subs -> subs.matchTimeseries(keys, Function.identity(), key -> new BasicTsKvEntry(0, new StringDataEntry(key, ""))), false);
         if (entityId.getEntityType() == EntityType.DEVICE) {
             deleteDeviceInactivityTimeout(tenantId, entityId, keys);
         }
@@ -426,40 +359,51 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     }
 
     private <T extends TbSubscription> void onLocalTelemetrySubUpdate(EntityId entityId,
-                                                                      Function<TbSubscription, T> castFunction,
-                                                                      Predicate<T> filterFunction,
-                                                                      Function<T, List<TsKvEntry>> processFunction,
+                                                                      Function<TbEntitySubscriptions, Map<T, List<TsKvEntry>>> matchFunction,
                                                                       boolean ignoreEmptyUpdates) {
-        Set<TbSubscription> entitySubscriptions = subscriptionsByEntityId.get(entityId);
+        TbEntitySubscriptions entitySubscriptions = subscriptionsByEntityId.get(entityId);
         if (entitySubscriptions != null) {
-            entitySubscriptions.stream().map(castFunction).filter(Objects::nonNull).filter(filterFunction).forEach(s -> {
-                List<TsKvEntry> subscriptionUpdate = processFunction.apply(s);
-                if (subscriptionUpdate != null && !subscriptionUpdate.isEmpty()) {
-                    if (serviceId.equals(s.getServiceId())) {
-                        TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(s.getSubscriptionId(), subscriptionUpdate);
-                        localSubscriptionService.onSubscriptionUpdate(s.getSessionId(), update, TbCallback.EMPTY);
-                    } else {
-                        TopicPartitionInfo tpi = notificationsTopicService.getNotificationsTopic(ServiceType.TB_CORE, s.getServiceId());
-                        toCoreNotificationsProducer.send(tpi, toProto(s, subscriptionUpdate, ignoreEmptyUpdates), null);
-                    }
+            long startNs = System.nanoTime();
+            Map<T, List<TsKvEntry>> subscriptionUpdates = matchFunction.apply(entitySubscriptions);
+            subscriptionUpdates.forEach((s, subscriptionUpdate) -> {
+                if (serviceId.equals(s.getServiceId())) {
+                    TelemetrySubscriptionUpdate update = new TelemetrySubscriptionUpdate(s.getSubscriptionId(), subscriptionUpdate);
+                    localSubscriptionService.onSubscriptionUpdate(s.getSessionId(), update, TbCallback.EMPTY);
+                } else {
+                    TopicPartitionInfo tpi = notificationsTopicService.getNotificationsTopic(ServiceType.TB_CORE, s.getServiceId());
+                    toCoreNotificationsProducer.send(tpi, toProto(s, subscriptionUpdate, ignoreEmptyUpdates), null);
                 }
             });
+            stats.getTelemetryFanOutInvocationCnt().incrementAndGet();
+            stats.getTelemetryFanOutSubscriptionsCnt().addAndGet(subscriptionUpdates.size());
+            stats.getTelemetryFanOutTimeSpent().addAndGet(System.nanoTime() - startNs);
         } else {
             log.debug("[{}] No device subscriptions to process!", entityId);
         }
     }
 
+    @Scheduled(fixedDelayString = "${server.ws.subscription_stats_print_interval_ms:10000}")
+    public void printStats() {
+        int fanOutCntValue = stats.getTelemetryFanOutInvocationCnt().getAndSet(0);
+        long fanOutSubscriptionsCntValue = stats.getTelemetryFanOutSubscriptionsCnt().getAndSet(0);
+        long fanOutTimeValue = stats.getTelemetryFanOutTimeSpent().getAndSet(0);
+        if (fanOutCntValue > 0) {
+            log.debug("Stats: telemetryFanOutCnt = [{}], telemetryFanOutSubscriptionsCnt = [{}], telemetryFanOutTime = [{}] ms",
+                    fanOutCntValue, fanOutSubscriptionsCntValue, TimeUnit.NANOSECONDS.toMillis(fanOutTimeValue));
+        }
+    }
+
     private void onLocalAlarmSubUpdate(EntityId entityId,
                                        Function<TbSubscription, TbAlarmsSubscription> castFunction,
                                        Predicate<TbAlarmsSubscription> filterFunction,
                                        AlarmInfo alarm, boolean deleted) {
-        Set<TbSubscription> entitySubscriptions = subscriptionsByEntityId.get(entityId);
+        TbEntitySubscriptions entitySubscriptions = subscriptionsByEntityId.get(entityId);
         if (alarm == null) {
             log.warn("[{}] empty alarm update!", entityId);
             return;
         }
         if (entitySubscriptions != null) {
-            entitySubscriptions.stream().map(castFunction).filter(Objects::nonNull).filter(filterFunction).forEach(s -> {
+            entitySubscriptions.getSubscriptions().stream().map(castFunction).filter(Objects::nonNull).filter(filterFunction).forEach(s -> {
                 if (serviceId.equals(s.getServiceId())) {
                     AlarmSubscriptionUpdate update = new AlarmSubscriptionUpdate(s.getSubscriptionId(), alarm, deleted);
                     localSubscriptionService.onSubscriptionUpdate(s.getSessionId(), update, TbCallback.EMPTY);
@@ -474,10 +418,10 @@ public class DefaultSubscriptionManagerService extends TbApplicationEventListene
     }
 
     private void removeSubscriptionFromEntityMap(TbSubscription sub) {
-        Set<TbSubscription> entitySubSet = subscriptionsByEntityId.get(sub.getEntityId());
-        if (entitySubSet != null) {
-            entitySubSet.remove(sub);
-            if (entitySubSet.isEmpty()) {
+        TbEntitySubscriptions entitySubscriptions = subscriptionsByEntityId.get(sub.getEntityId());
+        if (entitySubscriptions != null) {
+            entitySubscriptions.remove(sub);
+            if (entitySubscriptions.isEmpty()) {
                 subscriptionsByEntityId.remove(sub.getEntityId());
             }
         }
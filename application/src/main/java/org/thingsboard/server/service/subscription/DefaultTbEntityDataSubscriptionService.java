@@ -137,11 +137,14 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private int maxAlarmQueriesPerRefreshInterval;
     @Value("${ui.dashboard.max_datapoints_limit:50000}")
     private int maxDatapointLimit;
+    @Value("${server.ws.dynamic_page_link.shared_refresh_enabled:false}")
+    private boolean sharedRefreshEnabled;
 
     private ExecutorService wsCallBackExecutor;
     private boolean tsInSqlDB;
     private String serviceId;
     private SubscriptionServiceStatistics stats = new SubscriptionServiceStatistics();
+    private TbSharedEntityDataQueries sharedQueries;
 
     @PostConstruct
     public void initExecutor() {
@@ -154,6 +157,10 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         } else {
             scheduler = Executors.newScheduledThreadPool(dynamicPageLinkRefreshPoolSize, tbThreadFactory);
         }
+        if (sharedRefreshEnabled) {
+            // Slightly less than the refresh interval, so that every context tick within one interval reuses the same result
+            sharedQueries = new TbSharedEntityDataQueries(stats, TimeUnit.SECONDS.toMillis(dynamicPageLinkRefreshInterval) * 9 / 10);
+        }
     }
 
     @PreDestroy
@@ -449,19 +456,30 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
         try {
             if (validate(finalCtx)) {
                 long start = System.currentTimeMillis();
-                finalCtx.update();
+                if (sharedQueries != null && finalCtx instanceof TbEntityDataSubCtx) {
+                    sharedQueries.refresh((TbEntityDataSubCtx) finalCtx);
+                } else {
+                    finalCtx.update();
+                }
                 long end = System.currentTimeMillis();
                 log.trace("[{}][{}] Executing query: {}", finalCtx.getSessionId(), finalCtx.getCmdId(), finalCtx.getQuery());
                 stats.getDynamicQueryInvocationCnt().incrementAndGet();
                 stats.getDynamicQueryTimeSpent().addAndGet(end - start);
             } else {
                 finalCtx.stop();
+                releaseSharedQuery(finalCtx);
             }
         } catch (Exception e) {
             log.warn("[{}][{}] Failed to refresh query", finalCtx.getSessionId(), finalCtx.getCmdId(), e);
         }
     }
 
+    private void releaseSharedQuery(TbAbstractSubCtx<?> ctx) {
+        if (sharedQueries != null) {
+            sharedQueries.release(ctx);
+        }
+    }
+
     private void refreshAlarmQuery(TbAlarmDataSubCtx finalCtx) {
         if (validate(finalCtx)) {
             finalCtx.checkAndResetInvocationCounter();
@@ -487,6 +505,12 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
                     dynamicQueryCnt, dynamicQueryInvocationCntValue, dynamicQueryInvocationTimeValue,
                     alarmQueryInvocationCntValue, alarmQueryInvocationTimeValue);
         }
+        int sharedQueryExecutionCntValue = stats.getSharedQueryExecutionCnt().getAndSet(0);
+        int sharedQueryHitCntValue = stats.getSharedQueryHitCnt().getAndSet(0);
+        if (sharedQueries != null && (sharedQueryExecutionCntValue > 0 || sharedQueryHitCntValue > 0)) {
+            log.info("Stats: sharedQueryCnt = [{}], sharedQueryRefCnt = [{}], sharedQueryExecutionCnt = [{}], sharedQueryHitCnt = [{}]",
+                    sharedQueries.getSharedQueryCnt(), sharedQueries.getSharedQueryRefCnt(), sharedQueryExecutionCntValue, sharedQueryHitCntValue);
+        }
     }
 
     private TbEntityDataSubCtx createSubCtx(WebSocketSessionRef sessionRef, EntityDataCmd cmd) {
@@ -718,6 +742,7 @@ public class DefaultTbEntityDataSubscriptionService implements TbEntityDataSubsc
     private void cleanupAndCancel(TbAbstractSubCtx ctx) {
         if (ctx != null) {
             ctx.stop();
+            releaseSharedQuery(ctx);
             if (ctx.getSessionId() != null) {
                 Map<Integer, TbAbstractSubCtx> sessionSubs = subscriptionsBySessionId.get(ctx.getSessionId());
                 if (sessionSubs != null) {
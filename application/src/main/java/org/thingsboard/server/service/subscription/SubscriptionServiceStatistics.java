@@ -28,4 +28,9 @@ public class SubscriptionServiceStatistics {
     private AtomicLong alarmQueryTimeSpent = new AtomicLong();
     private AtomicLong regularQueryTimeSpent = new AtomicLong();
     private AtomicLong dynamicQueryTimeSpent = new AtomicLong();
+    private AtomicInteger telemetryFanOutInvocationCnt = new AtomicInteger();
+    private AtomicLong telemetryFanOutSubscriptionsCnt = new AtomicLong();
+    private AtomicLong telemetryFanOutTimeSpent = new AtomicLong();
+    private AtomicInteger sharedQueryExecutionCnt = new AtomicInteger();
+    private AtomicInteger sharedQueryHitCnt = new AtomicInteger();
 }
@@ -0,0 +1,153 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import lombok.Getter;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Subscriptions of a single entity. Timeseries and attribute subscriptions are additionally indexed by key,
+ * so an update is matched only against the subscriptions that are interested in the updated keys.
+ */
+class TbEntitySubscriptions {
+
+    @Getter
+    private final Set<TbSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final KeyIndex<TbTimeseriesSubscription> tsIndex = new KeyIndex<>();
+    private final KeyIndex<TbAttributeSubscription> attrIndex = new KeyIndex<>();
+
+    boolean add(TbSubscription subscription) {
+        if (!subscriptions.add(subscription)) {
+            return false;
+        }
+        if (subscription instanceof TbTimeseriesSubscription) {
+            TbTimeseriesSubscription tsSub = (TbTimeseriesSubscription) subscription;
+            tsIndex.add(tsSub, tsSub.isAllKeys(), tsSub.getKeyStates());
+        } else if (subscription instanceof TbAttributeSubscription) {
+            TbAttributeSubscription attrSub = (TbAttributeSubscription) subscription;
+            attrIndex.add(attrSub, attrSub.isAllKeys(), attrSub.getKeyStates());
+        }
+        return true;
+    }
+
+    boolean remove(TbSubscription subscription) {
+        if (!subscriptions.remove(subscription)) {
+            return false;
+        }
+        if (subscription instanceof TbTimeseriesSubscription) {
+            TbTimeseriesSubscription tsSub = (TbTimeseriesSubscription) subscription;
+            tsIndex.remove(tsSub, tsSub.isAllKeys(), tsSub.getKeyStates());
+        } else if (subscription instanceof TbAttributeSubscription) {
+            TbAttributeSubscription attrSub = (TbAttributeSubscription) subscription;
+            attrIndex.remove(attrSub, attrSub.isAllKeys(), attrSub.getKeyStates());
+        }
+        return true;
+    }
+
+    boolean isEmpty() {
+        return subscriptions.isEmpty();
+    }
+
+    <E> Map<TbTimeseriesSubscription, List<TsKvEntry>> matchTimeseries(List<E> entries, Function<E, String> keyFunction,
+                                                                       Function<E, TsKvEntry> toTsKvEntry) {
+        return tsIndex.match(entries, keyFunction, toTsKvEntry, s -> true);
+    }
+
+    <E> Map<TbAttributeSubscription, List<TsKvEntry>> matchAttributes(List<E> entries, Function<E, String> keyFunction,
+                                                                      Function<E, TsKvEntry> toTsKvEntry,
+                                                                      Predicate<TbAttributeSubscription> filter) {
+        return attrIndex.match(entries, keyFunction, toTsKvEntry, filter);
+    }
+
+    private static class KeyIndex<T extends TbSubscription> {
+
+        private final Set<T> allKeysSubscriptions = ConcurrentHashMap.newKeySet();
+        private final ConcurrentMap<String, Set<T>> subscriptionsByKey = new ConcurrentHashMap<>();
+
+        void add(T subscription, boolean allKeys, Map<String, Long> keyStates) {
+            if (allKeys) {
+                allKeysSubscriptions.add(subscription);
+            } else if (keyStates != null) {
+                for (String key : keyStates.keySet()) {
+                    subscriptionsByKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(subscription);
+                }
+            }
+        }
+
+        void remove(T subscription, boolean allKeys, Map<String, Long> keyStates) {
+            if (allKeys) {
+                allKeysSubscriptions.remove(subscription);
+            } else if (keyStates != null) {
+                for (String key : keyStates.keySet()) {
+                    subscriptionsByKey.computeIfPresent(key, (k, subs) -> {
+                        subs.remove(subscription);
+                        return subs.isEmpty() ? null : subs;
+                    });
+                }
+            }
+        }
+
+        <E> Map<T, List<TsKvEntry>> match(List<E> entries, Function<E, String> keyFunction,
+                                          Function<E, TsKvEntry> toTsKvEntry, Predicate<T> filter) {
+            if (entries.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<T, List<TsKvEntry>> result = new HashMap<>();
+            List<TsKvEntry> allEntries = null;
+            if (!allKeysSubscriptions.isEmpty()) {
+                allEntries = new ArrayList<>(entries.size());
+                for (E entry : entries) {
+                    allEntries.add(toTsKvEntry.apply(entry));
+                }
+                for (T subscription : allKeysSubscriptions) {
+                    if (filter.test(subscription)) {
+                        result.put(subscription, new ArrayList<>(allEntries));
+                    }
+                }
+            }
+            if (!subscriptionsByKey.isEmpty()) {
+                int idx = 0;
+                for (E entry : entries) {
+                    int entryIdx = idx++;
+                    Collection<T> keySubscriptions = subscriptionsByKey.get(keyFunction.apply(entry));
+                    if (keySubscriptions == null) {
+                        continue;
+                    }
+                    TsKvEntry tsKvEntry = allEntries != null ? allEntries.get(entryIdx) : toTsKvEntry.apply(entry);
+                    for (T subscription : keySubscriptions) {
+                        if (filter.test(subscription)) {
+                            result.computeIfAbsent(subscription, s -> new ArrayList<>()).add(tsKvEntry);
+                        }
+                    }
+                }
+            }
+            return result;
+        }
+    }
+
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.JacksonUtil;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+/**
+ * Deduplicates periodic refreshes of dynamic entity data queries.
+ * Contexts with the same tenant, customer and query share one result that is re-fetched at most once per refresh interval.
+ * Each shared query is reference-counted by the contexts that use it and is dropped once the last one is released.
+ */
+@Slf4j
+class TbSharedEntityDataQueries {
+
+    private static final Comparator<EntityKey> KEY_COMPARATOR = Comparator.comparing(EntityKey::getType).thenComparing(EntityKey::getKey);
+
+    private final SubscriptionServiceStatistics stats;
+    private final long maxResultAgeMs;
+    private final ConcurrentMap<SharedQueryKey, SharedQuery> queries = new ConcurrentHashMap<>();
+    // Contexts are @Data with mutable fields, so they are tracked by identity
+    private final Map<TbEntityDataSubCtx, SharedQueryKey> ctxKeys = Collections.synchronizedMap(new IdentityHashMap<>());
+
+    TbSharedEntityDataQueries(SubscriptionServiceStatistics stats, long maxResultAgeMs) {
+        this.stats = stats;
+        this.maxResultAgeMs = maxResultAgeMs;
+    }
+
+    void refresh(TbEntityDataSubCtx ctx) {
+        SharedQueryKey key = toKey(ctx);
+        SharedQueryKey oldKey = key != null ? ctxKeys.put(ctx, key) : ctxKeys.remove(ctx);
+        if (!Objects.equals(oldKey, key)) {
+            if (oldKey != null) {
+                release(oldKey);
+            }
+            if (key != null) {
+                acquire(key);
+            }
+        }
+        if (key == null) {
+            ctx.update();
+            return;
+        }
+        SharedQuery sharedQuery = queries.get(key);
+        PageData<EntityData> result = sharedQuery != null ? sharedQuery.getOrFetch(ctx) : ctx.findEntityData();
+        ctx.update(copy(result));
+    }
+
+    void release(TbAbstractSubCtx<?> ctx) {
+        if (ctx instanceof TbEntityDataSubCtx) {
+            SharedQueryKey key = ctxKeys.remove(ctx);
+            if (key != null) {
+                release(key);
+            }
+        }
+    }
+
+    int getSharedQueryCnt() {
+        return queries.size();
+    }
+
+    int getSharedQueryRefCnt() {
+        return ctxKeys.size();
+    }
+
+    private void acquire(SharedQueryKey key) {
+        queries.compute(key, (k, sharedQuery) -> {
+            if (sharedQuery == null) {
+                sharedQuery = new SharedQuery();
+            }
+            sharedQuery.refCnt++;
+            return sharedQuery;
+        });
+    }
+
+    private void release(SharedQueryKey key) {
+        queries.computeIfPresent(key, (k, sharedQuery) -> --sharedQuery.refCnt > 0 ? sharedQuery : null);
+    }
+
+    /**
+     * Queries with dynamic values are resolved per user and are never shared.
+     */
+    private static SharedQueryKey toKey(TbEntityDataSubCtx ctx) {
+        EntityDataQuery query = ctx.getQuery();
+        if (query == null || !ctx.getDynamicValues().isEmpty()) {
+            return null;
+        }
+        EntityDataQuery normalized = new EntityDataQuery(query.getEntityFilter(), query.getPageLink(),
+                sorted(query.getEntityFields()), sorted(query.getLatestValues()), query.getKeyFilters());
+        return new SharedQueryKey(ctx.getTenantId(), ctx.getCustomerId(), JacksonUtil.toString(normalized));
+    }
+
+    private static List<EntityKey> sorted(List<EntityKey> keys) {
+        return keys != null ? keys.stream().distinct().sorted(KEY_COMPARATOR).collect(Collectors.toList()) : null;
+    }
+
+    /**
+     * Contexts update the latest values of their entity data in place, so each one gets its own copy.
+     */
+    private static PageData<EntityData> copy(PageData<EntityData> data) {
+        List<EntityData> result = new ArrayList<>(data.getData().size());
+        for (EntityData ed : data.getData()) {
+            Map<EntityKeyType, Map<String, TsValue>> latest = null;
+            if (ed.getLatest() != null) {
+                latest = new HashMap<>();
+                for (var entry : ed.getLatest().entrySet()) {
+                    latest.put(entry.getKey(), new HashMap<>(entry.getValue()));
+                }
+            }
+            result.add(new EntityData(ed.getEntityId(), latest,
+                    ed.getTimeseries() != null ? new HashMap<>(ed.getTimeseries()) : null,
+                    ed.getAggLatest() != null ? new HashMap<>(ed.getAggLatest()) : null));
+        }
+        return new PageData<>(result, data.getTotalPages(), data.getTotalElements(), data.hasNext());
+    }
+
+    @Data
+    private static class SharedQueryKey {
+        private final TenantId tenantId;
+        private final CustomerId customerId;
+        private final String query;
+    }
+
+    private class SharedQuery {
+
+        private int refCnt;
+        private PageData<EntityData> result;
+        private long resultTs;
+
+        private synchronized PageData<EntityData> getOrFetch(TbEntityDataSubCtx ctx) {
+            long ts = System.currentTimeMillis();
+            if (result != null && ts - resultTs < maxResultAgeMs) {
+                stats.getSharedQueryHitCnt().incrementAndGet();
+            } else {
+                result = ctx.findEntityData();
+                resultTs = ts;
+                stats.getSharedQueryExecutionCnt().incrementAndGet();
+            }
+            return result;
+        }
+    }
+
+}
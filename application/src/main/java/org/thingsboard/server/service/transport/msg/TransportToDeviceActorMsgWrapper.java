@@ -20,6 +20,7 @@ import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.msg.MsgType;
 import org.thingsboard.server.common.msg.TbActorMsg;
+import org.thingsboard.server.common.msg.TbActorStopReason;
 import org.thingsboard.server.common.msg.aware.DeviceAwareMsg;
 import org.thingsboard.server.common.msg.aware.TenantAwareMsg;
 import org.thingsboard.server.common.msg.queue.TbCallback;
@@ -52,4 +53,25 @@ public class TransportToDeviceActorMsgWrapper implements TbActorMsg, DeviceAware
     public MsgType getMsgType() {
         return MsgType.TRANSPORT_TO_DEVICE_ACTOR_MSG;
     }
+
+    /**
+     * Session open/close and subscription messages define the state of the device sessions,
+     * so they are sent with high priority and never dropped because of the bounded device actor mailbox.
+     */
+    public boolean isSessionLifecycleMsg() {
+        return msg.hasSessionEvent() || msg.hasSubscribeToAttributes() || msg.hasSubscribeToRPC();
+    }
+
+    @Override
+    public void onTbActorStopped(TbActorStopReason reason) {
+        String message;
+        if (reason == TbActorStopReason.MAILBOX_OVERFLOW) {
+            message = String.format("Device [%s] mailbox is full", deviceId.getId());
+        } else {
+            message = reason == TbActorStopReason.STOPPED ?
+                    String.format("Device [%s] actor stopped", deviceId.getId()) :
+                    String.format("Failed to initialize device [%s] actor!", deviceId.getId());
+        }
+        callback.onFailure(new RuntimeException(message));
+    }
 }
@@ -140,6 +140,9 @@ public class DefaultWebSocketService implements WebSocketService {
     @Value("${server.ws.ping_timeout:30000}")
     private long pingTimeout;
 
+    @Value("${server.ws.conflate_pending_updates:false}")
+    private boolean conflatePendingUpdates;
+
     private final ConcurrentMap<TenantId, Set<String>> tenantSubscriptionsMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<CustomerId, Set<String>> customerSubscriptionsMap = new ConcurrentHashMap<>();
     private final ConcurrentMap<UserId, Set<String>> regularUserSubscriptionsMap = new ConcurrentHashMap<>();
@@ -501,7 +504,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendWsMsg(subscription.getSessionId(), update);
+                                sendWsMsg(subscription.getSessionId(), update.withLatestOnly(true));
                             } finally {
                                 subLock.unlock();
                             }
@@ -511,7 +514,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try{
                     oldSubService.addSubscription(sub);
-                    sendWsMsg(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), attributesData));
+                    sendWsMsg(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), attributesData).withLatestOnly(true));
                 } finally {
                     subLock.unlock();
                 }
@@ -614,7 +617,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendWsMsg(subscription.getSessionId(), update);
+                                sendWsMsg(subscription.getSessionId(), update.withLatestOnly(true));
                             } finally {
                                 subLock.unlock();
                             }
@@ -625,7 +628,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try {
                     oldSubService.addSubscription(sub);
-                    sendWsMsg(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), attributesData));
+                    sendWsMsg(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), attributesData).withLatestOnly(true));
                 } finally {
                     subLock.unlock();
                 }
@@ -714,7 +717,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendWsMsg(subscription.getSessionId(), update);
+                                sendWsMsg(subscription.getSessionId(), update.withLatestOnly(true));
                             } finally {
                                 subLock.unlock();
                             }
@@ -726,7 +729,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try {
                     oldSubService.addSubscription(sub);
-                    sendWsMsg(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data));
+                    sendWsMsg(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data).withLatestOnly(true));
                 } finally {
                     subLock.unlock();
                 }
@@ -767,7 +770,7 @@ public class DefaultWebSocketService implements WebSocketService {
                         .updateProcessor((subscription, update) -> {
                             subLock.lock();
                             try {
-                                sendWsMsg(subscription.getSessionId(), update);
+                                sendWsMsg(subscription.getSessionId(), update.withLatestOnly(cmd.getTimeWindow() <= 0));
                             } finally {
                                 subLock.unlock();
                             }
@@ -779,7 +782,7 @@ public class DefaultWebSocketService implements WebSocketService {
                 subLock.lock();
                 try{
                     oldSubService.addSubscription(sub);
-                    sendWsMsg(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data));
+                    sendWsMsg(sessionRef, new TelemetrySubscriptionUpdate(cmd.getCmdId(), data).withLatestOnly(cmd.getTimeWindow() <= 0));
                 } finally {
                     subLock.unlock();
                 }
@@ -897,6 +900,16 @@ public class DefaultWebSocketService implements WebSocketService {
     }
 
     private void sendWsMsg(WebSocketSessionRef sessionRef, int cmdId, Object update) {
+        if (conflatePendingUpdates && WsUpdateConflator.isConflatable(update)) {
+            executor.submit(() -> {
+                try {
+                    msgEndpoint.sendConflatable(sessionRef, cmdId, update);
+                } catch (IOException e) {
+                    log.warn("[{}] Failed to send reply: {}", sessionRef.getSessionId(), update, e);
+                }
+            });
+            return;
+        }
         try {
             String msg = JacksonUtil.OBJECT_MAPPER.writeValueAsString(update);
             executor.submit(() -> {
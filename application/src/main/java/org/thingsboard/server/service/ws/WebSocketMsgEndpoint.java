@@ -26,6 +26,13 @@ public interface WebSocketMsgEndpoint {
 
     void send(WebSocketSessionRef sessionRef, int subscriptionId, String msg) throws IOException;
 
+    /**
+     * Sends the update or merges it into a pending update of the same subscription if the session is not able to keep up.
+     *
+     * @see WsUpdateConflator
+     */
+    void sendConflatable(WebSocketSessionRef sessionRef, int subscriptionId, Object update) throws IOException;
+
     void sendPing(WebSocketSessionRef sessionRef, long currentTime) throws IOException;
 
     void close(WebSocketSessionRef sessionRef, CloseStatus withReason) throws IOException;
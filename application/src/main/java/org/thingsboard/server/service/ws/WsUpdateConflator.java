@@ -0,0 +1,146 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.query.ComparisonTsValue;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Merges pending subscription updates that were not yet sent to a slow WebSocket session.
+ * Latest values are conflated per (entity, key) keeping the value with the newest timestamp,
+ * time series are merged per timestamp, so no data point that the client has not seen yet is lost.
+ * Time series of a {@link TelemetrySubscriptionUpdate} are kept newest first, the client reads the first entry as the current value.
+ */
+public final class WsUpdateConflator {
+
+    private WsUpdateConflator() {
+    }
+
+    public static boolean isConflatable(Object update) {
+        if (update instanceof TelemetrySubscriptionUpdate) {
+            TelemetrySubscriptionUpdate tsUpdate = (TelemetrySubscriptionUpdate) update;
+            return tsUpdate.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode() && tsUpdate.getData() != null;
+        } else if (update instanceof EntityDataUpdate) {
+            EntityDataUpdate dataUpdate = (EntityDataUpdate) update;
+            return dataUpdate.getErrorCode() == SubscriptionErrorCode.NO_ERROR.getCode() && dataUpdate.getData() == null && dataUpdate.getUpdate() != null;
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * @return the merged update or {@code null} if the updates can't be merged
+     */
+    public static Object merge(Object pending, Object update) {
+        if (pending instanceof TelemetrySubscriptionUpdate && update instanceof TelemetrySubscriptionUpdate) {
+            return merge((TelemetrySubscriptionUpdate) pending, (TelemetrySubscriptionUpdate) update);
+        } else if (pending instanceof EntityDataUpdate && update instanceof EntityDataUpdate) {
+            return merge((EntityDataUpdate) pending, (EntityDataUpdate) update);
+        } else {
+            return null;
+        }
+    }
+
+    static TelemetrySubscriptionUpdate merge(TelemetrySubscriptionUpdate pending, TelemetrySubscriptionUpdate update) {
+        boolean latestOnly = update.isLatestOnly();
+        Map<String, List<Object>> data = new TreeMap<>();
+        pending.getData().forEach((key, values) -> data.put(key, mergeValues(values, Collections.emptyList(), latestOnly)));
+        update.getData().forEach((key, values) -> data.put(key, mergeValues(data.getOrDefault(key, Collections.emptyList()), values, latestOnly)));
+        return new TelemetrySubscriptionUpdate(update.getSubscriptionId(), data).withLatestOnly(latestOnly);
+    }
+
+    private static List<Object> mergeValues(List<Object> pendingValues, List<Object> newValues, boolean latestOnly) {
+        // newer values replace the pending ones with the same timestamp
+        TreeMap<Long, Object> byTs = new TreeMap<>(Collections.reverseOrder());
+        pendingValues.forEach(value -> byTs.put((Long) ((Object[]) value)[0], value));
+        newValues.forEach(value -> byTs.put((Long) ((Object[]) value)[0], value));
+        if (latestOnly) {
+            return byTs.isEmpty() ? new ArrayList<>() : new ArrayList<>(Collections.singletonList(byTs.firstEntry().getValue()));
+        }
+        return new ArrayList<>(byTs.values());
+    }
+
+    static EntityDataUpdate merge(EntityDataUpdate pending, EntityDataUpdate update) {
+        Map<EntityId, EntityData> entities = new LinkedHashMap<>();
+        pending.getUpdate().forEach(entityData -> entities.put(entityData.getEntityId(), entityData));
+        update.getUpdate().forEach(entityData -> entities.merge(entityData.getEntityId(), entityData, WsUpdateConflator::merge));
+        return new EntityDataUpdate(update.getCmdId(), null, new ArrayList<>(entities.values()), update.getAllowedEntities());
+    }
+
+    private static EntityData merge(EntityData pending, EntityData update) {
+        Map<EntityKeyType, Map<String, TsValue>> latest = null;
+        if (pending.getLatest() != null || update.getLatest() != null) {
+            latest = new HashMap<>();
+            mergeLatest(latest, pending.getLatest());
+            mergeLatest(latest, update.getLatest());
+        }
+        Map<String, TsValue[]> timeseries = null;
+        if (pending.getTimeseries() != null || update.getTimeseries() != null) {
+            timeseries = new HashMap<>();
+            mergeTimeseries(timeseries, pending.getTimeseries());
+            mergeTimeseries(timeseries, update.getTimeseries());
+        }
+        Map<Integer, ComparisonTsValue> aggLatest = null;
+        if (pending.getAggLatest() != null || update.getAggLatest() != null) {
+            aggLatest = new HashMap<>();
+            if (pending.getAggLatest() != null) {
+                aggLatest.putAll(pending.getAggLatest());
+            }
+            if (update.getAggLatest() != null) {
+                aggLatest.putAll(update.getAggLatest());
+            }
+        }
+        return new EntityData(update.getEntityId(), latest, timeseries, aggLatest);
+    }
+
+    private static void mergeLatest(Map<EntityKeyType, Map<String, TsValue>> target, Map<EntityKeyType, Map<String, TsValue>> source) {
+        if (source == null) {
+            return;
+        }
+        source.forEach((keyType, values) -> {
+            Map<String, TsValue> targetValues = target.computeIfAbsent(keyType, k -> new HashMap<>());
+            values.forEach((key, value) -> targetValues.merge(key, value, (oldValue, newValue) -> newValue.getTs() >= oldValue.getTs() ? newValue : oldValue));
+        });
+    }
+
+    private static void mergeTimeseries(Map<String, TsValue[]> target, Map<String, TsValue[]> source) {
+        if (source == null) {
+            return;
+        }
+        source.forEach((key, values) -> target.merge(key, values, (oldValues, newValues) -> {
+            TreeMap<Long, TsValue> byTs = new TreeMap<>();
+            Arrays.stream(oldValues).forEach(value -> byTs.put(value.getTs(), value));
+            Arrays.stream(newValues).forEach(value -> byTs.put(value.getTs(), value));
+            return byTs.values().toArray(new TsValue[0]);
+        }));
+    }
+
+}
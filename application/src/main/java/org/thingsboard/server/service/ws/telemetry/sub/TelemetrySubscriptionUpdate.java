@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.service.ws.telemetry.sub;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
 
@@ -31,6 +32,7 @@ public class TelemetrySubscriptionUpdate {
     private int errorCode;
     private String errorMsg;
     private Map<String, List<Object>> data;
+    private boolean latestOnly;
 
     public TelemetrySubscriptionUpdate(int subscriptionId, List<TsKvEntry> data) {
         super();
@@ -77,13 +79,28 @@ public class TelemetrySubscriptionUpdate {
             return Collections.emptyMap();
         } else {
             return data.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> {
-                List<Object> data = e.getValue();
-                Object[] latest = (Object[]) data.get(data.size() - 1);
-                return (long) latest[0];
+                long latestTs = Long.MIN_VALUE;
+                for (Object value : e.getValue()) {
+                    latestTs = Math.max(latestTs, (long) ((Object[]) value)[0]);
+                }
+                return latestTs;
             }));
         }
     }
 
+    /**
+     * @return true if the update belongs to a subscription for the latest values of the keys, not for a time series
+     */
+    @JsonIgnore
+    public boolean isLatestOnly() {
+        return latestOnly;
+    }
+
+    public TelemetrySubscriptionUpdate withLatestOnly(boolean latestOnly) {
+        this.latestOnly = latestOnly;
+        return this;
+    }
+
     public int getErrorCode() {
         return errorCode;
     }
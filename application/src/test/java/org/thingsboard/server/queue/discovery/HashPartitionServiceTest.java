@@ -65,15 +65,20 @@ public class HashPartitionServiceTest {
         applicationEventPublisher = mock(ApplicationEventPublisher.class);
         routingInfoService = mock(TenantRoutingInfoService.class);
         queueRoutingInfoService = mock(QueueRoutingInfoService.class);
-        clusterRoutingService = new HashPartitionService(discoveryService,
+        clusterRoutingService = createPartitionService(hashFunctionName, false);
+    }
+
+    private HashPartitionService createPartitionService(String hashFunctionName, boolean precomputedTpiEnabled) {
+        HashPartitionService partitionService = new HashPartitionService(discoveryService,
                 routingInfoService,
                 applicationEventPublisher,
                 queueRoutingInfoService);
-        ReflectionTestUtils.setField(clusterRoutingService, "coreTopic", "tb.core");
-        ReflectionTestUtils.setField(clusterRoutingService, "corePartitions", 10);
-        ReflectionTestUtils.setField(clusterRoutingService, "vcTopic", "tb.vc");
-        ReflectionTestUtils.setField(clusterRoutingService, "vcPartitions", 10);
-        ReflectionTestUtils.setField(clusterRoutingService, "hashFunctionName", hashFunctionName);
+        ReflectionTestUtils.setField(partitionService, "coreTopic", "tb.core");
+        ReflectionTestUtils.setField(partitionService, "corePartitions", 10);
+        ReflectionTestUtils.setField(partitionService, "vcTopic", "tb.vc");
+        ReflectionTestUtils.setField(partitionService, "vcPartitions", 10);
+        ReflectionTestUtils.setField(partitionService, "hashFunctionName", hashFunctionName);
+        ReflectionTestUtils.setField(partitionService, "precomputedTpiEnabled", precomputedTpiEnabled);
         TransportProtos.ServiceInfo currentServer = TransportProtos.ServiceInfo.newBuilder()
                 .setServiceId("tb-core-0")
                 .addAllServiceTypes(Collections.singletonList(ServiceType.TB_CORE.name()))
@@ -88,9 +93,27 @@ public class HashPartitionServiceTest {
                     .build());
         }
 
-        clusterRoutingService.init();
-        clusterRoutingService.partitionsInit();
-        clusterRoutingService.recalculatePartitions(currentServer, otherServers);
+        partitionService.init();
+        partitionService.partitionsInit();
+        partitionService.recalculatePartitions(currentServer, otherServers);
+        return partitionService;
+    }
+
+    @Test
+    public void testPrecomputedTpiResolutionIsSameAsRegular() {
+        for (String hashFunction : List.of("murmur3_32", "murmur3_128", "sha256")) {
+            HashPartitionService regularService = createPartitionService(hashFunction, false);
+            HashPartitionService precomputedService = createPartitionService(hashFunction, true);
+            for (int i = 0; i < 10000; i++) {
+                DeviceId deviceId = new DeviceId(Uuids.timeBased());
+                TopicPartitionInfo expected = regularService.resolve(ServiceType.TB_CORE, TenantId.SYS_TENANT_ID, deviceId);
+                TopicPartitionInfo actual = precomputedService.resolve(ServiceType.TB_CORE, TenantId.SYS_TENANT_ID, deviceId);
+                Assert.assertEquals(expected, actual);
+                Assert.assertEquals(expected.isMyPartition(), actual.isMyPartition());
+                Assert.assertEquals(regularService.resolvePartitionIndex(deviceId.getId(), 12),
+                        precomputedService.resolvePartitionIndex(deviceId.getId(), 12));
+            }
+        }
     }
 
     @Test
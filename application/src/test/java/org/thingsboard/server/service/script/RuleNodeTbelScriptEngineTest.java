@@ -0,0 +1,99 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.script;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.script.api.ScriptType;
+import org.thingsboard.script.api.tbel.TbelInvokeService;
+import org.thingsboard.server.common.data.id.CustomerId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RuleNodeTbelScriptEngineTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final UUID scriptId = UUID.randomUUID();
+    private TbelInvokeService invokeService;
+    private RuleNodeTbelScriptEngine scriptEngine;
+
+    @BeforeEach
+    public void setUp() {
+        invokeService = mock(TbelInvokeService.class);
+        when(invokeService.eval(eq(tenantId), eq(ScriptType.RULE_NODE_SCRIPT), any(), any())).thenReturn(Futures.immediateFuture(scriptId));
+        scriptEngine = new RuleNodeTbelScriptEngine(tenantId, invokeService, "return msg.temperature > 20;", "msg", "metadata", "msgType");
+    }
+
+    @Test
+    public void testParsedDataIsSharedButNotMutable() {
+        TbMsg msg = newMsg("{\"temperature\":25,\"tags\":[\"a\"]}", null);
+
+        Map<String, Object> first = (Map<String, Object>) scriptEngine.prepareArgs(msg)[0];
+        first.put("temperature", 0);
+        ((List<Object>) first.get("tags")).add("b");
+        Map<String, Object> second = (Map<String, Object>) scriptEngine.prepareArgs(msg)[0];
+
+        assertThat(second).isNotSameAs(first);
+        assertThat(second.get("temperature")).isEqualTo(25);
+        assertThat((List<Object>) second.get("tags")).containsExactly("a");
+    }
+
+    @Test
+    public void testFilterBatchGroupsMessagesByCustomer() throws Exception {
+        CustomerId customerId = new CustomerId(UUID.randomUUID());
+        List<TbMsg> msgs = List.of(
+                newMsg("{\"temperature\":25}", null),
+                newMsg("{\"temperature\":15}", customerId),
+                newMsg("{\"temperature\":30}", null));
+        when(invokeService.invokeScripts(eq(tenantId), any(), eq(scriptId), anyList())).thenAnswer(invocation -> {
+            List<Object[]> argsList = invocation.getArgument(3);
+            return argsList.stream()
+                    .map(args -> Futures.<Object>immediateFuture((Integer) ((Map<?, ?>) args[0]).get("temperature") > 20))
+                    .collect(Collectors.toList());
+        });
+
+        List<ListenableFuture<Boolean>> results = scriptEngine.executeFilterBatchAsync(msgs);
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).get()).isTrue();
+        assertThat(results.get(1).get()).isFalse();
+        assertThat(results.get(2).get()).isTrue();
+        verify(invokeService, times(2)).invokeScripts(eq(tenantId), any(), eq(scriptId), anyList());
+    }
+
+    private TbMsg newMsg(String data, CustomerId customerId) {
+        return TbMsg.newMsg("POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), customerId, new TbMsgMetaData(), data);
+    }
+
+}
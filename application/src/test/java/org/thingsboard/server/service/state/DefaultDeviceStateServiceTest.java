@@ -23,12 +23,18 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.server.cluster.TbClusterService;
+import org.thingsboard.server.common.data.DeviceAttributesInfo;
 import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.id.DeviceId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
 import org.thingsboard.server.common.data.query.EntityData;
 import org.thingsboard.server.common.data.query.EntityKeyType;
 import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.device.DeviceService;
 import org.thingsboard.server.dao.tenant.TenantService;
@@ -36,16 +42,22 @@ import org.thingsboard.server.dao.timeseries.TimeseriesService;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
+import static org.thingsboard.server.service.state.DefaultDeviceStateService.ACTIVITY_STATE;
 import static org.thingsboard.server.service.state.DefaultDeviceStateService.INACTIVITY_TIMEOUT;
+import static org.thingsboard.server.service.state.DefaultDeviceStateService.LAST_ACTIVITY_TIME;
 
 @RunWith(MockitoJUnitRunner.class)
 public class DefaultDeviceStateServiceTest {
@@ -125,4 +137,58 @@ public class DefaultDeviceStateServiceTest {
         Assert.assertEquals(5000L, deviceStateData.getState().getInactivityTimeout());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void givenTimingWheelEnabled_whenCheckStates_thenCheckOnlyExpiringDevices() {
+        service.inactivityTimingWheel = new DeviceInactivityTimingWheel(1000);
+        long ts = System.currentTimeMillis();
+        DeviceStateData expired = newDeviceStateData(ts - 10000, 5000);
+        DeviceStateData active = newDeviceStateData(ts, 60000);
+        service.deviceStates.put(expired.getDeviceId(), expired);
+        service.deviceStates.put(active.getDeviceId(), active);
+        service.scheduleInactivityCheck(expired);
+        service.scheduleInactivityCheck(active);
+        TopicPartitionInfo externalTpi = new TopicPartitionInfo("tb_core", null, 1, false);
+        willReturn(externalTpi).given(partitionService).resolve(ServiceType.TB_CORE, TenantId.SYS_TENANT_ID, expired.getDeviceId());
+
+        service.checkStates();
+
+        Mockito.verify(service, times(1)).updateInactivityStateIfExpired(anyLong(), eq(expired.getDeviceId()), eq(expired), any());
+        Mockito.verify(service, never()).updateInactivityStateIfExpired(anyLong(), eq(active.getDeviceId()), any(), any());
+        // expired device belongs to the partition that is not managed by this service
+        Assert.assertFalse(service.deviceStates.containsKey(expired.getDeviceId()));
+        Assert.assertEquals(externalTpi, expired.getTpi());
+        Assert.assertTrue(active.getScheduledTick() > 0);
+    }
+
+    @Test
+    public void givenStreamedDeviceAttributes_whenTransformingToDeviceStateData_thenUseAttributesAndDefaults() {
+        service.setDefaultInactivityTimeoutMs(60000L);
+        var deviceUuid = UUID.randomUUID();
+        var info = new DeviceAttributesInfo(new DeviceIdInfo(TenantId.SYS_TENANT_ID.getId(), null, deviceUuid), 100L, "Device A", "default", null,
+                List.of(new BaseAttributeKvEntry(new BooleanDataEntry(ACTIVITY_STATE, true), 0L),
+                        new BaseAttributeKvEntry(new LongDataEntry(LAST_ACTIVITY_TIME, 5000L), 0L)));
+
+        DeviceStateData deviceStateData = service.toDeviceStateData(info);
+
+        Assert.assertEquals(new DeviceId(deviceUuid), deviceStateData.getDeviceId());
+        Assert.assertEquals(100L, deviceStateData.getDeviceCreationTime());
+        Assert.assertEquals("Device A", deviceStateData.getMetaData().getValue("deviceName"));
+        Assert.assertTrue(deviceStateData.getState().isActive());
+        Assert.assertEquals(5000L, deviceStateData.getState().getLastActivityTime());
+        Assert.assertEquals(60000L, deviceStateData.getState().getInactivityTimeout());
+        Assert.assertEquals(0L, deviceStateData.getState().getLastConnectTime());
+    }
+
+    private DeviceStateData newDeviceStateData(long lastActivityTime, long inactivityTimeout) {
+        return DeviceStateData.builder()
+                .tenantId(TenantId.SYS_TENANT_ID)
+                .deviceId(new DeviceId(UUID.randomUUID()))
+                .state(DeviceState.builder()
+                        .active(true)
+                        .lastActivityTime(lastActivityTime)
+                        .inactivityTimeout(inactivityTimeout)
+                        .build())
+                .build();
+    }
+
+}
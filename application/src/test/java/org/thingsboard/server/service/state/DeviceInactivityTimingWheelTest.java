@@ -0,0 +1,78 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.state;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeviceInactivityTimingWheelTest {
+
+    private static final long TICK = 1000;
+
+    @Test
+    public void givenScheduledDevices_whenPoll_thenReturnOnlyDueDevices() {
+        DeviceInactivityTimingWheel wheel = new DeviceInactivityTimingWheel(TICK);
+        DeviceStateData first = newStateData();
+        DeviceStateData second = newStateData();
+        wheel.schedule(first, 10_500);
+        wheel.schedule(second, 20_500);
+
+        assertThat(wheel.poll(10_900)).isEmpty();
+        assertThat(wheel.poll(11_000)).containsExactly(first);
+        assertThat(wheel.poll(15_000)).isEmpty();
+        assertThat(wheel.poll(25_000)).containsExactly(second);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    public void givenRescheduledDevice_whenPoll_thenSkipStaleSlot() {
+        DeviceInactivityTimingWheel wheel = new DeviceInactivityTimingWheel(TICK);
+        DeviceStateData stateData = newStateData();
+        wheel.schedule(stateData, 10_500);
+        wheel.schedule(stateData, 30_500);
+
+        assertThat(wheel.poll(20_000)).isEmpty();
+        assertThat(wheel.poll(31_000)).containsExactly(stateData);
+        assertThat(stateData.getScheduledTick()).isZero();
+    }
+
+    @Test
+    public void givenDeadlineInThePast_whenSchedule_thenDeviceIsDueOnNextPoll() {
+        DeviceInactivityTimingWheel wheel = new DeviceInactivityTimingWheel(TICK);
+        DeviceStateData stateData = newStateData();
+        assertThat(wheel.poll(50_000)).isEmpty();
+
+        wheel.schedule(stateData, 10_000);
+
+        assertThat(wheel.poll(50_500)).isEmpty();
+        List<DeviceStateData> due = wheel.poll(51_000);
+        assertThat(due).containsExactly(stateData);
+    }
+
+    private static DeviceStateData newStateData() {
+        return DeviceStateData.builder()
+                .tenantId(TenantId.SYS_TENANT_ID)
+                .deviceId(new DeviceId(UUID.randomUUID()))
+                .state(DeviceState.builder().build())
+                .build();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TbEntitySubscriptionsTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @Test
+    public void testTimeseriesMatchedByKey() {
+        TbEntitySubscriptions subscriptions = new TbEntitySubscriptions();
+        TbTimeseriesSubscription tempSub = tsSubscription(1, false, Map.of("temperature", 0L));
+        TbTimeseriesSubscription humiditySub = tsSubscription(2, false, Map.of("humidity", 0L, "temperature", 0L));
+        TbTimeseriesSubscription allKeysSub = tsSubscription(3, true, null);
+        subscriptions.add(tempSub);
+        subscriptions.add(humiditySub);
+        subscriptions.add(allKeysSub);
+
+        List<TsKvEntry> entries = List.of(entry("humidity", 40), entry("pressure", 1), entry("temperature", 25));
+        Map<TbTimeseriesSubscription, List<TsKvEntry>> result = subscriptions.matchTimeseries(entries, TsKvEntry::getKey, Function.identity());
+
+        assertThat(result).hasSize(3);
+        assertThat(result.get(tempSub)).extracting(TsKvEntry::getKey).containsExactly("temperature");
+        assertThat(result.get(humiditySub)).extracting(TsKvEntry::getKey).containsExactly("humidity", "temperature");
+        assertThat(result.get(allKeysSub)).extracting(TsKvEntry::getKey).containsExactly("humidity", "pressure", "temperature");
+
+        assertThat(subscriptions.matchTimeseries(List.of(entry("voltage", 1)), TsKvEntry::getKey, Function.identity()))
+                .containsOnlyKeys(allKeysSub);
+    }
+
+    @Test
+    public void testAttributesFilteredByScope() {
+        TbEntitySubscriptions subscriptions = new TbEntitySubscriptions();
+        TbAttributeSubscription serverSub = attrSubscription(1, TbAttributeSubscriptionScope.SERVER_SCOPE);
+        TbAttributeSubscription anySub = attrSubscription(2, TbAttributeSubscriptionScope.ANY_SCOPE);
+        subscriptions.add(serverSub);
+        subscriptions.add(anySub);
+        subscriptions.add(tsSubscription(3, false, Map.of("active", 0L)));
+
+        Map<TbAttributeSubscription, List<TsKvEntry>> result = subscriptions.matchAttributes(List.of("active"), Function.identity(),
+                key -> entry(key, 0), s -> TbAttributeSubscriptionScope.ANY_SCOPE.equals(s.getScope()) || "CLIENT_SCOPE".equals(s.getScope().name()));
+
+        assertThat(result).containsOnlyKeys(anySub);
+    }
+
+    @Test
+    public void testRemoveCleansIndex() {
+        TbEntitySubscriptions subscriptions = new TbEntitySubscriptions();
+        TbTimeseriesSubscription sub = tsSubscription(1, false, Map.of("temperature", 0L));
+        subscriptions.add(sub);
+        subscriptions.remove(sub);
+
+        assertThat(subscriptions.isEmpty()).isTrue();
+        assertThat(subscriptions.matchTimeseries(List.of(entry("temperature", 1)), TsKvEntry::getKey, Function.identity())).isEmpty();
+    }
+
+    private TbTimeseriesSubscription tsSubscription(int id, boolean allKeys, Map<String, Long> keyStates) {
+        return TbTimeseriesSubscription.builder()
+                .serviceId("service").sessionId("session").subscriptionId(id)
+                .tenantId(tenantId).entityId(deviceId)
+                .allKeys(allKeys).keyStates(keyStates)
+                .build();
+    }
+
+    private TbAttributeSubscription attrSubscription(int id, TbAttributeSubscriptionScope scope) {
+        return TbAttributeSubscription.builder()
+                .serviceId("service").sessionId("session").subscriptionId(id)
+                .tenantId(tenantId).entityId(deviceId)
+                .keyStates(Map.of("active", 0L)).scope(scope)
+                .build();
+    }
+
+    private static TsKvEntry entry(String key, long value) {
+        return new BasicTsKvEntry(System.currentTimeMillis(), new LongDataEntry(key, value));
+    }
+
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.subscription;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataPageLink;
+import org.thingsboard.server.common.data.query.EntityDataQuery;
+import org.thingsboard.server.common.data.query.EntityKey;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.EntityTypeFilter;
+import org.thingsboard.server.common.data.query.TsValue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TbSharedEntityDataQueriesTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final SubscriptionServiceStatistics stats = new SubscriptionServiceStatistics();
+
+    @Test
+    public void givenSameQuery_whenRefreshed_thenExecutedOnceAndSharedByReference() {
+        var sharedQueries = new TbSharedEntityDataQueries(stats, 60000);
+        TbEntityDataSubCtx first = mockCtx(query("temperature", "humidity"));
+        TbEntityDataSubCtx second = mockCtx(query("humidity", "temperature"));
+
+        sharedQueries.refresh(first);
+        sharedQueries.refresh(second);
+
+        verify(first, times(1)).findEntityData();
+        verify(second, never()).findEntityData();
+        verify(first).update(any());
+        verify(second).update(any());
+        assertThat(stats.getSharedQueryExecutionCnt().get()).isEqualTo(1);
+        assertThat(stats.getSharedQueryHitCnt().get()).isEqualTo(1);
+        assertThat(sharedQueries.getSharedQueryCnt()).isEqualTo(1);
+        assertThat(sharedQueries.getSharedQueryRefCnt()).isEqualTo(2);
+
+        sharedQueries.release(first);
+        assertThat(sharedQueries.getSharedQueryCnt()).isEqualTo(1);
+        sharedQueries.release(second);
+        assertThat(sharedQueries.getSharedQueryCnt()).isZero();
+        assertThat(sharedQueries.getSharedQueryRefCnt()).isZero();
+    }
+
+    @Test
+    public void givenExpiredResult_whenRefreshed_thenExecutedAgain() {
+        var sharedQueries = new TbSharedEntityDataQueries(stats, 0);
+        TbEntityDataSubCtx ctx = mockCtx(query("temperature"));
+
+        sharedQueries.refresh(ctx);
+        sharedQueries.refresh(ctx);
+
+        verify(ctx, times(2)).findEntityData();
+        assertThat(sharedQueries.getSharedQueryRefCnt()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenSharedResult_whenContextModifiesLatestValues_thenOtherContextIsNotAffected() {
+        var sharedQueries = new TbSharedEntityDataQueries(stats, 60000);
+        TbEntityDataSubCtx first = mockCtx(query("temperature"));
+        TbEntityDataSubCtx second = mockCtx(query("temperature"));
+        List<PageData<EntityData>> results = new ArrayList<>();
+        doAnswer(inv -> results.add(inv.getArgument(0))).when(first).update(any());
+        doAnswer(inv -> results.add(inv.getArgument(0))).when(second).update(any());
+
+        sharedQueries.refresh(first);
+        sharedQueries.refresh(second);
+
+        results.get(0).getData().get(0).getLatest().get(EntityKeyType.TIME_SERIES).put("temperature", new TsValue(2L, "30"));
+        assertThat(results.get(1).getData().get(0).getLatest().get(EntityKeyType.TIME_SERIES).get("temperature").getValue()).isEqualTo("25");
+    }
+
+    @Test
+    public void givenQueryWithDynamicValues_whenRefreshed_thenNotShared() {
+        var sharedQueries = new TbSharedEntityDataQueries(stats, 60000);
+        TbEntityDataSubCtx ctx = mockCtx(query("temperature"));
+        when(ctx.getDynamicValues()).thenReturn(Map.of(new TbAbstractSubCtx.DynamicValueKey(null, null, null), Collections.emptyList()));
+
+        sharedQueries.refresh(ctx);
+
+        verify(ctx).update();
+        assertThat(sharedQueries.getSharedQueryCnt()).isZero();
+    }
+
+    private TbEntityDataSubCtx mockCtx(EntityDataQuery query) {
+        TbEntityDataSubCtx ctx = mock(TbEntityDataSubCtx.class);
+        when(ctx.getQuery()).thenReturn(query);
+        when(ctx.getDynamicValues()).thenReturn(new ConcurrentHashMap<>());
+        when(ctx.getTenantId()).thenReturn(tenantId);
+        Map<EntityKeyType, Map<String, TsValue>> latest = new HashMap<>();
+        latest.put(EntityKeyType.TIME_SERIES, new HashMap<>(Map.of("temperature", new TsValue(1L, "25"))));
+        EntityData ed = new EntityData(new DeviceId(UUID.randomUUID()), latest, null);
+        when(ctx.findEntityData()).thenReturn(new PageData<>(List.of(ed), 1, 1, false));
+        return ctx;
+    }
+
+    private static EntityDataQuery query(String... keys) {
+        EntityTypeFilter filter = new EntityTypeFilter();
+        filter.setEntityType(EntityType.DEVICE);
+        List<EntityKey> latestValues = new ArrayList<>();
+        for (String key : keys) {
+            latestValues.add(new EntityKey(EntityKeyType.TIME_SERIES, key));
+        }
+        return new EntityDataQuery(filter, new EntityDataPageLink(10, 0, null, null),
+                List.of(new EntityKey(EntityKeyType.ENTITY_FIELD, "name")), latestValues, Collections.emptyList());
+    }
+
+}
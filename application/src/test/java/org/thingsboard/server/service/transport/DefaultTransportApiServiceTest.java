@@ -21,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.test.context.ContextConfiguration;
@@ -30,9 +31,14 @@ import org.thingsboard.server.cluster.TbClusterService;
 import org.thingsboard.server.common.data.Device;
 import org.thingsboard.server.common.data.DeviceProfile;
 import org.thingsboard.server.common.data.DeviceProfileProvisionType;
+import org.thingsboard.server.common.data.device.data.DefaultDeviceTransportConfiguration;
+import org.thingsboard.server.common.data.device.data.DeviceData;
 import org.thingsboard.server.common.data.device.profile.DeviceProfileData;
 import org.thingsboard.server.common.data.device.profile.X509CertificateChainProvisionConfiguration;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
 import org.thingsboard.server.common.data.security.DeviceCredentials;
 import org.thingsboard.server.common.data.security.DeviceCredentialsType;
 import org.thingsboard.server.common.msg.EncryptionUtil;
@@ -46,6 +52,9 @@ import org.thingsboard.server.dao.ota.OtaPackageService;
 import org.thingsboard.server.dao.queue.QueueService;
 import org.thingsboard.server.dao.relation.RelationService;
 import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
+import org.thingsboard.server.gen.transport.TransportProtos.GetOrCreateDeviceFromGatewayRequestMsg;
+import org.thingsboard.server.gen.transport.TransportProtos.TransportApiRequestMsg;
+import org.thingsboard.server.queue.common.TbProtoQueueMsg;
 import org.thingsboard.server.queue.util.DataDecodingEncodingService;
 import org.thingsboard.server.service.apiusage.TbApiUsageStateService;
 import org.thingsboard.server.service.executors.DbCallbackExecutorService;
@@ -58,10 +67,14 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -155,6 +168,46 @@ public class DefaultTransportApiServiceTest {
         verify(deviceProvisionService, times(1)).provisionDeviceViaX509Chain(any(), any());
     }
 
+    @Test
+    public void createDeviceFromGatewayWithRelationInGatewayTenant() throws Exception {
+        TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+        Device gateway = createDevice();
+        gateway.setTenantId(tenantId);
+        when(deviceService.findDeviceByIdAsync(any(), any())).thenReturn(Futures.immediateFuture(gateway));
+        when(deviceService.findDeviceByTenantIdAndName(any(), any())).thenReturn(null);
+
+        DeviceProfile deviceProfile = new DeviceProfile();
+        deviceProfile.setId(new DeviceProfileId(UUID.randomUUID()));
+        when(deviceProfileCache.findOrCreateDeviceProfile(any(), any())).thenReturn(deviceProfile);
+        when(deviceService.saveDevice(any(Device.class))).thenAnswer(invocation -> {
+            Device device = new Device(invocation.getArgument(0, Device.class));
+            device.setId(new DeviceId(UUID.randomUUID()));
+            DeviceData deviceData = new DeviceData();
+            deviceData.setTransportConfiguration(new DefaultDeviceTransportConfiguration());
+            device.setDeviceData(deviceData);
+            return device;
+        });
+        doAnswer(invocation -> {
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(dbCallbackExecutorService).execute(any());
+
+        TransportApiRequestMsg requestMsg = TransportApiRequestMsg.newBuilder()
+                .setGetOrCreateDeviceRequestMsg(GetOrCreateDeviceFromGatewayRequestMsg.newBuilder()
+                        .setGatewayIdMSB(gateway.getId().getId().getMostSignificantBits())
+                        .setGatewayIdLSB(gateway.getId().getId().getLeastSignificantBits())
+                        .setDeviceName("Gateway child")
+                        .setDeviceType("default")
+                        .build())
+                .build();
+        service.handle(new TbProtoQueueMsg<>(UUID.randomUUID(), requestMsg)).get(10, TimeUnit.SECONDS);
+
+        ArgumentCaptor<EntityRelation> relationCaptor = ArgumentCaptor.forClass(EntityRelation.class);
+        verify(relationService, times(1)).saveRelation(eq(tenantId), relationCaptor.capture());
+        assertThat(relationCaptor.getValue().getFrom()).isEqualTo(gateway.getId());
+        assertThat(relationCaptor.getValue().getType()).isEqualTo("Created");
+    }
+
     private DeviceProfile createDeviceProfile(String certificateValue) {
         X509CertificateChainProvisionConfiguration provision = new X509CertificateChainProvisionConfiguration();
         provision.setProvisionDeviceSecret(certificateValue);
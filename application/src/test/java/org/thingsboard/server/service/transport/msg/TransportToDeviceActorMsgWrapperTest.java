@@ -0,0 +1,58 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.transport.msg;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.msg.TbActorStopReason;
+import org.thingsboard.server.common.msg.queue.TbCallback;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class TransportToDeviceActorMsgWrapperTest {
+
+    @Test
+    void testCallbackFailedWhenMailboxOverflows() {
+        TbCallback callback = mock(TbCallback.class);
+        TransportToDeviceActorMsgWrapper wrapper = new TransportToDeviceActorMsgWrapper(TransportProtos.TransportToDeviceActorMsg.newBuilder()
+                .setSessionInfo(TransportProtos.SessionInfoProto.getDefaultInstance())
+                .setGetAttributes(TransportProtos.GetAttributeRequestMsg.getDefaultInstance())
+                .build(), callback);
+
+        wrapper.onTbActorStopped(TbActorStopReason.MAILBOX_OVERFLOW);
+
+        verify(callback).onFailure(any());
+        verify(callback, never()).onSuccess();
+        assertThat(wrapper.isSessionLifecycleMsg()).isFalse();
+    }
+
+    @Test
+    void testSessionEventIsSessionLifecycleMsg() {
+        TransportToDeviceActorMsgWrapper wrapper = new TransportToDeviceActorMsgWrapper(TransportProtos.TransportToDeviceActorMsg.newBuilder()
+                .setSessionInfo(TransportProtos.SessionInfoProto.getDefaultInstance())
+                .setSessionEvent(TransportProtos.SessionEventMsg.newBuilder()
+                        .setSessionType(TransportProtos.SessionType.ASYNC)
+                        .setEvent(TransportProtos.SessionEvent.OPEN))
+                .build(), TbCallback.EMPTY);
+
+        assertThat(wrapper.isSessionLifecycleMsg()).isTrue();
+    }
+
+}
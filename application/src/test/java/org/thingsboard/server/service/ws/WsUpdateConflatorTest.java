@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.service.ws;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.page.PageData;
+import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityKeyType;
+import org.thingsboard.server.common.data.query.TsValue;
+import org.thingsboard.server.service.subscription.SubscriptionErrorCode;
+import org.thingsboard.server.service.ws.telemetry.cmd.v2.EntityDataUpdate;
+import org.thingsboard.server.service.ws.telemetry.sub.TelemetrySubscriptionUpdate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WsUpdateConflatorTest {
+
+    private final DeviceId deviceA = new DeviceId(UUID.randomUUID());
+    private final DeviceId deviceB = new DeviceId(UUID.randomUUID());
+
+    @Test
+    public void testIsConflatable() {
+        assertThat(WsUpdateConflator.isConflatable(latestUpdate(deviceA, "temperature", 1, "20"))).isTrue();
+        assertThat(WsUpdateConflator.isConflatable(new EntityDataUpdate(1, new PageData<>(), null, 100))).isFalse();
+        assertThat(WsUpdateConflator.isConflatable(new EntityDataUpdate(1, SubscriptionErrorCode.INTERNAL_ERROR.getCode(), "error"))).isFalse();
+        assertThat(WsUpdateConflator.isConflatable(tsUpdate(1, "temperature", 1, "20"))).isTrue();
+        assertThat(WsUpdateConflator.isConflatable(new TelemetrySubscriptionUpdate(1, SubscriptionErrorCode.BAD_REQUEST))).isFalse();
+        assertThat(WsUpdateConflator.isConflatable("text")).isFalse();
+    }
+
+    @Test
+    public void testMergeEntityDataUpdateKeepsNewestLatestValue() {
+        EntityDataUpdate merged = (EntityDataUpdate) WsUpdateConflator.merge(
+                latestUpdate(deviceA, "temperature", 2, "21"),
+                latestUpdate(deviceA, "temperature", 1, "20"));
+        merged = (EntityDataUpdate) WsUpdateConflator.merge(merged, latestUpdate(deviceA, "humidity", 3, "50"));
+        merged = (EntityDataUpdate) WsUpdateConflator.merge(merged, latestUpdate(deviceB, "temperature", 3, "25"));
+
+        assertThat(merged.getUpdate()).hasSize(2);
+        Map<String, TsValue> latestA = merged.getUpdate().get(0).getLatest().get(EntityKeyType.TIME_SERIES);
+        assertThat(latestA.get("temperature")).isEqualTo(new TsValue(2, "21"));
+        assertThat(latestA.get("humidity")).isEqualTo(new TsValue(3, "50"));
+        assertThat(merged.getUpdate().get(1).getEntityId()).isEqualTo(deviceB);
+    }
+
+    @Test
+    public void testMergeEntityDataUpdateKeepsAllTimeseriesPoints() {
+        EntityDataUpdate first = new EntityDataUpdate(1, null, Collections.singletonList(new EntityData(deviceA, null,
+                Map.of("temperature", new TsValue[]{new TsValue(1, "20"), new TsValue(2, "21")}))), 100);
+        EntityDataUpdate second = new EntityDataUpdate(1, null, Collections.singletonList(new EntityData(deviceA, null,
+                Map.of("temperature", new TsValue[]{new TsValue(2, "22"), new TsValue(3, "23")}))), 100);
+
+        EntityDataUpdate merged = (EntityDataUpdate) WsUpdateConflator.merge(first, second);
+
+        assertThat(merged.getUpdate().get(0).getTimeseries().get("temperature"))
+                .containsExactly(new TsValue(1, "20"), new TsValue(2, "22"), new TsValue(3, "23"));
+    }
+
+    @Test
+    public void testMergeLatestTelemetrySubscriptionUpdateKeepsNewestValue() {
+        TelemetrySubscriptionUpdate merged = (TelemetrySubscriptionUpdate) WsUpdateConflator.merge(
+                tsUpdate(5, "temperature", 1, "20").withLatestOnly(true), tsUpdate(5, "temperature", 2, "21").withLatestOnly(true));
+        merged = (TelemetrySubscriptionUpdate) WsUpdateConflator.merge(merged, tsUpdate(5, "temperature", 0, "19").withLatestOnly(true));
+        merged = (TelemetrySubscriptionUpdate) WsUpdateConflator.merge(merged, tsUpdate(5, "humidity", 2, "50").withLatestOnly(true));
+
+        assertThat(merged.getSubscriptionId()).isEqualTo(5);
+        assertThat(merged.isLatestOnly()).isTrue();
+        assertThat(merged.getData().get("temperature")).containsExactly(new Object[]{2L, "21"});
+        assertThat(merged.getData().get("humidity")).containsExactly(new Object[]{2L, "50"});
+        assertThat(merged.getLatestValues()).containsEntry("temperature", 2L).containsEntry("humidity", 2L);
+    }
+
+    @Test
+    public void testMergeTimeseriesTelemetrySubscriptionUpdateKeepsNewestFirst() {
+        TelemetrySubscriptionUpdate merged = (TelemetrySubscriptionUpdate) WsUpdateConflator.merge(
+                tsUpdate(5, "temperature", 1, "20"), tsUpdate(5, "temperature", 3, "22"));
+        merged = (TelemetrySubscriptionUpdate) WsUpdateConflator.merge(merged, tsUpdate(5, "temperature", 2, "21"));
+
+        assertThat(merged.isLatestOnly()).isFalse();
+        assertThat(merged.getData().get("temperature"))
+                .containsExactly(new Object[]{3L, "22"}, new Object[]{2L, "21"}, new Object[]{1L, "20"});
+        assertThat(merged.getLatestValues()).containsEntry("temperature", 3L);
+    }
+
+    @Test
+    public void testMergeDifferentUpdateTypes() {
+        assertThat(WsUpdateConflator.merge(tsUpdate(1, "temperature", 1, "20"), latestUpdate(deviceA, "temperature", 1, "20"))).isNull();
+    }
+
+    private EntityDataUpdate latestUpdate(DeviceId deviceId, String key, long ts, String value) {
+        EntityData entityData = new EntityData(deviceId, Map.of(EntityKeyType.TIME_SERIES, Map.of(key, new TsValue(ts, value))), null);
+        return new EntityDataUpdate(1, null, Collections.singletonList(entityData), 100);
+    }
+
+    private TelemetrySubscriptionUpdate tsUpdate(int subscriptionId, String key, long ts, String value) {
+        List<Object> values = new ArrayList<>();
+        values.add(new Object[]{ts, value});
+        return new TelemetrySubscriptionUpdate(subscriptionId, Map.of(key, values));
+    }
+
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thingsboard.common.util.ThingsBoardExecutors;
+import org.thingsboard.server.actors.AbstractTbActor;
+import org.thingsboard.server.actors.DefaultTbActorSystem;
+import org.thingsboard.server.actors.DispatcherType;
+import org.thingsboard.server.actors.MailboxOverflowPolicy;
+import org.thingsboard.server.actors.MailboxType;
+import org.thingsboard.server.actors.TbActor;
+import org.thingsboard.server.actors.TbActorCreator;
+import org.thingsboard.server.actors.TbActorId;
+import org.thingsboard.server.actors.TbActorRef;
+import org.thingsboard.server.actors.TbActorSystem;
+import org.thingsboard.server.actors.TbActorSystemSettings;
+import org.thingsboard.server.actors.TbEntityActorId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.MsgType;
+import org.thingsboard.server.common.msg.TbActorMsg;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures TbActorMailbox enqueue and processMailbox throughput when several producer threads
+ * are telling messages to a set of actors that share one dispatcher.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ActorMailboxBenchmark {
+
+    private static final String DISPATCHER_ID = "benchmark-dispatcher";
+    private static final int BATCH_SIZE = 10000;
+
+    @Param({"1", "100", "10000"})
+    private int actorCount;
+
+    @Param({"5", "30"})
+    private int actorThroughput;
+
+    /**
+     * VIRTUAL requires the benchmark to be run on Java 21+.
+     */
+    @Param({"POOL"})
+    private DispatcherType dispatcherType;
+
+    @Param({"LINKED", "MPSC"})
+    private MailboxType mailboxType;
+
+    private TbActorSystem actorSystem;
+    private ExecutorService executor;
+    private TbActorRef[] actors;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        int parallelism = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(actorThroughput, 1, 0, mailboxType, 0, MailboxOverflowPolicy.REJECT));
+        if (dispatcherType == DispatcherType.VIRTUAL) {
+            executor = ThingsBoardExecutors.newVirtualThreadPerTaskExecutor(DISPATCHER_ID);
+        } else {
+            executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        }
+        actorSystem.createDispatcher(DISPATCHER_ID, executor, dispatcherType);
+        actors = new TbActorRef[actorCount];
+        for (int i = 0; i < actorCount; i++) {
+            actors[i] = actorSystem.createRootActor(DISPATCHER_ID, new CountingActorCreator(new TbEntityActorId(new DeviceId(UUID.randomUUID()))));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        actorSystem.stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Enqueue only: producers race on the mailbox queues and the busy flag while the dispatcher drains in background.
+     */
+    @Benchmark
+    @Threads(4)
+    public void tell() {
+        actors[ThreadLocalRandom.current().nextInt(actorCount)].tell(BenchmarkMsg.NO_LATCH);
+    }
+
+    /**
+     * Enqueue and process: completes once every message of the batch was handled by its actor.
+     */
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void tellAndProcess() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(BATCH_SIZE);
+        BenchmarkMsg msg = new BenchmarkMsg(latch);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            actors[random.nextInt(actorCount)].tell(msg);
+        }
+        latch.await();
+    }
+
+    private static class BenchmarkMsg implements TbActorMsg {
+
+        private static final BenchmarkMsg NO_LATCH = new BenchmarkMsg(null);
+
+        private final CountDownLatch latch;
+
+        private BenchmarkMsg(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public MsgType getMsgType() {
+            return MsgType.QUEUE_TO_RULE_ENGINE_MSG;
+        }
+
+    }
+
+    private static class CountingActor extends AbstractTbActor {
+
+        @Override
+        public boolean process(TbActorMsg msg) {
+            CountDownLatch latch = ((BenchmarkMsg) msg).latch;
+            if (latch != null) {
+                latch.countDown();
+            }
+            return true;
+        }
+
+    }
+
+    private static class CountingActorCreator implements TbActorCreator {
+
+        private final TbActorId actorId;
+
+        private CountingActorCreator(TbActorId actorId) {
+            this.actorId = actorId;
+        }
+
+        @Override
+        public TbActorId createActorId() {
+            return actorId;
+        }
+
+        @Override
+        public TbActor createActor() {
+            return new CountingActor();
+        }
+
+    }
+
+}
@@ -0,0 +1,167 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.QueueId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.queue.Queue;
+import org.thingsboard.server.common.msg.queue.ServiceType;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.gen.transport.TransportProtos.ServiceInfo;
+import org.thingsboard.server.queue.discovery.HashPartitionService;
+import org.thingsboard.server.queue.discovery.QueueRoutingInfo;
+import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
+import org.thingsboard.server.queue.discovery.TenantRoutingInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures HashPartitionService.resolve for core and rule engine queues, including the isolated tenant lookup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartitionResolutionBenchmark {
+
+    private static final int DEVICES = 1024;
+
+    @Param({"murmur3_128"})
+    private String hashFunctionName;
+
+    @Param({"false", "true"})
+    private boolean precomputedTpiEnabled;
+
+    private HashPartitionService partitionService;
+    private TenantId tenantId;
+    private DeviceId[] devices;
+    private int idx;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        tenantId = new TenantId(UUID.randomUUID());
+        ServiceInfo currentService = ServiceInfo.newBuilder()
+                .setServiceId("tb-node-0")
+                .addServiceTypes(ServiceType.TB_CORE.name())
+                .addServiceTypes(ServiceType.TB_RULE_ENGINE.name())
+                .build();
+        List<ServiceInfo> otherServices = new ArrayList<>();
+        for (int i = 1; i < 3; i++) {
+            otherServices.add(currentService.toBuilder().setServiceId("tb-node-" + i).build());
+        }
+
+        Queue mainQueue = new Queue();
+        mainQueue.setId(new QueueId(UUID.randomUUID()));
+        mainQueue.setTenantId(TenantId.SYS_TENANT_ID);
+        mainQueue.setName(DataConstants.MAIN_QUEUE_NAME);
+        mainQueue.setTopic("tb_rule_engine.main");
+        mainQueue.setPartitions(10);
+
+        partitionService = new HashPartitionService(new StubServiceInfoProvider(currentService),
+                id -> new TenantRoutingInfo(id, false),
+                event -> {},
+                () -> Collections.singletonList(new QueueRoutingInfo(mainQueue)));
+        ReflectionTestUtils.setField(partitionService, "coreTopic", "tb_core");
+        ReflectionTestUtils.setField(partitionService, "corePartitions", 10);
+        ReflectionTestUtils.setField(partitionService, "vcTopic", "tb_version_control");
+        ReflectionTestUtils.setField(partitionService, "vcPartitions", 10);
+        ReflectionTestUtils.setField(partitionService, "hashFunctionName", hashFunctionName);
+        ReflectionTestUtils.setField(partitionService, "precomputedTpiEnabled", precomputedTpiEnabled);
+        partitionService.init();
+        partitionService.recalculatePartitions(currentService, otherServices);
+
+        devices = new DeviceId[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            devices[i] = new DeviceId(UUID.randomUUID());
+        }
+    }
+
+    @Benchmark
+    public TopicPartitionInfo resolveCore() {
+        return partitionService.resolve(ServiceType.TB_CORE, tenantId, nextDevice());
+    }
+
+    @Benchmark
+    public TopicPartitionInfo resolveRuleEngine() {
+        return partitionService.resolve(ServiceType.TB_RULE_ENGINE, DataConstants.MAIN_QUEUE_NAME, tenantId, nextDevice());
+    }
+
+    @Benchmark
+    public int resolvePartitionIndex() {
+        return partitionService.resolvePartitionIndex(nextDevice().getId(), 10);
+    }
+
+    private DeviceId nextDevice() {
+        return devices[idx++ & (DEVICES - 1)];
+    }
+
+    private static class StubServiceInfoProvider implements TbServiceInfoProvider {
+
+        private final ServiceInfo serviceInfo;
+
+        private StubServiceInfoProvider(ServiceInfo serviceInfo) {
+            this.serviceInfo = serviceInfo;
+        }
+
+        @Override
+        public String getServiceId() {
+            return serviceInfo.getServiceId();
+        }
+
+        @Override
+        public String getServiceType() {
+            return "monolith";
+        }
+
+        @Override
+        public ServiceInfo getServiceInfo() {
+            return serviceInfo;
+        }
+
+        @Override
+        public boolean isService(ServiceType serviceType) {
+            return serviceInfo.getServiceTypesList().contains(serviceType.name());
+        }
+
+        @Override
+        public ServiceInfo generateNewServiceInfoWithCurrentSystemInfo() {
+            return serviceInfo;
+        }
+
+    }
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.benchmark;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.thingsboard.server.common.stats.DefaultMessagesStats;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.dao.sql.ScheduledLogExecutorComponent;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueue;
+import org.thingsboard.server.dao.sql.TbSqlBlockingQueueParams;
+import org.thingsboard.server.dao.sql.TbSqlQueue;
+import org.thingsboard.server.dao.sql.TbSqlQueueSettings;
+import org.thingsboard.server.dao.sql.TbSqlWorkStealingQueue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures TbSqlBlockingQueue batching throughput with a save function that simulates a fixed cost per row.
+ * Every invocation adds a batch of elements and waits until all of their futures are completed.
+ * With workStealing enabled the elements are saved by a TbSqlWorkStealingQueue with the given number of writers,
+ * otherwise by a single writer thread, the same as a hot shard of TbSqlBlockingQueueWrapper.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlBlockingQueueBenchmark {
+
+    private static final int ELEMENTS_PER_INVOCATION = 1000;
+
+    @Param({"100", "1000"})
+    private int batchSize;
+
+    @Param({"5"})
+    private long maxDelay;
+
+    @Param({"0", "100"})
+    private long rowCostTokens;
+
+    @Param({"false", "true"})
+    private boolean workStealing;
+
+    @Param({"4"})
+    private int writers;
+
+    private ScheduledLogExecutorComponent logExecutor;
+    private TbSqlQueue<Long> queue;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        TbSqlQueueSettings settings = new TbSqlQueueSettings();
+        settings.setWorkStealingEnabled(workStealing);
+        TbSqlBlockingQueueParams params = TbSqlBlockingQueueParams.builder()
+                .logName("Benchmark")
+                .batchSize(batchSize)
+                .maxDelay(maxDelay)
+                .statsPrintIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .statsNamePrefix("benchmark")
+                .batchSortEnabled(true)
+                .queueSettings(settings)
+                .build();
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+        if (workStealing) {
+            queue = new TbSqlWorkStealingQueue<>(params, Object::hashCode, writers, createStats(), null, null);
+        } else {
+            queue = new TbSqlBlockingQueue<>(params, createStats());
+        }
+        queue.init(logExecutor, entities -> Blackhole.consumeCPU(rowCostTokens * entities.size()), Comparator.naturalOrder(), 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.destroy();
+        logExecutor.stop();
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(ELEMENTS_PER_INVOCATION)
+    public List<Void> addAndAwait() throws Exception {
+        List<ListenableFuture<Void>> futures = new ArrayList<>(ELEMENTS_PER_INVOCATION);
+        for (long i = 0; i < ELEMENTS_PER_INVOCATION; i++) {
+            futures.add(queue.add(i));
+        }
+        return Futures.allAsList(futures).get();
+    }
+
+    private static MessagesStats createStats() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new DefaultMessagesStats(
+                new StatsCounter(new AtomicInteger(), registry.counter("benchmark.total"), "totalMsgs"),
+                new StatsCounter(new AtomicInteger(), registry.counter("benchmark.successful"), "successfulMsgs"),
+                new StatsCounter(new AtomicInteger(), registry.counter("benchmark.failed"), "failedMsgs"));
+    }
+
+}
@@ -32,6 +32,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ObjIntConsumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -48,15 +49,31 @@ public class DefaultTbActorSystem implements TbActorSystem {
     private final TbActorSystemSettings settings;
     @Getter
     private final ScheduledExecutorService scheduler;
+    private final MailboxStatsCollector mailboxStatsCollector;
 
     public DefaultTbActorSystem(TbActorSystemSettings settings) {
+        this(settings, null);
+    }
+
+    public DefaultTbActorSystem(TbActorSystemSettings settings, MailboxStatsCollector mailboxStatsCollector) {
         this.settings = settings;
+        this.mailboxStatsCollector = mailboxStatsCollector;
         this.scheduler = Executors.newScheduledThreadPool(settings.getSchedulerPoolSize(), ThingsBoardThreadFactory.forName("actor-system-scheduler"));
     }
 
     @Override
     public void createDispatcher(String dispatcherId, ExecutorService executor) {
-        Dispatcher current = dispatchers.putIfAbsent(dispatcherId, new Dispatcher(dispatcherId, executor));
+        createDispatcher(dispatcherId, executor, DispatcherType.POOL);
+    }
+
+    @Override
+    public void createDispatcher(String dispatcherId, ExecutorService executor, DispatcherType type) {
+        createDispatcher(dispatcherId, executor, type, settings.getMailboxCapacity());
+    }
+
+    @Override
+    public void createDispatcher(String dispatcherId, ExecutorService executor, DispatcherType type, int mailboxCapacity) {
+        Dispatcher current = dispatchers.putIfAbsent(dispatcherId, new Dispatcher(dispatcherId, executor, type, mailboxCapacity));
         if (current != null) {
             throw new RuntimeException("Dispatcher with id [" + dispatcherId + "] is already registered!");
         }
@@ -113,7 +130,7 @@ public class DefaultTbActorSystem implements TbActorSystem {
                             throw new TbActorNotRegisteredException(parent, "Parent Actor with id [" + parent + "] is not registered!");
                         }
                     }
-                    TbActorMailbox mailbox = new TbActorMailbox(this, settings, actorId, parentRef, actor, dispatcher);
+                    TbActorMailbox mailbox = new TbActorMailbox(this, settings, actorId, parentRef, actor, dispatcher, mailboxStatsCollector);
                     actors.put(actorId, mailbox);
                     mailbox.initActor();
                     actorMailbox = mailbox;
@@ -177,6 +194,11 @@ public class DefaultTbActorSystem implements TbActorSystem {
         }
     }
 
+    @Override
+    public void forEachMailbox(ObjIntConsumer<TbActorId> pendingMsgsConsumer) {
+        actors.forEach((actorId, mailbox) -> pendingMsgsConsumer.accept(actorId, mailbox.getPendingMsgsCount()));
+    }
+
     @Override
     public void stop(TbActorRef actorRef) {
         stop(actorRef.getActorId());
@@ -24,5 +24,7 @@ class Dispatcher {
 
     private final String dispatcherId;
     private final ExecutorService executor;
+    private final DispatcherType type;
+    private final int mailboxCapacity;
 
 }
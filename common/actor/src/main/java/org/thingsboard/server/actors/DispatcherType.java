@@ -0,0 +1,32 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+public enum DispatcherType {
+
+    /**
+     * Mailboxes share a fixed pool of threads. A mailbox gives the thread back after processing
+     * {@link TbActorSystemSettings#getActorThroughput()} messages and is resubmitted to the executor.
+     */
+    POOL,
+
+    /**
+     * Every mailbox run gets its own thread from a thread-per-task executor (virtual threads).
+     * A mailbox keeps processing messages until it is empty, so actors that block do not hold up other actors.
+     */
+    VIRTUAL
+
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+/**
+ * Receives mailbox instrumentation events from the actor system. Called on the hot path, so implementations must be cheap.
+ */
+public interface MailboxStatsCollector {
+
+    /**
+     * @return whether the message that is being enqueued should be sampled.
+     * At most one message per mailbox is sampled at a time
+     */
+    boolean sample();
+
+    /**
+     * Called for sampled messages only.
+     *
+     * @param waitTimeNs       time between the message was enqueued and the actor started to process it
+     * @param processingTimeNs time the actor spent processing the message
+     */
+    void onMsgProcessed(TbActorId actorId, long waitTimeNs, long processingTimeNs);
+
+    /**
+     * Called when a mailbox has processed {@link TbActorSystemSettings#getActorThroughput()} messages
+     * and is resubmitted to the dispatcher because there are more messages pending.
+     */
+    void onMailboxResubmitted(TbActorId actorId);
+
+    /**
+     * Called when a normal priority message did not fit into a bounded mailbox and was rejected or dropped.
+     * Dropped messages never complete their callbacks, so this is the only trace they leave.
+     */
+    default void onMailboxOverflow(TbActorId actorId, MailboxOverflowPolicy policy) {
+    }
+
+}
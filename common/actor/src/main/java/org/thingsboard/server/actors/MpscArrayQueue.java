@@ -0,0 +1,128 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded multi-producer single-consumer queue backed by a ring buffer.
+ * Unlike ConcurrentLinkedQueue it does not allocate a node per element, and the consumer does not need a CAS to poll.
+ * <p>
+ * {@link #poll()} must be called by one thread at a time. All other methods are safe to call from any thread,
+ * {@link #size()} and {@link #iterator()} are weakly consistent.
+ */
+final class MpscArrayQueue<E> extends AbstractQueue<E> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<E> buffer;
+    // sequence == index + 1 when the slot holds the element with that index, index + capacity when the slot is free for it
+    private final AtomicLongArray sequences;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private volatile long consumerIndex;
+
+    /**
+     * @param capacity max number of elements, rounded up to the next power of two
+     */
+    MpscArrayQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.sequences = new AtomicLongArray(this.capacity);
+        for (int i = 0; i < this.capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        while (true) {
+            long index = producerIndex.get();
+            int offset = (int) index & mask;
+            long diff = sequences.get(offset) - index;
+            if (diff == 0) {
+                if (producerIndex.compareAndSet(index, index + 1)) {
+                    buffer.lazySet(offset, e);
+                    sequences.set(offset, index + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    @Override
+    public E poll() {
+        long index = consumerIndex;
+        int offset = (int) index & mask;
+        if (sequences.get(offset) != index + 1) {
+            return null;
+        }
+        E e = buffer.get(offset);
+        buffer.lazySet(offset, null);
+        sequences.set(offset, index + capacity);
+        consumerIndex = index + 1;
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        long index = consumerIndex;
+        int offset = (int) index & mask;
+        return sequences.get(offset) == index + 1 ? buffer.get(offset) : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    public int size() {
+        long size = producerIndex.get() - consumerIndex;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        long to = producerIndex.get();
+        for (long index = consumerIndex; index < to; index++) {
+            E e = buffer.get((int) index & mask);
+            if (e != null) {
+                snapshot.add(e);
+            }
+        }
+        return snapshot.iterator();
+    }
+
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Unbounded multi-producer single-consumer queue backed by a linked list of array chunks.
+ * Allocates one chunk per {@link #MAX_CHUNK_SIZE} elements instead of a node per element. The first chunk is small
+ * and the next ones grow up to {@link #MAX_CHUNK_SIZE}, so idle queues stay cheap.
+ * <p>
+ * {@link #poll()} must be called by one thread at a time. All other methods are safe to call from any thread,
+ * {@link #size()} and {@link #iterator()} are weakly consistent.
+ */
+final class MpscUnboundedArrayQueue<E> extends AbstractQueue<E> {
+
+    static final int INITIAL_CHUNK_SIZE = 4;
+    static final int MAX_CHUNK_SIZE = 256;
+
+    private final AtomicReference<Chunk<E>> producerChunk;
+    private volatile Chunk<E> consumerChunk;
+    private volatile int consumerOffset;
+
+    MpscUnboundedArrayQueue() {
+        Chunk<E> chunk = new Chunk<>(INITIAL_CHUNK_SIZE, 0);
+        this.producerChunk = new AtomicReference<>(chunk);
+        this.consumerChunk = chunk;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        Objects.requireNonNull(e);
+        while (true) {
+            Chunk<E> chunk = producerChunk.get();
+            int offset = chunk.producerOffset.getAndIncrement();
+            if (offset < chunk.size) {
+                chunk.slots.set(offset, e);
+                return true;
+            }
+            Chunk<E> next = chunk.next.get();
+            if (next == null) {
+                Chunk<E> newChunk = new Chunk<>(Math.min(chunk.size * 2, MAX_CHUNK_SIZE), chunk.base + chunk.size);
+                next = chunk.next.compareAndSet(null, newChunk) ? newChunk : chunk.next.get();
+            }
+            producerChunk.compareAndSet(chunk, next);
+        }
+    }
+
+    @Override
+    public E poll() {
+        Chunk<E> chunk = consumerChunk;
+        int offset = consumerOffset;
+        if (offset == chunk.size) {
+            chunk = chunk.next.get();
+            if (chunk == null) {
+                return null;
+            }
+            offset = 0;
+            consumerOffset = 0;
+            consumerChunk = chunk;
+        }
+        E e = chunk.slots.get(offset);
+        if (e == null) {
+            return null;
+        }
+        chunk.slots.lazySet(offset, null);
+        consumerOffset = offset + 1;
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        Chunk<E> chunk = consumerChunk;
+        int offset = consumerOffset;
+        if (offset >= chunk.size) {
+            chunk = chunk.next.get();
+            if (chunk == null) {
+                return null;
+            }
+            offset = 0;
+        }
+        return chunk.slots.get(offset);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    public int size() {
+        Chunk<E> producer = producerChunk.get();
+        long produced = producer.base + Math.min(producer.producerOffset.get(), producer.size);
+        long size = produced - (consumerChunk.base + consumerOffset);
+        return (int) Math.max(0, Math.min(size, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        List<E> snapshot = new ArrayList<>();
+        int offset = consumerOffset;
+        for (Chunk<E> chunk = consumerChunk; chunk != null; chunk = chunk.next.get()) {
+            for (int i = offset; i < chunk.size; i++) {
+                E e = chunk.slots.get(i);
+                if (e != null) {
+                    snapshot.add(e);
+                }
+            }
+            offset = 0;
+        }
+        return snapshot.iterator();
+    }
+
+    private static final class Chunk<E> {
+        private final int size;
+        private final long base;
+        private final AtomicReferenceArray<E> slots;
+        private final AtomicInteger producerOffset = new AtomicInteger();
+        private final AtomicReference<Chunk<E>> next = new AtomicReference<>();
+
+        private Chunk(int size, long base) {
+            this.size = size;
+            this.base = base;
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+    }
+
+}
@@ -23,6 +23,7 @@ import org.thingsboard.server.common.msg.TbActorMsg;
 import org.thingsboard.server.common.msg.TbActorStopReason;
 
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -47,12 +48,39 @@ public final class TbActorMailbox implements TbActorCtx {
     private final TbActorRef parentRef;
     private final TbActor actor;
     private final Dispatcher dispatcher;
-    private final ConcurrentLinkedQueue<TbActorMsg> highPriorityMsgs = new ConcurrentLinkedQueue<>();
-    private final ConcurrentLinkedQueue<TbActorMsg> normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+    private final MailboxStatsCollector statsCollector;
+    private final Queue<TbActorMsg> highPriorityMsgs;
+    private final Queue<TbActorMsg> normalPriorityMsgs;
     private final AtomicBoolean busy = new AtomicBoolean(FREE);
     private final AtomicBoolean ready = new AtomicBoolean(NOT_READY);
     private final AtomicBoolean destroyInProgress = new AtomicBoolean();
     private volatile TbActorStopReason stopReason;
+    private volatile TbActorMsg sampledMsg;
+    private volatile long sampledMsgEnqueueTs;
+
+    public TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId, TbActorRef parentRef, TbActor actor, Dispatcher dispatcher) {
+        this(system, settings, selfId, parentRef, actor, dispatcher, null);
+    }
+
+    public TbActorMailbox(TbActorSystem system, TbActorSystemSettings settings, TbActorId selfId, TbActorRef parentRef, TbActor actor,
+                          Dispatcher dispatcher, MailboxStatsCollector statsCollector) {
+        this.system = system;
+        this.statsCollector = statsCollector;
+        this.settings = settings;
+        this.selfId = selfId;
+        this.parentRef = parentRef;
+        this.actor = actor;
+        this.dispatcher = dispatcher;
+        if (settings.getMailboxType() == MailboxType.MPSC) {
+            // high priority messages are lifecycle events, they are never bounded
+            this.highPriorityMsgs = new MpscUnboundedArrayQueue<>();
+            this.normalPriorityMsgs = dispatcher.getMailboxCapacity() > 0 ?
+                    new MpscArrayQueue<>(dispatcher.getMailboxCapacity()) : new MpscUnboundedArrayQueue<>();
+        } else {
+            this.highPriorityMsgs = new ConcurrentLinkedQueue<>();
+            this.normalPriorityMsgs = new ConcurrentLinkedQueue<>();
+        }
+    }
 
     public void initActor() {
         dispatcher.getExecutor().execute(() -> tryInit(1));
@@ -90,10 +118,20 @@ public final class TbActorMailbox implements TbActorCtx {
 
     private void enqueue(TbActorMsg msg, boolean highPriority) {
         if (!destroyInProgress.get()) {
+            boolean sampled = statsCollector != null && sampledMsg == null && statsCollector.sample();
+            if (sampled) {
+                // set before the message is enqueued, so the consumer can't miss it
+                sampledMsgEnqueueTs = System.nanoTime();
+                sampledMsg = msg;
+            }
             if (highPriority) {
                 highPriorityMsgs.add(msg);
-            } else {
-                normalPriorityMsgs.add(msg);
+            } else if (!normalPriorityMsgs.offer(msg)) {
+                if (sampled && sampledMsg == msg) {
+                    sampledMsg = null;
+                }
+                onOverflow(msg);
+                return;
             }
             tryProcessQueue(true);
         } else {
@@ -113,6 +151,16 @@ public final class TbActorMailbox implements TbActorCtx {
         }
     }
 
+    private void onOverflow(TbActorMsg msg) {
+        log.debug("[{}] Mailbox is full, going to {} message: {}", selfId, settings.getMailboxOverflowPolicy(), msg);
+        if (statsCollector != null) {
+            statsCollector.onMailboxOverflow(selfId, settings.getMailboxOverflowPolicy());
+        }
+        if (settings.getMailboxOverflowPolicy() == MailboxOverflowPolicy.REJECT) {
+            msg.onTbActorStopped(TbActorStopReason.MAILBOX_OVERFLOW);
+        }
+    }
+
     private void tryProcessQueue(boolean newMsg) {
         if (ready.get() == READY) {
             if (newMsg || !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty()) {
@@ -130,13 +178,42 @@ public final class TbActorMailbox implements TbActorCtx {
     }
 
     private void processMailbox() {
-        boolean noMoreElements = false;
+        boolean threadPerMailbox = dispatcher.getType() == DispatcherType.VIRTUAL;
+        boolean noMoreElements;
+        do {
+            noMoreElements = processMessages();
+        } while (!noMoreElements && threadPerMailbox && !destroyInProgress.get());
+        if (noMoreElements) {
+            busy.set(FREE);
+            if (threadPerMailbox || settings.getMailboxType() == MailboxType.MPSC) {
+                tryProcessQueue(false);
+            } else {
+                dispatcher.getExecutor().execute(() -> tryProcessQueue(false));
+            }
+        } else {
+            if (statsCollector != null) {
+                statsCollector.onMailboxResubmitted(selfId);
+            }
+            dispatcher.getExecutor().execute(this::processMailbox);
+        }
+    }
+
+    private boolean processMessages() {
         for (int i = 0; i < settings.getActorThroughput(); i++) {
             TbActorMsg msg = highPriorityMsgs.poll();
             if (msg == null) {
                 msg = normalPriorityMsgs.poll();
             }
             if (msg != null) {
+                boolean sampled = msg == sampledMsg;
+                long processingStartTs = 0;
+                long enqueueTs = 0;
+                if (sampled) {
+                    processingStartTs = System.nanoTime();
+                    // read before the slot is released, a producer may sample the next message right after
+                    enqueueTs = sampledMsgEnqueueTs;
+                    sampledMsg = null;
+                }
                 try {
                     log.debug("[{}] Going to process message: {}", selfId, msg);
                     actor.process(msg);
@@ -150,17 +227,14 @@ public final class TbActorMailbox implements TbActorCtx {
                         system.stop(selfId);
                     }
                 }
+                if (sampled) {
+                    statsCollector.onMsgProcessed(selfId, processingStartTs - enqueueTs, System.nanoTime() - processingStartTs);
+                }
             } else {
-                noMoreElements = true;
-                break;
+                return true;
             }
         }
-        if (noMoreElements) {
-            busy.set(FREE);
-            dispatcher.getExecutor().execute(() -> tryProcessQueue(false));
-        } else {
-            dispatcher.getExecutor().execute(this::processMailbox);
-        }
+        return false;
     }
 
     @Override
@@ -225,6 +299,15 @@ public final class TbActorMailbox implements TbActorCtx {
         });
     }
 
+    public int getPendingMsgsCount() {
+        return highPriorityMsgs.size() + normalPriorityMsgs.size();
+    }
+
+    @Override
+    public boolean hasPendingMsgs() {
+        return !highPriorityMsgs.isEmpty() || !normalPriorityMsgs.isEmpty();
+    }
+
     @Override
     public TbActorId getActorId() {
         return selfId;
@@ -25,4 +25,12 @@ public interface TbActorRef {
 
     void tellWithHighPriority(TbActorMsg actorMsg);
 
+    /**
+     * @return true if there are messages in the mailbox of the actor that are not processed yet.
+     * False if the implementation doesn't track them.
+     */
+    default boolean hasPendingMsgs() {
+        return false;
+    }
+
 }
@@ -20,6 +20,7 @@ import org.thingsboard.server.common.msg.TbActorMsg;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.ObjIntConsumer;
 import java.util.function.Predicate;
 
 public interface TbActorSystem {
@@ -28,6 +29,14 @@ public interface TbActorSystem {
 
     void createDispatcher(String dispatcherId, ExecutorService executor);
 
+    void createDispatcher(String dispatcherId, ExecutorService executor, DispatcherType type);
+
+    /**
+     * @param mailboxCapacity max number of normal priority messages per mailbox of the actors created on this dispatcher,
+     *                        applies to the MPSC mailbox only. 0 - unbounded
+     */
+    void createDispatcher(String dispatcherId, ExecutorService executor, DispatcherType type, int mailboxCapacity);
+
     void destroyDispatcher(String dispatcherId);
 
     TbActorRef getActor(TbActorId actorId);
@@ -51,4 +60,9 @@ public interface TbActorSystem {
     void broadcastToChildren(TbActorId parent, Predicate<TbActorId> childFilter, TbActorMsg msg);
 
     List<TbActorId> filterChildren(TbActorId parent, Predicate<TbActorId> childFilter);
+
+    /**
+     * Iterates over all registered actors with the number of messages pending in their mailboxes. Weakly consistent.
+     */
+    void forEachMailbox(ObjIntConsumer<TbActorId> pendingMsgsConsumer);
 }
@@ -15,13 +15,22 @@
  */
 package org.thingsboard.server.actors;
 
+import lombok.AllArgsConstructor;
 import lombok.Data;
 
 @Data
+@AllArgsConstructor
 public class TbActorSystemSettings {
 
     private final int actorThroughput;
     private final int schedulerPoolSize;
     private final int maxActorInitAttempts;
+    private final MailboxType mailboxType;
+    private final int mailboxCapacity;
+    private final MailboxOverflowPolicy mailboxOverflowPolicy;
+
+    public TbActorSystemSettings(int actorThroughput, int schedulerPoolSize, int maxActorInitAttempts) {
+        this(actorThroughput, schedulerPoolSize, maxActorInitAttempts, MailboxType.LINKED, 0, MailboxOverflowPolicy.REJECT);
+    }
 
 }
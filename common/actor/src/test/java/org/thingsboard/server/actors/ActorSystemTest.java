@@ -25,12 +25,14 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbActorStopReason;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -110,6 +112,145 @@ public class ActorSystemTest {
         testActorsAndMessages(1000, 1000, 10);
     }
 
+    @Test
+    public void test1KActorsAnd1KMessagesThreadPerMailbox() throws InterruptedException {
+        try {
+            executor = ThingsBoardExecutors.newVirtualThreadPerTaskExecutor(getClass().getSimpleName());
+        } catch (UnsupportedOperationException e) {
+            executor = Executors.newCachedThreadPool(ThingsBoardThreadFactory.forName(getClass().getSimpleName()));
+        }
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor, DispatcherType.VIRTUAL);
+        testActorsAndMessages(1000, 1000, 10);
+    }
+
+    @Test
+    public void test1KActorsAnd1KMessagesMpscMailbox() throws InterruptedException {
+        actorSystem.stop();
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(5, parallelism, 42, MailboxType.MPSC, 0, MailboxOverflowPolicy.REJECT));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        testActorsAndMessages(1000, 1000, 10);
+    }
+
+    @Test
+    public void testMailboxOverflowRejectsMessages() throws InterruptedException {
+        actorSystem.stop();
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(5, parallelism, 42, MailboxType.MPSC, 4, MailboxOverflowPolicy.REJECT));
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        ActorTestCtx testCtx = getActorTestCtx(4);
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER, new SlowInitActor.SlowInitActorCreator(
+                new TbEntityActorId(new DeviceId(UUID.randomUUID())), testCtx));
+
+        AtomicInteger rejected = new AtomicInteger();
+        for (int i = 0; i < 10; i++) {
+            actorRef.tell(new IntTbActorMsg(i) {
+                @Override
+                public void onTbActorStopped(TbActorStopReason reason) {
+                    Assert.assertEquals(TbActorStopReason.MAILBOX_OVERFLOW, reason);
+                    rejected.incrementAndGet();
+                }
+            });
+        }
+
+        Assert.assertEquals(6, rejected.get());
+        Assert.assertTrue(testCtx.getLatch().await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS));
+        Assert.assertEquals(0 + 1 + 2 + 3, testCtx.getActual().get());
+    }
+
+    @Test
+    public void testMailboxCapacityPerDispatcherAndDropsCounted() throws InterruptedException {
+        AtomicInteger dropped = new AtomicInteger();
+        actorSystem.stop();
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(5, parallelism, 42, MailboxType.MPSC, 0, MailboxOverflowPolicy.DROP), new MailboxStatsCollector() {
+            @Override
+            public boolean sample() {
+                return false;
+            }
+
+            @Override
+            public void onMsgProcessed(TbActorId actorId, long waitTimeNs, long processingTimeNs) {
+            }
+
+            @Override
+            public void onMailboxResubmitted(TbActorId actorId) {
+            }
+
+            @Override
+            public void onMailboxOverflow(TbActorId actorId, MailboxOverflowPolicy policy) {
+                dropped.incrementAndGet();
+            }
+        });
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor, DispatcherType.POOL, 4);
+        actorSystem.createDispatcher("unbounded-dispatcher", ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass()));
+        ActorTestCtx boundedCtx = getActorTestCtx(4);
+        ActorTestCtx unboundedCtx = getActorTestCtx(10);
+        TbActorRef boundedRef = actorSystem.createRootActor(ROOT_DISPATCHER, new SlowInitActor.SlowInitActorCreator(
+                new TbEntityActorId(new DeviceId(UUID.randomUUID())), boundedCtx));
+        TbActorRef unboundedRef = actorSystem.createRootActor("unbounded-dispatcher", new SlowInitActor.SlowInitActorCreator(
+                new TbEntityActorId(new DeviceId(UUID.randomUUID())), unboundedCtx));
+
+        for (int i = 0; i < 10; i++) {
+            boundedRef.tell(new IntTbActorMsg(i));
+            unboundedRef.tell(new IntTbActorMsg(i));
+        }
+
+        Assert.assertEquals(6, dropped.get());
+        Assert.assertTrue(boundedCtx.getLatch().await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS));
+        Assert.assertTrue(unboundedCtx.getLatch().await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS));
+        Assert.assertEquals(0 + 1 + 2 + 3, boundedCtx.getActual().get());
+        Assert.assertEquals(45, unboundedCtx.getActual().get());
+    }
+
+    @Test
+    public void testMailboxStatsCollector() throws InterruptedException {
+        List<long[]> sampled = new CopyOnWriteArrayList<>();
+        List<TbActorId> resubmitted = new CopyOnWriteArrayList<>();
+        actorSystem.stop();
+        actorSystem = new DefaultTbActorSystem(new TbActorSystemSettings(5, parallelism, 42), new MailboxStatsCollector() {
+            @Override
+            public boolean sample() {
+                return true;
+            }
+
+            @Override
+            public void onMsgProcessed(TbActorId actorId, long waitTimeNs, long processingTimeNs) {
+                // assertions are made on the test thread, failures thrown on the dispatcher threads would be swallowed
+                sampled.add(new long[]{waitTimeNs, processingTimeNs});
+            }
+
+            @Override
+            public void onMailboxResubmitted(TbActorId actorId) {
+                resubmitted.add(actorId);
+            }
+        });
+        executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
+        actorSystem.createDispatcher(ROOT_DISPATCHER, executor);
+        ActorTestCtx testCtx = getActorTestCtx(100);
+        TbActorId actorId = new TbEntityActorId(new DeviceId(UUID.randomUUID()));
+        TbActorRef actorRef = actorSystem.createRootActor(ROOT_DISPATCHER, new SlowInitActor.SlowInitActorCreator(actorId, testCtx));
+        for (int i = 0; i < 100; i++) {
+            actorRef.tell(new IntTbActorMsg(i));
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        actorSystem.forEachMailbox((id, pendingMsgs) -> {
+            Assert.assertEquals(actorId, id);
+            pending.add(pendingMsgs);
+        });
+        Assert.assertEquals(List.of(100), pending);
+
+        Assert.assertTrue(testCtx.getLatch().await(TIMEOUT_AWAIT_MAX_SEC, TimeUnit.SECONDS));
+        Assert.assertFalse(sampled.isEmpty());
+        for (long[] times : sampled) {
+            Assert.assertTrue(times[0] >= 0);
+            Assert.assertTrue(times[1] >= 0);
+        }
+        Assert.assertFalse(resubmitted.isEmpty());
+        resubmitted.forEach(id -> Assert.assertEquals(actorId, id));
+    }
+
     @Test
     public void testNoMessagesAfterDestroy() throws InterruptedException {
         executor = ThingsBoardExecutors.newWorkStealingPool(parallelism, getClass());
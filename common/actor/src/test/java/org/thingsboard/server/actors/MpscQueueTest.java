@@ -0,0 +1,117 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.actors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MpscQueueTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int MESSAGES_PER_PRODUCER = 100_000;
+
+    @Test
+    void testArrayQueueCapacity() {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(5);
+        assertThat(queue.capacity()).isEqualTo(8);
+        for (int i = 0; i < 8; i++) {
+            assertThat(queue.offer(i)).isTrue();
+        }
+        assertThat(queue.offer(8)).isFalse();
+        assertThat(queue.size()).isEqualTo(8);
+        assertThat(queue).containsExactly(0, 1, 2, 3, 4, 5, 6, 7);
+
+        assertThat(queue.poll()).isEqualTo(0);
+        assertThat(queue.offer(8)).isTrue();
+        for (int i = 1; i <= 8; i++) {
+            assertThat(queue.poll()).isEqualTo(i);
+        }
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void testUnboundedQueueGrowsAcrossChunks() {
+        MpscUnboundedArrayQueue<Integer> queue = new MpscUnboundedArrayQueue<>();
+        int count = MpscUnboundedArrayQueue.MAX_CHUNK_SIZE * 3;
+        for (int i = 0; i < count; i++) {
+            assertThat(queue.offer(i)).isTrue();
+        }
+        assertThat(queue.size()).isEqualTo(count);
+        assertThat(queue.peek()).isEqualTo(0);
+        for (int i = 0; i < count; i++) {
+            assertThat(queue.poll()).isEqualTo(i);
+        }
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+        assertThat(queue.size()).isZero();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 64})
+    void givenConcurrentProducers_whenPolling_thenAllElementsAreReceivedInProducerOrder(int capacity) throws Exception {
+        Queue<long[]> queue = capacity > 0 ? new MpscArrayQueue<>(capacity) : new MpscUnboundedArrayQueue<>();
+        ExecutorService producers = Executors.newFixedThreadPool(PRODUCERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int p = 0; p < PRODUCERS; p++) {
+                long producer = p;
+                producers.submit(() -> {
+                    start.await();
+                    for (long i = 0; i < MESSAGES_PER_PRODUCER; i++) {
+                        long[] msg = {producer, i};
+                        while (!queue.offer(msg)) {
+                            Thread.yield();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+
+            long[] expectedNext = new long[PRODUCERS];
+            List<long[]> received = new ArrayList<>();
+            long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(30);
+            while (received.size() < PRODUCERS * MESSAGES_PER_PRODUCER && System.currentTimeMillis() < deadline) {
+                long[] msg = queue.poll();
+                if (msg == null) {
+                    Thread.yield();
+                    continue;
+                }
+                assertThat(msg[1]).isEqualTo(expectedNext[(int) msg[0]]);
+                expectedNext[(int) msg[0]]++;
+                received.add(msg);
+            }
+            assertThat(received).hasSize(PRODUCERS * MESSAGES_PER_PRODUCER);
+            assertThat(queue.poll()).isNull();
+        } finally {
+            producers.shutdownNow();
+        }
+    }
+
+}
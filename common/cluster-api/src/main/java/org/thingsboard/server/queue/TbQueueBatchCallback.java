@@ -0,0 +1,49 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Shared callback for a batch of messages. Notifies the delegate once: after all messages are acknowledged
+ * or on the first failure.
+ */
+public class TbQueueBatchCallback implements TbQueueCallback {
+
+    private final AtomicInteger pending;
+    private final AtomicBoolean done = new AtomicBoolean();
+    private final TbQueueCallback callback;
+
+    public TbQueueBatchCallback(int size, TbQueueCallback callback) {
+        this.pending = new AtomicInteger(size);
+        this.callback = callback;
+    }
+
+    @Override
+    public void onSuccess(TbQueueMsgMetadata metadata) {
+        if (pending.decrementAndGet() <= 0 && done.compareAndSet(false, true) && callback != null) {
+            callback.onSuccess(metadata);
+        }
+    }
+
+    @Override
+    public void onFailure(Throwable t) {
+        if (done.compareAndSet(false, true) && callback != null) {
+            callback.onFailure(t);
+        }
+    }
+}
@@ -17,6 +17,8 @@ package org.thingsboard.server.queue;
 
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 
+import java.util.List;
+
 public interface TbQueueProducer<T extends TbQueueMsg> {
 
     void init();
@@ -25,5 +27,21 @@ public interface TbQueueProducer<T extends TbQueueMsg> {
 
     void send(TopicPartitionInfo tpi, T msg, TbQueueCallback callback);
 
+    /**
+     * Sends messages to the same topic partition. The callback is notified once for the whole batch.
+     */
+    default void sendBatch(TopicPartitionInfo tpi, List<T> msgs, TbQueueCallback callback) {
+        if (msgs.isEmpty()) {
+            if (callback != null) {
+                callback.onSuccess(null);
+            }
+            return;
+        }
+        TbQueueBatchCallback batchCallback = new TbQueueBatchCallback(msgs.size(), callback);
+        for (T msg : msgs) {
+            send(tpi, msg, batchCallback);
+        }
+    }
+
     void stop();
 }
@@ -17,6 +17,7 @@ package org.thingsboard.server.dao.device;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.DeviceAttributesInfo;
 import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.DeviceInfo;
 import org.thingsboard.server.common.data.DeviceInfoFilter;
@@ -38,6 +39,7 @@ import org.thingsboard.server.dao.entity.EntityDaoService;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 public interface DeviceService extends EntityDaoService {
 
@@ -71,6 +73,8 @@ public interface DeviceService extends EntityDaoService {
 
     PageData<DeviceIdInfo> findDeviceIdInfos(PageLink pageLink);
 
+    long streamDeviceAttributesInfos(String attributeScope, List<String> attributeKeys, int fetchSize, Predicate<DeviceAttributesInfo> consumer);
+
     PageData<Device> findDevicesByTenantIdAndType(TenantId tenantId, String type, PageLink pageLink);
 
     PageData<Device> findDevicesByTenantIdAndTypeAndEmptyOtaPackage(TenantId tenantId, DeviceProfileId deviceProfileId, OtaPackageType type, PageLink pageLink);
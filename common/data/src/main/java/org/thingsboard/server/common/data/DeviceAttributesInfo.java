@@ -0,0 +1,40 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.data;
+
+import lombok.Data;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * Device identity and entity fields together with the requested attributes of a single scope,
+ * as returned by a streaming scan of the device table.
+ */
+@Data
+public class DeviceAttributesInfo implements Serializable {
+
+    private static final long serialVersionUID = -3364315623893524542L;
+
+    private final DeviceIdInfo idInfo;
+    private final long createdTime;
+    private final String name;
+    private final String type;
+    private final String label;
+    private final List<AttributeKvEntry> attributes;
+
+}
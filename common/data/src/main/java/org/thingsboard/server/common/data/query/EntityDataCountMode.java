@@ -0,0 +1,36 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.data.query;
+
+/**
+ * How the total number of entities is calculated for an entity data page.
+ */
+public enum EntityDataCountMode {
+
+    /**
+     * Count query is executed for every page
+     */
+    EXACT,
+    /**
+     * Result of the count query is reused for a short period of time
+     */
+    CACHED,
+    /**
+     * Number of rows estimated by the query planner, the actual total may differ
+     */
+    ESTIMATED
+
+}
@@ -16,11 +16,12 @@
 package org.thingsboard.server.common.data.query;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.util.Map;
+import java.util.UUID;
+
 @Data
-@AllArgsConstructor
 public class EntityDataPageLink {
 
     private int pageSize;
@@ -28,6 +29,21 @@ public class EntityDataPageLink {
     private String textSearch;
     private EntityDataSortOrder sortOrder;
     private boolean dynamic = false;
+    private EntityDataCountMode countMode;
+    /**
+     * Id of the last entity of the previous page. When set, the page is located by the sort value and id
+     * of that entity (keyset pagination) and the page number is ignored.
+     */
+    private UUID lastEntityId;
+    /**
+     * Value of the sort order entity field of the last entity of the previous page.
+     */
+    private String lastSortValue;
+    /**
+     * Set by clients that request the next pages with {@link #nextKeysetPageLink(EntityData)}. The first page is then
+     * sorted the same way as the keyset pages: nulls of the sort field as empty strings, by id when there is no sort order.
+     */
+    private boolean keysetPagination;
 
     public EntityDataPageLink() {
     }
@@ -36,8 +52,46 @@ public class EntityDataPageLink {
         this(pageSize, page, textSearch, sortOrder, false);
     }
 
+    public EntityDataPageLink(int pageSize, int page, String textSearch, EntityDataSortOrder sortOrder, boolean dynamic) {
+        this.pageSize = pageSize;
+        this.page = page;
+        this.textSearch = textSearch;
+        this.sortOrder = sortOrder;
+        this.dynamic = dynamic;
+    }
+
     @JsonIgnore
     public EntityDataPageLink nextPageLink() {
-        return new EntityDataPageLink(this.pageSize, this.page + 1, this.textSearch, this.sortOrder);
+        EntityDataPageLink next = new EntityDataPageLink(this.pageSize, this.page + 1, this.textSearch, this.sortOrder);
+        next.setCountMode(this.countMode);
+        return next;
+    }
+
+    /**
+     * @param last last entity of the current page
+     * @return link to the next page that continues after the given entity instead of skipping the previous pages
+     */
+    @JsonIgnore
+    public EntityDataPageLink nextKeysetPageLink(EntityData last) {
+        EntityDataPageLink next = nextPageLink();
+        next.setKeysetPagination(true);
+        next.setLastEntityId(last.getEntityId().getId());
+        if (sortOrder != null && sortOrder.getKey() != null && sortOrder.getKey().getType() == EntityKeyType.ENTITY_FIELD
+                && last.getLatest() != null) {
+            Map<String, TsValue> fields = last.getLatest().get(EntityKeyType.ENTITY_FIELD);
+            TsValue value = fields != null ? fields.get(sortOrder.getKey().getKey()) : null;
+            next.setLastSortValue(value != null ? value.getValue() : null);
+        }
+        return next;
+    }
+
+    @JsonIgnore
+    public boolean isKeyset() {
+        return lastEntityId != null;
+    }
+
+    @JsonIgnore
+    public EntityDataCountMode getCountModeOrDefault() {
+        return countMode != null ? countMode : EntityDataCountMode.EXACT;
     }
 }
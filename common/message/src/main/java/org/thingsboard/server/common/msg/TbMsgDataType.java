@@ -21,6 +21,8 @@ package org.thingsboard.server.common.msg;
 public enum TbMsgDataType {
 
     // Do not change ordering. We use ordinal to save some bytes on serialization
-    JSON, TEXT, BINARY;
+    JSON, TEXT, BINARY,
+    // Timeseries key-value list kept as serialized TbMsgTsKvListProto. JSON 'data' is built on demand
+    TS_KV_LIST;
 
 }
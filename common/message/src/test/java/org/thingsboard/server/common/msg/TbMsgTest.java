@@ -0,0 +1,91 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.msg;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.common.msg.queue.TbMsgCallback;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TbMsgTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @Test
+    public void testTsKvListMsgDataIsRenderedAsJson() throws Exception {
+        TbMsg msg = newTsKvListMsg();
+
+        JsonNode data = objectMapper.readTree(msg.getData());
+        assertEquals(objectMapper.readTree("{\"active\":true,\"counter\":42,\"temperature\":25.5,\"status\":\"ok\",\"geo\":{\"lat\":1.5}}"), data);
+    }
+
+    @Test
+    public void testTsKvListMsgSerialization() {
+        TbMsg msg = newTsKvListMsg();
+
+        TbMsg restored = TbMsg.fromBytes("Main", TbMsg.toByteArray(msg), TbMsgCallback.EMPTY);
+
+        assertEquals(TbMsgDataType.TS_KV_LIST, restored.getDataType());
+        assertEquals(msg.getTsKvList(), restored.getTsKvList());
+        assertEquals(msg.getData(), restored.getData());
+    }
+
+    @Test
+    public void testTransformMsgDataReplacesTsKvList() {
+        TbMsg msg = TbMsg.transformMsgData(newTsKvListMsg(), "{\"temperature\":30}");
+
+        assertEquals(TbMsgDataType.JSON, msg.getDataType());
+        assertNull(msg.getTsKvList());
+        assertEquals("{\"temperature\":30}", msg.getData());
+
+        TbMsg restored = TbMsg.fromBytes("Main", TbMsg.toByteArray(msg), TbMsgCallback.EMPTY);
+        assertEquals(TbMsgDataType.JSON, restored.getDataType());
+        assertEquals("{\"temperature\":30}", restored.getData());
+    }
+
+    @Test
+    public void testTransformMsgMetaDataKeepsTsKvList() {
+        TbMsg msg = newTsKvListMsg();
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("ts", "100");
+
+        TbMsg transformed = TbMsg.transformMsg(msg, metaData);
+
+        assertEquals(TbMsgDataType.TS_KV_LIST, transformed.getDataType());
+        assertEquals(msg.getTsKvList(), transformed.getTsKvList());
+    }
+
+    private TbMsg newTsKvListMsg() {
+        MsgProtos.TbMsgTsKvListProto tsKvList = MsgProtos.TbMsgTsKvListProto.newBuilder()
+                .setTs(100L)
+                .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("active").setType(MsgProtos.TbMsgKvType.BOOLEAN_V).setBoolV(true))
+                .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("counter").setType(MsgProtos.TbMsgKvType.LONG_V).setLongV(42L))
+                .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("temperature").setType(MsgProtos.TbMsgKvType.DOUBLE_V).setDoubleV(25.5))
+                .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("status").setType(MsgProtos.TbMsgKvType.STRING_V).setStringV("ok"))
+                .addKv(MsgProtos.TbMsgKvProto.newBuilder().setKey("geo").setType(MsgProtos.TbMsgKvType.JSON_V).setJsonV("{\"lat\":1.5}"))
+                .build();
+        return TbMsg.newTsKvListMsg("Main", "POST_TELEMETRY_REQUEST", deviceId, null, new TbMsgMetaData(), tsKvList.toByteString(), null);
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueMsgMetadata;
+import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accumulates {@link ToRuleEngineMsg}s per topic partition across calls, so messages of different devices
+ * that land on the same partition are coalesced by {@link ToRuleEngineMsgBatchUtil} into shared queue records.
+ * A partition is flushed once its pending messages reach the max batch size or after the linger time since the first pending message.
+ * Messages that are too big to be coalesced flush the pending messages of their partition first, so the order per partition is preserved.
+ */
+public class ToRuleEngineMsgAccumulator {
+
+    private final TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer;
+    private final SchedulerComponent scheduler;
+    private final int maxMsgSize;
+    private final int maxSize;
+    private final long lingerMs;
+    private final ConcurrentMap<TopicPartitionInfo, PartitionBatch> batches = new ConcurrentHashMap<>();
+
+    public ToRuleEngineMsgAccumulator(TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer, SchedulerComponent scheduler,
+                                      int maxMsgSize, int maxSize, long lingerMs) {
+        this.producer = producer;
+        this.scheduler = scheduler;
+        this.maxMsgSize = maxMsgSize;
+        this.maxSize = maxSize;
+        this.lingerMs = lingerMs;
+    }
+
+    public void add(TopicPartitionInfo tpi, TbProtoQueueMsg<ToRuleEngineMsg> msg, TbQueueCallback callback) {
+        batches.computeIfAbsent(tpi, PartitionBatch::new).add(msg, callback);
+    }
+
+    public void flushAll() {
+        batches.values().forEach(PartitionBatch::flush);
+    }
+
+    private class PartitionBatch {
+        private final TopicPartitionInfo tpi;
+        private List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs = new ArrayList<>();
+        private List<TbQueueCallback> callbacks = new ArrayList<>();
+        private int size;
+        private boolean flushScheduled;
+
+        private PartitionBatch(TopicPartitionInfo tpi) {
+            this.tpi = tpi;
+        }
+
+        private synchronized void add(TbProtoQueueMsg<ToRuleEngineMsg> msg, TbQueueCallback callback) {
+            int msgSize = msg.getValue().getSerializedSize();
+            if (msgSize > maxMsgSize || !msg.getHeaders().getData().isEmpty()) {
+                flush();
+                producer.send(tpi, msg, callback);
+                return;
+            }
+            if (size + msgSize > maxSize) {
+                flush();
+            }
+            msgs.add(msg);
+            callbacks.add(callback);
+            size += msgSize;
+            if (size >= maxSize || lingerMs <= 0) {
+                flush();
+            } else if (!flushScheduled) {
+                flushScheduled = true;
+                scheduler.schedule(this::onLingerExpired, lingerMs, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private synchronized void onLingerExpired() {
+            flushScheduled = false;
+            flush();
+        }
+
+        private synchronized void flush() {
+            if (msgs.isEmpty()) {
+                return;
+            }
+            List<TbProtoQueueMsg<ToRuleEngineMsg>> batchMsgs = msgs;
+            List<TbQueueCallback> batchCallbacks = callbacks;
+            msgs = new ArrayList<>();
+            callbacks = new ArrayList<>();
+            size = 0;
+            producer.sendBatch(tpi, ToRuleEngineMsgBatchUtil.coalesce(batchMsgs, maxMsgSize, maxSize), new TbQueueCallback() {
+                @Override
+                public void onSuccess(TbQueueMsgMetadata metadata) {
+                    for (TbQueueCallback callback : batchCallbacks) {
+                        if (callback != null) {
+                            callback.onSuccess(metadata);
+                        }
+                    }
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    for (TbQueueCallback callback : batchCallbacks) {
+                        if (callback != null) {
+                            callback.onFailure(t);
+                        }
+                    }
+                }
+            });
+        }
+    }
+
+}
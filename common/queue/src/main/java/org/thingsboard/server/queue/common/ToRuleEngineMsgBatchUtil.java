@@ -0,0 +1,104 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineBatchItemProto;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Packs small {@link ToRuleEngineMsg}s for the same partition into batch envelopes and unpacks them on the consumer side.
+ */
+public final class ToRuleEngineMsgBatchUtil {
+
+    private ToRuleEngineMsgBatchUtil() {
+    }
+
+    /**
+     * @param msgs       messages for the same topic partition, in the order they should be processed
+     * @param maxMsgSize messages with bigger serialized size or with headers are sent as is
+     * @param maxSize    max serialized size of the envelope content
+     */
+    public static List<TbProtoQueueMsg<ToRuleEngineMsg>> coalesce(List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs, int maxMsgSize, int maxSize) {
+        if (msgs.size() < 2) {
+            return msgs;
+        }
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> result = new ArrayList<>();
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> pending = new ArrayList<>();
+        int pendingSize = 0;
+        for (TbProtoQueueMsg<ToRuleEngineMsg> msg : msgs) {
+            int msgSize = msg.getValue().getSerializedSize();
+            if (msgSize > maxMsgSize || !msg.getHeaders().getData().isEmpty()) {
+                flush(pending, result);
+                pendingSize = 0;
+                result.add(msg);
+                continue;
+            }
+            if (pendingSize + msgSize > maxSize) {
+                flush(pending, result);
+                pendingSize = 0;
+            }
+            pending.add(msg);
+            pendingSize += msgSize;
+        }
+        flush(pending, result);
+        return result;
+    }
+
+    /**
+     * Replaces batch envelopes with the messages they contain. Returns the same list if there are no envelopes.
+     */
+    public static List<TbProtoQueueMsg<ToRuleEngineMsg>> unpack(List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs) {
+        int size = 0;
+        for (TbProtoQueueMsg<ToRuleEngineMsg> msg : msgs) {
+            int batchCount = msg.getValue().getBatchCount();
+            size += batchCount > 0 ? batchCount : 1;
+        }
+        if (size == msgs.size()) {
+            return msgs;
+        }
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> result = new ArrayList<>(size);
+        for (TbProtoQueueMsg<ToRuleEngineMsg> msg : msgs) {
+            if (msg.getValue().getBatchCount() > 0) {
+                for (ToRuleEngineBatchItemProto item : msg.getValue().getBatchList()) {
+                    result.add(new TbProtoQueueMsg<>(new UUID(item.getIdMSB(), item.getIdLSB()), item.getMsg()));
+                }
+            } else {
+                result.add(msg);
+            }
+        }
+        return result;
+    }
+
+    private static void flush(List<TbProtoQueueMsg<ToRuleEngineMsg>> pending, List<TbProtoQueueMsg<ToRuleEngineMsg>> result) {
+        if (pending.size() == 1) {
+            result.add(pending.get(0));
+        } else if (pending.size() > 1) {
+            ToRuleEngineMsg.Builder envelope = ToRuleEngineMsg.newBuilder();
+            for (TbProtoQueueMsg<ToRuleEngineMsg> msg : pending) {
+                envelope.addBatch(ToRuleEngineBatchItemProto.newBuilder()
+                        .setIdMSB(msg.getKey().getMostSignificantBits())
+                        .setIdLSB(msg.getKey().getLeastSignificantBits())
+                        .setMsg(msg.getValue()));
+            }
+            result.add(new TbProtoQueueMsg<>(pending.get(0).getKey(), envelope.build()));
+        }
+        pending.clear();
+    }
+}
@@ -21,6 +21,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.exception.TenantNotFoundException;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -38,6 +39,7 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -62,6 +64,8 @@ public class HashPartitionService implements PartitionService {
     private Integer vcPartitions;
     @Value("${queue.partitions.hash_function_name:murmur3_128}")
     private String hashFunctionName;
+    @Value("${queue.partitions.precomputed_tpi_enabled:false}")
+    private boolean precomputedTpiEnabled;
 
     private final ApplicationEventPublisher applicationEventPublisher;
     private final TbServiceInfoProvider serviceInfoProvider;
@@ -75,10 +79,17 @@ public class HashPartitionService implements PartitionService {
 
     private final ConcurrentMap<TenantId, TenantRoutingInfo> tenantRoutingInfoMap = new ConcurrentHashMap<>();
 
+    /**
+     * Immutable snapshot of TopicPartitionInfo per partition index: service type -> tenant -> queue name -> partitions.
+     * Used when precomputed resolution is enabled to avoid QueueKey and TopicPartitionInfo allocation on each resolve.
+     */
+    private volatile Map<ServiceType, Map<TenantId, Map<String, TopicPartitionInfo[]>>> tpiTables = Collections.emptyMap();
+
     private Map<String, List<ServiceInfo>> tbTransportServicesByType = new HashMap<>();
     private List<ServiceInfo> currentOtherServices;
 
     private HashFunction hashFunction;
+    private UuidHashFunction uuidHashFunction;
 
     public HashPartitionService(TbServiceInfoProvider serviceInfoProvider,
                                 TenantRoutingInfoService tenantRoutingInfoService,
@@ -93,6 +104,7 @@ public class HashPartitionService implements PartitionService {
     @PostConstruct
     public void init() {
         this.hashFunction = forName(hashFunctionName);
+        this.uuidHashFunction = UuidHashFunction.forName(hashFunctionName);
         QueueKey coreKey = new QueueKey(ServiceType.TB_CORE);
         partitionSizesMap.put(coreKey, corePartitions);
         partitionTopicsMap.put(coreKey, coreTopic);
@@ -104,12 +116,14 @@ public class HashPartitionService implements PartitionService {
         if (!isTransport(serviceInfoProvider.getServiceType())) {
             doInitRuleEnginePartitions();
         }
+        rebuildTpiTables();
     }
 
     @AfterStartUp(order = AfterStartUp.QUEUE_INFO_INITIALIZATION)
     public void partitionsInit() {
         if (isTransport(serviceInfoProvider.getServiceType())) {
             doInitRuleEnginePartitions();
+            rebuildTpiTables();
         }
     }
 
@@ -165,6 +179,7 @@ public class HashPartitionService implements PartitionService {
         partitionTopicsMap.put(queueKey, queueUpdateMsg.getQueueTopic());
         partitionSizesMap.put(queueKey, queueUpdateMsg.getPartitions());
         myPartitions.remove(queueKey);
+        rebuildTpiTables();
     }
 
     @Override
@@ -174,6 +189,7 @@ public class HashPartitionService implements PartitionService {
         myPartitions.remove(queueKey);
         partitionTopicsMap.remove(queueKey);
         partitionSizesMap.remove(queueKey);
+        rebuildTpiTables();
         //TODO: remove after merging tb entity services
         removeTenant(tenantId);
     }
@@ -181,6 +197,13 @@ public class HashPartitionService implements PartitionService {
     @Override
     public TopicPartitionInfo resolve(ServiceType serviceType, String queueName, TenantId tenantId, EntityId entityId) {
         TenantId isolatedOrSystemTenantId = getIsolatedOrSystemTenantId(serviceType, tenantId);
+        if (precomputedTpiEnabled) {
+            TopicPartitionInfo[] tpis = getTpiTable(serviceType, queueName, isolatedOrSystemTenantId);
+            if (tpis != null) {
+                UUID id = entityId.getId();
+                return tpis[toPartitionIndex(uuidHashFunction.hash(id.getMostSignificantBits(), id.getLeastSignificantBits()), tpis.length)];
+            }
+        }
         QueueKey queueKey = new QueueKey(serviceType, queueName, isolatedOrSystemTenantId);
         if (!partitionSizesMap.containsKey(queueKey)) {
             queueKey = new QueueKey(serviceType, isolatedOrSystemTenantId);
@@ -204,11 +227,45 @@ public class HashPartitionService implements PartitionService {
                 .putLong(entityId.getId().getLeastSignificantBits()).hash().asInt();
 
         Integer partitionSize = partitionSizesMap.get(queueKey);
-        int partition = Math.abs(hash % partitionSize);
+        int partition = toPartitionIndex(hash, partitionSize);
 
         return buildTopicPartitionInfo(queueKey, partition);
     }
 
+    private TopicPartitionInfo[] getTpiTable(ServiceType serviceType, String queueName, TenantId tenantId) {
+        Map<TenantId, Map<String, TopicPartitionInfo[]>> tenantTables = tpiTables.get(serviceType);
+        if (tenantTables == null) {
+            return null;
+        }
+        Map<String, TopicPartitionInfo[]> queueTables = tenantTables.get(tenantId);
+        if (queueTables == null) {
+            return null;
+        }
+        TopicPartitionInfo[] tpis = queueName != null ? queueTables.get(queueName) : null;
+        return tpis != null ? tpis : queueTables.get(DataConstants.MAIN_QUEUE_NAME);
+    }
+
+    private synchronized void rebuildTpiTables() {
+        if (!precomputedTpiEnabled) {
+            return;
+        }
+        Map<ServiceType, Map<TenantId, Map<String, TopicPartitionInfo[]>>> newTables = new EnumMap<>(ServiceType.class);
+        partitionSizesMap.forEach((queueKey, size) -> {
+            TopicPartitionInfo[] tpis = new TopicPartitionInfo[size];
+            for (int i = 0; i < size; i++) {
+                tpis[i] = buildTopicPartitionInfo(queueKey, i);
+            }
+            newTables.computeIfAbsent(queueKey.getType(), type -> new HashMap<>())
+                    .computeIfAbsent(queueKey.getTenantId(), tenantId -> new HashMap<>())
+                    .put(queueKey.getQueueName(), tpis);
+        });
+        tpiTables = newTables;
+    }
+
+    private static int toPartitionIndex(int hash, int partitions) {
+        return Math.abs(hash % partitions);
+    }
+
     @Override
     public synchronized void recalculatePartitions(ServiceInfo currentService, List<ServiceInfo> otherServices) {
         tbTransportServicesByType.clear();
@@ -234,6 +291,7 @@ public class HashPartitionService implements PartitionService {
 
         final ConcurrentMap<QueueKey, List<Integer>> oldPartitions = myPartitions;
         myPartitions = newPartitions;
+        rebuildTpiTables();
 
         oldPartitions.forEach((queueKey, partitions) -> {
             if (!myPartitions.containsKey(queueKey)) {
@@ -305,10 +363,15 @@ public class HashPartitionService implements PartitionService {
 
     @Override
     public int resolvePartitionIndex(UUID entityId, int partitions) {
-        int hash = hashFunction.newHasher()
-                .putLong(entityId.getMostSignificantBits())
-                .putLong(entityId.getLeastSignificantBits()).hash().asInt();
-        return Math.abs(hash % partitions);
+        int hash;
+        if (precomputedTpiEnabled) {
+            hash = uuidHashFunction.hash(entityId.getMostSignificantBits(), entityId.getLeastSignificantBits());
+        } else {
+            hash = hashFunction.newHasher()
+                    .putLong(entityId.getMostSignificantBits())
+                    .putLong(entityId.getLeastSignificantBits()).hash().asInt();
+        }
+        return toPartitionIndex(hash, partitions);
     }
 
     @Override
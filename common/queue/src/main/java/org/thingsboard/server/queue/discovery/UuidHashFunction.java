@@ -0,0 +1,112 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.discovery;
+
+import com.google.common.hash.HashFunction;
+
+/**
+ * Allocation-free equivalent of {@code hashFunction.newHasher().putLong(msb).putLong(lsb).hash().asInt()}.
+ * Murmur3 variants are computed inline and produce exactly the same value as Guava does,
+ * so partitions resolved through this function are the same as the ones resolved through the Guava hasher.
+ */
+@FunctionalInterface
+public interface UuidHashFunction {
+
+    int hash(long msb, long lsb);
+
+    static UuidHashFunction forName(String name) {
+        switch (name) {
+            case "murmur3_32":
+                return UuidHashFunction::murmur3x32;
+            case "murmur3_128":
+                return UuidHashFunction::murmur3x128;
+            default:
+                HashFunction hashFunction = HashPartitionService.forName(name);
+                return (msb, lsb) -> hashFunction.newHasher().putLong(msb).putLong(lsb).hash().asInt();
+        }
+    }
+
+    private static int murmur3x128(long msb, long lsb) {
+        long h1 = 0;
+        long h2 = 0;
+
+        long k1 = msb * 0x87c37b91114253d5L;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= 0x4cf5ad432745937fL;
+        h1 ^= k1;
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        long k2 = lsb * 0x4cf5ad432745937fL;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= 0x87c37b91114253d5L;
+        h2 ^= k2;
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        h1 ^= Long.BYTES * 2;
+        h2 ^= Long.BYTES * 2;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        // asInt() takes the first four little-endian bytes of the 128-bit hash, i.e. the low bits of h1.
+        return (int) h1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    private static int murmur3x32(long msb, long lsb) {
+        int h1 = 0;
+        h1 = mixH1(h1, mixK1((int) msb));
+        h1 = mixH1(h1, mixK1((int) (msb >>> 32)));
+        h1 = mixH1(h1, mixK1((int) lsb));
+        h1 = mixH1(h1, mixK1((int) (lsb >>> 32)));
+
+        h1 ^= Long.BYTES * 2;
+        h1 ^= h1 >>> 16;
+        h1 *= 0x85ebca6b;
+        h1 ^= h1 >>> 13;
+        h1 *= 0xc2b2ae35;
+        h1 ^= h1 >>> 16;
+        return h1;
+    }
+
+    private static int mixK1(int k1) {
+        k1 *= 0xcc9e2d51;
+        k1 = Integer.rotateLeft(k1, 15);
+        k1 *= 0x1b873593;
+        return k1;
+    }
+
+    private static int mixH1(int h1, int k1) {
+        h1 ^= k1;
+        h1 = Integer.rotateLeft(h1, 13);
+        h1 = h1 * 5 + 0xe6546b64;
+        return h1;
+    }
+
+}
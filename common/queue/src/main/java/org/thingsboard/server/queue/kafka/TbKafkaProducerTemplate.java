@@ -18,22 +18,27 @@ package org.thingsboard.server.queue.kafka;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Callback;
 import org.apache.kafka.clients.producer.KafkaProducer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.internals.RecordHeader;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.queue.TbQueueAdmin;
+import org.thingsboard.server.queue.TbQueueBatchCallback;
 import org.thingsboard.server.queue.TbQueueCallback;
 import org.thingsboard.server.queue.TbQueueMsg;
 import org.thingsboard.server.queue.TbQueueProducer;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 /**
  * Created by ashvayka on 24.09.18.
@@ -76,11 +81,7 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
     public void send(TopicPartitionInfo tpi, T msg, TbQueueCallback callback) {
         try {
             createTopicIfNotExist(tpi);
-            String key = msg.getKey().toString();
-            byte[] data = msg.getData();
-            ProducerRecord<String, byte[]> record;
-            Iterable<Header> headers = msg.getHeaders().getData().entrySet().stream().map(e -> new RecordHeader(e.getKey(), e.getValue())).collect(Collectors.toList());
-            record = new ProducerRecord<>(tpi.getFullTopicName(), null, key, data, headers);
+            ProducerRecord<String, byte[]> record = toRecord(tpi.getFullTopicName(), msg);
             producer.send(record, (metadata, exception) -> {
                 if (exception == null) {
                     if (callback != null) {
@@ -104,6 +105,43 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
         }
     }
 
+    @Override
+    public void sendBatch(TopicPartitionInfo tpi, List<T> msgs, TbQueueCallback callback) {
+        if (msgs.isEmpty()) {
+            if (callback != null) {
+                callback.onSuccess(null);
+            }
+            return;
+        }
+        try {
+            createTopicIfNotExist(tpi);
+            String topic = tpi.getFullTopicName();
+            BatchCallback batchCallback = new BatchCallback(new TbQueueBatchCallback(msgs.size(), callback));
+            for (T msg : msgs) {
+                producer.send(toRecord(topic, msg), batchCallback);
+            }
+        } catch (Exception e) {
+            if (callback != null) {
+                callback.onFailure(e);
+            } else {
+                log.warn("Producer template failure (sendBatch method wrapper): {}", e.getMessage(), e);
+            }
+            throw e;
+        }
+    }
+
+    private ProducerRecord<String, byte[]> toRecord(String topic, T msg) {
+        Map<String, byte[]> headersData = msg.getHeaders().getData();
+        List<Header> headers = null;
+        if (!headersData.isEmpty()) {
+            headers = new ArrayList<>(headersData.size());
+            for (Map.Entry<String, byte[]> header : headersData.entrySet()) {
+                headers.add(new RecordHeader(header.getKey(), header.getValue()));
+            }
+        }
+        return new ProducerRecord<>(topic, null, msg.getKey().toString(), msg.getData(), headers);
+    }
+
     private void createTopicIfNotExist(TopicPartitionInfo tpi) {
         if (topics.contains(tpi)) {
             return;
@@ -118,4 +156,22 @@ public class TbKafkaProducerTemplate<T extends TbQueueMsg> implements TbQueuePro
             producer.close();
         }
     }
+
+    private static class BatchCallback implements Callback {
+
+        private final TbQueueBatchCallback callback;
+
+        private BatchCallback(TbQueueBatchCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void onCompletion(RecordMetadata metadata, Exception exception) {
+            if (exception == null) {
+                callback.onSuccess(new KafkaTbQueueMsgMetadata(metadata));
+            } else {
+                callback.onFailure(exception);
+            }
+        }
+    }
 }
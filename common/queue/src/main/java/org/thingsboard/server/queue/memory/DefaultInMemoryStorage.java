@@ -16,60 +16,136 @@
 package org.thingsboard.server.queue.memory;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.queue.TbQueueMsg;
 
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 @Slf4j
 public final class DefaultInMemoryStorage implements InMemoryStorage {
-    private final ConcurrentHashMap<String, BlockingQueue<TbQueueMsg>> storage = new ConcurrentHashMap<>();
+    private static final int MAX_POLL_SIZE = 1000;
+    private static final String STATS_KEY = "inMemoryQueue";
+    private static final String TOPIC_TAG = "topic";
+
+    private final ConcurrentHashMap<String, InMemoryRingBuffer> storage = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, TopicStats> topicStats = new ConcurrentHashMap<>();
+
+    @Value("${queue.in_memory.max_queue_size:0}")
+    private int maxQueueSize;
+    @Value("${queue.in_memory.offer_timeout_ms:10000}")
+    private long offerTimeoutMs;
+    @Value("${queue.in_memory.internal_offer_timeout_ms:0}")
+    private long internalOfferTimeoutMs;
+
+    @Autowired(required = false)
+    private StatsFactory statsFactory;
+
+    private volatile long lastStatsTs = System.currentTimeMillis();
+
+    public DefaultInMemoryStorage() {
+    }
+
+    DefaultInMemoryStorage(int maxQueueSize, long offerTimeoutMs) {
+        this(maxQueueSize, offerTimeoutMs, offerTimeoutMs);
+    }
+
+    DefaultInMemoryStorage(int maxQueueSize, long offerTimeoutMs, long internalOfferTimeoutMs) {
+        this.maxQueueSize = maxQueueSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.internalOfferTimeoutMs = internalOfferTimeoutMs;
+    }
 
     @Override
     public void printStats() {
-        if (log.isDebugEnabled()) {
-            storage.forEach((topic, queue) -> {
-                if (queue.size() > 0) {
-                    log.debug("[{}] Queue Size [{}]", topic, queue.size());
-                }
-            });
-        }
+        long ts = System.currentTimeMillis();
+        long intervalMs = Math.max(1, ts - lastStatsTs);
+        lastStatsTs = ts;
+        storage.forEach((topic, queue) -> {
+            InMemoryRingBuffer.Stats stats = queue.getAndResetStats();
+            TopicStats metrics = topicStats.get(topic);
+            if (metrics != null) {
+                metrics.size.set(queue.size());
+            }
+            if (stats.getRejected() > 0) {
+                log.warn("[{}] Rejected [{}] messages because the queue is full. Queue size [{}], max size [{}]",
+                        topic, stats.getRejected(), queue.size(), queue.capacity());
+            }
+            if (log.isDebugEnabled() && (queue.size() > 0 || stats.getProduced() > 0)) {
+                log.debug("[{}] Queue Size [{}], produced [{}] ({} msg/s), consumed [{}] ({} msg/s), producer waits [{}], rejected [{}]",
+                        topic, queue.size(), stats.getProduced(), stats.getProduced() * 1000 / intervalMs,
+                        stats.getConsumed(), stats.getConsumed() * 1000 / intervalMs, stats.getBlocked(), stats.getRejected());
+            }
+        });
     }
 
     @Override
     public int getLagTotal() {
-        return storage.values().stream().map(BlockingQueue::size).reduce(0, Integer::sum);
+        int lag = 0;
+        for (InMemoryRingBuffer queue : storage.values()) {
+            lag += queue.size();
+        }
+        return lag;
     }
 
     @Override
-    public boolean put(String topic, TbQueueMsg msg) {
-        return storage.computeIfAbsent(topic, (t) -> new LinkedBlockingQueue<>()).add(msg);
+    public boolean put(String topic, TbQueueMsg msg, boolean blocking) {
+        InMemoryRingBuffer queue = storage.get(topic);
+        if (queue == null) {
+            queue = storage.computeIfAbsent(topic, this::createQueue);
+        }
+        boolean added;
+        try {
+            added = queue.offer(msg, blocking ? offerTimeoutMs : internalOfferTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            added = false;
+        }
+        if (!added) {
+            TopicStats metrics = topicStats.get(topic);
+            if (metrics != null) {
+                metrics.rejected.increment();
+            }
+        }
+        return added;
     }
 
     @SuppressWarnings("unchecked")
     @Override
     public <T extends TbQueueMsg> List<T> get(String topic) throws InterruptedException {
-        final BlockingQueue<TbQueueMsg> queue = storage.get(topic);
+        final InMemoryRingBuffer queue = storage.get(topic);
         if (queue != null) {
-            final TbQueueMsg firstMsg = queue.poll();
-            if (firstMsg != null) {
-                final int queueSize = queue.size();
-                if (queueSize > 0) {
-                    final List<TbQueueMsg> entities = new ArrayList<>(Math.min(queueSize, 999) + 1);
-                    entities.add(firstMsg);
-                    queue.drainTo(entities, 999);
-                    return (List<T>) entities;
-                }
-                return Collections.singletonList((T) firstMsg);
-            }
+            return (List<T>) queue.drain(MAX_POLL_SIZE);
         }
         return Collections.emptyList();
     }
 
+    private InMemoryRingBuffer createQueue(String topic) {
+        InMemoryRingBuffer queue = new InMemoryRingBuffer(maxQueueSize);
+        if (statsFactory != null && maxQueueSize > 0) {
+            topicStats.put(topic, new TopicStats(
+                    statsFactory.createGauge(STATS_KEY + ".size", new AtomicInteger(), TOPIC_TAG, topic),
+                    statsFactory.createDefaultCounter(STATS_KEY + ".rejected", TOPIC_TAG, topic)));
+        }
+        return queue;
+    }
+
+    private static class TopicStats {
+        private final AtomicInteger size;
+        private final DefaultCounter rejected;
+
+        private TopicStats(AtomicInteger size, DefaultCounter rejected) {
+            this.size = size;
+            this.rejected = rejected;
+        }
+    }
+
 }
@@ -0,0 +1,157 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.memory;
+
+import lombok.Value;
+import org.thingsboard.server.queue.TbQueueMsg;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Array based ring buffer of a single in-memory topic. Grows on demand up to the max capacity,
+ * after that producers wait for free space. Consumer takes the messages in chunks under a single lock.
+ */
+final class InMemoryRingBuffer {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int maxCapacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+
+    private TbQueueMsg[] items;
+    private int head;
+    private volatile int count;
+
+    private long produced;
+    private long consumed;
+    private long blocked;
+    private long rejected;
+
+    InMemoryRingBuffer(int maxCapacity) {
+        this.maxCapacity = maxCapacity > 0 ? maxCapacity : Integer.MAX_VALUE - 8;
+        this.items = new TbQueueMsg[Math.min(INITIAL_CAPACITY, this.maxCapacity)];
+    }
+
+    /**
+     * @return false if there was no free space during the timeout
+     */
+    boolean offer(TbQueueMsg msg, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            if (count == items.length && !grow()) {
+                blocked++;
+                while (count == items.length) {
+                    if (nanos <= 0) {
+                        rejected++;
+                        return false;
+                    }
+                    nanos = notFull.awaitNanos(nanos);
+                }
+            }
+            int tail = head + count;
+            if (tail >= items.length) {
+                tail -= items.length;
+            }
+            items[tail] = msg;
+            count++;
+            produced++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    List<TbQueueMsg> drain(int maxElements) {
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        lock.lock();
+        try {
+            int n = Math.min(count, maxElements);
+            if (n == 0) {
+                return Collections.emptyList();
+            }
+            List<TbQueueMsg> result = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                result.add(items[head]);
+                items[head] = null;
+                if (++head == items.length) {
+                    head = 0;
+                }
+            }
+            count -= n;
+            consumed += n;
+            notFull.signalAll();
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        return count;
+    }
+
+    int capacity() {
+        return maxCapacity;
+    }
+
+    /**
+     * @return counters collected since the previous call
+     */
+    Stats getAndResetStats() {
+        lock.lock();
+        try {
+            Stats stats = new Stats(produced, consumed, blocked, rejected);
+            produced = consumed = blocked = rejected = 0;
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean grow() {
+        int oldCapacity = items.length;
+        if (oldCapacity >= maxCapacity) {
+            return false;
+        }
+        int newCapacity = (int) Math.min((long) oldCapacity << 1, maxCapacity);
+        TbQueueMsg[] newItems = new TbQueueMsg[newCapacity];
+        int firstPart = Math.min(count, oldCapacity - head);
+        System.arraycopy(items, head, newItems, 0, firstPart);
+        System.arraycopy(items, 0, newItems, firstPart, count - firstPart);
+        items = newItems;
+        head = 0;
+        return true;
+    }
+
+    @Value
+    static class Stats {
+        long produced;
+        long consumed;
+        // Producers that had to wait for free space
+        long blocked;
+        // Producers that gave up after the offer timeout
+        long rejected;
+    }
+}
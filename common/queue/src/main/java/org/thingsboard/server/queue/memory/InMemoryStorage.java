@@ -25,7 +25,16 @@ public interface InMemoryStorage {
 
     int getLagTotal();
 
-    boolean put(String topic, TbQueueMsg msg);
+    default boolean put(String topic, TbQueueMsg msg) {
+        return put(topic, msg, true);
+    }
+
+    /**
+     * @param blocking whether the producer may wait for free space in a bounded queue.
+     *                 Producers that run on the threads that free the space (consumers, actors) must not wait.
+     * @return false if the queue is full
+     */
+    boolean put(String topic, TbQueueMsg msg, boolean blocking);
 
     <T extends TbQueueMsg> List<T> get(String topic) throws InterruptedException;
 
@@ -20,10 +20,10 @@ import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
 import org.thingsboard.server.queue.TbQueueConsumer;
 import org.thingsboard.server.queue.TbQueueMsg;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 @Slf4j
 public class InMemoryTbQueueConsumer<T extends TbQueueMsg> implements TbQueueConsumer<T> {
@@ -65,22 +65,31 @@ public class InMemoryTbQueueConsumer<T extends TbQueueMsg> implements TbQueueCon
     @Override
     public List<T> poll(long durationInMillis) {
         if (subscribed) {
-            @SuppressWarnings("unchecked")
-            List<T> messages = partitions
-                    .stream()
-                    .map(tpi -> {
-                        try {
-                            return storage.get(tpi.getFullTopicName());
-                        } catch (InterruptedException e) {
-                            if (!stopped) {
-                                log.error("Queue was interrupted.", e);
-                            }
-                            return Collections.emptyList();
-                        }
-                    })
-                    .flatMap(List::stream)
-                    .map(msg -> (T) msg).collect(Collectors.toList());
-            if (messages.size() > 0) {
+            List<T> messages = null;
+            for (TopicPartitionInfo tpi : partitions) {
+                List<T> polled;
+                try {
+                    polled = storage.get(tpi.getFullTopicName());
+                } catch (InterruptedException e) {
+                    if (!stopped) {
+                        log.error("Queue was interrupted.", e);
+                    }
+                    continue;
+                }
+                if (polled.isEmpty()) {
+                    continue;
+                }
+                if (messages == null) {
+                    // Hand over the drained chunk as is when only one partition has messages
+                    messages = polled;
+                } else {
+                    if (!(messages instanceof ArrayList)) {
+                        messages = new ArrayList<>(messages);
+                    }
+                    messages.addAll(polled);
+                }
+            }
+            if (messages != null) {
                 return messages;
             }
             try {
@@ -28,9 +28,19 @@ public class InMemoryTbQueueProducer<T extends TbQueueMsg> implements TbQueuePro
 
     private final String defaultTopic;
 
+    private final boolean blocking;
+
     public InMemoryTbQueueProducer(InMemoryStorage storage, String defaultTopic) {
+        this(storage, defaultTopic, true);
+    }
+
+    /**
+     * @param blocking false for the producers used by consumer and actor threads, which must not wait for free space in a bounded queue
+     */
+    public InMemoryTbQueueProducer(InMemoryStorage storage, String defaultTopic, boolean blocking) {
         this.storage = storage;
         this.defaultTopic = defaultTopic;
+        this.blocking = blocking;
     }
 
     @Override
@@ -40,14 +50,14 @@ public class InMemoryTbQueueProducer<T extends TbQueueMsg> implements TbQueuePro
 
     @Override
     public void send(TopicPartitionInfo tpi, T msg, TbQueueCallback callback) {
-        boolean result = storage.put(tpi.getFullTopicName(), msg);
+        boolean result = storage.put(tpi.getFullTopicName(), msg, blocking);
         if (result) {
             if (callback != null) {
                 callback.onSuccess(null);
             }
         } else {
             if (callback != null) {
-                callback.onFailure(new RuntimeException("Failure add msg to InMemoryQueue"));
+                callback.onFailure(new RuntimeException("Failure add msg to InMemoryQueue, queue [" + tpi.getFullTopicName() + "] is full"));
             }
         }
     }
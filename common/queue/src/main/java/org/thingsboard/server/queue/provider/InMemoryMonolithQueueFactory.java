@@ -72,7 +72,7 @@ public class InMemoryMonolithQueueFactory implements TbCoreQueueFactory, TbRuleE
 
     @Override
     public TbQueueProducer<TbProtoQueueMsg<TransportProtos.ToTransportMsg>> createTransportNotificationsMsgProducer() {
-        return new InMemoryTbQueueProducer<>(storage, transportNotificationSettings.getNotificationsTopic());
+        return new InMemoryTbQueueProducer<>(storage, transportNotificationSettings.getNotificationsTopic(), false);
     }
 
     @Override
@@ -82,7 +82,7 @@ public class InMemoryMonolithQueueFactory implements TbCoreQueueFactory, TbRuleE
 
     @Override
     public TbQueueProducer<TbProtoQueueMsg<TransportProtos.ToRuleEngineNotificationMsg>> createRuleEngineNotificationsMsgProducer() {
-        return new InMemoryTbQueueProducer<>(storage, ruleEngineSettings.getTopic());
+        return new InMemoryTbQueueProducer<>(storage, ruleEngineSettings.getTopic(), false);
     }
 
     @Override
@@ -92,7 +92,7 @@ public class InMemoryMonolithQueueFactory implements TbCoreQueueFactory, TbRuleE
 
     @Override
     public TbQueueProducer<TbProtoQueueMsg<TransportProtos.ToCoreNotificationMsg>> createTbCoreNotificationsMsgProducer() {
-        return new InMemoryTbQueueProducer<>(storage, coreSettings.getTopic());
+        return new InMemoryTbQueueProducer<>(storage, coreSettings.getTopic(), false);
     }
 
     @Override
@@ -127,7 +127,7 @@ public class InMemoryMonolithQueueFactory implements TbCoreQueueFactory, TbRuleE
 
     @Override
     public TbQueueProducer<TbProtoQueueMsg<TransportProtos.TransportApiResponseMsg>> createTransportApiResponseProducer() {
-        return new InMemoryTbQueueProducer<>(storage, transportApiSettings.getResponsesTopic());
+        return new InMemoryTbQueueProducer<>(storage, transportApiSettings.getResponsesTopic(), false);
     }
 
     @Override
@@ -0,0 +1,212 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.common;
+
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.thingsboard.server.common.msg.queue.TopicPartitionInfo;
+import org.thingsboard.server.gen.transport.TransportProtos.ToRuleEngineMsg;
+import org.thingsboard.server.queue.TbQueueCallback;
+import org.thingsboard.server.queue.TbQueueMsgMetadata;
+import org.thingsboard.server.queue.TbQueueProducer;
+import org.thingsboard.server.queue.scheduler.SchedulerComponent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ToRuleEngineMsgBatchUtilTest {
+
+    @Test
+    void testCoalesceAndUnpack() {
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            msgs.add(newMsg(10));
+        }
+        msgs.add(newMsg(2048));
+        msgs.add(newMsg(10));
+
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> records = ToRuleEngineMsgBatchUtil.coalesce(msgs, 1024, 65536);
+
+        assertThat(records).hasSize(3);
+        assertThat(records.get(0).getValue().getBatchCount()).isEqualTo(10);
+        assertThat(records.get(1)).isSameAs(msgs.get(10));
+        assertThat(records.get(2)).isSameAs(msgs.get(11));
+
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> unpacked = ToRuleEngineMsgBatchUtil.unpack(records);
+        assertThat(unpacked).hasSize(msgs.size());
+        for (int i = 0; i < msgs.size(); i++) {
+            assertThat(unpacked.get(i).getKey()).isEqualTo(msgs.get(i).getKey());
+            assertThat(unpacked.get(i).getValue()).isEqualTo(msgs.get(i).getValue());
+        }
+    }
+
+    @Test
+    void testCoalesceRespectsMaxSize() {
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            msgs.add(newMsg(100));
+        }
+        int msgSize = msgs.get(0).getValue().getSerializedSize();
+
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> records = ToRuleEngineMsgBatchUtil.coalesce(msgs, 1024, msgSize * 4);
+
+        assertThat(records).hasSize(3);
+        assertThat(records.get(0).getValue().getBatchCount()).isEqualTo(4);
+        assertThat(records.get(1).getValue().getBatchCount()).isEqualTo(4);
+        assertThat(records.get(2).getValue().getBatchCount()).isEqualTo(2);
+        assertThat(ToRuleEngineMsgBatchUtil.unpack(records)).hasSize(10);
+    }
+
+    @Test
+    void testUnpackWithoutEnvelopesReturnsSameList() {
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs = List.of(newMsg(10), newMsg(10));
+
+        assertThat(ToRuleEngineMsgBatchUtil.unpack(msgs)).isSameAs(msgs);
+    }
+
+    @Test
+    void testDefaultSendBatchCompletesCallbackOnce() {
+        AtomicInteger sent = new AtomicInteger();
+        TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer = new TbQueueProducer<>() {
+            @Override
+            public void init() {
+            }
+
+            @Override
+            public String getDefaultTopic() {
+                return "tb_rule_engine";
+            }
+
+            @Override
+            public void send(TopicPartitionInfo tpi, TbProtoQueueMsg<ToRuleEngineMsg> msg, TbQueueCallback callback) {
+                sent.incrementAndGet();
+                callback.onSuccess(null);
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+        AtomicInteger success = new AtomicInteger();
+        AtomicInteger failure = new AtomicInteger();
+
+        producer.sendBatch(new TopicPartitionInfo("tb_rule_engine", null, 0, true), List.of(newMsg(10), newMsg(10), newMsg(10)), new TbQueueCallback() {
+            @Override
+            public void onSuccess(TbQueueMsgMetadata metadata) {
+                success.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                failure.incrementAndGet();
+            }
+        });
+
+        assertThat(sent.get()).isEqualTo(3);
+        assertThat(success.get()).isEqualTo(1);
+        assertThat(failure.get()).isZero();
+    }
+
+    @Test
+    void testAccumulatorCoalescesMessagesAcrossCalls() {
+        List<List<TbProtoQueueMsg<ToRuleEngineMsg>>> batches = new ArrayList<>();
+        List<TbProtoQueueMsg<ToRuleEngineMsg>> sent = new ArrayList<>();
+        TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> producer = new TbQueueProducer<>() {
+            @Override
+            public void init() {
+            }
+
+            @Override
+            public String getDefaultTopic() {
+                return "tb_rule_engine";
+            }
+
+            @Override
+            public void send(TopicPartitionInfo tpi, TbProtoQueueMsg<ToRuleEngineMsg> msg, TbQueueCallback callback) {
+                sent.add(msg);
+                callback.onSuccess(null);
+            }
+
+            @Override
+            public void sendBatch(TopicPartitionInfo tpi, List<TbProtoQueueMsg<ToRuleEngineMsg>> msgs, TbQueueCallback callback) {
+                batches.add(msgs);
+                callback.onSuccess(null);
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+        SchedulerComponent scheduler = mock(SchedulerComponent.class);
+        ToRuleEngineMsgAccumulator accumulator = new ToRuleEngineMsgAccumulator(producer, scheduler, 1024, 65536, 5);
+        TopicPartitionInfo tpi = new TopicPartitionInfo("tb_rule_engine", null, 0, true);
+        AtomicInteger success = new AtomicInteger();
+        TbQueueCallback callback = new TbQueueCallback() {
+            @Override
+            public void onSuccess(TbQueueMsgMetadata metadata) {
+                success.incrementAndGet();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+            }
+        };
+
+        // single messages of different devices, as the transport sends them
+        for (int i = 0; i < 5; i++) {
+            accumulator.add(tpi, newMsg(10), callback);
+        }
+        assertThat(batches).isEmpty();
+        ArgumentCaptor<Runnable> lingerTask = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, times(1)).schedule(lingerTask.capture(), eq(5L), eq(TimeUnit.MILLISECONDS));
+
+        lingerTask.getValue().run();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).hasSize(1);
+        assertThat(batches.get(0).get(0).getValue().getBatchCount()).isEqualTo(5);
+        assertThat(success.get()).isEqualTo(5);
+
+        // a big message is sent as is, after the pending messages of the same partition
+        accumulator.add(tpi, newMsg(10), callback);
+        TbProtoQueueMsg<ToRuleEngineMsg> big = newMsg(2048);
+        accumulator.add(tpi, big, callback);
+
+        assertThat(batches).hasSize(2);
+        assertThat(sent).containsExactly(big);
+        assertThat(success.get()).isEqualTo(7);
+    }
+
+    private static TbProtoQueueMsg<ToRuleEngineMsg> newMsg(int size) {
+        UUID id = UUID.randomUUID();
+        ToRuleEngineMsg msg = ToRuleEngineMsg.newBuilder()
+                .setTenantIdMSB(id.getMostSignificantBits())
+                .setTenantIdLSB(id.getLeastSignificantBits())
+                .setTbMsg(ByteString.copyFrom(new byte[size]))
+                .build();
+        return new TbProtoQueueMsg<>(id, msg);
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.queue.discovery;
+
+import com.google.common.hash.HashFunction;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidHashFunctionTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"murmur3_32", "murmur3_128", "sha256"})
+    void testSameHashAsGuavaHasher(String hashFunctionName) {
+        HashFunction guavaHashFunction = HashPartitionService.forName(hashFunctionName);
+        UuidHashFunction uuidHashFunction = UuidHashFunction.forName(hashFunctionName);
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            UUID uuid = i % 2 == 0 ? UUID.randomUUID() : new UUID(random.nextLong(), random.nextLong());
+            int expected = guavaHashFunction.newHasher()
+                    .putLong(uuid.getMostSignificantBits())
+                    .putLong(uuid.getLeastSignificantBits()).hash().asInt();
+            assertThat(uuidHashFunction.hash(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()))
+                    .as("hash of %s", uuid).isEqualTo(expected);
+        }
+    }
+
+}
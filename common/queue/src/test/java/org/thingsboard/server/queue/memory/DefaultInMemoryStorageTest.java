@@ -24,6 +24,8 @@ import org.thingsboard.server.queue.common.DefaultTbQueueMsg;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
@@ -112,4 +114,58 @@ public class DefaultInMemoryStorageTest {
         testPollOnce(10);
     }
 
+    @Test
+    public void givenBoundedQueue_whenFull_thenRejectAfterTimeout() throws InterruptedException {
+        InMemoryStorage storage = new DefaultInMemoryStorage(2, 10);
+        assertThat(storage.put(topic, mock(TbQueueMsg.class))).isTrue();
+        assertThat(storage.put(topic, mock(TbQueueMsg.class))).isTrue();
+        assertThat(storage.put(topic, mock(TbQueueMsg.class))).as("no free space").isFalse();
+        assertThat(storage.getLagTotal()).isEqualTo(2);
+        assertThat(storage.get(topic)).hasSize(2);
+        assertThat(storage.put(topic, mock(TbQueueMsg.class))).isTrue();
+    }
+
+    @Test
+    public void givenBoundedQueue_whenFull_thenProducerWaitsForConsumer() throws Exception {
+        InMemoryStorage storage = new DefaultInMemoryStorage(1, TimeUnit.SECONDS.toMillis(30));
+        TbQueueMsg first = mock(TbQueueMsg.class);
+        TbQueueMsg second = mock(TbQueueMsg.class);
+        assertThat(storage.put(topic, first)).isTrue();
+
+        CompletableFuture<Boolean> blockedPut = CompletableFuture.supplyAsync(() -> storage.put(topic, second));
+        Thread.sleep(100);
+        assertThat(blockedPut).isNotDone();
+
+        assertThat(storage.<TbQueueMsg>get(topic)).containsExactly(first);
+        assertThat(blockedPut.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(storage.<TbQueueMsg>get(topic)).containsExactly(second);
+    }
+
+    @Test
+    public void givenBoundedQueue_whenFullAndProducerIsNotBlocking_thenRejectWithoutWaiting() throws Exception {
+        InMemoryStorage storage = new DefaultInMemoryStorage(1, TimeUnit.SECONDS.toMillis(30), 0);
+        assertThat(storage.put(topic, mock(TbQueueMsg.class))).isTrue();
+
+        CompletableFuture<Boolean> nonBlockingPut = CompletableFuture.supplyAsync(() -> storage.put(topic, mock(TbQueueMsg.class), false));
+
+        assertThat(nonBlockingPut.get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(storage.getLagTotal()).isEqualTo(1);
+    }
+
+    @Test
+    public void givenRingBufferWrapsAround_whenPoll_thenKeepOrder() throws InterruptedException {
+        InMemoryStorage storage = new DefaultInMemoryStorage(100, 10);
+        List<TbQueueMsg> msgs = new ArrayList<>();
+        for (int round = 0; round < 5; round++) {
+            msgs.clear();
+            for (int i = 0; i < 70; i++) {
+                TbQueueMsg msg = mock(TbQueueMsg.class);
+                msgs.add(msg);
+                assertThat(storage.put(topic, msg)).isTrue();
+            }
+            assertThat(storage.get(topic)).isEqualTo(msgs);
+        }
+        assertThat(storage.getLagTotal()).isZero();
+    }
+
 }
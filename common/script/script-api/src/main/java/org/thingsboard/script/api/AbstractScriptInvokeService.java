@@ -28,6 +28,8 @@ import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.common.stats.TbApiUsageStateClient;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -137,47 +139,101 @@ public abstract class AbstractScriptInvokeService implements ScriptInvokeService
 
     @Override
     public ListenableFuture<Object> invokeScript(TenantId tenantId, CustomerId customerId, UUID scriptId, Object... args) {
-        if (!apiUsageStateClient.isPresent() || apiUsageStateClient.get().getApiUsageState(tenantId).isJsExecEnabled()) {
-            if (!isScriptPresent(scriptId)) {
-                return error("No compiled script found for scriptId: [" + scriptId + "]!");
+        ListenableFuture<Object> error = validateInvocation(tenantId, scriptId, args);
+        if (error != null) {
+            return error;
+        }
+        apiUsageReportClient.ifPresent(client -> client.report(tenantId, customerId, ApiUsageRecordKey.JS_EXEC_COUNT, 1));
+        pushedMsgs.incrementAndGet();
+        log.trace("InvokeScript uuid {} with timeout {}ms", scriptId, getMaxInvokeRequestsTimeout());
+        return toResultFuture(scriptId, doInvokeFunction(scriptId, args));
+    }
+
+    @Override
+    public List<ListenableFuture<Object>> invokeScripts(TenantId tenantId, CustomerId customerId, UUID scriptId, List<Object[]> argsList) {
+        List<ListenableFuture<Object>> results = new ArrayList<>(argsList.size());
+        List<Integer> validIdxs = new ArrayList<>(argsList.size());
+        List<Object[]> validArgsList = new ArrayList<>(argsList.size());
+        for (Object[] args : argsList) {
+            ListenableFuture<Object> error = validateInvocation(tenantId, scriptId, args);
+            if (error == null) {
+                validIdxs.add(results.size());
+                validArgsList.add(args);
             }
-            if (!isDisabled(scriptId)) {
-                if (argsSizeExceeded(args)) {
-                    TbScriptException t = new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new IllegalArgumentException(
-                            format("Script input arguments exceed maximum allowed total args size of %s symbols", getMaxTotalArgsSize())
-                    ));
-                    return Futures.immediateFailedFuture(handleScriptException(scriptId, null, t));
-                }
-                apiUsageReportClient.ifPresent(client -> client.report(tenantId, customerId, ApiUsageRecordKey.JS_EXEC_COUNT, 1));
-                pushedMsgs.incrementAndGet();
-                log.trace("InvokeScript uuid {} with timeout {}ms", scriptId, getMaxInvokeRequestsTimeout());
-                var task = doInvokeFunction(scriptId, args);
-
-                var resultFuture = Futures.transformAsync(task.getResultFuture(), output -> {
-                    String result = JacksonUtil.toString(output);
-                    if (resultSizeExceeded(result)) {
-                        throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException(
-                                format("Script invocation result exceeds maximum allowed size of %s symbols", getMaxResultSize())
-                        ));
-                    }
-                    return Futures.immediateFuture(output);
-                }, MoreExecutors.directExecutor());
-
-                return withTimeoutAndStatsCallback(scriptId, task, resultFuture, invokeCallback, getMaxInvokeRequestsTimeout());
-            } else {
-                String message = "Script invocation is blocked due to maximum error count "
-                        + getMaxErrors() + ", scriptId " + scriptId + "!";
-                log.warn(message);
-                return error(message);
+            results.add(error);
+        }
+        if (!validArgsList.isEmpty()) {
+            apiUsageReportClient.ifPresent(client -> client.report(tenantId, customerId, ApiUsageRecordKey.JS_EXEC_COUNT, validArgsList.size()));
+            pushedMsgs.addAndGet(validArgsList.size());
+            log.trace("InvokeScripts uuid {} batch size {} with timeout {}ms", scriptId, validArgsList.size(), getMaxInvokeRequestsTimeout());
+            List<TbScriptExecutionTask> tasks = doInvokeFunctions(scriptId, validArgsList);
+            for (int i = 0; i < tasks.size(); i++) {
+                results.set(validIdxs.get(i), toResultFuture(scriptId, tasks.get(i)));
             }
-        } else {
+        }
+        return results;
+    }
+
+    /**
+     * Executes the script for a batch of argument arrays. Implementations may override it to run several invocations
+     * in a single task, in that case the start future of every task must complete once its invocation starts or fails.
+     * By default every invocation is submitted separately.
+     */
+    protected List<TbScriptExecutionTask> doInvokeFunctions(UUID scriptId, List<Object[]> argsList) {
+        List<TbScriptExecutionTask> tasks = new ArrayList<>(argsList.size());
+        for (Object[] args : argsList) {
+            tasks.add(doInvokeFunction(scriptId, args));
+        }
+        return tasks;
+    }
+
+    private ListenableFuture<Object> validateInvocation(TenantId tenantId, UUID scriptId, Object[] args) {
+        if (apiUsageStateClient.isPresent() && !apiUsageStateClient.get().getApiUsageState(tenantId).isJsExecEnabled()) {
             return error("Script execution is disabled due to API limits!");
         }
+        if (!isScriptPresent(scriptId)) {
+            return error("No compiled script found for scriptId: [" + scriptId + "]!");
+        }
+        if (isDisabled(scriptId)) {
+            String message = "Script invocation is blocked due to maximum error count "
+                    + getMaxErrors() + ", scriptId " + scriptId + "!";
+            log.warn(message);
+            return error(message);
+        }
+        if (argsSizeExceeded(args)) {
+            TbScriptException t = new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new IllegalArgumentException(
+                    format("Script input arguments exceed maximum allowed total args size of %s symbols", getMaxTotalArgsSize())
+            ));
+            return Futures.immediateFailedFuture(handleScriptException(scriptId, null, t));
+        }
+        return null;
+    }
+
+    private ListenableFuture<Object> toResultFuture(UUID scriptId, TbScriptExecutionTask task) {
+        var resultFuture = Futures.transformAsync(task.getResultFuture(), output -> {
+            String result = JacksonUtil.toString(output);
+            if (resultSizeExceeded(result)) {
+                throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException(
+                        format("Script invocation result exceeds maximum allowed size of %s symbols", getMaxResultSize())
+                ));
+            }
+            return Futures.immediateFuture(output);
+        }, MoreExecutors.directExecutor());
+
+        return withTimeoutAndStatsCallback(scriptId, task, resultFuture, invokeCallback, getMaxInvokeRequestsTimeout());
     }
 
     private <T extends V, V> ListenableFuture<T> withTimeoutAndStatsCallback(UUID scriptId, TbScriptExecutionTask task, ListenableFuture<T> future, FutureCallback<V> statsCallback, long timeout) {
         if (timeout > 0) {
-            future = Futures.withTimeout(future, timeout, TimeUnit.MILLISECONDS, timeoutExecutorService);
+            ListenableFuture<T> source = future;
+            if (task == null || task.getStartFuture().isDone()) {
+                future = Futures.withTimeout(source, timeout, TimeUnit.MILLISECONDS, timeoutExecutorService);
+            } else {
+                // the script waits for its turn in a batch, the time spent waiting doesn't count
+                future = Futures.transformAsync(task.getStartFuture(),
+                        started -> Futures.withTimeout(source, timeout, TimeUnit.MILLISECONDS, timeoutExecutorService),
+                        MoreExecutors.directExecutor());
+            }
         }
         Futures.addCallback(future, statsCallback, getCallbackExecutor());
         return Futures.catchingAsync(future, Exception.class,
@@ -20,7 +20,9 @@ import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.script.ScriptLanguage;
 
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public interface ScriptInvokeService {
 
@@ -28,6 +30,14 @@ public interface ScriptInvokeService {
 
     ListenableFuture<Object> invokeScript(TenantId tenantId, CustomerId customerId, UUID scriptId, Object... args);
 
+    /**
+     * Invokes the same script for each of the given argument arrays.
+     * Returns one result future per argument array, in the same order.
+     */
+    default List<ListenableFuture<Object>> invokeScripts(TenantId tenantId, CustomerId customerId, UUID scriptId, List<Object[]> argsList) {
+        return argsList.stream().map(args -> invokeScript(tenantId, customerId, scriptId, args)).collect(Collectors.toList());
+    }
+
     ListenableFuture<Void> release(UUID scriptId);
 
     ScriptLanguage getLanguage();
@@ -15,16 +15,29 @@
  */
 package org.thingsboard.script.api;
 
+import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import lombok.Getter;
-import lombok.RequiredArgsConstructor;
 
 
-@RequiredArgsConstructor
 public abstract class TbScriptExecutionTask {
 
     @Getter
     private final ListenableFuture<Object> resultFuture;
+    /**
+     * Completes when the script starts executing, the invocation timeout is counted from it.
+     */
+    @Getter
+    private final ListenableFuture<?> startFuture;
+
+    public TbScriptExecutionTask(ListenableFuture<Object> resultFuture) {
+        this(resultFuture, Futures.immediateVoidFuture());
+    }
+
+    public TbScriptExecutionTask(ListenableFuture<Object> resultFuture, ListenableFuture<?> startFuture) {
+        this.resultFuture = resultFuture;
+        this.startFuture = startFuture;
+    }
 
     public abstract void stop();
 }
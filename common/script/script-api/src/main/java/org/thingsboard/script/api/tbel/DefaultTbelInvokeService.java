@@ -22,6 +22,7 @@ import com.google.common.hash.Hashing;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -39,6 +40,7 @@ import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.script.api.AbstractScriptInvokeService;
 import org.thingsboard.script.api.ScriptType;
 import org.thingsboard.script.api.TbScriptException;
+import org.thingsboard.script.api.TbScriptExecutionTask;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.stats.TbApiUsageReportClient;
 import org.thingsboard.server.common.stats.TbApiUsageStateClient;
@@ -47,8 +49,10 @@ import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
@@ -188,22 +192,101 @@ public class DefaultTbelInvokeService extends AbstractScriptInvokeService implem
 
     @Override
     protected TbelScriptExecutionTask doInvokeFunction(UUID scriptId, Object[] args) {
-        ExecutionContext executionContext = new ExecutionContext(this.parserConfig, maxMemoryLimitMb * 1024 * 1024);
+        ExecutionContext executionContext = newExecutionContext();
         return new TbelScriptExecutionTask(executionContext, executor.submit(() -> {
-            String scriptHash = scriptIdToHash.get(scriptId);
-            if (scriptHash == null) {
-                throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException("Script not found!"));
-            }
+            String scriptHash = getScriptHash(scriptId);
             TbelScript script = scriptMap.get(scriptHash);
-            Serializable compiledScript = compiledScriptsCache.get(scriptHash, k -> compileScript(script.getScriptBody()));
+            Serializable compiledScript = getCompiledScript(scriptHash, script);
+            return executeScript(scriptId, script, compiledScript, executionContext, args);
+        }));
+    }
+
+    @Override
+    protected List<TbScriptExecutionTask> doInvokeFunctions(UUID scriptId, List<Object[]> argsList) {
+        List<TbScriptExecutionTask> tasks = new ArrayList<>(argsList.size());
+        List<BatchedInvocation> invocations = new ArrayList<>(argsList.size());
+        for (Object[] args : argsList) {
+            BatchedInvocation invocation = new BatchedInvocation(newExecutionContext(), args);
+            invocations.add(invocation);
+            tasks.add(new TbelScriptExecutionTask(invocation.context, invocation.result, invocation.started));
+        }
+        // the batch is split across the pool, so the invocations still run in parallel
+        int threads = Math.max(1, threadPoolSize);
+        int chunkSize = (invocations.size() + threads - 1) / threads;
+        for (int from = 0; from < invocations.size(); from += chunkSize) {
+            List<BatchedInvocation> chunk = invocations.subList(from, Math.min(invocations.size(), from + chunkSize));
+            executor.execute(() -> invokeChunk(scriptId, chunk));
+        }
+        return tasks;
+    }
+
+    private void invokeChunk(UUID scriptId, List<BatchedInvocation> chunk) {
+        TbelScript script;
+        Serializable compiledScript;
+        try {
+            String scriptHash = getScriptHash(scriptId);
+            script = scriptMap.get(scriptHash);
+            compiledScript = getCompiledScript(scriptHash, script);
+        } catch (Throwable t) {
+            chunk.forEach(invocation -> invocation.fail(t));
+            return;
+        }
+        for (BatchedInvocation invocation : chunk) {
+            invocation.started.set(null);
+            if (invocation.result.isDone()) {
+                // cancelled while waiting for its turn in the batch
+                continue;
+            }
             try {
-                return MVEL.executeTbExpression(compiledScript, executionContext, script.createVars(args));
-            } catch (ScriptMemoryOverflowException e) {
-                throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, script.getScriptBody(), new RuntimeException("Script memory overflow!"));
-            } catch (Exception e) {
-                throw new TbScriptException(scriptId, TbScriptException.ErrorCode.RUNTIME, script.getScriptBody(), e);
+                invocation.result.set(executeScript(scriptId, script, compiledScript, invocation.context, invocation.args));
+            } catch (Throwable t) {
+                invocation.result.setException(t);
             }
-        }));
+        }
+    }
+
+    private static class BatchedInvocation {
+        private final ExecutionContext context;
+        private final Object[] args;
+        private final SettableFuture<Void> started = SettableFuture.create();
+        private final SettableFuture<Object> result = SettableFuture.create();
+
+        private BatchedInvocation(ExecutionContext context, Object[] args) {
+            this.context = context;
+            this.args = args;
+        }
+
+        private void fail(Throwable t) {
+            // the error is reported right away, so the timeout must not wait for a start that never happens
+            result.setException(t);
+            started.set(null);
+        }
+    }
+
+    private ExecutionContext newExecutionContext() {
+        return new ExecutionContext(this.parserConfig, maxMemoryLimitMb * 1024 * 1024);
+    }
+
+    private String getScriptHash(UUID scriptId) {
+        String scriptHash = scriptIdToHash.get(scriptId);
+        if (scriptHash == null) {
+            throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, null, new RuntimeException("Script not found!"));
+        }
+        return scriptHash;
+    }
+
+    private Serializable getCompiledScript(String scriptHash, TbelScript script) {
+        return compiledScriptsCache.get(scriptHash, k -> compileScript(script.getScriptBody()));
+    }
+
+    private Object executeScript(UUID scriptId, TbelScript script, Serializable compiledScript, ExecutionContext executionContext, Object[] args) {
+        try {
+            return MVEL.executeTbExpression(compiledScript, executionContext, script.createVars(args));
+        } catch (ScriptMemoryOverflowException e) {
+            throw new TbScriptException(scriptId, TbScriptException.ErrorCode.OTHER, script.getScriptBody(), new RuntimeException("Script memory overflow!"));
+        } catch (Exception e) {
+            throw new TbScriptException(scriptId, TbScriptException.ErrorCode.RUNTIME, script.getScriptBody(), e);
+        }
     }
 
     @Override
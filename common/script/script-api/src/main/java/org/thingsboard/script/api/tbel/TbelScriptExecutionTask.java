@@ -29,6 +29,11 @@ public class TbelScriptExecutionTask extends TbScriptExecutionTask {
         this.context = context;
     }
 
+    public TbelScriptExecutionTask(ExecutionContext context, ListenableFuture<Object> resultFuture, ListenableFuture<?> startFuture) {
+        super(resultFuture, startFuture);
+        this.context = context;
+    }
+
     @Override
     public void stop(){
         context.stop();
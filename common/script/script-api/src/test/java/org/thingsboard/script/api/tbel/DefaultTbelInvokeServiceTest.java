@@ -0,0 +1,137 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.script.api.tbel;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.script.api.ScriptType;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DefaultTbelInvokeServiceTest {
+
+    private static final long INVOKE_TIMEOUT_MS = 1000;
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private DefaultTbelInvokeService invokeService;
+
+    @BeforeEach
+    public void setUp() {
+        invokeService = new DefaultTbelInvokeService(Optional.empty(), Optional.empty());
+        ReflectionTestUtils.setField(invokeService, "maxTotalArgsSize", 100000L);
+        ReflectionTestUtils.setField(invokeService, "maxResultSize", 300000L);
+        ReflectionTestUtils.setField(invokeService, "maxScriptBodySize", 50000L);
+        ReflectionTestUtils.setField(invokeService, "maxErrors", 3);
+        ReflectionTestUtils.setField(invokeService, "maxBlackListDurationSec", 60);
+        ReflectionTestUtils.setField(invokeService, "threadPoolSize", 2);
+        ReflectionTestUtils.setField(invokeService, "maxMemoryLimitMb", 8L);
+        ReflectionTestUtils.setField(invokeService, "compiledScriptsCacheSize", 10);
+        ReflectionTestUtils.setField(invokeService, "maxInvokeRequestsTimeout", INVOKE_TIMEOUT_MS);
+        invokeService.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        invokeService.stop();
+    }
+
+    @Test
+    public void testBatchInvocationKeepsOrder() throws Exception {
+        UUID scriptId = evalScript("return msg.temperature > 20;");
+        List<Object[]> argsList = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            argsList.add(new Object[]{Map.of("temperature", i), Collections.emptyMap(), "POST_TELEMETRY_REQUEST"});
+        }
+
+        List<ListenableFuture<Object>> results = invokeService.invokeScripts(tenantId, null, scriptId, argsList);
+
+        assertThat(results).hasSize(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(results.get(i).get(30, TimeUnit.SECONDS)).isEqualTo(i > 20);
+        }
+    }
+
+    @Test
+    public void testBatchInvocationFailsOnlyBrokenMessages() throws Exception {
+        UUID scriptId = evalScript("return msg.value.length();");
+        List<Object[]> argsList = List.of(
+                new Object[]{Map.of("value", "abc"), Collections.emptyMap(), "TEST"},
+                new Object[]{Collections.emptyMap(), Collections.emptyMap(), "TEST"},
+                new Object[]{Map.of("value", "abcde"), Collections.emptyMap(), "TEST"}
+        );
+
+        List<ListenableFuture<Object>> results = invokeService.invokeScripts(tenantId, null, scriptId, argsList);
+
+        assertThat(results.get(0).get(30, TimeUnit.SECONDS)).isEqualTo(3);
+        assertThatThrownBy(() -> results.get(1).get(30, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class);
+        assertThat(results.get(2).get(30, TimeUnit.SECONDS)).isEqualTo(5);
+    }
+
+    @Test
+    public void testBatchInvocationOfUnknownScript() {
+        List<ListenableFuture<Object>> results = invokeService.invokeScripts(tenantId, null, UUID.randomUUID(),
+                List.<Object[]>of(new Object[]{Collections.emptyMap(), Collections.emptyMap(), "TEST"}));
+
+        assertThatThrownBy(() -> results.get(0).get(30, TimeUnit.SECONDS)).hasMessageContaining("No compiled script found");
+    }
+
+    @Test
+    public void testBatchInvocationTimeoutIsCountedFromStartOfEachInvocation() throws Exception {
+        UUID scriptId = evalScript("var s = 0; for (var i = 0; i < msg.iterations; i++) { s = s + i; } return s;");
+        // pick the script duration so that every invocation fits the timeout, but the batch of each thread doesn't
+        int iterations = 10000;
+        long durationMs = 0;
+        while (durationMs < INVOKE_TIMEOUT_MS / 10) {
+            iterations *= 2;
+            long startTs = System.currentTimeMillis();
+            invokeService.invokeScript(tenantId, null, scriptId, Map.of("iterations", iterations), Collections.emptyMap(), "TEST")
+                    .get(30, TimeUnit.SECONDS);
+            durationMs = System.currentTimeMillis() - startTs;
+        }
+        assertThat(durationMs).isLessThan(INVOKE_TIMEOUT_MS / 2);
+        List<Object[]> argsList = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            argsList.add(new Object[]{Map.of("iterations", iterations), Collections.emptyMap(), "TEST"});
+        }
+
+        List<ListenableFuture<Object>> results = invokeService.invokeScripts(tenantId, null, scriptId, argsList);
+
+        for (ListenableFuture<Object> result : results) {
+            assertThat(result.get(60, TimeUnit.SECONDS)).isNotNull();
+        }
+        assertThat(invokeService.invokeScript(tenantId, null, scriptId, Map.of("iterations", 1), Collections.emptyMap(), "TEST")
+                .get(30, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    private UUID evalScript(String script) throws Exception {
+        return invokeService.eval(tenantId, ScriptType.RULE_NODE_SCRIPT, script, "msg", "metadata", "msgType").get(30, TimeUnit.SECONDS);
+    }
+
+}
@@ -27,4 +27,9 @@ public interface StatsFactory {
     MessagesStats createMessagesStats(String key);
 
     Timer createTimer(String key, String... tags);
+
+    /**
+     * Removes the meters with the given key and tags, e.g. the meters of an entity that is no longer active.
+     */
+    void removeMeters(String key, String... tags);
 }
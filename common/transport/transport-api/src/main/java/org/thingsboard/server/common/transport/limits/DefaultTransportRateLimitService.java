@@ -16,6 +16,7 @@
 package org.thingsboard.server.common.transport.limits;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.thingsboard.server.common.data.EntityType;
@@ -30,6 +31,7 @@ import org.thingsboard.server.common.transport.TransportTenantProfileCache;
 import org.thingsboard.server.common.transport.profile.TenantProfileUpdateResult;
 import org.thingsboard.server.queue.util.TbTransportComponent;
 
+import javax.annotation.PostConstruct;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.Map;
@@ -59,11 +61,27 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     private int maxWrongCredentialsPerIp;
     @Value("${transport.rate_limits.ip_block_timeout:60000}")
     private long ipBlockTimeout;
+    @Value("${transport.rate_limits.distributed.enabled:false}")
+    private boolean distributedRateLimitsEnabled;
+    @Value("${transport.rate_limits.distributed.lease_interval_ms:100}")
+    private long leaseIntervalMs;
+    @Value("${transport.rate_limits.distributed.max_lease_ratio:0.1}")
+    private double maxLeaseRatio;
+
+    @Autowired(required = false)
+    private RateLimitLeaseStore leaseStore;
 
     public DefaultTransportRateLimitService(TransportTenantProfileCache tenantProfileCache) {
         this.tenantProfileCache = tenantProfileCache;
     }
 
+    @PostConstruct
+    public void init() {
+        if (distributedRateLimitsEnabled && leaseStore == null) {
+            log.warn("Distributed rate limits require Redis cache, node-local tenant rate limits will be used");
+        }
+    }
+
     @Override
     public EntityType checkLimits(TenantId tenantId, DeviceId deviceId, int dataPoints) {
         if (!tenantAllowed.getOrDefault(tenantId, Boolean.TRUE)) {
@@ -89,23 +107,20 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     @Override
     public void update(TenantProfileUpdateResult update) {
         log.info("Received tenant profile update: {}", update.getProfile());
-        EntityTransportRateLimits tenantRateLimitPrototype = createRateLimits(update.getProfile(), true);
-        EntityTransportRateLimits deviceRateLimitPrototype = createRateLimits(update.getProfile(), false);
         for (TenantId tenantId : update.getAffectedTenants()) {
-            mergeLimits(tenantId, tenantRateLimitPrototype, perTenantLimits::get, perTenantLimits::put);
+            mergeLimits(tenantId, createRateLimits(tenantId, update.getProfile(), true), perTenantLimits::get, perTenantLimits::put);
             tenantDevices.get(tenantId).forEach(deviceId -> {
-                mergeLimits(deviceId, deviceRateLimitPrototype, perDeviceLimits::get, perDeviceLimits::put);
+                mergeLimits(deviceId, createRateLimits(tenantId, update.getProfile(), false), perDeviceLimits::get, perDeviceLimits::put);
             });
         }
     }
 
     @Override
     public void update(TenantId tenantId) {
-        EntityTransportRateLimits tenantRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), true);
-        EntityTransportRateLimits deviceRateLimitPrototype = createRateLimits(tenantProfileCache.get(tenantId), false);
-        mergeLimits(tenantId, tenantRateLimitPrototype, perTenantLimits::get, perTenantLimits::put);
+        TenantProfile tenantProfile = tenantProfileCache.get(tenantId);
+        mergeLimits(tenantId, createRateLimits(tenantId, tenantProfile, true), perTenantLimits::get, perTenantLimits::put);
         tenantDevices.get(tenantId).forEach(deviceId -> {
-            mergeLimits(deviceId, deviceRateLimitPrototype, perDeviceLimits::get, perDeviceLimits::put);
+            mergeLimits(deviceId, createRateLimits(tenantId, tenantProfile, false), perDeviceLimits::get, perDeviceLimits::put);
         });
     }
 
@@ -225,27 +240,39 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
         boolean telemetryDataPointUpdate = !oldRateLimits.getTelemetryDataPointsRateLimit().getConfiguration().equals(newRateLimits.getTelemetryDataPointsRateLimit().getConfiguration());
         if (regularUpdate || telemetryMsgRateUpdate || telemetryDataPointUpdate) {
             return new EntityTransportRateLimits(
-                    regularUpdate ? newLimit(newRateLimits.getRegularMsgRateLimit().getConfiguration()) : oldRateLimits.getRegularMsgRateLimit(),
-                    telemetryMsgRateUpdate ? newLimit(newRateLimits.getTelemetryMsgRateLimit().getConfiguration()) : oldRateLimits.getTelemetryMsgRateLimit(),
-                    telemetryDataPointUpdate ? newLimit(newRateLimits.getTelemetryDataPointsRateLimit().getConfiguration()) : oldRateLimits.getTelemetryDataPointsRateLimit());
+                    regularUpdate ? newRateLimits.getRegularMsgRateLimit() : oldRateLimits.getRegularMsgRateLimit(),
+                    telemetryMsgRateUpdate ? newRateLimits.getTelemetryMsgRateLimit() : oldRateLimits.getTelemetryMsgRateLimit(),
+                    telemetryDataPointUpdate ? newRateLimits.getTelemetryDataPointsRateLimit() : oldRateLimits.getTelemetryDataPointsRateLimit());
         } else {
             return null;
         }
     }
 
-    private EntityTransportRateLimits createRateLimits(TenantProfile tenantProfile, boolean tenant) {
+    private EntityTransportRateLimits createRateLimits(TenantId tenantId, TenantProfile tenantProfile, boolean tenant) {
         TenantProfileData profileData = tenantProfile.getProfileData();
         DefaultTenantProfileConfiguration profile = (DefaultTenantProfileConfiguration) profileData.getConfiguration();
         if (profile == null) {
             return new EntityTransportRateLimits(ALLOW, ALLOW, ALLOW);
+        } else if (tenant) {
+            TransportRateLimit regularMsgRateLimit = newTenantLimit(tenantId, "msg", profile.getTransportTenantMsgRateLimit());
+            TransportRateLimit telemetryMsgRateLimit = newTenantLimit(tenantId, "telemetryMsg", profile.getTransportTenantTelemetryMsgRateLimit());
+            TransportRateLimit telemetryDpRateLimit = newTenantLimit(tenantId, "telemetryDataPoints", profile.getTransportTenantTelemetryDataPointsRateLimit());
+            return new EntityTransportRateLimits(regularMsgRateLimit, telemetryMsgRateLimit, telemetryDpRateLimit);
         } else {
-            TransportRateLimit regularMsgRateLimit = newLimit(tenant ? profile.getTransportTenantMsgRateLimit() : profile.getTransportDeviceMsgRateLimit());
-            TransportRateLimit telemetryMsgRateLimit = newLimit(tenant ? profile.getTransportTenantTelemetryMsgRateLimit() : profile.getTransportDeviceTelemetryMsgRateLimit());
-            TransportRateLimit telemetryDpRateLimit = newLimit(tenant ? profile.getTransportTenantTelemetryDataPointsRateLimit() : profile.getTransportTenantTelemetryDataPointsRateLimit());
+            TransportRateLimit regularMsgRateLimit = newLimit(profile.getTransportDeviceMsgRateLimit());
+            TransportRateLimit telemetryMsgRateLimit = newLimit(profile.getTransportDeviceTelemetryMsgRateLimit());
+            TransportRateLimit telemetryDpRateLimit = newLimit(profile.getTransportTenantTelemetryDataPointsRateLimit());
             return new EntityTransportRateLimits(regularMsgRateLimit, telemetryMsgRateLimit, telemetryDpRateLimit);
         }
     }
 
+    private TransportRateLimit newTenantLimit(TenantId tenantId, String limitType, String config) {
+        if (distributedRateLimitsEnabled && leaseStore != null && StringUtils.isNotEmpty(config)) {
+            return new LeasedTransportRateLimit(tenantId.getId() + ":" + limitType, config, leaseStore, leaseIntervalMs, maxLeaseRatio);
+        }
+        return newLimit(config);
+    }
+
     private static TransportRateLimit newLimit(String config) {
         return StringUtils.isEmpty(config) ? ALLOW : new SimpleTransportRateLimit(config);
     }
@@ -253,7 +280,7 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     private EntityTransportRateLimits getTenantRateLimits(TenantId tenantId) {
         EntityTransportRateLimits limits = perTenantLimits.get(tenantId);
         if (limits == null) {
-            limits = createRateLimits(tenantProfileCache.get(tenantId), true);
+            limits = createRateLimits(tenantId, tenantProfileCache.get(tenantId), true);
             perTenantLimits.put(tenantId, limits);
         }
         return limits;
@@ -262,7 +289,7 @@ public class DefaultTransportRateLimitService implements TransportRateLimitServi
     private EntityTransportRateLimits getDeviceRateLimits(TenantId tenantId, DeviceId deviceId) {
         EntityTransportRateLimits limits = perDeviceLimits.get(deviceId);
         if (limits == null) {
-            limits = createRateLimits(tenantProfileCache.get(tenantId), false);
+            limits = createRateLimits(tenantId, tenantProfileCache.get(tenantId), false);
             perDeviceLimits.put(deviceId, limits);
             tenantDevices.computeIfAbsent(tenantId, id -> ConcurrentHashMap.newKeySet()).add(deviceId);
         }
@@ -0,0 +1,129 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.msg.tools.TbRateLimits;
+
+/**
+ * Rate limit that is shared by all nodes of the cluster. Tokens are leased in batches from the shared bucket
+ * and consumed locally, so the shared bucket is accessed once per batch and not once per message.
+ * The size of the next batch follows the consumption of this node observed since the previous lease,
+ * so busy nodes lease more and idle nodes don't hold tokens that other nodes need.
+ * If the shared bucket is not available, the node-local limit is used until the next lease attempt.
+ */
+@Slf4j
+public class LeasedTransportRateLimit implements TransportRateLimit {
+
+    private static final double RATE_SMOOTHING = 0.5;
+
+    @Getter
+    private final String configuration;
+    private final String key;
+    private final RateLimitLeaseStore leaseStore;
+    private final TbRateLimits fallback;
+    private final long[] capacities;
+    private final long[] periodsMs;
+    private final long leaseIntervalMs;
+    private final long leaseTtlMs;
+    private final long maxLeaseSize;
+
+    private long localTokens;
+    private long leaseExpirationTs;
+    private long nextLeaseTs;
+    private long fallbackUntilTs;
+    private long lastLeaseTs;
+    private long consumedSinceLease;
+    private double consumptionRate;
+
+    public LeasedTransportRateLimit(String key, String configuration, RateLimitLeaseStore leaseStore,
+                                    long leaseIntervalMs, double maxLeaseRatio) {
+        this.key = key;
+        this.configuration = configuration;
+        this.leaseStore = leaseStore;
+        this.fallback = new TbRateLimits(configuration);
+        String[] limits = configuration.split(",");
+        this.capacities = new long[limits.length];
+        this.periodsMs = new long[limits.length];
+        long minCapacity = Long.MAX_VALUE;
+        long minPeriodMs = Long.MAX_VALUE;
+        for (int i = 0; i < limits.length; i++) {
+            capacities[i] = Long.parseLong(limits[i].split(":")[0]);
+            periodsMs[i] = Long.parseLong(limits[i].split(":")[1]) * 1000;
+            minCapacity = Math.min(minCapacity, capacities[i]);
+            minPeriodMs = Math.min(minPeriodMs, periodsMs[i]);
+        }
+        this.leaseIntervalMs = leaseIntervalMs;
+        this.leaseTtlMs = minPeriodMs;
+        this.maxLeaseSize = Math.max(1, (long) (minCapacity * maxLeaseRatio));
+    }
+
+    @Override
+    public boolean tryConsume() {
+        return tryConsume(1);
+    }
+
+    @Override
+    public synchronized boolean tryConsume(long number) {
+        if (number <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now < fallbackUntilTs) {
+            return fallback.tryConsume(number);
+        }
+        if (now >= leaseExpirationTs) {
+            localTokens = 0;
+        }
+        if (localTokens < number && now >= nextLeaseTs) {
+            if (!lease(number, now)) {
+                return fallback.tryConsume(number);
+            }
+        }
+        if (localTokens >= number) {
+            localTokens -= number;
+            consumedSinceLease += number;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean lease(long number, long now) {
+        if (lastLeaseTs > 0) {
+            double rate = (double) consumedSinceLease / Math.max(1, now - lastLeaseTs);
+            consumptionRate = consumptionRate == 0 ? rate : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * consumptionRate;
+        }
+        long leaseSize = Math.min(maxLeaseSize, Math.max(1, (long) Math.ceil(consumptionRate * leaseIntervalMs)));
+        long requested = Math.max(number, leaseSize) - localTokens;
+        long granted;
+        try {
+            granted = leaseStore.lease(key, capacities, periodsMs, requested);
+        } catch (Exception e) {
+            log.warn("[{}] Failed to lease rate limit tokens, using local rate limits", key, e);
+            fallbackUntilTs = now + leaseIntervalMs;
+            return false;
+        }
+        localTokens += granted;
+        leaseExpirationTs = now + leaseTtlMs;
+        lastLeaseTs = now;
+        consumedSinceLease = 0;
+        // the shared bucket is exhausted, don't ask again for every message
+        nextLeaseTs = localTokens < number ? now + leaseIntervalMs : 0;
+        return true;
+    }
+
+}
@@ -0,0 +1,34 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+/**
+ * Shared token bucket storage used by the distributed rate limits mode.
+ * Nodes lease batches of tokens from the shared bucket and consume them locally.
+ */
+public interface RateLimitLeaseStore {
+
+    /**
+     * Takes up to {@code requested} tokens from the shared bucket identified by the key.
+     * The bucket is refilled greedily according to the bandwidths.
+     *
+     * @param capacities capacity of every bandwidth
+     * @param periodsMs  refill period of every bandwidth in milliseconds
+     * @return number of granted tokens, may be less than requested
+     */
+    long lease(String key, long[] capacities, long[] periodsMs, long requested);
+
+}
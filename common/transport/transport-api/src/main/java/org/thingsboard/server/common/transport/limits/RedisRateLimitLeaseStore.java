@@ -0,0 +1,88 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.queue.util.TbTransportComponent;
+
+import java.nio.charset.StandardCharsets;
+
+@Service
+@TbTransportComponent
+@ConditionalOnProperty(prefix = "cache", value = "type", havingValue = "redis")
+@RequiredArgsConstructor
+public class RedisRateLimitLeaseStore implements RateLimitLeaseStore {
+
+    private static final String KEY_PREFIX = "tb_rate_limits";
+
+    // KEYS - one bucket per bandwidth, ARGV - requested tokens followed by (capacity, period ms) of every bandwidth
+    private static final byte[] LEASE_SCRIPT = ("local requested = tonumber(ARGV[1])\n" +
+            "local time = redis.call('TIME')\n" +
+            "local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)\n" +
+            "local available = {}\n" +
+            "local granted = requested\n" +
+            "for i = 1, #KEYS do\n" +
+            "  local capacity = tonumber(ARGV[2 * i])\n" +
+            "  local period = tonumber(ARGV[2 * i + 1])\n" +
+            "  local state = redis.call('HMGET', KEYS[i], 'tokens', 'ts')\n" +
+            "  local tokens = tonumber(state[1])\n" +
+            "  local ts = tonumber(state[2])\n" +
+            "  if tokens == nil or ts == nil then\n" +
+            "    tokens = capacity\n" +
+            "  elseif now > ts then\n" +
+            "    tokens = math.min(capacity, tokens + (now - ts) * capacity / period)\n" +
+            "  end\n" +
+            "  available[i] = tokens\n" +
+            "  granted = math.min(granted, math.floor(tokens))\n" +
+            "end\n" +
+            "if granted < 0 then granted = 0 end\n" +
+            "for i = 1, #KEYS do\n" +
+            "  redis.call('HMSET', KEYS[i], 'tokens', tostring(available[i] - granted), 'ts', tostring(now))\n" +
+            "  redis.call('PEXPIRE', KEYS[i], tonumber(ARGV[2 * i + 1]) * 2)\n" +
+            "end\n" +
+            "return granted").getBytes(StandardCharsets.UTF_8);
+
+    private final RedisConnectionFactory redisConnectionFactory;
+
+    @Override
+    public long lease(String key, long[] capacities, long[] periodsMs, long requested) {
+        int bandwidths = capacities.length;
+        byte[][] keysAndArgs = new byte[bandwidths * 3 + 1][];
+        for (int i = 0; i < bandwidths; i++) {
+            // hash tag keeps all buckets of the limit in the same slot of a Redis cluster
+            keysAndArgs[i] = toBytes(KEY_PREFIX + "::{" + key + "}::" + i);
+        }
+        keysAndArgs[bandwidths] = toBytes(Long.toString(requested));
+        for (int i = 0; i < bandwidths; i++) {
+            keysAndArgs[bandwidths + 1 + 2 * i] = toBytes(Long.toString(capacities[i]));
+            keysAndArgs[bandwidths + 2 + 2 * i] = toBytes(Long.toString(periodsMs[i]));
+        }
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            Long granted = connection.scriptingCommands().eval(LEASE_SCRIPT, ReturnType.INTEGER, bandwidths, keysAndArgs);
+            return granted != null ? granted : 0;
+        }
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -89,6 +89,7 @@ import org.thingsboard.server.queue.TbQueueProducer;
 import org.thingsboard.server.queue.TbQueueRequestTemplate;
 import org.thingsboard.server.queue.common.AsyncCallbackTemplate;
 import org.thingsboard.server.queue.common.TbProtoQueueMsg;
+import org.thingsboard.server.queue.common.ToRuleEngineMsgAccumulator;
 import org.thingsboard.server.queue.discovery.NotificationsTopicService;
 import org.thingsboard.server.queue.discovery.PartitionService;
 import org.thingsboard.server.queue.discovery.TbServiceInfoProvider;
@@ -155,6 +156,16 @@ public class DefaultTransportService implements TransportService {
     private int notificationsPollDuration;
     @Value("${transport.stats.enabled:false}")
     private boolean statsEnabled;
+    @Value("${transport.telemetry_proto_payload_enabled:false}")
+    private boolean telemetryProtoPayloadEnabled;
+    @Value("${queue.rule-engine.batch.enabled:false}")
+    private boolean ruleEngineBatchEnabled;
+    @Value("${queue.rule-engine.batch.max-msg-size:1024}")
+    private int ruleEngineBatchMaxMsgSize;
+    @Value("${queue.rule-engine.batch.max-size:65536}")
+    private int ruleEngineBatchMaxSize;
+    @Value("${queue.rule-engine.batch.linger-ms:5}")
+    private long ruleEngineBatchLingerMs;
 
     @Autowired
     @Lazy
@@ -180,6 +191,7 @@ public class DefaultTransportService implements TransportService {
 
     protected TbQueueRequestTemplate<TbProtoQueueMsg<TransportApiRequestMsg>, TbProtoQueueMsg<TransportApiResponseMsg>> transportApiRequestTemplate;
     protected TbQueueProducer<TbProtoQueueMsg<ToRuleEngineMsg>> ruleEngineMsgProducer;
+    private ToRuleEngineMsgAccumulator ruleEngineMsgAccumulator;
     protected TbQueueProducer<TbProtoQueueMsg<ToCoreMsg>> tbCoreMsgProducer;
     protected TbQueueConsumer<TbProtoQueueMsg<ToTransportMsg>> transportNotificationsConsumer;
 
@@ -233,6 +245,10 @@ public class DefaultTransportService implements TransportService {
         transportApiRequestTemplate = queueProvider.createTransportApiRequestTemplate();
         transportApiRequestTemplate.setMessagesStats(transportApiStats);
         ruleEngineMsgProducer = producerProvider.getRuleEngineMsgProducer();
+        if (ruleEngineBatchEnabled) {
+            ruleEngineMsgAccumulator = new ToRuleEngineMsgAccumulator(ruleEngineMsgProducer, scheduler,
+                    ruleEngineBatchMaxMsgSize, ruleEngineBatchMaxSize, ruleEngineBatchLingerMs);
+        }
         tbCoreMsgProducer = producerProvider.getTbCoreMsgProducer();
         transportNotificationsConsumer = queueProvider.createTransportNotificationsConsumer();
         TopicPartitionInfo tpi = notificationsTopicService.getNotificationsTopic(ServiceType.TB_TRANSPORT, serviceInfoProvider.getServiceId());
@@ -280,6 +296,9 @@ public class DefaultTransportService implements TransportService {
     public void destroy() {
         stopped = true;
 
+        if (ruleEngineMsgAccumulator != null) {
+            ruleEngineMsgAccumulator.flushAll();
+        }
         if (transportNotificationsConsumer != null) {
             transportNotificationsConsumer.unsubscribe();
         }
@@ -573,12 +592,7 @@ public class DefaultTransportService implements TransportService {
             CustomerId customerId = getCustomerId(sessionInfo);
             MsgPackCallback packCallback = new MsgPackCallback(msg.getTsKvListCount(), new ApiStatsProxyCallback<>(tenantId, customerId, dataPoints, callback));
             for (TransportProtos.TsKvListProto tsKv : msg.getTsKvListList()) {
-                TbMsgMetaData metaData = new TbMsgMetaData();
-                metaData.putValue("deviceName", sessionInfo.getDeviceName());
-                metaData.putValue("deviceType", sessionInfo.getDeviceType());
-                metaData.putValue("ts", tsKv.getTs() + "");
-                JsonObject json = JsonUtils.getJsonObject(tsKv.getKvList());
-                sendToRuleEngine(tenantId, deviceId, customerId, sessionInfo, json, metaData, SessionMsgType.POST_TELEMETRY_REQUEST, packCallback);
+                sendToRuleEngine(tenantId, newTelemetryMsg(deviceId, customerId, sessionInfo, tsKv), packCallback);
             }
         }
     }
@@ -1119,27 +1133,49 @@ public class DefaultTransportService implements TransportService {
                 .setTenantIdLSB(tenantId.getId().getLeastSignificantBits()).build();
         ruleEngineProducerStats.incrementTotal();
         StatsCallback wrappedCallback = new StatsCallback(callback, ruleEngineProducerStats);
-        ruleEngineMsgProducer.send(tpi, new TbProtoQueueMsg<>(tbMsg.getId(), msg), wrappedCallback);
+        if (ruleEngineMsgAccumulator != null) {
+            // coalesced with the messages of other devices that are sent to the same partition within the linger time
+            ruleEngineMsgAccumulator.add(tpi, new TbProtoQueueMsg<>(tbMsg.getId(), msg), wrappedCallback);
+        } else {
+            ruleEngineMsgProducer.send(tpi, new TbProtoQueueMsg<>(tbMsg.getId(), msg), wrappedCallback);
+        }
     }
 
     private void sendToRuleEngine(TenantId tenantId, DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, JsonObject json,
                                   TbMsgMetaData metaData, SessionMsgType sessionMsgType, TbQueueCallback callback) {
+        DeviceProfile deviceProfile = getDeviceProfile(sessionInfo);
+        RuleChainId ruleChainId = deviceProfile != null ? deviceProfile.getDefaultRuleChainId() : null;
+        String queueName = deviceProfile != null ? deviceProfile.getDefaultQueueName() : null;
+
+        TbMsg tbMsg = TbMsg.newMsg(queueName, sessionMsgType.name(), deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
+        sendToRuleEngine(tenantId, tbMsg, callback);
+    }
+
+    private TbMsg newTelemetryMsg(DeviceId deviceId, CustomerId customerId, TransportProtos.SessionInfoProto sessionInfo, TransportProtos.TsKvListProto tsKv) {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("deviceName", sessionInfo.getDeviceName());
+        metaData.putValue("deviceType", sessionInfo.getDeviceType());
+        metaData.putValue("ts", tsKv.getTs() + "");
+        DeviceProfile deviceProfile = getDeviceProfile(sessionInfo);
+        RuleChainId ruleChainId = deviceProfile != null ? deviceProfile.getDefaultRuleChainId() : null;
+        String queueName = deviceProfile != null ? deviceProfile.getDefaultQueueName() : null;
+
+        if (telemetryProtoPayloadEnabled) {
+            // TsKvListProto has the same wire format as TbMsgTsKvListProto, so the payload is passed without re-encoding to JSON
+            return TbMsg.newTsKvListMsg(queueName, SessionMsgType.POST_TELEMETRY_REQUEST.name(), deviceId, customerId, metaData, tsKv.toByteString(), ruleChainId);
+        } else {
+            JsonObject json = JsonUtils.getJsonObject(tsKv.getKvList());
+            return TbMsg.newMsg(queueName, SessionMsgType.POST_TELEMETRY_REQUEST.name(), deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
+        }
+    }
+
+    private DeviceProfile getDeviceProfile(TransportProtos.SessionInfoProto sessionInfo) {
         DeviceProfileId deviceProfileId = new DeviceProfileId(new UUID(sessionInfo.getDeviceProfileIdMSB(), sessionInfo.getDeviceProfileIdLSB()));
         DeviceProfile deviceProfile = deviceProfileCache.get(deviceProfileId);
-        RuleChainId ruleChainId;
-        String queueName;
-
         if (deviceProfile == null) {
             log.warn("[{}] Device profile is null!", deviceProfileId);
-            ruleChainId = null;
-            queueName = null;
-        } else {
-            ruleChainId = deviceProfile.getDefaultRuleChainId();
-            queueName = deviceProfile.getDefaultQueueName();
         }
-
-        TbMsg tbMsg = TbMsg.newMsg(queueName, sessionMsgType.name(), deviceId, customerId, metaData, gson.toJson(json), ruleChainId, null);
-        sendToRuleEngine(tenantId, tbMsg, callback);
+        return deviceProfile;
     }
 
     private class TransportTbQueueCallback implements TbQueueCallback {
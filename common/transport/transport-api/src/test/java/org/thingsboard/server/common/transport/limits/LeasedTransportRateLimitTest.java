@@ -0,0 +1,103 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.limits;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeasedTransportRateLimitTest {
+
+    @Test
+    public void testNodesShareTheLimit() {
+        CountingLeaseStore store = new CountingLeaseStore(1000);
+        LeasedTransportRateLimit node1 = new LeasedTransportRateLimit("tenant:msg", "1000:60", store, 100, 0.1);
+        LeasedTransportRateLimit node2 = new LeasedTransportRateLimit("tenant:msg", "1000:60", store, 100, 0.1);
+
+        int consumed = 0;
+        for (int i = 0; i < 2000; i++) {
+            if (node1.tryConsume()) {
+                consumed++;
+            }
+            if (node2.tryConsume()) {
+                consumed++;
+            }
+        }
+
+        assertThat(consumed).isLessThanOrEqualTo(1000);
+        assertThat(store.remaining.get()).isGreaterThanOrEqualTo(0);
+        assertThat(store.leases.get()).isLessThan(consumed);
+    }
+
+    @Test
+    public void testLeaseIsLimitedByMaxLeaseRatio() {
+        CountingLeaseStore store = new CountingLeaseStore(1000);
+        LeasedTransportRateLimit rateLimit = new LeasedTransportRateLimit("tenant:msg", "1000:60", store, 60000, 0.1);
+
+        assertThat(rateLimit.tryConsume()).isTrue();
+        for (int i = 0; i < 500; i++) {
+            rateLimit.tryConsume();
+        }
+
+        assertThat(store.maxRequested.get()).isLessThanOrEqualTo(100);
+    }
+
+    @Test
+    public void testRequestLargerThanLeaseSize() {
+        CountingLeaseStore store = new CountingLeaseStore(1000);
+        LeasedTransportRateLimit rateLimit = new LeasedTransportRateLimit("tenant:dp", "1000:60", store, 100, 0.1);
+
+        assertThat(rateLimit.tryConsume(500)).isTrue();
+        assertThat(rateLimit.tryConsume(501)).isFalse();
+        assertThat(rateLimit.tryConsume(0)).isTrue();
+    }
+
+    @Test
+    public void testFallbackToLocalLimitWhenStoreFails() {
+        RateLimitLeaseStore failingStore = (key, capacities, periodsMs, requested) -> {
+            throw new IllegalStateException("Redis is not available");
+        };
+        LeasedTransportRateLimit rateLimit = new LeasedTransportRateLimit("tenant:msg", "2:60", failingStore, 100, 0.1);
+
+        assertThat(rateLimit.tryConsume()).isTrue();
+        assertThat(rateLimit.tryConsume()).isTrue();
+        assertThat(rateLimit.tryConsume()).isFalse();
+    }
+
+    private static class CountingLeaseStore implements RateLimitLeaseStore {
+
+        private final AtomicLong remaining;
+        private final AtomicInteger leases = new AtomicInteger();
+        private final AtomicLong maxRequested = new AtomicLong();
+
+        CountingLeaseStore(long capacity) {
+            this.remaining = new AtomicLong(capacity);
+        }
+
+        @Override
+        public long lease(String key, long[] capacities, long[] periodsMs, long requested) {
+            leases.incrementAndGet();
+            maxRequested.accumulateAndGet(requested, Math::max);
+            long granted = Math.min(requested, remaining.get());
+            remaining.addAndGet(-granted);
+            return granted;
+        }
+    }
+
+}
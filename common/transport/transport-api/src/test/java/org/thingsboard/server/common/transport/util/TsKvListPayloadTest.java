@@ -0,0 +1,62 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.common.transport.util;
+
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgDataType;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
+import org.thingsboard.server.gen.transport.TransportProtos;
+
+import java.util.UUID;
+
+public class TsKvListPayloadTest {
+
+    private final JsonParser jsonParser = new JsonParser();
+
+    @Test
+    public void testTsKvListProtoIsReadableAsTbMsgPayload() throws Exception {
+        TransportProtos.TsKvListProto tsKv = TransportProtos.TsKvListProto.newBuilder()
+                .setTs(100L)
+                .addKv(kv("active").setType(TransportProtos.KeyValueType.BOOLEAN_V).setBoolV(true))
+                .addKv(kv("counter").setType(TransportProtos.KeyValueType.LONG_V).setLongV(42L))
+                .addKv(kv("temperature").setType(TransportProtos.KeyValueType.DOUBLE_V).setDoubleV(25.5))
+                .addKv(kv("status").setType(TransportProtos.KeyValueType.STRING_V).setStringV("ok"))
+                .addKv(kv("geo").setType(TransportProtos.KeyValueType.JSON_V).setJsonV("{\"lat\":1.5}"))
+                .build();
+
+        MsgProtos.TbMsgTsKvListProto tbMsgTsKv = MsgProtos.TbMsgTsKvListProto.parseFrom(tsKv.toByteString());
+        Assertions.assertEquals(tsKv.getTs(), tbMsgTsKv.getTs());
+        Assertions.assertEquals(tsKv.getKvCount(), tbMsgTsKv.getKvCount());
+        for (int i = 0; i < tsKv.getKvCount(); i++) {
+            Assertions.assertEquals(tsKv.getKv(i).getKey(), tbMsgTsKv.getKv(i).getKey());
+            Assertions.assertEquals(tsKv.getKv(i).getType().name(), tbMsgTsKv.getKv(i).getType().name());
+        }
+
+        TbMsg msg = TbMsg.newTsKvListMsg("Main", "POST_TELEMETRY_REQUEST", new DeviceId(UUID.randomUUID()), null,
+                new TbMsgMetaData(), tsKv.toByteString(), null);
+        Assertions.assertEquals(TbMsgDataType.TS_KV_LIST, msg.getDataType());
+        Assertions.assertEquals(JsonUtils.getJsonObject(tsKv.getKvList()), jsonParser.parse(msg.getData()));
+    }
+
+    private static TransportProtos.KeyValueProto.Builder kv(String key) {
+        return TransportProtos.KeyValueProto.newBuilder().setKey(key);
+    }
+}
@@ -28,6 +28,7 @@ import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.cache.device.DeviceCacheEvictEvent;
 import org.thingsboard.server.cache.device.DeviceCacheKey;
 import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.DeviceAttributesInfo;
 import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.DeviceInfo;
 import org.thingsboard.server.common.data.DeviceInfoFilter;
@@ -79,6 +80,7 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import static org.thingsboard.server.dao.DaoUtil.toUUIDs;
 import static org.thingsboard.server.dao.service.Validator.validateId;
@@ -364,6 +366,16 @@ public class DeviceServiceImpl extends AbstractCachedEntityService<DeviceCacheKe
         return deviceDao.findDeviceIdInfos(pageLink);
     }
 
+    @Override
+    public long streamDeviceAttributesInfos(String attributeScope, List<String> attributeKeys, int fetchSize, Predicate<DeviceAttributesInfo> consumer) {
+        log.trace("Executing streamDeviceAttributesInfos, scope [{}], keys {}, fetchSize [{}]", attributeScope, attributeKeys, fetchSize);
+        validateString(attributeScope, "Incorrect attribute scope " + attributeScope);
+        if (attributeKeys == null || attributeKeys.isEmpty()) {
+            throw new IncorrectParameterException("Attribute keys should be specified!");
+        }
+        return deviceDao.streamDeviceAttributesInfos(attributeScope, attributeKeys, fetchSize, consumer);
+    }
+
     @Override
     public PageData<Device> findDevicesByTenantIdAndType(TenantId tenantId, String type, PageLink pageLink) {
         log.trace("Executing findDevicesByTenantIdAndType, tenantId [{}], type [{}], pageLink [{}]", tenantId, type, pageLink);
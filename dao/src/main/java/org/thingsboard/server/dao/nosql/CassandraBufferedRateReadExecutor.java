@@ -50,11 +50,15 @@ public class CassandraBufferedRateReadExecutor extends AbstractBufferedRateExecu
             @Value("${cassandra.query.poll_ms:50}") long pollMs,
             @Value("${cassandra.query.tenant_rate_limits.print_tenant_names}") boolean printTenantNames,
             @Value("${cassandra.query.print_queries_freq:0}") int printQueriesFreq,
+            @Value("${cassandra.query.fair_queue.enabled:false}") boolean fairQueueEnabled,
+            @Value("${cassandra.query.fair_queue.tenant_buffer_size:0}") int tenantQueueLimit,
+            @Value("${cassandra.query.fair_queue.tenant_quantum:1}") int tenantQuantum,
+            @Value("${cassandra.query.fair_queue.sys_tenant_quantum:1}") int sysTenantQuantum,
             @Autowired StatsFactory statsFactory,
             @Autowired EntityService entityService,
             @Autowired TbTenantProfileCache tenantProfileCache) {
         super(queueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, pollMs, printQueriesFreq, statsFactory,
-                entityService, tenantProfileCache, printTenantNames);
+                entityService, tenantProfileCache, printTenantNames, fairQueueEnabled, tenantQueueLimit, tenantQuantum, sysTenantQuantum);
     }
 
     @Scheduled(fixedDelayString = "${cassandra.query.rate_limit_print_interval_ms}")
@@ -0,0 +1,157 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.nosql;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
+import com.datastax.oss.driver.api.core.cql.DefaultBatchType;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Groups write statements that target the same Cassandra partition into unlogged batches.
+ * Statements are collected for at most {@code lingerMs} or until {@code maxBatchSize} statements are pending for the partition.
+ * Every statement keeps its own future that is completed with the result of the batch it was sent in.
+ * <p>
+ * All statements of an unlogged batch share one write timestamp, so Cassandra can't tell which of two writes of the same cell
+ * in a batch came last. A statement with the cell key of a pending statement therefore replaces it within the batch.
+ */
+@Slf4j
+public class CassandraWriteCoalescer<K> {
+
+    private final int maxBatchSize;
+    private final BiFunction<TenantId, Statement<?>, TbResultSetFuture> writeFunction;
+    private final ConcurrentMap<K, PendingBatch> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flushExecutor;
+
+    public CassandraWriteCoalescer(String name, int maxBatchSize, long lingerMs,
+                                   BiFunction<TenantId, Statement<?>, TbResultSetFuture> writeFunction) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.writeFunction = writeFunction;
+        this.flushExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName(name + "-batch-flush"));
+        this.flushExecutor.scheduleWithFixedDelay(this::flushAll, lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    public TbResultSetFuture write(TenantId tenantId, K partitionKey, BatchableStatement<?> statement) {
+        return write(tenantId, partitionKey, null, statement);
+    }
+
+    /**
+     * @param cellKey identifies the cells of the partition written by the statement, may be null if the statement never overwrites
+     *                a pending one. The statement replaces the pending statement with the same cell key, whose future then
+     *                completes with the result of the batch as well.
+     */
+    public TbResultSetFuture write(TenantId tenantId, K partitionKey, Object cellKey, BatchableStatement<?> statement) {
+        SettableFuture<TbResultSet> future = SettableFuture.create();
+        PendingBatch[] full = new PendingBatch[1];
+        pending.compute(partitionKey, (key, batch) -> {
+            if (batch == null) {
+                batch = new PendingBatch(tenantId);
+            }
+            Integer idx = cellKey != null ? batch.cellIndexes.putIfAbsent(cellKey, batch.statements.size()) : null;
+            if (idx != null) {
+                batch.statements.set(idx, statement);
+            } else {
+                batch.statements.add(statement);
+            }
+            batch.futures.add(future);
+            if (batch.statements.size() >= maxBatchSize) {
+                full[0] = batch;
+                return null;
+            }
+            return batch;
+        });
+        if (full[0] != null) {
+            flush(full[0]);
+        }
+        return new TbResultSetFuture(future);
+    }
+
+    public void stop() {
+        flushExecutor.shutdownNow();
+        flushAll();
+    }
+
+    int getPendingPartitionsCount() {
+        return pending.size();
+    }
+
+    void flushAll() {
+        for (K key : pending.keySet()) {
+            PendingBatch batch = pending.remove(key);
+            if (batch != null) {
+                flush(batch);
+            }
+        }
+    }
+
+    private void flush(PendingBatch batch) {
+        List<SettableFuture<TbResultSet>> futures = batch.futures;
+        TbResultSetFuture result;
+        try {
+            if (batch.statements.size() == 1) {
+                result = writeFunction.apply(batch.tenantId, batch.statements.get(0));
+            } else {
+                result = writeFunction.apply(batch.tenantId, BatchStatement.newInstance(DefaultBatchType.UNLOGGED, batch.statements));
+            }
+        } catch (Throwable t) {
+            log.debug("[{}] Failed to submit batch of {} statements", batch.tenantId, futures.size(), t);
+            futures.forEach(future -> future.setException(t));
+            return;
+        }
+        Futures.addCallback(result, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable TbResultSet resultSet) {
+                futures.forEach(future -> future.set(resultSet));
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                futures.forEach(future -> future.setException(t));
+            }
+        }, MoreExecutors.directExecutor());
+    }
+
+    private static class PendingBatch {
+        private final TenantId tenantId;
+        private final List<BatchableStatement<?>> statements = new ArrayList<>();
+        private final Map<Object, Integer> cellIndexes = new HashMap<>();
+        private final List<SettableFuture<TbResultSet>> futures = new ArrayList<>();
+
+        private PendingBatch(TenantId tenantId) {
+            this.tenantId = tenantId;
+        }
+    }
+
+}
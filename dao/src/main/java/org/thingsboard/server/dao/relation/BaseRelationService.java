@@ -49,6 +49,7 @@ import org.thingsboard.server.dao.exception.DataValidationException;
 import org.thingsboard.server.dao.service.ConstraintValidator;
 import org.thingsboard.server.dao.sql.JpaExecutorService;
 import org.thingsboard.server.dao.sql.relation.JpaRelationQueryExecutorService;
+import org.thingsboard.server.dao.sql.relation.RelationGraphIndex;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -81,6 +82,7 @@ public class BaseRelationService implements RelationService {
     private final ApplicationEventPublisher eventPublisher;
     private final JpaExecutorService executor;
     private final JpaRelationQueryExecutorService relationsExecutor;
+    private final RelationGraphIndex relationGraphIndex;
     protected ScheduledExecutorService timeoutExecutorService;
 
     @Value("${sql.relations.query_timeout:20}")
@@ -89,13 +91,14 @@ public class BaseRelationService implements RelationService {
     public BaseRelationService(RelationDao relationDao, @Lazy EntityService entityService,
                                TbTransactionalCache<RelationCacheKey, RelationCacheValue> cache,
                                ApplicationEventPublisher eventPublisher, JpaExecutorService executor,
-                               JpaRelationQueryExecutorService relationsExecutor) {
+                               JpaRelationQueryExecutorService relationsExecutor, RelationGraphIndex relationGraphIndex) {
         this.relationDao = relationDao;
         this.entityService = entityService;
         this.cache = cache;
         this.eventPublisher = eventPublisher;
         this.executor = executor;
         this.relationsExecutor = relationsExecutor;
+        this.relationGraphIndex = relationGraphIndex;
     }
 
     @PostConstruct
@@ -119,6 +122,7 @@ public class BaseRelationService implements RelationService {
         keys.add(new RelationCacheKey(null, event.getTo(), event.getType(), event.getTypeGroup(), EntitySearchDirection.TO));
         keys.add(new RelationCacheKey(null, event.getTo(), null, event.getTypeGroup(), EntitySearchDirection.TO));
         cache.evict(keys);
+        relationGraphIndex.onRelationEvent(event);
     }
 
     @Override
@@ -154,7 +158,7 @@ public class BaseRelationService implements RelationService {
         log.trace("Executing saveRelation [{}]", relation);
         validate(relation);
         var result = relationDao.saveRelation(tenantId, relation);
-        publishEvictEvent(EntityRelationEvent.from(relation));
+        publishEvictEvent(EntityRelationEvent.from(tenantId, relation, false));
         return result;
     }
 
@@ -168,7 +172,7 @@ public class BaseRelationService implements RelationService {
             relationDao.saveRelations(tenantId, partition);
         }
         for (EntityRelation relation : relations) {
-            publishEvictEvent(EntityRelationEvent.from(relation));
+            publishEvictEvent(EntityRelationEvent.from(tenantId, relation, false));
         }
     }
 
@@ -177,7 +181,7 @@ public class BaseRelationService implements RelationService {
         log.trace("Executing saveRelationAsync [{}]", relation);
         validate(relation);
         var future = relationDao.saveRelationAsync(tenantId, relation);
-        future.addListener(() -> handleEvictEvent(EntityRelationEvent.from(relation)), MoreExecutors.directExecutor());
+        future.addListener(() -> handleEvictEvent(EntityRelationEvent.from(tenantId, relation, false)), MoreExecutors.directExecutor());
         return future;
     }
 
@@ -187,7 +191,7 @@ public class BaseRelationService implements RelationService {
         validate(relation);
         var result = relationDao.deleteRelation(tenantId, relation);
         //TODO: evict cache only if the relation was deleted. Note: relationDao.deleteRelation requires improvement.
-        publishEvictEvent(EntityRelationEvent.from(relation));
+        publishEvictEvent(EntityRelationEvent.from(tenantId, relation, true));
         return result;
     }
 
@@ -196,7 +200,7 @@ public class BaseRelationService implements RelationService {
         log.trace("Executing deleteRelationAsync [{}]", relation);
         validate(relation);
         var future = relationDao.deleteRelationAsync(tenantId, relation);
-        future.addListener(() -> handleEvictEvent(EntityRelationEvent.from(relation)), MoreExecutors.directExecutor());
+        future.addListener(() -> handleEvictEvent(EntityRelationEvent.from(tenantId, relation, true)), MoreExecutors.directExecutor());
         return future;
     }
 
@@ -206,7 +210,7 @@ public class BaseRelationService implements RelationService {
         validate(from, to, relationType, typeGroup);
         var result = relationDao.deleteRelation(tenantId, from, to, relationType, typeGroup);
         //TODO: evict cache only if the relation was deleted. Note: relationDao.deleteRelation requires improvement.
-        publishEvictEvent(new EntityRelationEvent(from, to, relationType, typeGroup));
+        publishEvictEvent(new EntityRelationEvent(tenantId, from, to, relationType, typeGroup, true));
         return result;
     }
 
@@ -215,7 +219,7 @@ public class BaseRelationService implements RelationService {
         log.trace("Executing deleteRelationAsync [{}][{}][{}][{}]", from, to, relationType, typeGroup);
         validate(from, to, relationType, typeGroup);
         var future = relationDao.deleteRelationAsync(tenantId, from, to, relationType, typeGroup);
-        EntityRelationEvent event = new EntityRelationEvent(from, to, relationType, typeGroup);
+        EntityRelationEvent event = new EntityRelationEvent(tenantId, from, to, relationType, typeGroup, true);
         future.addListener(() -> handleEvictEvent(event), MoreExecutors.directExecutor());
         return future;
     }
@@ -236,7 +240,7 @@ public class BaseRelationService implements RelationService {
             }
 
             for (EntityRelation relation : inboundRelations) {
-                eventPublisher.publishEvent(EntityRelationEvent.from(relation));
+                eventPublisher.publishEvent(EntityRelationEvent.from(tenantId, relation, true));
             }
         }
 
@@ -244,7 +248,7 @@ public class BaseRelationService implements RelationService {
             relationDao.deleteOutboundRelations(tenantId, entityId);
 
             for (EntityRelation relation : outboundRelations) {
-                eventPublisher.publishEvent(EntityRelationEvent.from(relation));
+                eventPublisher.publishEvent(EntityRelationEvent.from(tenantId, relation, true));
             }
         }
     }
@@ -261,11 +265,11 @@ public class BaseRelationService implements RelationService {
         if (deleteFromDb) {
             return Futures.transform(relationDao.deleteRelationAsync(tenantId, relation),
                     bool -> {
-                        handleEvictEvent(EntityRelationEvent.from(relation));
+                        handleEvictEvent(EntityRelationEvent.from(tenantId, relation, true));
                         return bool;
                     }, MoreExecutors.directExecutor());
         } else {
-            handleEvictEvent(EntityRelationEvent.from(relation));
+            handleEvictEvent(EntityRelationEvent.from(tenantId, relation, true));
             return Futures.immediateFuture(false);
         }
     }
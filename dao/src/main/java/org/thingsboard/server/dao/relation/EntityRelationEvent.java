@@ -18,11 +18,14 @@ package org.thingsboard.server.dao.relation;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.relation.EntityRelation;
 import org.thingsboard.server.common.data.relation.RelationTypeGroup;
 
 @RequiredArgsConstructor
 public class EntityRelationEvent {
+    @Getter
+    private final TenantId tenantId;
     @Getter
     private final EntityId from;
     @Getter
@@ -31,8 +34,10 @@ public class EntityRelationEvent {
     private final String type;
     @Getter
     private final RelationTypeGroup typeGroup;
+    @Getter
+    private final boolean deleted;
 
-    public static EntityRelationEvent from(EntityRelation relation) {
-        return new EntityRelationEvent(relation.getFrom(), relation.getTo(), relation.getType(), relation.getTypeGroup());
+    public static EntityRelationEvent from(TenantId tenantId, EntityRelation relation, boolean deleted) {
+        return new EntityRelationEvent(tenantId, relation.getFrom(), relation.getTo(), relation.getType(), relation.getTypeGroup(), deleted);
     }
 }
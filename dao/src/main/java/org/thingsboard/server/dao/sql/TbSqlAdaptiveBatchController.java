@@ -0,0 +1,69 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import lombok.Getter;
+
+/**
+ * Adjusts batch size and flush delay of a SQL batch queue based on the observed save latency.
+ * Configured batch size and max delay are used as upper bounds and as the starting point.
+ * <ul>
+ *     <li>save is slower than the target: halve the batch size and double the flush delay,
+ *     so the database gets shorter transactions and fewer partial batches;</li>
+ *     <li>full batch saved within half of the target: there is a backlog and the database has headroom, grow the batch size;</li>
+ *     <li>partial batch saved within half of the target: the load is low, shorten the flush delay to reduce write latency.</li>
+ * </ul>
+ * May be shared by several writer threads of the same queue.
+ */
+public class TbSqlAdaptiveBatchController {
+
+    private final int minBatchSize;
+    private final int maxBatchSize;
+    private final int batchSizeStep;
+    private final long minDelay;
+    private final long maxDelay;
+    private final long targetLatencyMs;
+
+    @Getter
+    private volatile int batchSize;
+    @Getter
+    private volatile long delay;
+
+    public TbSqlAdaptiveBatchController(int minBatchSize, int maxBatchSize, long minDelay, long maxDelay, long targetLatencyMs) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.minBatchSize = Math.max(1, Math.min(minBatchSize, this.maxBatchSize));
+        this.batchSizeStep = Math.max(1, this.maxBatchSize / 16);
+        this.maxDelay = Math.max(1, maxDelay);
+        this.minDelay = Math.max(1, Math.min(minDelay, this.maxDelay));
+        this.targetLatencyMs = Math.max(1, targetLatencyMs);
+        this.batchSize = this.maxBatchSize;
+        this.delay = this.maxDelay;
+    }
+
+    public synchronized void onBatchSaved(boolean fullPack, long latencyMs) {
+        if (latencyMs > targetLatencyMs) {
+            batchSize = Math.max(minBatchSize, batchSize / 2);
+            delay = Math.min(maxDelay, delay * 2);
+        } else if (latencyMs * 2 <= targetLatencyMs) {
+            if (fullPack) {
+                batchSize = Math.min(maxBatchSize, batchSize + batchSizeStep);
+            } else {
+                delay = Math.max(minDelay, delay - Math.max(1, delay / 4));
+            }
+        }
+    }
+
+}
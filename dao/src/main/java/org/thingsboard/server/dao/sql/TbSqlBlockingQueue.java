@@ -17,9 +17,11 @@ package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
 import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.dao.exception.SqlQueueOverflowException;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -29,6 +31,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -36,19 +39,40 @@ import java.util.stream.Stream;
 @Slf4j
 public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
 
-    private final BlockingQueue<TbSqlQueueElement<E>> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<TbSqlQueueElement<E>> queue;
     private final TbSqlBlockingQueueParams params;
+    private final TbSqlQueueSettings settings;
 
     private ExecutorService executor;
     private final MessagesStats stats;
+    private final AtomicInteger queueSize;
+    private final Timer saveTimer;
+    private final AtomicInteger rejected = new AtomicInteger();
+    private volatile TbSqlAdaptiveBatchController batchController;
 
     public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats) {
+        this(params, stats, null, null);
+    }
+
+    /**
+     * @param queueSize gauge updated with the current queue depth, may be null
+     * @param saveTimer timer to record the duration of each save function call, may be null
+     */
+    public TbSqlBlockingQueue(TbSqlBlockingQueueParams params, MessagesStats stats, AtomicInteger queueSize, Timer saveTimer) {
         this.params = params;
         this.stats = stats;
+        this.queueSize = queueSize;
+        this.saveTimer = saveTimer;
+        this.settings = params.getQueueSettings() != null ? params.getQueueSettings() : new TbSqlQueueSettings();
+        this.queue = settings.getMaxQueueSize() > 0 ? new LinkedBlockingQueue<>(settings.getMaxQueueSize()) : new LinkedBlockingQueue<>();
     }
 
     @Override
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator, int index) {
+        if (settings.isAdaptiveBatchEnabled()) {
+            batchController = new TbSqlAdaptiveBatchController(settings.getMinBatchSize(), params.getBatchSize(),
+                    settings.getMinDelay(), params.getMaxDelay(), settings.getTargetSaveLatencyMs());
+        }
         executor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("sql-queue-" + index + "-" + params.getLogName().toLowerCase()));
         executor.submit(() -> {
             String logName = params.getLogName();
@@ -57,6 +81,10 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
             List<TbSqlQueueElement<E>> entities = new ArrayList<>(batchSize);
             while (!Thread.interrupted()) {
                 try {
+                    if (batchController != null) {
+                        batchSize = batchController.getBatchSize();
+                        maxDelay = batchController.getDelay();
+                    }
                     long currentTs = System.currentTimeMillis();
                     TbSqlQueueElement<E> attr = queue.poll(maxDelay, TimeUnit.MILLISECONDS);
                     if (attr == null) {
@@ -65,18 +93,27 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
                         entities.add(attr);
                     }
                     queue.drainTo(entities, batchSize - 1);
+                    updateQueueSize();
                     boolean fullPack = entities.size() == batchSize;
                     if (log.isDebugEnabled()) {
                         log.debug("[{}] Going to save {} entities", logName, entities.size());
                         log.trace("[{}] Going to save entities: {}", logName, entities);
                     }
                     Stream<E> entitiesStream = entities.stream().map(TbSqlQueueElement::getEntity);
+                    long saveStartNs = System.nanoTime();
                     saveFunction.accept(
                             (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
                                     .collect(Collectors.toList())
                     );
+                    long saveTimeNs = System.nanoTime() - saveStartNs;
                     entities.forEach(v -> v.getFuture().set(null));
                     stats.incrementSuccessful(entities.size());
+                    if (saveTimer != null) {
+                        saveTimer.record(saveTimeNs, TimeUnit.NANOSECONDS);
+                    }
+                    if (batchController != null) {
+                        batchController.onBatchSaved(fullPack, TimeUnit.NANOSECONDS.toMillis(saveTimeNs));
+                    }
                     if (!fullPack) {
                         long remainingDelay = maxDelay - (System.currentTimeMillis() - currentTs);
                         if (remainingDelay > 0) {
@@ -99,9 +136,16 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
         });
 
         logExecutor.scheduleAtFixedRate(() -> {
+            updateQueueSize();
             if (queue.size() > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
-                log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}]", index,
-                        params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed());
+                if (batchController != null) {
+                    log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}] totalRejected [{}] batchSize [{}] maxDelay [{}]",
+                            index, params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed(), rejected.getAndSet(0),
+                            batchController.getBatchSize(), batchController.getDelay());
+                } else {
+                    log.info("Queue-{} [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}] totalRejected [{}]", index,
+                            params.getLogName(), queue.size(), stats.getTotal(), stats.getSuccessful(), stats.getFailed(), rejected.getAndSet(0));
+                }
                 stats.reset();
             }
         }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
@@ -117,8 +161,31 @@ public class TbSqlBlockingQueue<E> implements TbSqlQueue<E> {
     @Override
     public ListenableFuture<Void> add(E element) {
         SettableFuture<Void> future = SettableFuture.create();
-        queue.add(new TbSqlQueueElement<>(future, element));
         stats.incrementTotal();
+        if (!offer(new TbSqlQueueElement<>(future, element))) {
+            rejected.incrementAndGet();
+            stats.incrementFailed();
+            future.setException(new SqlQueueOverflowException(params.getLogName(), settings.getMaxQueueSize()));
+        }
         return future;
     }
+
+    private boolean offer(TbSqlQueueElement<E> element) {
+        if (settings.getOverflowPolicy() == TbSqlQueueOverflowPolicy.BLOCK) {
+            try {
+                return queue.offer(element, settings.getOfferTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        } else {
+            return queue.offer(element);
+        }
+    }
+
+    private void updateQueueSize() {
+        if (queueSize != null) {
+            queueSize.set(queue.size());
+        }
+    }
 }
@@ -30,4 +30,5 @@ public class TbSqlBlockingQueueParams {
     private final long statsPrintIntervalMs;
     private final String statsNamePrefix;
     private final boolean batchSortEnabled;
+    private final TbSqlQueueSettings queueSettings;
 }
@@ -16,6 +16,7 @@
 package org.thingsboard.server.dao.sql;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.stats.MessagesStats;
@@ -24,13 +25,16 @@ import org.thingsboard.server.common.stats.StatsFactory;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
 @Slf4j
 @Data
 public class TbSqlBlockingQueueWrapper<E> {
-    private final CopyOnWriteArrayList<TbSqlBlockingQueue<E>> queues = new CopyOnWriteArrayList<>();
+    private static final String QUEUE_INDEX_TAG = "queueIndex";
+
+    private final CopyOnWriteArrayList<TbSqlQueue<E>> queues = new CopyOnWriteArrayList<>();
     private final TbSqlBlockingQueueParams params;
     private ScheduledLogExecutorComponent logExecutor;
     private final Function<E, Integer> hashCodeFunction;
@@ -46,20 +50,34 @@ public class TbSqlBlockingQueueWrapper<E> {
      *                               NOTE: you must use all of primary key parts in your comparator
      */
     public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
+        if (params.getQueueSettings() != null && params.getQueueSettings().isWorkStealingEnabled()) {
+            MessagesStats stats = statsFactory.createMessagesStats(params.getStatsNamePrefix() + ".queue.0");
+            AtomicInteger queueSize = statsFactory.createGauge(params.getStatsNamePrefix() + ".queue.size", new AtomicInteger(0), QUEUE_INDEX_TAG, "0");
+            Timer saveTimer = statsFactory.createTimer(params.getStatsNamePrefix() + ".queue.saveTime", QUEUE_INDEX_TAG, "0");
+            TbSqlWorkStealingQueue<E> queue = new TbSqlWorkStealingQueue<>(params, hashCodeFunction, maxThreads, stats, queueSize, saveTimer);
+            queues.add(queue);
+            queue.init(logExecutor, saveFunction, batchUpdateComparator, 0);
+            return;
+        }
         for (int i = 0; i < maxThreads; i++) {
             MessagesStats stats = statsFactory.createMessagesStats(params.getStatsNamePrefix() + ".queue." + i);
-            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats);
+            AtomicInteger queueSize = statsFactory.createGauge(params.getStatsNamePrefix() + ".queue.size", new AtomicInteger(0), QUEUE_INDEX_TAG, String.valueOf(i));
+            Timer saveTimer = statsFactory.createTimer(params.getStatsNamePrefix() + ".queue.saveTime", QUEUE_INDEX_TAG, String.valueOf(i));
+            TbSqlBlockingQueue<E> queue = new TbSqlBlockingQueue<>(params, stats, queueSize, saveTimer);
             queues.add(queue);
             queue.init(logExecutor, saveFunction, batchUpdateComparator, i);
         }
     }
 
     public ListenableFuture<Void> add(E element) {
+        if (queues.size() == 1) {
+            return queues.get(0).add(element);
+        }
         int queueIndex = element != null ? (hashCodeFunction.apply(element) & 0x7FFFFFFF) % maxThreads : 0;
         return queues.get(queueIndex).add(element);
     }
 
     public void destroy() {
-        queues.forEach(TbSqlBlockingQueue::destroy);
+        queues.forEach(TbSqlQueue::destroy);
     }
 }
@@ -0,0 +1,56 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backpressure, work stealing and adaptive batching settings shared by all SQL batch queues.
+ */
+@Component
+@Data
+public class TbSqlQueueSettings {
+
+    @Value("${sql.batch_queue.max_size:0}")
+    private int maxQueueSize;
+
+    @Value("${sql.batch_queue.overflow_policy:REJECT}")
+    private TbSqlQueueOverflowPolicy overflowPolicy = TbSqlQueueOverflowPolicy.REJECT;
+
+    @Value("${sql.batch_queue.offer_timeout_ms:1000}")
+    private long offerTimeoutMs;
+
+    @Value("${sql.batch_queue.work_stealing.enabled:false}")
+    private boolean workStealingEnabled;
+
+    @Value("${sql.batch_queue.work_stealing.shards_per_thread:4}")
+    private int shardsPerThread = 4;
+
+    @Value("${sql.batch_queue.adaptive.enabled:false}")
+    private boolean adaptiveBatchEnabled;
+
+    @Value("${sql.batch_queue.adaptive.min_batch_size:100}")
+    private int minBatchSize;
+
+    @Value("${sql.batch_queue.adaptive.min_delay_ms:10}")
+    private long minDelay;
+
+    @Value("${sql.batch_queue.adaptive.target_save_latency_ms:500}")
+    private long targetSaveLatencyMs;
+
+}
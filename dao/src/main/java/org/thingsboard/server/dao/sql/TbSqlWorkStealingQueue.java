@@ -0,0 +1,294 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.stats.MessagesStats;
+import org.thingsboard.server.dao.exception.SqlQueueOverflowException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Pool of writer threads that share a set of shards. Elements are hashed onto a shard, and any idle writer may drain
+ * any shard that is ready to be flushed. A shard is drained by at most one writer at a time, so the write order of
+ * elements with the same hash is preserved.
+ * <p>
+ * The max queue size is a per-writer budget, like for {@link TbSqlBlockingQueue}: the total bound of
+ * writers * max queue size is split evenly across the shards.
+ */
+@Slf4j
+public class TbSqlWorkStealingQueue<E> implements TbSqlQueue<E> {
+
+    private final TbSqlBlockingQueueParams params;
+    private final TbSqlQueueSettings settings;
+    private final Function<E, Integer> hashCodeFunction;
+    private final int writersCount;
+    private final Shard<E>[] shards;
+    private final MessagesStats stats;
+    private final AtomicInteger queueSize;
+    private final Timer saveTimer;
+    private final AtomicInteger rejected = new AtomicInteger();
+    private final AtomicInteger parkedWriters = new AtomicInteger();
+    private final Object monitor = new Object();
+
+    private ExecutorService executor;
+    private volatile TbSqlAdaptiveBatchController batchController;
+
+    /**
+     * @param queueSize gauge updated with the total number of pending elements, may be null
+     * @param saveTimer timer to record the duration of each save function call, may be null
+     */
+    @SuppressWarnings("unchecked")
+    public TbSqlWorkStealingQueue(TbSqlBlockingQueueParams params, Function<E, Integer> hashCodeFunction, int writersCount,
+                                  MessagesStats stats, AtomicInteger queueSize, Timer saveTimer) {
+        this.params = params;
+        this.settings = params.getQueueSettings() != null ? params.getQueueSettings() : new TbSqlQueueSettings();
+        this.hashCodeFunction = hashCodeFunction;
+        this.writersCount = Math.max(1, writersCount);
+        this.stats = stats;
+        this.queueSize = queueSize;
+        this.saveTimer = saveTimer;
+        int shardsPerThread = Math.max(1, settings.getShardsPerThread());
+        // max queue size is per writer, so writers * shardsPerThread shards get maxQueueSize / shardsPerThread each
+        int shardCapacity = settings.getMaxQueueSize() > 0 ? Math.max(1, settings.getMaxQueueSize() / shardsPerThread) : 0;
+        this.shards = new Shard[this.writersCount * shardsPerThread];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard<>(shardCapacity);
+        }
+    }
+
+    @Override
+    public void init(ScheduledLogExecutorComponent logExecutor, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator, int queueIndex) {
+        if (settings.isAdaptiveBatchEnabled()) {
+            batchController = new TbSqlAdaptiveBatchController(settings.getMinBatchSize(), params.getBatchSize(),
+                    settings.getMinDelay(), params.getMaxDelay(), settings.getTargetSaveLatencyMs());
+        }
+        String logName = params.getLogName();
+        executor = Executors.newFixedThreadPool(writersCount, ThingsBoardThreadFactory.forName("sql-queue-" + queueIndex + "-" + logName.toLowerCase()));
+        for (int i = 0; i < writersCount; i++) {
+            int writerIndex = i;
+            executor.submit(() -> runWriter(writerIndex, saveFunction, batchUpdateComparator));
+        }
+
+        logExecutor.scheduleAtFixedRate(() -> {
+            int pending = updateQueueSize();
+            if (pending > 0 || stats.getTotal() > 0 || stats.getSuccessful() > 0 || stats.getFailed() > 0) {
+                log.info("Queue-{} [{}] writers [{}] shards [{}] queueSize [{}] totalAdded [{}] totalSaved [{}] totalFailed [{}] totalRejected [{}]",
+                        queueIndex, logName, writersCount, shards.length, pending, stats.getTotal(), stats.getSuccessful(), stats.getFailed(), rejected.getAndSet(0));
+                stats.reset();
+            }
+        }, params.getStatsPrintIntervalMs(), params.getStatsPrintIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public ListenableFuture<Void> add(E element) {
+        int shardIndex = element != null ? (hashCodeFunction.apply(element) & 0x7FFFFFFF) % shards.length : 0;
+        Shard<E> shard = shards[shardIndex];
+        SettableFuture<Void> future = SettableFuture.create();
+        stats.incrementTotal();
+        if (!offer(shard, new TbSqlQueueElement<>(future, element))) {
+            rejected.incrementAndGet();
+            stats.incrementFailed();
+            future.setException(new SqlQueueOverflowException(params.getLogName(), settings.getMaxQueueSize()));
+        } else if (!shard.busy.get()) {
+            // a busy shard is handed over by the writer that releases it
+            notifyParkedWriter(shard, currentBatchSize());
+        }
+        return future;
+    }
+
+    private void notifyParkedWriter(Shard<E> shard, int batchSize) {
+        if (parkedWriters.get() > 0 && shard.queue.size() >= batchSize) {
+            // writers that are busy will pick the shard up on the next scan, so the monitor is touched only to wake a parked one
+            synchronized (monitor) {
+                monitor.notify();
+            }
+        }
+    }
+
+    private void runWriter(int writerIndex, Consumer<List<E>> saveFunction, Comparator<E> batchUpdateComparator) {
+        String logName = params.getLogName();
+        // every writer starts the scan from its own shards and steals from the others only when those are not ready
+        int firstShard = writerIndex * (shards.length / writersCount);
+        List<TbSqlQueueElement<E>> entities = new ArrayList<>(params.getBatchSize());
+        while (!Thread.interrupted()) {
+            try {
+                int batchSize = currentBatchSize();
+                long maxDelay = currentDelay();
+                long currentTs = System.currentTimeMillis();
+                long nextFlushTs = currentTs + maxDelay;
+                boolean saved = false;
+                for (int i = 0; i < shards.length; i++) {
+                    Shard<E> shard = shards[(firstShard + i) % shards.length];
+                    int size = shard.queue.size();
+                    if (size == 0) {
+                        continue;
+                    }
+                    long shardFlushTs = shard.lastFlushTs + maxDelay;
+                    if (size < batchSize && shardFlushTs > currentTs) {
+                        nextFlushTs = Math.min(nextFlushTs, shardFlushTs);
+                        continue;
+                    }
+                    if (!shard.busy.compareAndSet(false, true)) {
+                        continue;
+                    }
+                    try {
+                        shard.queue.drainTo(entities, batchSize);
+                        shard.lastFlushTs = currentTs;
+                        if (!entities.isEmpty()) {
+                            save(logName, entities, saveFunction, batchUpdateComparator, batchSize);
+                            saved = true;
+                        }
+                    } finally {
+                        entities.clear();
+                        shard.busy.set(false);
+                    }
+                    // parked writers skip busy shards, so a shard that filled up while it was drained must be handed over
+                    notifyParkedWriter(shard, batchSize);
+                }
+                updateQueueSize();
+                if (!saved) {
+                    long waitMs = nextFlushTs - System.currentTimeMillis();
+                    if (waitMs > 0) {
+                        synchronized (monitor) {
+                            parkedWriters.incrementAndGet();
+                            try {
+                                // re-check after announcing the park: an add that saw no parked writers did not notify
+                                if (!hasReadyShard(batchSize)) {
+                                    monitor.wait(waitMs);
+                                }
+                            } finally {
+                                parkedWriters.decrementAndGet();
+                            }
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                log.info("[{}] Queue polling was interrupted", logName);
+                break;
+            } catch (Throwable t) {
+                log.error("[{}] Unexpected error in queue writer", logName, t);
+            }
+        }
+    }
+
+    private void save(String logName, List<TbSqlQueueElement<E>> entities, Consumer<List<E>> saveFunction,
+                      Comparator<E> batchUpdateComparator, int batchSize) {
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("[{}] Going to save {} entities", logName, entities.size());
+                log.trace("[{}] Going to save entities: {}", logName, entities);
+            }
+            Stream<E> entitiesStream = entities.stream().map(TbSqlQueueElement::getEntity);
+            long saveStartNs = System.nanoTime();
+            saveFunction.accept(
+                    (params.isBatchSortEnabled() ? entitiesStream.sorted(batchUpdateComparator) : entitiesStream)
+                            .collect(Collectors.toList())
+            );
+            long saveTimeNs = System.nanoTime() - saveStartNs;
+            entities.forEach(v -> v.getFuture().set(null));
+            stats.incrementSuccessful(entities.size());
+            if (saveTimer != null) {
+                saveTimer.record(saveTimeNs, TimeUnit.NANOSECONDS);
+            }
+            if (batchController != null) {
+                batchController.onBatchSaved(entities.size() == batchSize, TimeUnit.NANOSECONDS.toMillis(saveTimeNs));
+            }
+        } catch (Exception e) {
+            stats.incrementFailed(entities.size());
+            entities.forEach(entityFutureWrapper -> entityFutureWrapper.getFuture().setException(e));
+            log.error("[{}] Failed to save {} entities", logName, entities.size(), e);
+        }
+    }
+
+    private boolean offer(Shard<E> shard, TbSqlQueueElement<E> element) {
+        if (settings.getOverflowPolicy() == TbSqlQueueOverflowPolicy.BLOCK) {
+            try {
+                return shard.queue.offer(element, settings.getOfferTimeoutMs(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        } else {
+            return shard.queue.offer(element);
+        }
+    }
+
+    private boolean hasReadyShard(int batchSize) {
+        for (Shard<E> shard : shards) {
+            // a busy shard is being drained by another writer, waking up for it would only spin on the scan
+            if (!shard.busy.get() && shard.queue.size() >= batchSize) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int currentBatchSize() {
+        TbSqlAdaptiveBatchController controller = batchController;
+        return controller != null ? controller.getBatchSize() : params.getBatchSize();
+    }
+
+    private long currentDelay() {
+        TbSqlAdaptiveBatchController controller = batchController;
+        return controller != null ? controller.getDelay() : params.getMaxDelay();
+    }
+
+    private int updateQueueSize() {
+        int pending = 0;
+        for (Shard<E> shard : shards) {
+            pending += shard.queue.size();
+        }
+        if (queueSize != null) {
+            queueSize.set(pending);
+        }
+        return pending;
+    }
+
+    private static class Shard<E> {
+        private final LinkedBlockingQueue<TbSqlQueueElement<E>> queue;
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private volatile long lastFlushTs;
+
+        private Shard(int capacity) {
+            this.queue = capacity > 0 ? new LinkedBlockingQueue<>(capacity) : new LinkedBlockingQueue<>();
+        }
+    }
+
+}
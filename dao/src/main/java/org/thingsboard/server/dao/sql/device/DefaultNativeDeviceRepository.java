@@ -21,14 +21,29 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.server.common.data.DeviceAttributesInfo;
 import org.thingsboard.server.common.data.DeviceIdInfo;
+import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.page.PageData;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
@@ -38,6 +53,11 @@ public class DefaultNativeDeviceRepository implements NativeDeviceRepository {
 
     private final String COUNT_QUERY = "SELECT count(id) FROM device;";
     private final String QUERY = "SELECT tenant_id as tenantId, customer_id as customerId, id as id FROM device ORDER BY created_time ASC LIMIT %s OFFSET %s";
+    private final String STREAM_ATTRIBUTES_QUERY = "SELECT d.tenant_id, d.customer_id, d.id, d.created_time, d.name, d.type, d.label, " +
+            "a.attribute_key, a.bool_v, a.str_v, a.long_v, a.dbl_v, a.json_v, a.last_update_ts " +
+            "FROM (SELECT tenant_id, customer_id, id, created_time, name, type, label FROM device %s ORDER BY id LIMIT ?) d " +
+            "LEFT JOIN attribute_kv a ON a.entity_type = ? AND a.entity_id = d.id AND a.attribute_type = ? AND %s " +
+            "ORDER BY d.id";
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final TransactionTemplate transactionTemplate;
 
@@ -61,4 +81,93 @@ public class DefaultNativeDeviceRepository implements NativeDeviceRepository {
             return new PageData<>(data, totalPages, totalElements, hasNext);
         });
     }
+
+    @Override
+    public long streamDeviceAttributesInfos(String attributeScope, List<String> attributeKeys, int fetchSize, Predicate<DeviceAttributesInfo> consumer) {
+        // "IN ()" is not valid SQL, without keys the devices are returned without attributes
+        String keys = attributeKeys.isEmpty() ? "FALSE" :
+                attributeKeys.stream().map(key -> "?").collect(Collectors.joining(", ", "a.attribute_key IN (", ")"));
+        String firstPageSql = String.format(STREAM_ATTRIBUTES_QUERY, "", keys);
+        String nextPageSql = String.format(STREAM_ATTRIBUTES_QUERY, "WHERE id > ?", keys);
+        int pageSize = Math.max(1, fetchSize);
+        long processed = 0;
+        UUID lastId = null;
+        while (true) {
+            // every page is a separate short query, so the consumer never holds a transaction or a cursor open
+            List<DeviceAttributesInfo> page = findDeviceAttributesInfos(lastId == null ? firstPageSql : nextPageSql,
+                    lastId, pageSize, attributeScope, attributeKeys);
+            for (DeviceAttributesInfo info : page) {
+                processed++;
+                if (!consumer.test(info)) {
+                    return processed;
+                }
+            }
+            if (page.size() < pageSize) {
+                return processed;
+            }
+            lastId = page.get(page.size() - 1).getIdInfo().getDeviceId().getId();
+        }
+    }
+
+    private List<DeviceAttributesInfo> findDeviceAttributesInfos(String sql, UUID lastId, int pageSize, String attributeScope, List<String> attributeKeys) {
+        return jdbcTemplate.getJdbcTemplate().query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            int idx = 1;
+            if (lastId != null) {
+                ps.setObject(idx++, lastId);
+            }
+            ps.setInt(idx++, pageSize);
+            ps.setString(idx++, EntityType.DEVICE.name());
+            ps.setString(idx++, attributeScope);
+            for (String key : attributeKeys) {
+                ps.setString(idx++, key);
+            }
+            return ps;
+        }, rs -> {
+            List<DeviceAttributesInfo> infos = new ArrayList<>(pageSize);
+            UUID currentId = null;
+            DeviceAttributesInfo current = null;
+            while (rs.next()) {
+                UUID id = (UUID) rs.getObject("id");
+                if (!id.equals(currentId)) {
+                    currentId = id;
+                    current = toDeviceAttributesInfo(rs, id);
+                    infos.add(current);
+                }
+                String key = rs.getString("attribute_key");
+                if (key != null) {
+                    current.getAttributes().add(new BaseAttributeKvEntry(toKvEntry(rs, key), rs.getLong("last_update_ts")));
+                }
+            }
+            return infos;
+        });
+    }
+
+    private static DeviceAttributesInfo toDeviceAttributesInfo(ResultSet rs, UUID id) throws SQLException {
+        var tenantIdObj = rs.getObject("tenant_id");
+        var customerIdObj = rs.getObject("customer_id");
+        DeviceIdInfo idInfo = new DeviceIdInfo(tenantIdObj != null ? (UUID) tenantIdObj : TenantId.SYS_TENANT_ID.getId(), customerIdObj != null ? (UUID) customerIdObj : null, id);
+        List<AttributeKvEntry> attributes = new ArrayList<>();
+        return new DeviceAttributesInfo(idInfo, rs.getLong("created_time"), rs.getString("name"), rs.getString("type"), rs.getString("label"), attributes);
+    }
+
+    private static KvEntry toKvEntry(ResultSet rs, String key) throws SQLException {
+        String strV = rs.getString("str_v");
+        if (strV != null) {
+            return new StringDataEntry(key, strV);
+        }
+        boolean boolV = rs.getBoolean("bool_v");
+        if (!rs.wasNull()) {
+            return new BooleanDataEntry(key, boolV);
+        }
+        double dblV = rs.getDouble("dbl_v");
+        if (!rs.wasNull()) {
+            return new DoubleDataEntry(key, dblV);
+        }
+        long longV = rs.getLong("long_v");
+        if (!rs.wasNull()) {
+            return new LongDataEntry(key, longV);
+        }
+        return new JsonDataEntry(key, rs.getString("json_v"));
+    }
 }
@@ -24,6 +24,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.DeviceAttributesInfo;
 import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.DeviceInfo;
 import org.thingsboard.server.common.data.DeviceInfoFilter;
@@ -49,6 +50,7 @@ import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 /**
  * Created by Valerii Sosliuk on 5/6/2017.
@@ -280,6 +282,12 @@ public class JpaDeviceDao extends JpaAbstractSearchTextDao<DeviceEntity, Device>
         return nativeDeviceRepository.findDeviceIdInfos(DaoUtil.toPageable(pageLink));
     }
 
+    @Override
+    public long streamDeviceAttributesInfos(String attributeScope, List<String> attributeKeys, int fetchSize, Predicate<DeviceAttributesInfo> consumer) {
+        log.debug("Try to stream device attributes infos, scope [{}], keys {}", attributeScope, attributeKeys);
+        return nativeDeviceRepository.streamDeviceAttributesInfos(attributeScope, attributeKeys, fetchSize, consumer);
+    }
+
     @Override
     public Device findByTenantIdAndExternalId(UUID tenantId, UUID externalId) {
         return DaoUtil.getData(deviceRepository.findByTenantIdAndExternalId(tenantId, externalId));
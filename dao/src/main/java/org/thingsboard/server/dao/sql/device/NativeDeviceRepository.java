@@ -16,11 +16,24 @@
 package org.thingsboard.server.dao.sql.device;
 
 import org.springframework.data.domain.Pageable;
+import org.thingsboard.server.common.data.DeviceAttributesInfo;
 import org.thingsboard.server.common.data.DeviceIdInfo;
 import org.thingsboard.server.common.data.page.PageData;
 
+import java.util.List;
+import java.util.function.Predicate;
+
 public interface NativeDeviceRepository {
 
     PageData<DeviceIdInfo> findDeviceIdInfos(Pageable pageable);
 
+    /**
+     * Scans all devices in keyset pages of {@code fetchSize} devices ordered by id, joining the given attributes of the scope.
+     * Every page is a separate query outside of a transaction, so no connection or cursor is held while the consumer runs.
+     *
+     * @param consumer receives devices one by one; returning false stops the scan
+     * @return number of devices passed to the consumer
+     */
+    long streamDeviceAttributesInfos(String attributeScope, List<String> attributeKeys, int fetchSize, Predicate<DeviceAttributesInfo> consumer);
+
 }
@@ -15,16 +15,21 @@
  */
 package org.thingsboard.server.dao.sql.query;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.support.TransactionTemplate;
+import org.thingsboard.common.util.JacksonUtil;
 import org.thingsboard.server.common.data.EntityType;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.EntityIdFactory;
 import org.thingsboard.server.common.data.id.TenantId;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.query.ApiUsageStateFilter;
@@ -35,6 +40,7 @@ import org.thingsboard.server.common.data.query.DeviceTypeFilter;
 import org.thingsboard.server.common.data.query.EdgeSearchQueryFilter;
 import org.thingsboard.server.common.data.query.EdgeTypeFilter;
 import org.thingsboard.server.common.data.query.EntityCountQuery;
+import org.thingsboard.server.common.data.query.EntityDataCountMode;
 import org.thingsboard.server.common.data.query.EntityData;
 import org.thingsboard.server.common.data.query.EntityDataPageLink;
 import org.thingsboard.server.common.data.query.EntityDataQuery;
@@ -52,14 +58,20 @@ import org.thingsboard.server.common.data.query.RelationsQueryFilter;
 import org.thingsboard.server.common.data.query.SingleEntityFilter;
 import org.thingsboard.server.common.data.relation.EntitySearchDirection;
 import org.thingsboard.server.common.data.relation.RelationEntityTypeFilter;
+import org.thingsboard.server.dao.sql.relation.RelatedEntity;
+import org.thingsboard.server.dao.sql.relation.RelationGraphIndex;
 
+import javax.annotation.PostConstruct;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
 import java.util.stream.Collectors;
 
 @Repository
@@ -299,14 +311,32 @@ public class DefaultEntityQueryRepository implements EntityQueryRepository {
     @Value("${sql.relations.max_level:50}")
     int maxLevelAllowed; //This value has to be reasonable small to prevent infinite recursion as early as possible
 
+    @Value("${sql.entity_data_query.count_cache_ttl_ms:30000}")
+    private long countCacheTtlMs;
+
+    @Value("${sql.entity_data_query.count_cache_max_size:10000}")
+    private long countCacheMaxSize;
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final TransactionTemplate transactionTemplate;
     private final DefaultQueryLogComponent queryLog;
+    private final RelationGraphIndex relationGraphIndex;
+    private Cache<String, Integer> countCache;
 
-    public DefaultEntityQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate, DefaultQueryLogComponent queryLog) {
+    public DefaultEntityQueryRepository(NamedParameterJdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                        DefaultQueryLogComponent queryLog, RelationGraphIndex relationGraphIndex) {
         this.jdbcTemplate = jdbcTemplate;
         this.transactionTemplate = transactionTemplate;
         this.queryLog = queryLog;
+        this.relationGraphIndex = relationGraphIndex;
+    }
+
+    @PostConstruct
+    public void init() {
+        countCache = Caffeine.newBuilder()
+                .expireAfterWrite(countCacheTtlMs, TimeUnit.MILLISECONDS)
+                .maximumSize(countCacheMaxSize)
+                .build();
     }
 
     @Override
@@ -459,48 +489,135 @@ public class DefaultEntityQueryRepository implements EntityQueryRepository {
             }
             String countQuery = String.format("select count(id) %s", fromClauseCount);
 
-            long startTs = System.currentTimeMillis();
+            EntityDataCountMode countMode = pageLink.getCountModeOrDefault();
             int totalElements;
-            try {
-                totalElements = jdbcTemplate.queryForObject(countQuery, ctx, Integer.class);
-            } finally {
-                queryLog.logQuery(ctx, countQuery, System.currentTimeMillis() - startTs);
+            if (countMode == EntityDataCountMode.ESTIMATED) {
+                totalElements = estimateCount(ctx, fromClauseCount).orElseGet(() -> countEntityData(ctx, countQuery));
+            } else if (countMode == EntityDataCountMode.CACHED) {
+                totalElements = countCache.get(toCountCacheKey(ctx, countQuery), key -> countEntityData(ctx, countQuery));
+            } else {
+                totalElements = countEntityData(ctx, countQuery);
             }
 
-            if (totalElements == 0) {
+            if (totalElements == 0 && countMode != EntityDataCountMode.ESTIMATED) {
                 return new PageData<>();
             }
             String dataQuery = String.format("select * %s", fromClauseData);
 
             EntityDataSortOrder sortOrder = pageLink.getSortOrder();
+            EntityKeyMapping sortOrderMapping = null;
             if (sortOrder != null) {
-                Optional<EntityKeyMapping> sortOrderMappingOpt = mappings.stream().filter(EntityKeyMapping::isSortOrder).findFirst();
-                if (sortOrderMappingOpt.isPresent()) {
-                    EntityKeyMapping sortOrderMapping = sortOrderMappingOpt.get();
-                    String direction = sortOrder.getDirection() == EntityDataSortOrder.Direction.ASC ? "asc" : "desc";
-                    if (sortOrderMapping.getEntityKey().getType() == EntityKeyType.ENTITY_FIELD) {
-                        dataQuery = String.format("%s order by %s %s, result.id %s", dataQuery, sortOrderMapping.getValueAlias(), direction, direction);
-                    } else {
-                        dataQuery = String.format("%s order by %s %s, %s %s, result.id %s", dataQuery,
-                                sortOrderMapping.getSortOrderNumAlias(), direction, sortOrderMapping.getSortOrderStrAlias(), direction, direction);
-                    }
+                sortOrderMapping = mappings.stream().filter(EntityKeyMapping::isSortOrder).findFirst().orElse(null);
+            }
+            // Keyset pagination needs a single comparable sort column, so sorting by latest values falls back to offset
+            boolean keyset = pageLink.isKeyset() && pageLink.getPageSize() > 0 &&
+                    (sortOrderMapping == null || sortOrderMapping.getEntityKey().getType() == EntityKeyType.ENTITY_FIELD);
+            // The first page of keyset pagination is fetched with offset and must be sorted the way the next pages are
+            boolean keysetOrder = keyset || (pageLink.isKeysetPagination() && pageLink.getPageSize() > 0);
+            if (keyset) {
+                dataQuery = buildKeysetDataQuery(ctx, dataQuery, pageLink, sortOrderMapping);
+            } else if (sortOrderMapping != null) {
+                String direction = sortOrder.getDirection() == EntityDataSortOrder.Direction.ASC ? "asc" : "desc";
+                if (sortOrderMapping.getEntityKey().getType() == EntityKeyType.ENTITY_FIELD) {
+                    String sortValue = keysetOrder ? toEntityFieldSortValue(sortOrderMapping) : sortOrderMapping.getValueAlias();
+                    dataQuery = String.format("%s order by %s %s, result.id %s", dataQuery, sortValue, direction, direction);
+                } else {
+                    dataQuery = String.format("%s order by %s %s, %s %s, result.id %s", dataQuery,
+                            sortOrderMapping.getSortOrderNumAlias(), direction, sortOrderMapping.getSortOrderStrAlias(), direction, direction);
                 }
+            } else if (keysetOrder) {
+                dataQuery = String.format("%s order by result.id asc", dataQuery);
             }
             int startIndex = pageLink.getPageSize() * pageLink.getPage();
+            // Unless the total is exact, one more row is fetched to find out whether there is a next page
+            boolean probeNext = keyset || countMode != EntityDataCountMode.EXACT;
             if (pageLink.getPageSize() > 0) {
-                dataQuery = String.format("%s limit %s offset %s", dataQuery, pageLink.getPageSize(), startIndex);
+                int limit = probeNext ? pageLink.getPageSize() + 1 : pageLink.getPageSize();
+                if (keyset) {
+                    dataQuery = String.format("%s limit %s", dataQuery, limit);
+                } else {
+                    dataQuery = String.format("%s limit %s offset %s", dataQuery, limit, startIndex);
+                }
             }
-            startTs = System.currentTimeMillis();
+            long startTs = System.currentTimeMillis();
             List<Map<String, Object>> rows;
             try {
                 rows = jdbcTemplate.queryForList(dataQuery, ctx);
             } finally {
                 queryLog.logQuery(ctx, dataQuery, System.currentTimeMillis() - startTs);
             }
-            return EntityDataAdapter.createEntityData(pageLink, selectionMapping, rows, totalElements);
+            if (!probeNext) {
+                return EntityDataAdapter.createEntityData(pageLink, selectionMapping, rows, totalElements);
+            }
+            boolean hasNext = pageLink.getPageSize() > 0 && rows.size() > pageLink.getPageSize();
+            if (hasNext) {
+                rows = rows.subList(0, pageLink.getPageSize());
+            }
+            if (!keyset) {
+                // Cached or estimated total may be behind the actual number of entities
+                totalElements = Math.max(totalElements, startIndex + rows.size() + (hasNext ? 1 : 0));
+            }
+            return EntityDataAdapter.createEntityData(pageLink, selectionMapping, rows, totalElements, hasNext);
         });
     }
 
+    private int countEntityData(QueryContext ctx, String countQuery) {
+        long startTs = System.currentTimeMillis();
+        try {
+            return jdbcTemplate.queryForObject(countQuery, ctx, Integer.class);
+        } finally {
+            queryLog.logQuery(ctx, countQuery, System.currentTimeMillis() - startTs);
+        }
+    }
+
+    private Optional<Integer> estimateCount(QueryContext ctx, String fromClauseCount) {
+        String explainQuery = String.format("explain (format json) select id %s", fromClauseCount);
+        long startTs = System.currentTimeMillis();
+        try {
+            String plan = jdbcTemplate.queryForObject(explainQuery, ctx, String.class);
+            JsonNode planRows = JacksonUtil.toJsonNode(plan).path(0).path("Plan").path("Plan Rows");
+            return planRows.isNumber() ? Optional.of((int) Math.min(Integer.MAX_VALUE, planRows.asLong())) : Optional.empty();
+        } catch (Exception e) {
+            log.debug("Failed to estimate number of entities, falling back to count query", e);
+            return Optional.empty();
+        } finally {
+            queryLog.logQuery(ctx, explainQuery, System.currentTimeMillis() - startTs);
+        }
+    }
+
+    private static String toCountCacheKey(QueryContext ctx, String countQuery) {
+        StringBuilder key = new StringBuilder(countQuery);
+        for (String name : new TreeSet<>(Arrays.asList(ctx.getParameterNames()))) {
+            key.append('|').append(name).append('=').append(ctx.getValue(name));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Entity fields are returned to the client with nulls as empty strings, so keyset pages are sorted that way.
+     * The offset page that starts keyset pagination must use the same expression, otherwise the next pages skip entities.
+     */
+    private static String toEntityFieldSortValue(EntityKeyMapping sortOrderMapping) {
+        return String.format("coalesce(result.%s, '')", sortOrderMapping.getValueAlias());
+    }
+
+    /**
+     * Continues after the last entity of the previous page instead of skipping the previous pages with offset.
+     * Entity fields are selected as varchar, so the last sort value is compared as a string, with nulls treated as empty strings.
+     */
+    private String buildKeysetDataQuery(QueryContext ctx, String dataQuery, EntityDataPageLink pageLink, EntityKeyMapping sortOrderMapping) {
+        ctx.addUuidParameter("keyset_last_id", pageLink.getLastEntityId());
+        if (sortOrderMapping == null) {
+            return String.format("select * from (%s) result where result.id > :keyset_last_id order by result.id asc", dataQuery);
+        }
+        ctx.addStringParameter("keyset_last_value", pageLink.getLastSortValue() != null ? pageLink.getLastSortValue() : "");
+        boolean asc = pageLink.getSortOrder().getDirection() == EntityDataSortOrder.Direction.ASC;
+        String sortValue = toEntityFieldSortValue(sortOrderMapping);
+        String direction = asc ? "asc" : "desc";
+        return String.format("select * from (%s) result where (%s, result.id) %s (:keyset_last_value, :keyset_last_id) order by %s %s, result.id %s",
+                dataQuery, sortValue, asc ? ">" : "<", sortValue, direction, direction);
+    }
+
     private String buildEntityWhere(QueryContext ctx, EntityFilter entityFilter, List<EntityKeyMapping> entityFieldsFilters) {
         String permissionQuery = this.buildPermissionQuery(ctx, entityFilter);
         String entityFilterQuery = this.buildEntityFilterQuery(ctx, entityFilter);
@@ -621,6 +738,21 @@ public class DefaultEntityQueryRepository implements EntityQueryRepository {
         String selectFields = "SELECT tenant_id, customer_id, id, created_time, type, name, additional_info "
                 + (entityType.equals(EntityType.ENTITY_VIEW) ? "" : ", label ")
                 + "FROM " + entityType.name() + " WHERE id in ( SELECT entity_id";
+        List<RelatedEntity> indexedEntities = null;
+        if (!entityFilter.isFetchLastLevelOnly()) {
+            String relationType = entityFilter.getRelationType();
+            indexedEntities = relationGraphIndex.findRelated(ctx.getTenantId(), Collections.singletonList(rootId), entityFilter.getDirection(),
+                    getMaxLevel(entityFilter.getMaxLevel()), false,
+                    (type, relatedType) -> entityType.equals(relatedType) && (StringUtils.isEmpty(relationType) || relationType.equals(type)));
+        }
+        if (indexedEntities != null) {
+            String query = "( " + selectFields + indexedEntitiesQuery(ctx, indexedEntities, false) + ")";
+            if (types != null && !types.isEmpty()) {
+                query += " and type in (:relation_sub_types)";
+                ctx.addStringListParameter("relation_sub_types", types);
+            }
+            return query + " )";
+        }
         String from = getQueryTemplate(entityFilter.getDirection(), false);
         String whereFilter = " WHERE";
         if (!StringUtils.isEmpty(entityFilter.getRelationType())) {
@@ -667,6 +799,10 @@ public class DefaultEntityQueryRepository implements EntityQueryRepository {
                 SELECT_ADDRESS + ", " + SELECT_ADDRESS_2 + ", " + SELECT_ZIP + ", " + SELECT_PHONE + ", " +
                 SELECT_ADDITIONAL_INFO + (entityFilter.isMultiRoot() ? (", " + SELECT_RELATED_PARENT_ID) : "") +
                 ", entity.entity_type as entity_type";
+        List<RelatedEntity> indexedEntities = findIndexedRelatedEntities(ctx, entityFilter);
+        if (indexedEntities != null) {
+            return "( " + selectFields + indexedEntitiesQuery(ctx, indexedEntities, entityFilter.isMultiRoot()) + ")";
+        }
         String from = getQueryTemplate(entityFilter.getDirection(), entityFilter.isMultiRoot());
 
         if (entityFilter.isMultiRoot()) {
@@ -732,6 +868,48 @@ public class DefaultEntityQueryRepository implements EntityQueryRepository {
         return "( " + selectFields + from + ")";
     }
 
+    private List<RelatedEntity> findIndexedRelatedEntities(QueryContext ctx, RelationsQueryFilter entityFilter) {
+        if (entityFilter.isFetchLastLevelOnly()) {
+            return null;
+        }
+        List<EntityId> roots;
+        if (entityFilter.isMultiRoot()) {
+            roots = entityFilter.getMultiRootEntityIds().stream()
+                    .map(id -> EntityIdFactory.getByTypeAndUuid(entityFilter.getMultiRootEntitiesType(), id))
+                    .collect(Collectors.toList());
+        } else {
+            roots = Collections.singletonList(entityFilter.getRootEntity());
+        }
+        // Same semantics as buildEtfCondition: filters without conditions are ignored, no conditions at all means default entity types
+        List<RelationEntityTypeFilter> filters = entityFilter.getFilters() == null ? Collections.emptyList() : entityFilter.getFilters().stream()
+                .filter(etf -> !StringUtils.isEmpty(etf.getRelationType()) || (etf.getEntityTypes() != null && !etf.getEntityTypes().isEmpty()))
+                .collect(Collectors.toList());
+        BiPredicate<String, EntityType> filter;
+        if (filters.isEmpty()) {
+            List<EntityType> defaultTypes = Arrays.asList(RELATION_QUERY_ENTITY_TYPES);
+            filter = (type, relatedType) -> defaultTypes.contains(relatedType);
+        } else {
+            filter = (type, relatedType) -> filters.stream().anyMatch(etf ->
+                    (StringUtils.isEmpty(etf.getRelationType()) || etf.getRelationType().equals(type)) &&
+                            (etf.getEntityTypes() == null || etf.getEntityTypes().isEmpty() || etf.getEntityTypes().contains(relatedType)));
+        }
+        return relationGraphIndex.findRelated(ctx.getTenantId(), roots, entityFilter.getDirection(),
+                getMaxLevel(entityFilter.getMaxLevel()), entityFilter.isMultiRoot(), filter);
+    }
+
+    private String indexedEntitiesQuery(QueryContext ctx, List<RelatedEntity> entities, boolean withParents) {
+        ctx.addStringParameter("indexed_entity_ids", entities.stream().map(e -> e.getId().toString()).collect(Collectors.joining(",")));
+        ctx.addStringParameter("indexed_entity_types", entities.stream().map(e -> e.getEntityType().name()).collect(Collectors.joining(",")));
+        if (withParents) {
+            ctx.addStringParameter("indexed_parent_ids", entities.stream().map(e -> e.getParentId().toString()).collect(Collectors.joining(",")));
+            return " FROM unnest(string_to_array(:indexed_entity_ids, ',')::uuid[], string_to_array(:indexed_entity_types, ','), " +
+                    "string_to_array(:indexed_parent_ids, ',')::uuid[]) AS entity(entity_id, entity_type, parent_id)";
+        } else {
+            return " FROM unnest(string_to_array(:indexed_entity_ids, ',')::uuid[], string_to_array(:indexed_entity_types, ','))" +
+                    " AS entity(entity_id, entity_type)";
+        }
+    }
+
     private String buildEtfCondition(QueryContext ctx, RelationEntityTypeFilter etf, EntitySearchDirection direction, int entityTypeFilterIdx) {
         StringBuilder whereFilter = new StringBuilder();
         String relationType = etf.getRelationType();
@@ -0,0 +1,176 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.relation;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.thingsboard.common.util.ThingsBoardThreadFactory;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.dao.relation.EntityRelationEvent;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+
+/**
+ * Optional per-tenant in-memory index of COMMON relations used to resolve multi-level relation
+ * queries without recursive SQL. The index of a tenant is loaded asynchronously on first use,
+ * kept up to date from relation events of this node and periodically reloaded to pick up
+ * changes made by other nodes of the cluster.
+ */
+@Slf4j
+@Component
+public class RelationGraphIndex {
+
+    private static final String TENANT_ENTITIES_QUERY = "SELECT CAST(:tenant_id AS uuid) AS id" +
+            " UNION ALL SELECT id FROM customer WHERE tenant_id = :tenant_id" +
+            " UNION ALL SELECT id FROM tb_user WHERE tenant_id = :tenant_id" +
+            " UNION ALL SELECT id FROM dashboard WHERE tenant_id = :tenant_id" +
+            " UNION ALL SELECT id FROM asset WHERE tenant_id = :tenant_id" +
+            " UNION ALL SELECT id FROM device WHERE tenant_id = :tenant_id" +
+            " UNION ALL SELECT id FROM entity_view WHERE tenant_id = :tenant_id" +
+            " UNION ALL SELECT id FROM edge WHERE tenant_id = :tenant_id";
+
+    private static final String TENANT_RELATIONS_QUERY = "WITH tenant_entities AS (" + TENANT_ENTITIES_QUERY + ")" +
+            " SELECT r.from_id, r.from_type, r.to_id, r.to_type, r.relation_type FROM relation r" +
+            " WHERE r.relation_type_group = 'COMMON'" +
+            " AND (r.from_id IN (SELECT id FROM tenant_entities) OR r.to_id IN (SELECT id FROM tenant_entities))" +
+            " LIMIT :limit";
+
+    @Value("${sql.relations.graph_index.enabled:false}")
+    private boolean enabled;
+
+    @Value("${sql.relations.graph_index.max_relations_per_tenant:1000000}")
+    private int maxRelationsPerTenant;
+
+    @Value("${sql.relations.graph_index.max_tenants:1000}")
+    private long maxTenants;
+
+    @Value("${sql.relations.graph_index.reload_interval_sec:300}")
+    private long reloadIntervalSec;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private ExecutorService loadExecutor;
+    private LoadingCache<TenantId, TenantRelationGraphHolder> graphs;
+
+    public RelationGraphIndex(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            loadExecutor = Executors.newSingleThreadExecutor(ThingsBoardThreadFactory.forName("relation-graph-index"));
+            graphs = Caffeine.newBuilder()
+                    .maximumSize(maxTenants)
+                    .refreshAfterWrite(reloadIntervalSec, TimeUnit.SECONDS)
+                    .executor(loadExecutor)
+                    .build(new CacheLoader<>() {
+                        @Override
+                        public TenantRelationGraphHolder load(TenantId tenantId) {
+                            // the holder is returned right away, queries go to the database until the graph is loaded
+                            TenantRelationGraphHolder holder = new TenantRelationGraphHolder();
+                            loadExecutor.execute(() -> reloadGraph(tenantId, holder));
+                            return holder;
+                        }
+
+                        @Override
+                        public TenantRelationGraphHolder reload(TenantId tenantId, TenantRelationGraphHolder holder) {
+                            reloadGraph(tenantId, holder);
+                            return holder;
+                        }
+                    });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (loadExecutor != null) {
+            loadExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the entities related to the roots, or {@code null} if the relations of the tenant are not indexed (yet)
+     * and the query should be executed against the database.
+     */
+    public List<RelatedEntity> findRelated(TenantId tenantId, Collection<? extends EntityId> roots, EntitySearchDirection direction,
+                                           int maxLevel, boolean withParents, BiPredicate<String, EntityType> filter) {
+        if (!enabled || tenantId == null || tenantId.isSysTenantId()) {
+            return null;
+        }
+        TenantRelationGraph graph = graphs.get(tenantId).getGraph();
+        return graph != null ? graph.findRelated(roots, direction, maxLevel, withParents, filter) : null;
+    }
+
+    public void onRelationEvent(EntityRelationEvent event) {
+        if (!enabled || event.getTenantId() == null || !RelationTypeGroup.COMMON.equals(event.getTypeGroup())) {
+            return;
+        }
+        TenantRelationGraphHolder holder = graphs.getIfPresent(event.getTenantId());
+        if (holder != null) {
+            holder.onRelationEvent(event);
+        }
+    }
+
+    private void reloadGraph(TenantId tenantId, TenantRelationGraphHolder holder) {
+        holder.startReload();
+        holder.finishReload(loadGraph(tenantId).orElse(null));
+    }
+
+    private Optional<TenantRelationGraph> loadGraph(TenantId tenantId) {
+        long startTs = System.currentTimeMillis();
+        TenantRelationGraph graph = new TenantRelationGraph();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenant_id", tenantId.getId())
+                .addValue("limit", maxRelationsPerTenant + 1);
+        try {
+            jdbcTemplate.query(TENANT_RELATIONS_QUERY, params, rs -> {
+                graph.load(rs.getObject("from_id", UUID.class), EntityType.valueOf(rs.getString("from_type")),
+                        rs.getObject("to_id", UUID.class), EntityType.valueOf(rs.getString("to_type")), rs.getString("relation_type"));
+            });
+        } catch (Exception e) {
+            log.warn("[{}] Failed to load relation graph index", tenantId, e);
+            return Optional.empty();
+        }
+        if (graph.getRelationCount() > maxRelationsPerTenant) {
+            log.info("[{}] Tenant has more than {} relations, relation queries will not use the graph index", tenantId, maxRelationsPerTenant);
+            return Optional.empty();
+        }
+        log.debug("[{}] Loaded relation graph index with {} entities and {} relations in {} ms",
+                tenantId, graph.getNodeCount(), graph.getRelationCount(), System.currentTimeMillis() - startTs);
+        return Optional.of(graph);
+    }
+
+}
@@ -0,0 +1,250 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.relation;
+
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiPredicate;
+
+/**
+ * Adjacency index of the COMMON relations of a single tenant.
+ * Nodes are addressed by int index and stored in primitive arrays; every node keeps packed
+ * (node index, relation type index) pairs for its outbound and inbound relations.
+ */
+class TenantRelationGraph {
+
+    private static final EntityType[] ENTITY_TYPES = EntityType.values();
+    private static final int[] NO_EDGES = new int[0];
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Integer> nodeIndex = new HashMap<>();
+    private final Map<String, Integer> relationTypeIndex = new HashMap<>();
+    private final List<String> relationTypes = new ArrayList<>();
+
+    private long[] nodeMsb = new long[16];
+    private long[] nodeLsb = new long[16];
+    private byte[] nodeTypes = new byte[16];
+    private int[][] outEdges = new int[16][];
+    private int[] outSizes = new int[16];
+    private int[][] inEdges = new int[16][];
+    private int[] inSizes = new int[16];
+    private int nodeCount;
+    private int relationCount;
+
+    int getNodeCount() {
+        return nodeCount;
+    }
+
+    int getRelationCount() {
+        return relationCount;
+    }
+
+    /**
+     * Adds the relation without checking for duplicates. Used for the initial load only,
+     * where uniqueness is guaranteed by the primary key of the relation table.
+     */
+    void load(UUID fromId, EntityType fromType, UUID toId, EntityType toType, String relationType) {
+        lock.writeLock().lock();
+        try {
+            doAdd(getOrCreateNode(fromId, fromType), getOrCreateNode(toId, toType), getOrCreateRelationType(relationType));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean addRelation(EntityId from, EntityId to, String relationType) {
+        lock.writeLock().lock();
+        try {
+            int fromIdx = getOrCreateNode(from.getId(), from.getEntityType());
+            int toIdx = getOrCreateNode(to.getId(), to.getEntityType());
+            int typeIdx = getOrCreateRelationType(relationType);
+            if (indexOf(outEdges[fromIdx], outSizes[fromIdx], toIdx, typeIdx) >= 0) {
+                return false;
+            }
+            doAdd(fromIdx, toIdx, typeIdx);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean removeRelation(EntityId from, EntityId to, String relationType) {
+        lock.writeLock().lock();
+        try {
+            Integer fromIdx = nodeIndex.get(from.getId());
+            Integer toIdx = nodeIndex.get(to.getId());
+            Integer typeIdx = relationTypeIndex.get(relationType);
+            if (fromIdx == null || toIdx == null || typeIdx == null) {
+                return false;
+            }
+            int outPos = indexOf(outEdges[fromIdx], outSizes[fromIdx], toIdx, typeIdx);
+            if (outPos < 0) {
+                return false;
+            }
+            outSizes[fromIdx] = removeAt(outEdges[fromIdx], outSizes[fromIdx], outPos);
+            int inPos = indexOf(inEdges[toIdx], inSizes[toIdx], fromIdx, typeIdx);
+            inSizes[toIdx] = removeAt(inEdges[toIdx], inSizes[toIdx], inPos);
+            relationCount--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Breadth-first traversal that mirrors the recursive relation query: every relation whose
+     * source is reachable from one of the roots within {@code maxLevel - 1} hops is a candidate,
+     * and the ones accepted by the filter contribute their target entity to the result.
+     *
+     * @param withParents whether distinct (entity, parent) pairs should be returned instead of distinct entities
+     * @param filter      accepts the relation type and the type of the related entity
+     */
+    List<RelatedEntity> findRelated(Collection<? extends EntityId> roots, EntitySearchDirection direction, int maxLevel,
+                                    boolean withParents, BiPredicate<String, EntityType> filter) {
+        lock.readLock().lock();
+        try {
+            int[][] edges = EntitySearchDirection.FROM.equals(direction) ? outEdges : inEdges;
+            int[] sizes = EntitySearchDirection.FROM.equals(direction) ? outSizes : inSizes;
+            int[] levels = new int[nodeCount];
+            Arrays.fill(levels, -1);
+            int[] queue = new int[nodeCount];
+            int head = 0;
+            int tail = 0;
+            for (EntityId root : roots) {
+                Integer rootIdx = nodeIndex.get(root.getId());
+                if (rootIdx != null && levels[rootIdx] < 0 && nodeTypes[rootIdx] == root.getEntityType().ordinal()) {
+                    levels[rootIdx] = 0;
+                    queue[tail++] = rootIdx;
+                }
+            }
+            List<RelatedEntity> result = new ArrayList<>();
+            BitSet selected = new BitSet(nodeCount);
+            Set<Long> selectedPairs = withParents ? new HashSet<>() : null;
+            while (head < tail) {
+                int node = queue[head++];
+                int level = levels[node];
+                if (level >= maxLevel) {
+                    continue;
+                }
+                int[] nodeEdges = edges[node];
+                for (int i = 0; i < sizes[node]; i += 2) {
+                    int related = nodeEdges[i];
+                    if (filter.test(relationTypes.get(nodeEdges[i + 1]), ENTITY_TYPES[nodeTypes[related]])) {
+                        if (withParents) {
+                            if (selectedPairs.add(((long) related << 32) | node)) {
+                                result.add(new RelatedEntity(toUuid(related), ENTITY_TYPES[nodeTypes[related]], toUuid(node)));
+                            }
+                        } else if (!selected.get(related)) {
+                            selected.set(related);
+                            result.add(new RelatedEntity(toUuid(related), ENTITY_TYPES[nodeTypes[related]], null));
+                        }
+                    }
+                    if (levels[related] < 0) {
+                        levels[related] = level + 1;
+                        queue[tail++] = related;
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void doAdd(int fromIdx, int toIdx, int typeIdx) {
+        outEdges[fromIdx] = append(outEdges[fromIdx], outSizes[fromIdx], toIdx, typeIdx);
+        outSizes[fromIdx] += 2;
+        inEdges[toIdx] = append(inEdges[toIdx], inSizes[toIdx], fromIdx, typeIdx);
+        inSizes[toIdx] += 2;
+        relationCount++;
+    }
+
+    private int getOrCreateNode(UUID id, EntityType type) {
+        Integer idx = nodeIndex.get(id);
+        if (idx != null) {
+            return idx;
+        }
+        if (nodeCount == nodeMsb.length) {
+            int capacity = nodeCount * 2;
+            nodeMsb = Arrays.copyOf(nodeMsb, capacity);
+            nodeLsb = Arrays.copyOf(nodeLsb, capacity);
+            nodeTypes = Arrays.copyOf(nodeTypes, capacity);
+            outEdges = Arrays.copyOf(outEdges, capacity);
+            outSizes = Arrays.copyOf(outSizes, capacity);
+            inEdges = Arrays.copyOf(inEdges, capacity);
+            inSizes = Arrays.copyOf(inSizes, capacity);
+        }
+        int newIdx = nodeCount++;
+        nodeMsb[newIdx] = id.getMostSignificantBits();
+        nodeLsb[newIdx] = id.getLeastSignificantBits();
+        nodeTypes[newIdx] = (byte) type.ordinal();
+        outEdges[newIdx] = NO_EDGES;
+        inEdges[newIdx] = NO_EDGES;
+        nodeIndex.put(id, newIdx);
+        return newIdx;
+    }
+
+    private int getOrCreateRelationType(String relationType) {
+        return relationTypeIndex.computeIfAbsent(relationType, type -> {
+            relationTypes.add(type);
+            return relationTypes.size() - 1;
+        });
+    }
+
+    private UUID toUuid(int node) {
+        return new UUID(nodeMsb[node], nodeLsb[node]);
+    }
+
+    private static int[] append(int[] edges, int size, int node, int typeIdx) {
+        if (size + 2 > edges.length) {
+            edges = Arrays.copyOf(edges, Math.max(4, edges.length * 2));
+        }
+        edges[size] = node;
+        edges[size + 1] = typeIdx;
+        return edges;
+    }
+
+    private static int indexOf(int[] edges, int size, int node, int typeIdx) {
+        for (int i = 0; i < size; i += 2) {
+            if (edges[i] == node && edges[i + 1] == typeIdx) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int removeAt(int[] edges, int size, int pos) {
+        int last = size - 2;
+        edges[pos] = edges[last];
+        edges[pos + 1] = edges[last + 1];
+        return last;
+    }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.relation;
+
+import org.thingsboard.server.dao.relation.EntityRelationEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Relation graph of a single tenant that may be replaced by a reload at any time.
+ * Relation events received while a reload is in progress are kept and replayed onto the reloaded graph,
+ * because the database snapshot it was loaded from may or may not include them.
+ */
+class TenantRelationGraphHolder {
+
+    private volatile TenantRelationGraph graph;
+    // not null while a reload is in progress, guarded by this
+    private List<EntityRelationEvent> pendingEvents = new ArrayList<>();
+
+    /**
+     * Returns the current graph, or {@code null} if the graph is not loaded (yet) or the tenant is not indexed.
+     */
+    TenantRelationGraph getGraph() {
+        return graph;
+    }
+
+    synchronized void onRelationEvent(EntityRelationEvent event) {
+        if (graph != null) {
+            apply(graph, event);
+        }
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+        }
+    }
+
+    synchronized void startReload() {
+        if (pendingEvents == null) {
+            pendingEvents = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Replays the events received since {@link #startReload()} onto the reloaded graph and replaces the current one.
+     *
+     * @param reloadedGraph the reloaded graph, or {@code null} if the tenant can't be indexed
+     */
+    synchronized void finishReload(TenantRelationGraph reloadedGraph) {
+        if (reloadedGraph != null && pendingEvents != null) {
+            pendingEvents.forEach(event -> apply(reloadedGraph, event));
+        }
+        pendingEvents = null;
+        graph = reloadedGraph;
+    }
+
+    private static void apply(TenantRelationGraph graph, EntityRelationEvent event) {
+        if (event.isDeleted()) {
+            graph.removeRelation(event.getFrom(), event.getTo(), event.getType());
+        } else {
+            graph.addRelation(event.getFrom(), event.getTo(), event.getType());
+        }
+    }
+
+}
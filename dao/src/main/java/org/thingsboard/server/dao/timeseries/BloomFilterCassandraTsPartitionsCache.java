@@ -0,0 +1,188 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Partitions cache that keeps a few bits per partition instead of a full map entry.
+ * <p>
+ * Each generation is a scalable bloom filter: when the last filter reaches its capacity a new one
+ * with twice the capacity and half the false positive probability is appended.
+ * Generations are rotated every rotation period and every generation hashes keys with its own random seed.
+ * Lookups check the current and the previous generation, inserts go to the current one only,
+ * so a partition is re-inserted at least once per two rotation periods and a false positive
+ * can not hide a missing partition for longer than that.
+ */
+@Slf4j
+public class BloomFilterCassandraTsPartitionsCache implements CassandraTsPartitionsCache {
+
+    private final long initialCapacity;
+    private final double fpp;
+    private final long rotationPeriodMs;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    public BloomFilterCassandraTsPartitionsCache(long initialCapacity, double fpp, long rotationPeriodMs) {
+        this.initialCapacity = initialCapacity;
+        this.fpp = fpp;
+        this.rotationPeriodMs = rotationPeriodMs;
+        this.current = new Generation(System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean has(CassandraPartitionCacheKey key) {
+        rotateIfNeeded(System.currentTimeMillis());
+        lookups.incrementAndGet();
+        Generation previous = this.previous;
+        boolean result = current.mightContain(key) || (previous != null && previous.mightContain(key));
+        if (result) {
+            hits.incrementAndGet();
+        }
+        return result;
+    }
+
+    @Override
+    public void put(CassandraPartitionCacheKey key) {
+        current.put(key);
+    }
+
+    void rotateIfNeeded(long ts) {
+        if (ts - current.startTs < rotationPeriodMs) {
+            return;
+        }
+        synchronized (this) {
+            if (ts - current.startTs >= rotationPeriodMs) {
+                log.info("Rotating ts partitions bloom filter: {}", current);
+                previous = current;
+                current = new Generation(ts);
+            }
+        }
+    }
+
+    /**
+     * @return probability that a partition that was never inserted is reported as present
+     */
+    double getFalsePositiveProbability() {
+        Generation previous = this.previous;
+        double notFalsePositive = 1.0 - current.getFalsePositiveProbability();
+        if (previous != null) {
+            notFalsePositive *= 1.0 - previous.getFalsePositiveProbability();
+        }
+        return 1.0 - notFalsePositive;
+    }
+
+    @Override
+    public void printStats() {
+        long lookups = this.lookups.getAndSet(0);
+        long hits = this.hits.getAndSet(0);
+        if (lookups > 0) {
+            log.info("Ts partitions bloom filter stats: lookups [{}], hits [{}], false positive probability [{}], current {}",
+                    lookups, hits, String.format("%.6f", getFalsePositiveProbability()), current);
+        }
+    }
+
+    private class Generation {
+
+        private final long startTs;
+        private final Funnel<CassandraPartitionCacheKey> funnel;
+        private final List<Slice> slices = new CopyOnWriteArrayList<>();
+
+        private Generation(long startTs) {
+            this.startTs = startTs;
+            long seed = ThreadLocalRandom.current().nextLong();
+            this.funnel = (key, into) -> into
+                    .putLong(seed)
+                    .putString(key.getEntityId().getEntityType().name(), StandardCharsets.UTF_8)
+                    .putLong(key.getEntityId().getId().getMostSignificantBits())
+                    .putLong(key.getEntityId().getId().getLeastSignificantBits())
+                    .putString(key.getKey(), StandardCharsets.UTF_8)
+                    .putLong(key.getPartition());
+            slices.add(new Slice(funnel, initialCapacity, fpp));
+        }
+
+        private boolean mightContain(CassandraPartitionCacheKey key) {
+            for (Slice slice : slices) {
+                if (slice.filter.mightContain(key)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void put(CassandraPartitionCacheKey key) {
+            if (mightContain(key)) {
+                return;
+            }
+            Slice last = slices.get(slices.size() - 1);
+            if (last.filter.put(key) && last.size.incrementAndGet() >= last.capacity) {
+                synchronized (this) {
+                    if (slices.get(slices.size() - 1) == last) {
+                        slices.add(new Slice(funnel, last.capacity * 2, last.fpp / 2));
+                    }
+                }
+            }
+        }
+
+        private double getFalsePositiveProbability() {
+            double notFalsePositive = 1.0;
+            for (Slice slice : slices) {
+                notFalsePositive *= 1.0 - slice.filter.expectedFpp();
+            }
+            return 1.0 - notFalsePositive;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (Slice slice : slices) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(slice.size.get()).append('/').append(slice.capacity)
+                        .append(" (fill ratio ").append(String.format("%.2f", (double) slice.size.get() / slice.capacity)).append(')');
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    private static class Slice {
+
+        private final BloomFilter<CassandraPartitionCacheKey> filter;
+        private final long capacity;
+        private final double fpp;
+        private final AtomicLong size = new AtomicLong();
+
+        private Slice(Funnel<CassandraPartitionCacheKey> funnel, long capacity, double fpp) {
+            this.filter = BloomFilter.create(funnel, capacity, fpp);
+            this.capacity = capacity;
+            this.fpp = fpp;
+        }
+    }
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+import org.thingsboard.server.cache.TbCacheValueWrapper;
+import org.thingsboard.server.cache.TbTransactionalCache;
+import org.thingsboard.server.common.data.StringUtils;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.DeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.cache.CacheExecutorService;
+
+import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keeps the latest value of every (entity, key) in the "tsLatest" cache in front of the actual {@link TimeseriesLatestDao}.
+ * Values are loaded on a miss. On save they are written through to the local cache and evicted from the distributed one.
+ */
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "cache.ts_latest", value = "enabled", havingValue = "true")
+@Slf4j
+public class CachedTimeseriesLatestDao implements TimeseriesLatestDao {
+    private static final String STATS_NAME = "tsLatest.cache";
+    public static final String LOCAL_CACHE_TYPE = "caffeine";
+    private static final int SAVE_LOCKS = 256;
+
+    private final TimeseriesLatestDao timeseriesLatestDao;
+    private final CacheExecutorService cacheExecutorService;
+    private final TbTransactionalCache<TsLatestCacheKey, TsKvEntry> cache;
+    private final DefaultCounter hitCounter;
+    private final DefaultCounter missCounter;
+    private final Object[] saveLocks = new Object[SAVE_LOCKS];
+    private ListeningExecutorService cacheExecutor;
+    private boolean localCache;
+
+    @Value("${cache.type:caffeine}")
+    private String cacheType;
+
+    public CachedTimeseriesLatestDao(TimeseriesLatestDao timeseriesLatestDao,
+                                     StatsFactory statsFactory,
+                                     CacheExecutorService cacheExecutorService,
+                                     TbTransactionalCache<TsLatestCacheKey, TsKvEntry> cache) {
+        this.timeseriesLatestDao = timeseriesLatestDao;
+        this.cacheExecutorService = cacheExecutorService;
+        this.cache = cache;
+
+        this.hitCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "hit");
+        this.missCounter = statsFactory.createDefaultCounter(STATS_NAME, "result", "miss");
+        for (int i = 0; i < saveLocks.length; i++) {
+            saveLocks[i] = new Object();
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        this.localCache = StringUtils.isEmpty(cacheType) || LOCAL_CACHE_TYPE.equals(cacheType);
+        if (localCache) {
+            this.cacheExecutor = MoreExecutors.newDirectExecutorService();
+        } else {
+            this.cacheExecutor = cacheExecutorService.executor();
+        }
+        log.info("Latest timeseries cache is enabled for the {} cache type", cacheType);
+    }
+
+    @Override
+    public ListenableFuture<Optional<TsKvEntry>> findLatestOpt(TenantId tenantId, EntityId entityId, String key) {
+        TsLatestCacheKey cacheKey = new TsLatestCacheKey(entityId, key);
+        TbCacheValueWrapper<TsKvEntry> cachedValue = cache.get(cacheKey);
+        if (cachedValue != null) {
+            hitCounter.increment();
+            return Futures.immediateFuture(Optional.ofNullable(cachedValue.get()));
+        }
+        missCounter.increment();
+        var cacheTransaction = cache.newTransactionForKey(cacheKey);
+        ListenableFuture<Optional<TsKvEntry>> future;
+        try {
+            future = timeseriesLatestDao.findLatestOpt(tenantId, entityId, key);
+        } catch (Throwable e) {
+            cacheTransaction.rollback();
+            throw e;
+        }
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(@Nullable Optional<TsKvEntry> result) {
+                try {
+                    cacheTransaction.putIfAbsent(cacheKey, result != null ? result.orElse(null) : null);
+                    cacheTransaction.commit();
+                } catch (Throwable e) {
+                    cacheTransaction.rollback();
+                    log.debug("[{}][{}] Failed to put latest value to cache", entityId, key, e);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                cacheTransaction.rollback();
+            }
+        }, cacheExecutor);
+        return future;
+    }
+
+    @Override
+    public ListenableFuture<TsKvEntry> findLatest(TenantId tenantId, EntityId entityId, String key) {
+        return Futures.transform(findLatestOpt(tenantId, entityId, key),
+                latest -> latest.orElseGet(() -> new BasicTsKvEntry(System.currentTimeMillis(), new StringDataEntry(key, null))),
+                MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public ListenableFuture<List<TsKvEntry>> findAllLatest(TenantId tenantId, EntityId entityId) {
+        return timeseriesLatestDao.findAllLatest(tenantId, entityId);
+    }
+
+    @Override
+    public ListenableFuture<Void> saveLatest(TenantId tenantId, EntityId entityId, TsKvEntry tsKvEntry) {
+        ListenableFuture<Void> future = timeseriesLatestDao.saveLatest(tenantId, entityId, tsKvEntry);
+        return Futures.transform(future, v -> {
+            TsLatestCacheKey cacheKey = new TsLatestCacheKey(entityId, tsKvEntry.getKey());
+            try {
+                if (localCache) {
+                    // the check and the put must be atomic, otherwise a concurrent save of an older value may overwrite a newer one
+                    Object lock = saveLocks[(cacheKey.hashCode() & 0x7fffffff) % saveLocks.length];
+                    synchronized (lock) {
+                        TbCacheValueWrapper<TsKvEntry> cachedValue = cache.get(cacheKey);
+                        TsKvEntry cachedEntry = cachedValue != null ? cachedValue.get() : null;
+                        if (cachedEntry != null && cachedEntry.getTs() > tsKvEntry.getTs()) {
+                            // the storage may or may not keep the older value, so let the next read load it
+                            cache.evict(cacheKey);
+                        } else {
+                            cache.put(cacheKey, tsKvEntry);
+                        }
+                    }
+                } else {
+                    // saves on other nodes can't be ordered with the local ones, so the value is not written through
+                    cache.evictOrPut(cacheKey, tsKvEntry);
+                }
+            } catch (Throwable e) {
+                log.debug("[{}][{}] Failed to put latest value to cache", entityId, tsKvEntry.getKey(), e);
+                cache.evict(cacheKey);
+            }
+            return v;
+        }, cacheExecutor);
+    }
+
+    @Override
+    public ListenableFuture<TsKvLatestRemovingResult> removeLatest(TenantId tenantId, EntityId entityId, DeleteTsKvQuery query) {
+        ListenableFuture<TsKvLatestRemovingResult> future = timeseriesLatestDao.removeLatest(tenantId, entityId, query);
+        return Futures.transform(future, result -> {
+            cache.evict(new TsLatestCacheKey(entityId, query.getKey()));
+            return result;
+        }, cacheExecutor);
+    }
+
+    @Override
+    public List<String> findAllKeysByDeviceProfileId(TenantId tenantId, DeviceProfileId deviceProfileId) {
+        return timeseriesLatestDao.findAllKeysByDeviceProfileId(tenantId, deviceProfileId);
+    }
+
+    @Override
+    public List<String> findAllKeysByEntityIds(TenantId tenantId, List<EntityId> entityIds) {
+        return timeseriesLatestDao.findAllKeysByEntityIds(tenantId, entityIds);
+    }
+
+}
@@ -34,6 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.core.env.Profiles;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -46,7 +47,9 @@ import org.thingsboard.server.common.data.kv.ReadTsKvQuery;
 import org.thingsboard.server.common.data.kv.ReadTsKvQueryResult;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntryAggWrapper;
+import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.dao.model.ModelConstants;
+import org.thingsboard.server.dao.nosql.CassandraWriteCoalescer;
 import org.thingsboard.server.dao.nosql.TbResultSet;
 import org.thingsboard.server.dao.nosql.TbResultSetFuture;
 import org.thingsboard.server.dao.sqlts.AggregationTimeseriesDao;
@@ -100,12 +103,32 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
     @Value("${cassandra.query.ts_key_value_partitions_max_cache_size:100000}")
     private long partitionsCacheSize;
 
+    @Value("${cassandra.query.ts_key_value_partitions_cache_type:caffeine}")
+    private String partitionsCacheType;
+
+    @Value("${cassandra.query.ts_key_value_partitions_bloom_filter_fpp:0.001}")
+    private double partitionsBloomFilterFpp;
+
+    @Value("${cassandra.query.ts_key_value_partitions_bloom_filter_rotation_period_sec:3600}")
+    private long partitionsBloomFilterRotationPeriodSec;
+
     @Value("${cassandra.query.ts_key_value_ttl}")
     private long systemTtl;
 
     @Value("${cassandra.query.set_null_values_enabled}")
     private boolean setNullValuesEnabled;
 
+    @Value("${cassandra.query.ts_batch.enabled:false}")
+    private boolean tsBatchEnabled;
+
+    @Value("${cassandra.query.ts_batch.max_size:20}")
+    private int tsBatchMaxSize;
+
+    @Value("${cassandra.query.ts_batch.linger_ms:5}")
+    private long tsBatchLingerMs;
+
+    private CassandraWriteCoalescer<CassandraPartitionCacheKey> tsWriteCoalescer;
+
     private NoSqlTsPartitionDate tsFormat;
 
     private PreparedStatement partitionInsertStmt;
@@ -131,16 +154,34 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
         if (partition.isPresent()) {
             tsFormat = partition.get();
             if (!isFixedPartitioning() && partitionsCacheSize > 0) {
-                cassandraTsPartitionsCache = new CassandraTsPartitionsCache(partitionsCacheSize);
+                if ("bloom_filter".equalsIgnoreCase(partitionsCacheType)) {
+                    cassandraTsPartitionsCache = new BloomFilterCassandraTsPartitionsCache(partitionsCacheSize,
+                            partitionsBloomFilterFpp, TimeUnit.SECONDS.toMillis(partitionsBloomFilterRotationPeriodSec));
+                } else {
+                    cassandraTsPartitionsCache = new CaffeineCassandraTsPartitionsCache(partitionsCacheSize);
+                }
             }
         } else {
             log.warn("Incorrect configuration of partitioning {}", partitioning);
             throw new RuntimeException("Failed to parse partitioning property: " + partitioning + "!");
         }
+        if (tsBatchEnabled && !isInstall()) {
+            tsWriteCoalescer = new CassandraWriteCoalescer<>("ts-kv", tsBatchMaxSize, tsBatchLingerMs, this::executeAsyncWrite);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cassandra.query.rate_limit_print_interval_ms:10000}")
+    public void printPartitionsCacheStats() {
+        if (cassandraTsPartitionsCache != null) {
+            cassandraTsPartitionsCache.printStats();
+        }
     }
 
     @PreDestroy
     public void stop() {
+        if (tsWriteCoalescer != null) {
+            tsWriteCoalescer.stop();
+        }
         super.stopExecutor();
     }
 
@@ -172,7 +213,7 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             stmtBuilder.setInt(6, (int) ttl);
         }
         BoundStatement stmt = stmtBuilder.build();
-        futures.add(getFuture(executeAsyncWrite(tenantId, stmt), rs -> null));
+        futures.add(getFuture(executeAsyncTsWrite(tenantId, entityId, tsKvEntry.getKey(), partition, tsKvEntry.getTs(), type, stmt), rs -> null));
         return Futures.transform(Futures.allAsList(futures), result -> dataPointDays, MoreExecutors.directExecutor());
     }
 
@@ -488,7 +529,16 @@ public class CassandraBaseTimeseriesDao extends AbstractCassandraBaseTimeseriesD
             stmtBuilder.setInt(6, (int) ttl);
         }
         BoundStatement stmt = stmtBuilder.build();
-        return getFuture(executeAsyncWrite(tenantId, stmt), rs -> null);
+        return getFuture(executeAsyncTsWrite(tenantId, entityId, tsKvEntry.getKey(), partition, tsKvEntry.getTs(), type, stmt), rs -> null);
+    }
+
+    private TbResultSetFuture executeAsyncTsWrite(TenantId tenantId, EntityId entityId, String key, long partition, long ts, DataType type, BoundStatement stmt) {
+        if (tsWriteCoalescer != null) {
+            // every save statement writes the single value column of its data type
+            return tsWriteCoalescer.write(tenantId, new CassandraPartitionCacheKey(entityId, key, partition), new TbPair<>(ts, type), stmt);
+        } else {
+            return executeAsyncWrite(tenantId, stmt);
+        }
     }
 
     private ListenableFuture<Integer> doSavePartition(TenantId tenantId, EntityId entityId, String key, long ttl, long partition) {
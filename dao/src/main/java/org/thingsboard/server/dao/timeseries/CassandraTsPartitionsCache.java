@@ -15,32 +15,16 @@
  */
 package org.thingsboard.server.dao.timeseries;
 
-import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
-import com.github.benmanes.caffeine.cache.Caffeine;
-
-import java.util.concurrent.CompletableFuture;
-
-public class CassandraTsPartitionsCache {
-
-    private AsyncLoadingCache<CassandraPartitionCacheKey, Boolean> partitionsCache;
+/**
+ * Remembers partitions that are already stored in ts_kv_partitions_cf so that they are not inserted on every write.
+ */
+public interface CassandraTsPartitionsCache {
 
-    public CassandraTsPartitionsCache(long maxCacheSize) {
-        this.partitionsCache = Caffeine.newBuilder()
-                .maximumSize(maxCacheSize)
-                .buildAsync(key -> {
-                    throw new IllegalStateException("'get' methods calls are not supported!");
-                });
-    }
+    boolean has(CassandraPartitionCacheKey key);
 
-    public boolean has(CassandraPartitionCacheKey key) {
-        return partitionsCache.getIfPresent(key) != null;
-    }
+    void put(CassandraPartitionCacheKey key);
 
-    public void put(CassandraPartitionCacheKey key) {
-        partitionsCache.put(key, CompletableFuture.completedFuture(true));
+    default void printStats() {
     }
 
-    public void invalidate(CassandraPartitionCacheKey key) {
-        partitionsCache.synchronous().invalidate(key);
-    }
 }
@@ -0,0 +1,113 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.serializer.SerializationException;
+import org.springframework.stereotype.Service;
+import org.thingsboard.server.cache.CacheSpecsMap;
+import org.thingsboard.server.cache.RedisTbTransactionalCache;
+import org.thingsboard.server.cache.TBRedisCacheConfiguration;
+import org.thingsboard.server.cache.TbRedisSerializer;
+import org.thingsboard.server.common.data.CacheConstants;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
+import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.gen.transport.TransportProtos.KeyValueType;
+import org.thingsboard.server.gen.transport.TransportProtos.TsValueProto;
+
+@ConditionalOnProperty(prefix = "cache", value = "type", havingValue = "redis")
+@Service("TsLatestCache")
+public class TsLatestRedisCache extends RedisTbTransactionalCache<TsLatestCacheKey, TsKvEntry> {
+
+    public TsLatestRedisCache(TBRedisCacheConfiguration configuration, CacheSpecsMap cacheSpecsMap, RedisConnectionFactory connectionFactory) {
+        super(CacheConstants.TS_LATEST_CACHE, cacheSpecsMap, connectionFactory, configuration, new TbRedisSerializer<>() {
+            @Override
+            public byte[] serialize(TsKvEntry tsKvEntry) throws SerializationException {
+                TsValueProto.Builder builder = TsValueProto.newBuilder()
+                        .setTs(tsKvEntry.getTs());
+                switch (tsKvEntry.getDataType()) {
+                    case BOOLEAN:
+                        tsKvEntry.getBooleanValue().ifPresent(builder::setBoolV);
+                        builder.setHasV(tsKvEntry.getBooleanValue().isPresent());
+                        builder.setType(KeyValueType.BOOLEAN_V);
+                        break;
+                    case STRING:
+                        tsKvEntry.getStrValue().ifPresent(builder::setStringV);
+                        builder.setHasV(tsKvEntry.getStrValue().isPresent());
+                        builder.setType(KeyValueType.STRING_V);
+                        break;
+                    case DOUBLE:
+                        tsKvEntry.getDoubleValue().ifPresent(builder::setDoubleV);
+                        builder.setHasV(tsKvEntry.getDoubleValue().isPresent());
+                        builder.setType(KeyValueType.DOUBLE_V);
+                        break;
+                    case LONG:
+                        tsKvEntry.getLongValue().ifPresent(builder::setLongV);
+                        builder.setHasV(tsKvEntry.getLongValue().isPresent());
+                        builder.setType(KeyValueType.LONG_V);
+                        break;
+                    case JSON:
+                        tsKvEntry.getJsonValue().ifPresent(builder::setJsonV);
+                        builder.setHasV(tsKvEntry.getJsonValue().isPresent());
+                        builder.setType(KeyValueType.JSON_V);
+                        break;
+
+                }
+                return builder.build().toByteArray();
+            }
+
+            @Override
+            public TsKvEntry deserialize(TsLatestCacheKey key, byte[] bytes) throws SerializationException {
+                try {
+                    TsValueProto proto = TsValueProto.parseFrom(bytes);
+                    boolean hasValue = proto.getHasV();
+                    KvEntry entry;
+                    switch (proto.getType()) {
+                        case BOOLEAN_V:
+                            entry = new BooleanDataEntry(key.getKey(), hasValue ? proto.getBoolV() : null);
+                            break;
+                        case LONG_V:
+                            entry = new LongDataEntry(key.getKey(), hasValue ? proto.getLongV() : null);
+                            break;
+                        case DOUBLE_V:
+                            entry = new DoubleDataEntry(key.getKey(), hasValue ? proto.getDoubleV() : null);
+                            break;
+                        case STRING_V:
+                            entry = new StringDataEntry(key.getKey(), hasValue ? proto.getStringV() : null);
+                            break;
+                        case JSON_V:
+                            entry = new JsonDataEntry(key.getKey(), hasValue ? proto.getJsonV() : null);
+                            break;
+                        default:
+                            throw new InvalidProtocolBufferException("Unrecognized type: " + proto.getType() + " !");
+                    }
+                    return new BasicTsKvEntry(proto.getTs(), entry);
+                } catch (InvalidProtocolBufferException e) {
+                    throw new SerializationException(e.getMessage());
+                }
+            }
+        });
+    }
+
+}
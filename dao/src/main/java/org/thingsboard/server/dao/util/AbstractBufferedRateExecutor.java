@@ -27,6 +27,7 @@ import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.common.util.ThingsBoardExecutors;
 import org.thingsboard.common.util.ThingsBoardThreadFactory;
@@ -42,6 +43,7 @@ import org.thingsboard.server.dao.nosql.CassandraStatementTask;
 import org.thingsboard.server.dao.tenant.TbTenantProfileCache;
 
 import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
@@ -52,9 +54,11 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Matcher;
 
 /**
@@ -68,6 +72,8 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private final long maxWaitTime;
     private final long pollMs;
     private final BlockingQueue<AsyncTaskContext<T, V>> queue;
+    private final TenantFairQueue<AsyncTaskContext<T, V>> fairQueue;
+    private final Semaphore permits;
     private final ExecutorService dispatcherExecutor;
     private final ExecutorService callbackExecutor;
     private final ScheduledExecutorService timeoutExecutor;
@@ -76,6 +82,8 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private final ConcurrentMap<TenantId, TbRateLimits> perTenantLimits = new ConcurrentHashMap<>();
 
     private final AtomicInteger printQueriesIdx = new AtomicInteger(0);
+    private final long taskIdMsb = UUID.randomUUID().getMostSignificantBits();
+    private final AtomicLong taskIdSeq = new AtomicLong();
 
     protected final AtomicInteger concurrencyLevel;
     protected final BufferedRateExecutorStats stats;
@@ -89,15 +97,32 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads,
                                         int callbackThreads, long pollMs, int printQueriesFreq, StatsFactory statsFactory,
                                         EntityService entityService, TbTenantProfileCache tenantProfileCache, boolean printTenantNames) {
+        this(queueLimit, concurrencyLimit, maxWaitTime, dispatcherThreads, callbackThreads, pollMs, printQueriesFreq, statsFactory,
+                entityService, tenantProfileCache, printTenantNames, false, 0, 1, 1);
+    }
+
+    public AbstractBufferedRateExecutor(int queueLimit, int concurrencyLimit, long maxWaitTime, int dispatcherThreads,
+                                        int callbackThreads, long pollMs, int printQueriesFreq, StatsFactory statsFactory,
+                                        EntityService entityService, TbTenantProfileCache tenantProfileCache, boolean printTenantNames,
+                                        boolean fairQueueEnabled, int tenantQueueLimit, int tenantQuantum, int sysTenantQuantum) {
         this.maxWaitTime = maxWaitTime;
         this.pollMs = pollMs;
         this.concurrencyLimit = concurrencyLimit;
         this.printQueriesFreq = printQueriesFreq;
-        this.queue = new LinkedBlockingDeque<>(queueLimit);
+        if (fairQueueEnabled) {
+            this.queue = null;
+            this.fairQueue = new TenantFairQueue<>(queueLimit, tenantQueueLimit,
+                    tenantId -> TenantId.SYS_TENANT_ID.equals(tenantId) ? sysTenantQuantum : tenantQuantum);
+            this.permits = new Semaphore(concurrencyLimit);
+        } else {
+            this.queue = new LinkedBlockingDeque<>(queueLimit);
+            this.fairQueue = null;
+            this.permits = null;
+        }
         this.dispatcherExecutor = Executors.newFixedThreadPool(dispatcherThreads, ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-dispatcher"));
         this.callbackExecutor = ThingsBoardExecutors.newWorkStealingPool(callbackThreads, "nosql-" + getBufferName() + "-callback");
         this.timeoutExecutor = Executors.newSingleThreadScheduledExecutor(ThingsBoardThreadFactory.forName("nosql-" + getBufferName() + "-timeout"));
-        this.stats = new BufferedRateExecutorStats(statsFactory);
+        this.stats = new BufferedRateExecutorStats(statsFactory, getBufferName());
         String concurrencyLevelKey = StatsType.RATE_EXECUTOR.getName() + "." + CONCURRENCY_LEVEL + getBufferName(); //metric name may change with buffer name suffix
         this.concurrencyLevel = statsFactory.createGauge(concurrencyLevelKey, new AtomicInteger(0));
 
@@ -141,12 +166,22 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         }
 
         if (!perTenantLimitReached) {
-            try {
+            AsyncTaskContext<T, V> taskCtx = new AsyncTaskContext<>(nextTaskId(), task, settableFuture, System.currentTimeMillis());
+            if (fairQueue != null) {
                 stats.getTotalAdded().increment();
-                queue.add(new AsyncTaskContext<>(UUID.randomUUID(), task, settableFuture, System.currentTimeMillis()));
-            } catch (IllegalStateException e) {
-                stats.getTotalRejected().increment();
-                settableFuture.setException(e);
+                TenantId tenantId = getQueueTenantId(task);
+                if (!fairQueue.offer(tenantId, taskCtx)) {
+                    stats.getTotalRejected().increment();
+                    settableFuture.setException(new IllegalStateException("Queue full"));
+                }
+            } else {
+                try {
+                    stats.getTotalAdded().increment();
+                    queue.add(taskCtx);
+                } catch (IllegalStateException e) {
+                    stats.getTotalRejected().increment();
+                    settableFuture.setException(e);
+                }
             }
         }
         return result;
@@ -175,54 +210,25 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     private void dispatch() {
         log.info("Buffered rate executor thread started");
         while (!Thread.interrupted()) {
-            int curLvl = concurrencyLevel.get();
             AsyncTaskContext<T, V> taskCtx = null;
+            boolean launched = false;
             try {
-                if (curLvl <= concurrencyLimit) {
-                    taskCtx = queue.take();
-                    final AsyncTaskContext<T, V> finalTaskCtx = taskCtx;
-                    if (printQueriesFreq > 0) {
-                        if (printQueriesIdx.incrementAndGet() >= printQueriesFreq) {
-                            printQueriesIdx.set(0);
-                            String query = queryToString(finalTaskCtx);
-                            log.info("[{}] Cassandra query: {}", taskCtx.getId(), query);
-                        }
-                    }
-                    logTask("Processing", finalTaskCtx);
-                    concurrencyLevel.incrementAndGet();
-                    long timeout = finalTaskCtx.getCreateTime() + maxWaitTime - System.currentTimeMillis();
-                    if (timeout > 0) {
-                        stats.getTotalLaunched().increment();
-                        ListenableFuture<V> result = execute(finalTaskCtx);
-                        result = Futures.withTimeout(result, timeout, TimeUnit.MILLISECONDS, timeoutExecutor);
-                        Futures.addCallback(result, new FutureCallback<V>() {
-                            @Override
-                            public void onSuccess(@Nullable V result) {
-                                logTask("Releasing", finalTaskCtx);
-                                stats.getTotalReleased().increment();
-                                concurrencyLevel.decrementAndGet();
-                                finalTaskCtx.getFuture().set(result);
-                            }
-
-                            @Override
-                            public void onFailure(Throwable t) {
-                                if (t instanceof TimeoutException) {
-                                    logTask("Expired During Execution", finalTaskCtx);
-                                } else {
-                                    logTask("Failed", finalTaskCtx);
-                                }
-                                stats.getTotalFailed().increment();
-                                concurrencyLevel.decrementAndGet();
-                                finalTaskCtx.getFuture().setException(t);
-                                log.debug("[{}] Failed to execute task: {}", finalTaskCtx.getId(), finalTaskCtx.getTask(), t);
-                            }
-                        }, callbackExecutor);
-                    } else {
-                        logTask("Expired Before Execution", finalTaskCtx);
-                        stats.getTotalExpired().increment();
-                        concurrencyLevel.decrementAndGet();
-                        taskCtx.getFuture().setException(new TimeoutException());
+                if (fairQueue != null) {
+                    permits.acquire();
+                    try {
+                        taskCtx = fairQueue.take();
+                    } catch (Throwable e) {
+                        permits.release();
+                        throw e;
                     }
+                    TenantId tenantId = getQueueTenantId(taskCtx.getTask());
+                    stats.getTenantWaitTimer(tenantId).record(System.currentTimeMillis() - taskCtx.getCreateTime(), TimeUnit.MILLISECONDS);
+                    launched = true;
+                    launch(taskCtx);
+                } else if (concurrencyLevel.get() <= concurrencyLimit) {
+                    taskCtx = queue.take();
+                    launched = true;
+                    launch(taskCtx);
                 } else {
                     Thread.sleep(pollMs);
                 }
@@ -232,7 +238,13 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
                 if (taskCtx != null) {
                     log.debug("[{}] Failed to execute task: {}", taskCtx.getId(), taskCtx, e);
                     stats.getTotalFailed().increment();
-                    concurrencyLevel.decrementAndGet();
+                    if (launched) {
+                        release();
+                    } else if (permits != null) {
+                        // the concurrency level was not incremented yet, only the permit is taken
+                        permits.release();
+                    }
+                    taskCtx.getFuture().setException(e);
                 } else {
                     log.debug("Failed to queue task:", e);
                 }
@@ -241,6 +253,67 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
         log.info("Buffered rate executor thread stopped");
     }
 
+    private void launch(AsyncTaskContext<T, V> taskCtx) {
+        // incremented first, so a failure at any point of the launch is matched by a single release
+        concurrencyLevel.incrementAndGet();
+        if (printQueriesFreq > 0) {
+            if (printQueriesIdx.incrementAndGet() >= printQueriesFreq) {
+                printQueriesIdx.set(0);
+                String query = queryToString(taskCtx);
+                log.info("[{}] Cassandra query: {}", taskCtx.getId(), query);
+            }
+        }
+        logTask("Processing", taskCtx);
+        long timeout = taskCtx.getCreateTime() + maxWaitTime - System.currentTimeMillis();
+        if (timeout > 0) {
+            stats.getTotalLaunched().increment();
+            ListenableFuture<V> result = execute(taskCtx);
+            result = Futures.withTimeout(result, timeout, TimeUnit.MILLISECONDS, timeoutExecutor);
+            Futures.addCallback(result, new FutureCallback<V>() {
+                @Override
+                public void onSuccess(@Nullable V result) {
+                    logTask("Releasing", taskCtx);
+                    stats.getTotalReleased().increment();
+                    release();
+                    taskCtx.getFuture().set(result);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (t instanceof TimeoutException) {
+                        logTask("Expired During Execution", taskCtx);
+                    } else {
+                        logTask("Failed", taskCtx);
+                    }
+                    stats.getTotalFailed().increment();
+                    release();
+                    taskCtx.getFuture().setException(t);
+                    log.debug("[{}] Failed to execute task: {}", taskCtx.getId(), taskCtx.getTask(), t);
+                }
+            }, callbackExecutor);
+        } else {
+            logTask("Expired Before Execution", taskCtx);
+            stats.getTotalExpired().increment();
+            release();
+            taskCtx.getFuture().setException(new TimeoutException());
+        }
+    }
+
+    private void release() {
+        concurrencyLevel.decrementAndGet();
+        if (permits != null) {
+            permits.release();
+        }
+    }
+
+    private UUID nextTaskId() {
+        return new UUID(taskIdMsb, taskIdSeq.incrementAndGet());
+    }
+
+    private static TenantId getQueueTenantId(AsyncTask task) {
+        return task.getTenantId() != null ? task.getTenantId() : TenantId.SYS_TENANT_ID;
+    }
+
     private void logTask(String action, AsyncTaskContext<T, V> taskCtx) {
         if (log.isTraceEnabled()) {
             if (taskCtx.getTask() instanceof CassandraStatementTask) {
@@ -290,7 +363,7 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
     }
 
     protected int getQueueSize() {
-        return queue.size();
+        return fairQueue != null ? fairQueue.size() : queue.size();
     }
 
     public void printStats() {
@@ -317,6 +390,14 @@ public abstract class AbstractBufferedRateExecutor<T extends AsyncTask, F extend
             log.info("Permits {}", statsBuilder);
         }
 
+        Map<TenantId, Integer> tenantQueueSizes = fairQueue != null ? fairQueue.getTenantQueueSizes() : Collections.emptyMap();
+        tenantQueueSizes.forEach((tenantId, tenantQueueSize) -> {
+            Timer waitTimer = stats.getTenantWaitTimer(tenantId);
+            log.info("[{}] Queued requests: {}, max wait time: {} ms", tenantId, tenantQueueSize, (long) waitTimer.max(TimeUnit.MILLISECONDS));
+        });
+        // before the rate limited counters are cleared, so the tenants rate limited during the last interval are kept
+        stats.updateTenantStats(tenantQueueSizes);
+
         stats.getRateLimitedTenants().entrySet().stream()
                 .filter(entry -> entry.getValue().get() > 0)
                 .forEach(entry -> {
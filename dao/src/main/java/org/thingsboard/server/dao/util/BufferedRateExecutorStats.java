@@ -15,6 +15,7 @@
  */
 package org.thingsboard.server.dao.util;
 
+import io.micrometer.core.instrument.Timer;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.server.common.data.id.TenantId;
@@ -24,14 +25,20 @@ import org.thingsboard.server.common.stats.StatsFactory;
 import org.thingsboard.server.common.stats.StatsType;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 @Getter
 public class BufferedRateExecutorStats {
     private static final String TENANT_ID_TAG = "tenantId";
+    private static final String BUFFER_TAG = "buffer";
 
 
     private static final String TOTAL_ADDED = "totalAdded";
@@ -43,8 +50,15 @@ public class BufferedRateExecutorStats {
     private static final String TOTAL_RATE_LIMITED = "totalRateLimited";
 
     private final StatsFactory statsFactory;
+    private final String bufferName;
 
     private final ConcurrentMap<TenantId, DefaultCounter> rateLimitedTenants = new ConcurrentHashMap<>();
+    // rateExecutor.tenant counters, tagged by tenant only and shared by all buffers, so their meters are never removed
+    private final ConcurrentMap<TenantId, DefaultCounter> sharedRateLimitedTenants = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, AtomicInteger> tenantQueueSizes = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TenantId, Timer> tenantWaitTimers = new ConcurrentHashMap<>();
+    // number of wait time records per tenant at the previous check, used to detect idle tenants
+    private final Map<TenantId, Long> tenantWaitCounts = new HashMap<>();
 
     private final List<StatsCounter> statsCounters = new ArrayList<>();
 
@@ -56,8 +70,9 @@ public class BufferedRateExecutorStats {
     private final StatsCounter totalRejected;
     private final StatsCounter totalRateLimited;
 
-    public BufferedRateExecutorStats(StatsFactory statsFactory) {
+    public BufferedRateExecutorStats(StatsFactory statsFactory, String bufferName) {
         this.statsFactory = statsFactory;
+        this.bufferName = bufferName;
 
         String key = StatsType.RATE_EXECUTOR.getName();
 
@@ -79,12 +94,76 @@ public class BufferedRateExecutorStats {
     }
 
     public void incrementRateLimitedTenant(TenantId tenantId){
-        rateLimitedTenants.computeIfAbsent(tenantId,
+        sharedRateLimitedTenants.computeIfAbsent(tenantId,
                 tId -> {
                     String key = StatsType.RATE_EXECUTOR.getName() + ".tenant";
                     return statsFactory.createDefaultCounter(key, TENANT_ID_TAG, tId.toString());
                 }
         )
                 .increment();
+        rateLimitedTenants.computeIfAbsent(tenantId,
+                tId -> {
+                    String key = StatsType.RATE_EXECUTOR.getName() + ".tenant.rateLimited";
+                    return statsFactory.createDefaultCounter(key, BUFFER_TAG, bufferName, TENANT_ID_TAG, tId.toString());
+                }
+        )
+                .increment();
+    }
+
+    public Timer getTenantWaitTimer(TenantId tenantId) {
+        return tenantWaitTimers.computeIfAbsent(tenantId, tId -> {
+            String key = StatsType.RATE_EXECUTOR.getName() + ".tenant.waitTime";
+            return statsFactory.createTimer(key, BUFFER_TAG, bufferName, TENANT_ID_TAG, tId.toString());
+        });
+    }
+
+    /**
+     * Updates the per tenant queue size gauges and removes the per tenant meters of the tenants
+     * that had no queued, dispatched or rate limited requests since the previous call.
+     * Called periodically from a single thread.
+     */
+    public void updateTenantStats(Map<TenantId, Integer> queueSizes) {
+        queueSizes.forEach((tenantId, queueSize) -> {
+            if (queueSize > 0) {
+                tenantQueueSizes.computeIfAbsent(tenantId, tId -> {
+                    String key = StatsType.RATE_EXECUTOR.getName() + ".tenant.queueSize";
+                    return statsFactory.createGauge(key, new AtomicInteger(0), BUFFER_TAG, bufferName, TENANT_ID_TAG, tId.toString());
+                }).set(queueSize);
+            }
+        });
+        Set<TenantId> tenantIds = new HashSet<>(tenantQueueSizes.keySet());
+        tenantIds.addAll(tenantWaitTimers.keySet());
+        tenantIds.addAll(rateLimitedTenants.keySet());
+        for (TenantId tenantId : tenantIds) {
+            if (queueSizes.getOrDefault(tenantId, 0) > 0) {
+                continue;
+            }
+            AtomicInteger queueSize = tenantQueueSizes.get(tenantId);
+            if (queueSize != null) {
+                queueSize.set(0);
+            }
+            Timer waitTimer = tenantWaitTimers.get(tenantId);
+            long waitCount = waitTimer != null ? waitTimer.count() : 0;
+            Long prevWaitCount = tenantWaitCounts.put(tenantId, waitCount);
+            DefaultCounter rateLimited = rateLimitedTenants.get(tenantId);
+            if (prevWaitCount != null && prevWaitCount == waitCount && (rateLimited == null || rateLimited.get() == 0)) {
+                removeTenantStats(tenantId);
+            }
+        }
+    }
+
+    private void removeTenantStats(TenantId tenantId) {
+        String key = StatsType.RATE_EXECUTOR.getName();
+        if (tenantQueueSizes.remove(tenantId) != null) {
+            statsFactory.removeMeters(key + ".tenant.queueSize", BUFFER_TAG, bufferName, TENANT_ID_TAG, tenantId.toString());
+        }
+        if (tenantWaitTimers.remove(tenantId) != null) {
+            statsFactory.removeMeters(key + ".tenant.waitTime", BUFFER_TAG, bufferName, TENANT_ID_TAG, tenantId.toString());
+        }
+        if (rateLimitedTenants.remove(tenantId) != null) {
+            statsFactory.removeMeters(key + ".tenant.rateLimited", BUFFER_TAG, bufferName, TENANT_ID_TAG, tenantId.toString());
+        }
+        sharedRateLimitedTenants.remove(tenantId);
+        tenantWaitCounts.remove(tenantId);
     }
 }
@@ -0,0 +1,130 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+
+/**
+ * Bounded queue that keeps a separate FIFO per tenant and serves non-empty tenants in weighted round-robin order:
+ * each tenant takes up to its quantum of consecutive elements before the turn passes to the next tenant.
+ * A single tenant may hold at most {@code tenantCapacity} elements so it can't occupy the whole buffer.
+ */
+class TenantFairQueue<E> {
+
+    private final int capacity;
+    private final int tenantCapacity;
+    private final ToIntFunction<TenantId> quantumFunction;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<TenantId, TenantQueue<E>> queues = new HashMap<>();
+    private final ArrayDeque<TenantQueue<E>> active = new ArrayDeque<>();
+    private int size;
+
+    TenantFairQueue(int capacity, int tenantCapacity, ToIntFunction<TenantId> quantumFunction) {
+        this.capacity = capacity;
+        this.tenantCapacity = tenantCapacity > 0 ? Math.min(tenantCapacity, capacity) : capacity;
+        this.quantumFunction = quantumFunction;
+    }
+
+    boolean offer(TenantId tenantId, E element) {
+        lock.lock();
+        try {
+            if (size >= capacity) {
+                return false;
+            }
+            TenantQueue<E> tenantQueue = queues.get(tenantId);
+            if (tenantQueue == null) {
+                tenantQueue = new TenantQueue<>(tenantId);
+                queues.put(tenantId, tenantQueue);
+            } else if (tenantQueue.elements.size() >= tenantCapacity) {
+                return false;
+            }
+            if (tenantQueue.elements.isEmpty()) {
+                active.addLast(tenantQueue);
+            }
+            tenantQueue.elements.addLast(element);
+            size++;
+            notEmpty.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    E take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (size == 0) {
+                notEmpty.await();
+            }
+            TenantQueue<E> tenantQueue = active.peekFirst();
+            if (tenantQueue.credit <= 0) {
+                tenantQueue.credit = Math.max(1, quantumFunction.applyAsInt(tenantQueue.tenantId));
+            }
+            E element = tenantQueue.elements.pollFirst();
+            tenantQueue.credit--;
+            size--;
+            if (tenantQueue.elements.isEmpty()) {
+                active.pollFirst();
+                queues.remove(tenantQueue.tenantId);
+            } else if (tenantQueue.credit == 0) {
+                active.addLast(active.pollFirst());
+            }
+            return element;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return size;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Map<TenantId, Integer> getTenantQueueSizes() {
+        lock.lock();
+        try {
+            Map<TenantId, Integer> result = new HashMap<>(queues.size());
+            queues.forEach((tenantId, tenantQueue) -> result.put(tenantId, tenantQueue.elements.size()));
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class TenantQueue<E> {
+        private final TenantId tenantId;
+        private final ArrayDeque<E> elements = new ArrayDeque<>();
+        private int credit;
+
+        private TenantQueue(TenantId tenantId) {
+            this.tenantId = tenantId;
+        }
+    }
+
+}
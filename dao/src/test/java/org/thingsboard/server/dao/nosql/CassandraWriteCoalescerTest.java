@@ -0,0 +1,121 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.nosql;
+
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BoundStatement;
+import com.datastax.oss.driver.api.core.cql.Statement;
+import com.google.common.util.concurrent.SettableFuture;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class CassandraWriteCoalescerTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final List<Statement<?>> submitted = new ArrayList<>();
+    private final List<SettableFuture<TbResultSet>> results = new ArrayList<>();
+
+    private CassandraWriteCoalescer<String> coalescer;
+
+    @Before
+    public void before() {
+        coalescer = new CassandraWriteCoalescer<>("test", 3, 60000, (tenantId, statement) -> {
+            SettableFuture<TbResultSet> result = SettableFuture.create();
+            submitted.add(statement);
+            results.add(result);
+            return new TbResultSetFuture(result);
+        });
+    }
+
+    @After
+    public void after() {
+        coalescer.stop();
+    }
+
+    @Test
+    public void givenStatementsForSamePartition_whenFlushed_thenSentAsOneUnloggedBatch() {
+        TbResultSetFuture first = coalescer.write(tenantId, "p1", mock(BoundStatement.class));
+        TbResultSetFuture second = coalescer.write(tenantId, "p1", mock(BoundStatement.class));
+        BoundStatement other = mock(BoundStatement.class);
+        TbResultSetFuture third = coalescer.write(tenantId, "p2", other);
+        assertThat(submitted).isEmpty();
+
+        coalescer.flushAll();
+
+        assertThat(submitted).hasSize(2);
+        assertThat(submitted).filteredOn(statement -> statement instanceof BatchStatement).singleElement()
+                .satisfies(statement -> assertThat(((BatchStatement) statement).size()).isEqualTo(2));
+        assertThat(submitted).contains(other);
+        assertThat(coalescer.getPendingPartitionsCount()).isZero();
+
+        TbResultSet resultSet = mock(TbResultSet.class);
+        results.forEach(result -> result.set(resultSet));
+        assertThat(first.getUninterruptibly()).isSameAs(resultSet);
+        assertThat(second.getUninterruptibly()).isSameAs(resultSet);
+        assertThat(third.getUninterruptibly()).isSameAs(resultSet);
+    }
+
+    @Test
+    public void givenMaxBatchSizeReached_whenWriting_thenBatchIsSentImmediately() {
+        List<TbResultSetFuture> futures = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            futures.add(coalescer.write(tenantId, "p1", mock(BoundStatement.class)));
+        }
+
+        assertThat(submitted).hasSize(1);
+        assertThat(coalescer.getPendingPartitionsCount()).isZero();
+
+        RuntimeException error = new RuntimeException("write failed");
+        results.get(0).setException(error);
+        futures.forEach(future -> assertThat(future).isDone());
+        assertThat(futures.get(2)).failsWithin(Duration.ZERO).withThrowableOfType(Exception.class).withCause(error);
+    }
+
+    @Test
+    public void givenStatementsForSameCell_whenFlushed_thenOnlyLastStatementIsSent() {
+        BoundStatement first = mock(BoundStatement.class);
+        BoundStatement last = mock(BoundStatement.class);
+        BoundStatement otherCell = mock(BoundStatement.class);
+        TbResultSetFuture firstFuture = coalescer.write(tenantId, "p1", 1L, first);
+        TbResultSetFuture lastFuture = coalescer.write(tenantId, "p1", 1L, last);
+        TbResultSetFuture otherCellFuture = coalescer.write(tenantId, "p1", 2L, otherCell);
+        assertThat(submitted).isEmpty();
+
+        coalescer.flushAll();
+
+        assertThat(submitted).singleElement().isInstanceOf(BatchStatement.class);
+        List<Object> batched = new ArrayList<>();
+        ((BatchStatement) submitted.get(0)).forEach(batched::add);
+        assertThat(batched).containsExactly(last, otherCell);
+
+        TbResultSet resultSet = mock(TbResultSet.class);
+        results.get(0).set(resultSet);
+        assertThat(firstFuture.getUninterruptibly()).isSameAs(resultSet);
+        assertThat(lastFuture.getUninterruptibly()).isSameAs(resultSet);
+        assertThat(otherCellFuture.getUninterruptibly()).isSameAs(resultSet);
+    }
+
+}
@@ -23,7 +23,9 @@ import org.junit.Test;
 import org.junit.jupiter.api.Assertions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.thingsboard.server.common.data.Customer;
+import org.thingsboard.server.common.data.DataConstants;
 import org.thingsboard.server.common.data.Device;
+import org.thingsboard.server.common.data.DeviceAttributesInfo;
 import org.thingsboard.server.common.data.DeviceInfo;
 import org.thingsboard.server.common.data.DeviceInfoFilter;
 import org.thingsboard.server.common.data.DeviceProfile;
@@ -34,12 +36,17 @@ import org.thingsboard.server.common.data.Tenant;
 import org.thingsboard.server.common.data.TenantProfile;
 import org.thingsboard.server.common.data.id.CustomerId;
 import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.AttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BaseAttributeKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
 import org.thingsboard.server.common.data.ota.ChecksumAlgorithm;
 import org.thingsboard.server.common.data.page.PageData;
 import org.thingsboard.server.common.data.page.PageLink;
 import org.thingsboard.server.common.data.security.DeviceCredentials;
 import org.thingsboard.server.common.data.security.DeviceCredentialsType;
 import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
+import org.thingsboard.server.dao.attributes.AttributesService;
 import org.thingsboard.server.dao.customer.CustomerService;
 import org.thingsboard.server.dao.device.DeviceCredentialsService;
 import org.thingsboard.server.dao.device.DeviceProfileService;
@@ -52,13 +59,19 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.thingsboard.server.common.data.ota.OtaPackageType.FIRMWARE;
 import static org.thingsboard.server.dao.model.ModelConstants.NULL_UUID;
 
 public abstract class BaseDeviceServiceTest extends AbstractServiceTest {
 
+    @Autowired
+    AttributesService attributesService;
     @Autowired
     CustomerService customerService;
     @Autowired
@@ -150,6 +163,51 @@ public abstract class BaseDeviceServiceTest extends AbstractServiceTest {
         deviceService.deleteDevice(tenantId, device.getId());
     }
 
+    @Test
+    public void testStreamDeviceAttributesInfosByPages() throws Exception {
+        List<String> keys = List.of("active", "lastActivityTime");
+        List<UUID> deviceIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Device device = this.saveDevice(tenantId, "My device " + i);
+            deviceIds.add(device.getUuidId());
+            attributesService.save(tenantId, device.getId(), DataConstants.SERVER_SCOPE, List.of(
+                    new BaseAttributeKvEntry(new BooleanDataEntry("active", true), 42L),
+                    new BaseAttributeKvEntry(new LongDataEntry("lastActivityTime", (long) i), 42L),
+                    new BaseAttributeKvEntry(new LongDataEntry("otherKey", (long) i), 42L))).get(30, TimeUnit.SECONDS);
+        }
+        Device deviceWithoutAttributes = this.saveDevice(tenantId, "My device without attributes");
+        deviceIds.add(deviceWithoutAttributes.getUuidId());
+
+        // the page size is smaller than the number of devices, so the scan goes through several page queries
+        List<DeviceAttributesInfo> streamed = new ArrayList<>();
+        long processed = deviceService.streamDeviceAttributesInfos(DataConstants.SERVER_SCOPE, keys, 2, streamed::add);
+
+        assertThat(processed).isEqualTo(streamed.size());
+        List<UUID> streamedIds = streamed.stream().map(info -> info.getIdInfo().getDeviceId().getId()).collect(Collectors.toList());
+        assertThat(streamedIds).doesNotHaveDuplicates();
+        List<DeviceAttributesInfo> tenantInfos = streamed.stream()
+                .filter(info -> info.getIdInfo().getTenantId().equals(tenantId))
+                .collect(Collectors.toList());
+        assertThat(tenantInfos).hasSize(deviceIds.size());
+        for (DeviceAttributesInfo info : tenantInfos) {
+            if (info.getIdInfo().getDeviceId().equals(deviceWithoutAttributes.getId())) {
+                assertThat(info.getAttributes()).isEmpty();
+            } else {
+                assertThat(info.getAttributes()).extracting(AttributeKvEntry::getKey).containsExactlyInAnyOrderElementsOf(keys);
+            }
+        }
+
+        List<DeviceAttributesInfo> firstOnly = new ArrayList<>();
+        long stoppedAt = deviceService.streamDeviceAttributesInfos(DataConstants.SERVER_SCOPE, keys, 2, info -> !firstOnly.add(info));
+        assertThat(stoppedAt).isEqualTo(1);
+        assertThat(firstOnly).hasSize(1);
+
+        List<DeviceAttributesInfo> withoutKeys = new ArrayList<>();
+        deviceService.streamDeviceAttributesInfos(DataConstants.SERVER_SCOPE, Collections.emptyList(), 2, withoutKeys::add);
+        assertThat(withoutKeys).hasSameSizeAs(streamed);
+        assertThat(withoutKeys).allSatisfy(info -> assertThat(info.getAttributes()).isEmpty());
+    }
+
     Device saveDevice(TenantId tenantId, final String name) {
         Device device = new Device();
         device.setTenantId(tenantId);
@@ -53,6 +53,7 @@ import org.thingsboard.server.common.data.query.EdgeSearchQueryFilter;
 import org.thingsboard.server.common.data.query.EdgeTypeFilter;
 import org.thingsboard.server.common.data.query.EntityCountQuery;
 import org.thingsboard.server.common.data.query.EntityData;
+import org.thingsboard.server.common.data.query.EntityDataCountMode;
 import org.thingsboard.server.common.data.query.EntityDataPageLink;
 import org.thingsboard.server.common.data.query.EntityDataQuery;
 import org.thingsboard.server.common.data.query.EntityDataSortOrder;
@@ -865,6 +866,101 @@ public abstract class BaseEntityServiceTest extends AbstractServiceTest {
         deviceService.deleteDevicesByTenantId(tenantId);
     }
 
+    @Test
+    public void testFindEntityDataByQueryWithKeysetPagination() throws InterruptedException {
+        List<Device> devices = new ArrayList<>();
+        for (int i = 0; i < 97; i++) {
+            Device device = new Device();
+            device.setTenantId(tenantId);
+            device.setName("Device" + i);
+            device.setType("default");
+            devices.add(deviceService.saveDevice(device));
+        }
+
+        DeviceTypeFilter filter = new DeviceTypeFilter();
+        filter.setDeviceTypes(List.of("default"));
+        filter.setDeviceNameFilter("");
+
+        EntityDataSortOrder sortOrder = new EntityDataSortOrder(
+                new EntityKey(EntityKeyType.ENTITY_FIELD, "name"), EntityDataSortOrder.Direction.DESC
+        );
+        EntityDataPageLink pageLink = new EntityDataPageLink(10, 0, null, sortOrder);
+        pageLink.setCountMode(EntityDataCountMode.CACHED);
+        pageLink.setKeysetPagination(true);
+        List<EntityKey> entityFields = Collections.singletonList(new EntityKey(EntityKeyType.ENTITY_FIELD, "name"));
+
+        EntityDataQuery query = new EntityDataQuery(filter, pageLink, entityFields, null, null);
+        PageData<EntityData> data = entityService.findEntityDataByQuery(tenantId, new CustomerId(CustomerId.NULL_UUID), query);
+        Assert.assertEquals(97, data.getTotalElements());
+        Assert.assertTrue(data.hasNext());
+
+        List<EntityData> loadedEntities = new ArrayList<>(data.getData());
+        while (data.hasNext()) {
+            EntityData last = data.getData().get(data.getData().size() - 1);
+            query = new EntityDataQuery(filter, query.getPageLink().nextKeysetPageLink(last), entityFields, null, null);
+            data = entityService.findEntityDataByQuery(tenantId, new CustomerId(CustomerId.NULL_UUID), query);
+            Assert.assertEquals(97, data.getTotalElements());
+            loadedEntities.addAll(data.getData());
+        }
+        Assert.assertEquals(97, loadedEntities.size());
+
+        List<String> loadedNames = loadedEntities.stream().map(entityData ->
+                entityData.getLatest().get(EntityKeyType.ENTITY_FIELD).get("name").getValue()).collect(Collectors.toList());
+        List<String> deviceNames = devices.stream().map(Device::getName).sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        Assert.assertEquals(deviceNames, loadedNames);
+
+        pageLink = new EntityDataPageLink(10, 9, null, null);
+        pageLink.setCountMode(EntityDataCountMode.ESTIMATED);
+        query = new EntityDataQuery(filter, pageLink, entityFields, null, null);
+        data = entityService.findEntityDataByQuery(tenantId, new CustomerId(CustomerId.NULL_UUID), query);
+        Assert.assertEquals(7, data.getData().size());
+        Assert.assertFalse(data.hasNext());
+
+        deviceService.deleteDevicesByTenantId(tenantId);
+    }
+
+    @Test
+    public void testFindEntityDataByQueryWithKeysetPaginationAndNullSortValues() {
+        for (int i = 0; i < 45; i++) {
+            Device device = new Device();
+            device.setTenantId(tenantId);
+            device.setName("Device" + i);
+            device.setType("default");
+            device.setLabel(i % 3 == 0 ? null : i % 3 == 1 ? "" : "Label" + i);
+            deviceService.saveDevice(device);
+        }
+
+        DeviceTypeFilter filter = new DeviceTypeFilter();
+        filter.setDeviceTypes(List.of("default"));
+        filter.setDeviceNameFilter("");
+        List<EntityKey> entityFields = Collections.singletonList(new EntityKey(EntityKeyType.ENTITY_FIELD, "label"));
+
+        for (EntityDataSortOrder.Direction direction : EntityDataSortOrder.Direction.values()) {
+            EntityDataSortOrder sortOrder = new EntityDataSortOrder(new EntityKey(EntityKeyType.ENTITY_FIELD, "label"), direction);
+            EntityDataPageLink pageLink = new EntityDataPageLink(10, 0, null, sortOrder);
+            pageLink.setKeysetPagination(true);
+            EntityDataQuery query = new EntityDataQuery(filter, pageLink, entityFields, null, null);
+            PageData<EntityData> data = entityService.findEntityDataByQuery(tenantId, new CustomerId(CustomerId.NULL_UUID), query);
+            List<EntityData> loadedEntities = new ArrayList<>(data.getData());
+            while (data.hasNext()) {
+                EntityData last = data.getData().get(data.getData().size() - 1);
+                query = new EntityDataQuery(filter, query.getPageLink().nextKeysetPageLink(last), entityFields, null, null);
+                data = entityService.findEntityDataByQuery(tenantId, new CustomerId(CustomerId.NULL_UUID), query);
+                loadedEntities.addAll(data.getData());
+            }
+
+            Assert.assertEquals(45, loadedEntities.size());
+            Assert.assertEquals(45, loadedEntities.stream().map(EntityData::getEntityId).distinct().count());
+            List<String> loadedLabels = loadedEntities.stream().map(entityData ->
+                    entityData.getLatest().get(EntityKeyType.ENTITY_FIELD).get("label").getValue()).collect(Collectors.toList());
+            List<String> sortedLabels = new ArrayList<>(loadedLabels);
+            sortedLabels.sort(direction == EntityDataSortOrder.Direction.ASC ? Comparator.naturalOrder() : Comparator.reverseOrder());
+            Assert.assertEquals(sortedLabels, loadedLabels);
+        }
+
+        deviceService.deleteDevicesByTenantId(tenantId);
+    }
+
     @Test
     public void testFindEntityDataByQuery_operationEqual_emptySearchQuery() {
         List<Device> devices = createMockDevices(10);
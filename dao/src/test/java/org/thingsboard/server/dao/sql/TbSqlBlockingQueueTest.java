@@ -0,0 +1,186 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.stats.DefaultMessagesStats;
+import org.thingsboard.server.common.stats.StatsCounter;
+import org.thingsboard.server.dao.exception.SqlQueueOverflowException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TbSqlBlockingQueueTest {
+
+    private ScheduledLogExecutorComponent logExecutor;
+    private TbSqlBlockingQueue<Integer> queue;
+
+    @BeforeEach
+    void setUp() {
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+        logExecutor.stop();
+    }
+
+    @Test
+    void givenBoundedQueueWithRejectPolicy_whenQueueIsFull_thenFutureFailsWithOverflow() throws Exception {
+        TbSqlQueueSettings settings = new TbSqlQueueSettings();
+        settings.setMaxQueueSize(2);
+        settings.setOverflowPolicy(TbSqlQueueOverflowPolicy.REJECT);
+        CountDownLatch saveStarted = new CountDownLatch(1);
+        CountDownLatch releaseSave = new CountDownLatch(1);
+        AtomicInteger queueSize = new AtomicInteger();
+        queue = new TbSqlBlockingQueue<>(params(1, settings), stats(), queueSize, null);
+        queue.init(logExecutor, entities -> {
+            saveStarted.countDown();
+            await(releaseSave);
+        }, Comparator.naturalOrder(), 0);
+
+        ListenableFuture<Void> first = queue.add(0);
+        assertThat(saveStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        List<ListenableFuture<Void>> queued = List.of(queue.add(1), queue.add(2));
+        ListenableFuture<Void> rejected = queue.add(3);
+
+        assertThat(rejected.isDone()).isTrue();
+        assertThatThrownBy(rejected::get).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(SqlQueueOverflowException.class);
+
+        releaseSave.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        for (ListenableFuture<Void> future : queued) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        assertThat(queueSize.get()).isZero();
+    }
+
+    @Test
+    void givenBoundedQueueWithBlockPolicy_whenQueueIsFull_thenProducerWaitsForSpace() throws Exception {
+        TbSqlQueueSettings settings = new TbSqlQueueSettings();
+        settings.setMaxQueueSize(1);
+        settings.setOverflowPolicy(TbSqlQueueOverflowPolicy.BLOCK);
+        settings.setOfferTimeoutMs(TimeUnit.SECONDS.toMillis(5));
+        List<Integer> saved = new ArrayList<>();
+        queue = new TbSqlBlockingQueue<>(params(1, settings), stats());
+        queue.init(logExecutor, entities -> {
+            sleep(20);
+            synchronized (saved) {
+                saved.addAll(entities);
+            }
+        }, Comparator.naturalOrder(), 0);
+
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(queue.add(i));
+        }
+        for (ListenableFuture<Void> future : futures) {
+            future.get(5, TimeUnit.SECONDS);
+        }
+        synchronized (saved) {
+            assertThat(saved).hasSize(20);
+        }
+    }
+
+    @Test
+    void testAdaptiveBatchController() {
+        TbSqlAdaptiveBatchController controller = new TbSqlAdaptiveBatchController(100, 1600, 10, 100, 500);
+        assertThat(controller.getBatchSize()).isEqualTo(1600);
+        assertThat(controller.getDelay()).isEqualTo(100);
+
+        controller.onBatchSaved(true, 1000);
+        assertThat(controller.getBatchSize()).isEqualTo(800);
+        assertThat(controller.getDelay()).isEqualTo(100);
+        for (int i = 0; i < 10; i++) {
+            controller.onBatchSaved(true, 1000);
+        }
+        assertThat(controller.getBatchSize()).isEqualTo(100);
+
+        controller.onBatchSaved(true, 50);
+        assertThat(controller.getBatchSize()).isEqualTo(200);
+        for (int i = 0; i < 100; i++) {
+            controller.onBatchSaved(true, 50);
+        }
+        assertThat(controller.getBatchSize()).isEqualTo(1600);
+
+        controller.onBatchSaved(false, 50);
+        assertThat(controller.getDelay()).isEqualTo(75);
+        for (int i = 0; i < 100; i++) {
+            controller.onBatchSaved(false, 50);
+        }
+        assertThat(controller.getDelay()).isEqualTo(10);
+
+        controller.onBatchSaved(false, 300);
+        assertThat(controller.getBatchSize()).isEqualTo(1600);
+        assertThat(controller.getDelay()).isEqualTo(10);
+
+        controller.onBatchSaved(false, 1000);
+        assertThat(controller.getDelay()).isEqualTo(20);
+    }
+
+    private static TbSqlBlockingQueueParams params(int batchSize, TbSqlQueueSettings settings) {
+        return TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(batchSize)
+                .maxDelay(1)
+                .statsPrintIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .statsNamePrefix("test")
+                .queueSettings(settings)
+                .build();
+    }
+
+    private static DefaultMessagesStats stats() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new DefaultMessagesStats(
+                new StatsCounter(new AtomicInteger(), registry.counter("test.total"), "totalMsgs"),
+                new StatsCounter(new AtomicInteger(), registry.counter("test.successful"), "successfulMsgs"),
+                new StatsCounter(new AtomicInteger(), registry.counter("test.failed"), "failedMsgs"));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
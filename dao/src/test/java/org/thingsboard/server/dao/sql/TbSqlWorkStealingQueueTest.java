@@ -0,0 +1,178 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.stats.DefaultMessagesStats;
+import org.thingsboard.server.common.stats.StatsCounter;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class TbSqlWorkStealingQueueTest {
+
+    private static final int KEYS = 3;
+    private static final int VALUES_PER_KEY = 2000;
+
+    private ScheduledLogExecutorComponent logExecutor;
+    private TbSqlWorkStealingQueue<long[]> queue;
+
+    @BeforeEach
+    void setUp() {
+        logExecutor = new ScheduledLogExecutorComponent();
+        logExecutor.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            queue.destroy();
+        }
+        logExecutor.stop();
+    }
+
+    @Test
+    void givenFewHotKeys_whenSaving_thenAllWritersAreUsedAndOrderPerKeyIsPreserved() throws Exception {
+        TbSqlQueueSettings settings = new TbSqlQueueSettings();
+        settings.setWorkStealingEnabled(true);
+        settings.setShardsPerThread(4);
+        Map<Long, List<Long>> savedByKey = new ConcurrentHashMap<>();
+        Set<String> writerThreads = ConcurrentHashMap.newKeySet();
+        AtomicInteger queueSize = new AtomicInteger();
+        queue = new TbSqlWorkStealingQueue<>(params(settings), e -> (int) e[0], 2, stats(), queueSize, null);
+        queue.init(logExecutor, entities -> {
+            writerThreads.add(Thread.currentThread().getName());
+            for (long[] entity : entities) {
+                savedByKey.computeIfAbsent(entity[0], k -> new ArrayList<>()).add(entity[1]);
+            }
+            sleep(1);
+        }, Comparator.comparingLong(e -> e[0]), 0);
+
+        // all keys are hashed onto the home shards of the first writer, the second one has to steal
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (long value = 0; value < VALUES_PER_KEY; value++) {
+            for (long key = 0; key < KEYS; key++) {
+                futures.add(queue.add(new long[]{key, value}));
+            }
+        }
+        for (ListenableFuture<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(savedByKey).hasSize(KEYS);
+        for (List<Long> values : savedByKey.values()) {
+            assertThat(values).hasSize(VALUES_PER_KEY).isSorted();
+        }
+        assertThat(writerThreads).hasSize(2);
+    }
+
+    @Test
+    void givenReadyShardIsBusy_whenOtherWriterIsIdle_thenItParksInsteadOfSpinning() throws Exception {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean.isThreadCpuTimeSupported());
+        TbSqlQueueSettings settings = new TbSqlQueueSettings();
+        settings.setWorkStealingEnabled(true);
+        settings.setShardsPerThread(1);
+        CountDownLatch saveStarted = new CountDownLatch(1);
+        CountDownLatch releaseSave = new CountDownLatch(1);
+        AtomicInteger saved = new AtomicInteger();
+        queue = new TbSqlWorkStealingQueue<>(params(settings), e -> (int) e[0], 2, stats(), null, null);
+        queue.init(logExecutor, entities -> {
+            saveStarted.countDown();
+            try {
+                releaseSave.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            saved.addAndGet(entities.size());
+        }, Comparator.comparingLong(e -> e[0]), 0);
+
+        // the first batch blocks the only shard in use, the next ones make it ready while it is busy
+        List<ListenableFuture<Void>> futures = new ArrayList<>();
+        for (long value = 0; value < 10; value++) {
+            futures.add(queue.add(new long[]{0, value}));
+        }
+        assertThat(saveStarted.await(10, TimeUnit.SECONDS)).isTrue();
+        for (long value = 10; value < 30; value++) {
+            futures.add(queue.add(new long[]{0, value}));
+        }
+
+        long cpuTimeBefore = writersCpuTimeNs(threadMXBean);
+        sleep(500);
+        long cpuTimeNs = writersCpuTimeNs(threadMXBean) - cpuTimeBefore;
+        releaseSave.countDown();
+        for (ListenableFuture<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(cpuTimeNs)).isLessThan(250);
+        assertThat(saved.get()).isEqualTo(30);
+    }
+
+    private static long writersCpuTimeNs(ThreadMXBean threadMXBean) {
+        long total = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().startsWith("sql-queue-0-test")) {
+                total += Math.max(0, threadMXBean.getThreadCpuTime(thread.getId()));
+            }
+        }
+        return total;
+    }
+
+    private static TbSqlBlockingQueueParams params(TbSqlQueueSettings settings) {
+        return TbSqlBlockingQueueParams.builder()
+                .logName("Test")
+                .batchSize(10)
+                .maxDelay(5)
+                .statsPrintIntervalMs(TimeUnit.HOURS.toMillis(1))
+                .statsNamePrefix("test")
+                .queueSettings(settings)
+                .build();
+    }
+
+    private static DefaultMessagesStats stats() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new DefaultMessagesStats(
+                new StatsCounter(new AtomicInteger(), registry.counter("test.total"), "totalMsgs"),
+                new StatsCounter(new AtomicInteger(), registry.counter("test.successful"), "successfulMsgs"),
+                new StatsCounter(new AtomicInteger(), registry.counter("test.failed"), "failedMsgs"));
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.sql.relation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.EntityType;
+import org.thingsboard.server.common.data.id.AssetId;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.EntityId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.relation.EntityRelation;
+import org.thingsboard.server.common.data.relation.EntitySearchDirection;
+import org.thingsboard.server.common.data.relation.RelationTypeGroup;
+import org.thingsboard.server.dao.relation.EntityRelationEvent;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TenantRelationGraphTest {
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final AssetId building = new AssetId(UUID.randomUUID());
+    private final AssetId floor = new AssetId(UUID.randomUUID());
+    private final DeviceId sensor = new DeviceId(UUID.randomUUID());
+    private final DeviceId meter = new DeviceId(UUID.randomUUID());
+
+    private TenantRelationGraph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = new TenantRelationGraph();
+        graph.load(tenantId.getId(), EntityType.TENANT, building.getId(), EntityType.ASSET, EntityRelation.CONTAINS_TYPE);
+        graph.load(building.getId(), EntityType.ASSET, floor.getId(), EntityType.ASSET, EntityRelation.CONTAINS_TYPE);
+        graph.load(floor.getId(), EntityType.ASSET, sensor.getId(), EntityType.DEVICE, EntityRelation.CONTAINS_TYPE);
+        graph.load(floor.getId(), EntityType.ASSET, meter.getId(), EntityType.DEVICE, EntityRelation.MANAGES_TYPE);
+        // cycle back to the root must not break the traversal
+        graph.load(meter.getId(), EntityType.DEVICE, building.getId(), EntityType.ASSET, "Feeds");
+    }
+
+    @Test
+    public void testFindRelatedRespectsMaxLevel() {
+        assertThat(ids(graph.findRelated(List.of(building), EntitySearchDirection.FROM, 1, false, (type, entityType) -> true)))
+                .containsExactly(floor.getId());
+        assertThat(ids(graph.findRelated(List.of(building), EntitySearchDirection.FROM, 2, false, (type, entityType) -> true)))
+                .containsExactlyInAnyOrder(floor.getId(), sensor.getId(), meter.getId());
+        assertThat(ids(graph.findRelated(List.of(building), EntitySearchDirection.FROM, 3, false, (type, entityType) -> true)))
+                .containsExactlyInAnyOrder(floor.getId(), sensor.getId(), meter.getId(), building.getId());
+    }
+
+    @Test
+    public void testFindRelatedAppliesFilterToLastRelationOnly() {
+        List<RelatedEntity> related = graph.findRelated(List.of(tenantId), EntitySearchDirection.FROM, 10, false,
+                (type, entityType) -> EntityRelation.CONTAINS_TYPE.equals(type) && EntityType.DEVICE.equals(entityType));
+        assertThat(ids(related)).containsExactly(sensor.getId());
+        assertThat(related.get(0).getEntityType()).isEqualTo(EntityType.DEVICE);
+    }
+
+    @Test
+    public void testFindRelatedInToDirection() {
+        assertThat(ids(graph.findRelated(List.of(sensor), EntitySearchDirection.TO, 10, false, (type, entityType) -> EntityType.ASSET.equals(entityType))))
+                .containsExactlyInAnyOrder(floor.getId(), building.getId());
+    }
+
+    @Test
+    public void testFindRelatedWithParents() {
+        List<RelatedEntity> related = graph.findRelated(List.of(sensor, meter), EntitySearchDirection.TO, 1, true, (type, entityType) -> true);
+        assertThat(related).hasSize(2);
+        assertThat(related.stream().map(RelatedEntity::getParentId).collect(Collectors.toSet())).containsExactlyInAnyOrder(sensor.getId(), meter.getId());
+        assertThat(ids(related)).containsOnly(floor.getId());
+    }
+
+    @Test
+    public void testRootWithDifferentEntityTypeIsIgnored() {
+        EntityId wrongType = new DeviceId(building.getId());
+        assertThat(graph.findRelated(List.of(wrongType), EntitySearchDirection.FROM, 10, false, (type, entityType) -> true)).isEmpty();
+    }
+
+    @Test
+    public void testAddAndRemoveRelation() {
+        DeviceId newSensor = new DeviceId(UUID.randomUUID());
+        assertThat(graph.addRelation(floor, newSensor, EntityRelation.CONTAINS_TYPE)).isTrue();
+        assertThat(graph.addRelation(floor, newSensor, EntityRelation.CONTAINS_TYPE)).isFalse();
+        assertThat(graph.getRelationCount()).isEqualTo(6);
+        assertThat(ids(graph.findRelated(List.of(floor), EntitySearchDirection.FROM, 1, false, (type, entityType) -> true)))
+                .containsExactlyInAnyOrder(sensor.getId(), meter.getId(), newSensor.getId());
+
+        assertThat(graph.removeRelation(floor, sensor, EntityRelation.CONTAINS_TYPE)).isTrue();
+        assertThat(graph.removeRelation(floor, sensor, EntityRelation.CONTAINS_TYPE)).isFalse();
+        assertThat(graph.getRelationCount()).isEqualTo(5);
+        assertThat(ids(graph.findRelated(List.of(floor), EntitySearchDirection.FROM, 1, false, (type, entityType) -> true)))
+                .containsExactlyInAnyOrder(meter.getId(), newSensor.getId());
+        assertThat(ids(graph.findRelated(List.of(sensor), EntitySearchDirection.TO, 1, false, (type, entityType) -> true))).isEmpty();
+    }
+
+    @Test
+    public void testEventsDuringReloadAreReplayedOntoReloadedGraph() {
+        TenantRelationGraphHolder holder = new TenantRelationGraphHolder();
+        holder.finishReload(graph);
+        DeviceId newSensor = new DeviceId(UUID.randomUUID());
+
+        holder.startReload();
+        // the reloaded graph is a snapshot taken before both events
+        TenantRelationGraph reloaded = new TenantRelationGraph();
+        reloaded.load(floor.getId(), EntityType.ASSET, sensor.getId(), EntityType.DEVICE, EntityRelation.CONTAINS_TYPE);
+        holder.onRelationEvent(new EntityRelationEvent(tenantId, floor, newSensor, EntityRelation.CONTAINS_TYPE, RelationTypeGroup.COMMON, false));
+        holder.onRelationEvent(new EntityRelationEvent(tenantId, floor, sensor, EntityRelation.CONTAINS_TYPE, RelationTypeGroup.COMMON, true));
+        assertThat(ids(holder.getGraph().findRelated(List.of(floor), EntitySearchDirection.FROM, 1, false, (type, entityType) -> true)))
+                .containsExactlyInAnyOrder(meter.getId(), newSensor.getId());
+        holder.finishReload(reloaded);
+
+        assertThat(holder.getGraph()).isSameAs(reloaded);
+        assertThat(ids(reloaded.findRelated(List.of(floor), EntitySearchDirection.FROM, 1, false, (type, entityType) -> true)))
+                .containsExactly(newSensor.getId());
+
+        // events after the reload are applied to the reloaded graph only once
+        holder.onRelationEvent(new EntityRelationEvent(tenantId, floor, meter, EntityRelation.MANAGES_TYPE, RelationTypeGroup.COMMON, false));
+        assertThat(reloaded.getRelationCount()).isEqualTo(2);
+    }
+
+    private static Set<UUID> ids(List<RelatedEntity> related) {
+        return related.stream().map(RelatedEntity::getId).collect(Collectors.toSet());
+    }
+
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.DeviceId;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BloomFilterCassandraTsPartitionsCacheTest {
+
+    private static final long ROTATION_PERIOD_MS = 60000;
+
+    @Test
+    public void givenInsertedPartitions_whenCapacityExceeded_thenAllPartitionsFound() {
+        var cache = new BloomFilterCassandraTsPartitionsCache(1000, 0.001, ROTATION_PERIOD_MS);
+        DeviceId deviceId = new DeviceId(UUID.randomUUID());
+        for (int i = 0; i < 10000; i++) {
+            cache.put(new CassandraPartitionCacheKey(deviceId, "key" + i, 0L));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertThat(cache.has(new CassandraPartitionCacheKey(deviceId, "key" + i, 0L))).isTrue();
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (cache.has(new CassandraPartitionCacheKey(deviceId, "key" + i, 1L))) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(100);
+        assertThat(cache.getFalsePositiveProbability()).isLessThan(0.01);
+    }
+
+    @Test
+    public void givenPartitionNotReinserted_whenRotatedTwice_thenPartitionIsForgotten() {
+        var cache = new BloomFilterCassandraTsPartitionsCache(1000, 0.001, ROTATION_PERIOD_MS);
+        long ts = System.currentTimeMillis();
+        var key = new CassandraPartitionCacheKey(new DeviceId(UUID.randomUUID()), "temperature", 0L);
+        cache.put(key);
+
+        cache.rotateIfNeeded(ts + ROTATION_PERIOD_MS);
+        assertThat(cache.has(key)).isTrue();
+
+        cache.rotateIfNeeded(ts + 2 * ROTATION_PERIOD_MS);
+        assertThat(cache.has(key)).isFalse();
+    }
+
+}
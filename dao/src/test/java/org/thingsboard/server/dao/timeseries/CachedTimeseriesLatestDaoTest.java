@@ -0,0 +1,170 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.timeseries;
+
+import com.google.common.util.concurrent.Futures;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.CacheConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.data.kv.BaseDeleteTsKvQuery;
+import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.TsKvEntry;
+import org.thingsboard.server.common.data.kv.TsKvLatestRemovingResult;
+import org.thingsboard.server.common.stats.DefaultCounter;
+import org.thingsboard.server.common.stats.StatsFactory;
+import org.thingsboard.server.dao.cache.CacheExecutorService;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CachedTimeseriesLatestDaoTest {
+
+    private static final String KEY = "temperature";
+
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    private TimeseriesLatestDao dao;
+    private DefaultCounter hitCounter;
+    private DefaultCounter missCounter;
+    private CachedTimeseriesLatestDao cachedDao;
+
+    @BeforeEach
+    void setUp() {
+        dao = mock(TimeseriesLatestDao.class);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        hitCounter = new DefaultCounter(new AtomicInteger(), registry.counter("hit"));
+        missCounter = new DefaultCounter(new AtomicInteger(), registry.counter("miss"));
+        StatsFactory statsFactory = mock(StatsFactory.class);
+        when(statsFactory.createDefaultCounter(anyString(), eq("result"), eq("hit"))).thenReturn(hitCounter);
+        when(statsFactory.createDefaultCounter(anyString(), eq("result"), eq("miss"))).thenReturn(missCounter);
+        TsLatestCaffeineCache cache = new TsLatestCaffeineCache(new ConcurrentMapCacheManager(CacheConstants.TS_LATEST_CACHE));
+        cachedDao = new CachedTimeseriesLatestDao(dao, statsFactory, mock(CacheExecutorService.class), cache);
+        ReflectionTestUtils.setField(cachedDao, "cacheType", "caffeine");
+        cachedDao.init();
+    }
+
+    @Test
+    void givenValueLoadedOnce_whenFindLatestAgain_thenServedFromCache() throws Exception {
+        TsKvEntry entry = entry(100, 1L);
+        when(dao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(Futures.immediateFuture(Optional.of(entry)));
+
+        assertThat(cachedDao.findLatest(tenantId, deviceId, KEY).get()).isEqualTo(entry);
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).contains(entry);
+
+        verify(dao, times(1)).findLatestOpt(tenantId, deviceId, KEY);
+        assertThat(missCounter.get()).isEqualTo(1);
+        assertThat(hitCounter.get()).isEqualTo(1);
+    }
+
+    @Test
+    void givenMissingValue_whenFindLatest_thenAbsenceIsCachedAndDefaultReturned() throws Exception {
+        when(dao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(Futures.immediateFuture(Optional.empty()));
+
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).isEmpty();
+        TsKvEntry latest = cachedDao.findLatest(tenantId, deviceId, KEY).get();
+
+        assertThat(latest.getKey()).isEqualTo(KEY);
+        assertThat(latest.getValue()).isNull();
+        verify(dao, times(1)).findLatestOpt(tenantId, deviceId, KEY);
+    }
+
+    @Test
+    void givenSaveLatest_whenFindLatest_thenSavedValueIsReturnedWithoutDbCall() throws Exception {
+        when(dao.saveLatest(eq(tenantId), eq(deviceId), any())).thenReturn(Futures.immediateFuture(null));
+        TsKvEntry entry = entry(200, 2L);
+
+        cachedDao.saveLatest(tenantId, deviceId, entry).get();
+
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).contains(entry);
+        verify(dao, times(0)).findLatestOpt(any(), any(), any());
+    }
+
+    @Test
+    void givenOlderValueSaved_whenFindLatest_thenValueIsReloaded() throws Exception {
+        when(dao.saveLatest(eq(tenantId), eq(deviceId), any())).thenReturn(Futures.immediateFuture(null));
+        TsKvEntry newer = entry(300, 3L);
+        cachedDao.saveLatest(tenantId, deviceId, newer).get();
+        cachedDao.saveLatest(tenantId, deviceId, entry(100, 1L)).get();
+        when(dao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(Futures.immediateFuture(Optional.of(newer)));
+
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).contains(newer);
+        verify(dao, times(1)).findLatestOpt(tenantId, deviceId, KEY);
+    }
+
+    @Test
+    void givenConcurrentSaves_whenFindLatest_thenNewestValueIsCachedOrReloaded() throws Exception {
+        when(dao.saveLatest(eq(tenantId), eq(deviceId), any())).thenReturn(Futures.immediateFuture(null));
+        TsKvEntry newest = entry(1000, 1000L);
+        when(dao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(Futures.immediateFuture(Optional.of(newest)));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 1; i <= 1000; i++) {
+                TsKvEntry entry = entry(i, i);
+                futures.add(executor.submit(() -> cachedDao.saveLatest(tenantId, deviceId, entry).get()));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).contains(newest);
+    }
+
+    @Test
+    void givenRemoveLatest_whenFindLatest_thenValueIsReloaded() throws Exception {
+        when(dao.saveLatest(eq(tenantId), eq(deviceId), any())).thenReturn(Futures.immediateFuture(null));
+        cachedDao.saveLatest(tenantId, deviceId, entry(300, 3L)).get();
+        BaseDeleteTsKvQuery query = new BaseDeleteTsKvQuery(KEY, 0, 400);
+        when(dao.removeLatest(tenantId, deviceId, query)).thenReturn(Futures.immediateFuture(new TsKvLatestRemovingResult(KEY, true)));
+        when(dao.findLatestOpt(tenantId, deviceId, KEY)).thenReturn(Futures.immediateFuture(Optional.empty()));
+
+        cachedDao.removeLatest(tenantId, deviceId, query).get();
+
+        assertThat(cachedDao.findLatestOpt(tenantId, deviceId, KEY).get()).isEmpty();
+        verify(dao, times(1)).findLatestOpt(tenantId, deviceId, KEY);
+    }
+
+    private static TsKvEntry entry(long ts, long value) {
+        return new BasicTsKvEntry(ts, new LongDataEntry(KEY, value));
+    }
+
+}
@@ -0,0 +1,108 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.thingsboard.server.common.data.id.TenantId;
+import org.thingsboard.server.common.stats.DefaultStatsFactory;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BufferedRateExecutorStatsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TenantId tenantId = TenantId.fromUUID(UUID.randomUUID());
+    private DefaultStatsFactory statsFactory;
+    private BufferedRateExecutorStats stats;
+
+    @BeforeEach
+    void setUp() {
+        statsFactory = new DefaultStatsFactory();
+        ReflectionTestUtils.setField(statsFactory, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(statsFactory, "metricsEnabled", true);
+        stats = new BufferedRateExecutorStats(statsFactory, "test");
+    }
+
+    @Test
+    void testIdleTenantMetersAreRemoved() {
+        int globalMeters = meterRegistry.getMeters().size();
+        stats.updateTenantStats(Map.of(tenantId, 5));
+        stats.getTenantWaitTimer(tenantId).record(10, TimeUnit.MILLISECONDS);
+        assertThat(stats.getTenantQueueSizes().get(tenantId).get()).isEqualTo(5);
+
+        // queue is drained, but the tenant had requests dispatched during the last interval
+        stats.updateTenantStats(Map.of());
+        assertThat(stats.getTenantQueueSizes().get(tenantId).get()).isZero();
+        assertThat(stats.getTenantWaitTimers()).containsKey(tenantId);
+
+        // no activity since the previous call
+        stats.updateTenantStats(Map.of());
+        assertThat(stats.getTenantQueueSizes()).isEmpty();
+        assertThat(stats.getTenantWaitTimers()).isEmpty();
+        assertThat(meterRegistry.getMeters()).hasSize(globalMeters);
+    }
+
+    @Test
+    void testRateLimitedTenantIsKeptWhileRateLimited() {
+        int globalMeters = meterRegistry.getMeters().size();
+        stats.incrementRateLimitedTenant(tenantId);
+        stats.updateTenantStats(Map.of());
+        stats.updateTenantStats(Map.of());
+        assertThat(stats.getRateLimitedTenants()).containsKey(tenantId);
+
+        stats.getRateLimitedTenants().get(tenantId).clear();
+        stats.updateTenantStats(Map.of());
+        assertThat(stats.getRateLimitedTenants()).isEmpty();
+        // the rateExecutor.tenant counter shared by all buffers is kept
+        assertThat(meterRegistry.getMeters()).hasSize(globalMeters + 1);
+    }
+
+    @Test
+    void testRateLimitedTenantMeterOfOtherBufferIsKept() {
+        BufferedRateExecutorStats otherStats = new BufferedRateExecutorStats(statsFactory, "other");
+        stats.incrementRateLimitedTenant(tenantId);
+        otherStats.incrementRateLimitedTenant(tenantId);
+        stats.getRateLimitedTenants().get(tenantId).clear();
+
+        stats.updateTenantStats(Map.of());
+        stats.updateTenantStats(Map.of());
+        assertThat(stats.getRateLimitedTenants()).isEmpty();
+        assertThat(meterRegistry.find("rateExecutor.tenant.rateLimited").tag("buffer", "test").counters()).isEmpty();
+        assertThat(meterRegistry.find("rateExecutor.tenant.rateLimited").tag("buffer", "other").counters()).hasSize(1);
+    }
+
+    @Test
+    void testRateLimitedTenantCounterKeepsTenantTagOnly() {
+        BufferedRateExecutorStats otherStats = new BufferedRateExecutorStats(statsFactory, "other");
+        stats.incrementRateLimitedTenant(tenantId);
+        otherStats.incrementRateLimitedTenant(tenantId);
+
+        assertThat(meterRegistry.find("rateExecutor.tenant").counters()).hasSize(1);
+        Counter counter = meterRegistry.find("rateExecutor.tenant").tag("tenantId", tenantId.toString()).counter();
+        assertThat(counter).isNotNull();
+        assertThat(counter.getId().getTags()).hasSize(1);
+        assertThat(counter.count()).isEqualTo(2);
+    }
+
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.server.dao.util;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.id.TenantId;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TenantFairQueueTest {
+
+    private final TenantId noisyTenant = TenantId.fromUUID(UUID.randomUUID());
+    private final TenantId quietTenant = TenantId.fromUUID(UUID.randomUUID());
+
+    @Test
+    void givenNoisyTenant_whenTaking_thenTenantsAreServedInRoundRobinOrder() throws Exception {
+        TenantFairQueue<String> queue = new TenantFairQueue<>(100, 0, tenantId -> 1);
+        for (int i = 0; i < 5; i++) {
+            assertThat(queue.offer(noisyTenant, "n" + i)).isTrue();
+        }
+        assertThat(queue.offer(quietTenant, "q0")).isTrue();
+        assertThat(queue.offer(quietTenant, "q1")).isTrue();
+
+        assertThat(takeAll(queue)).containsExactly("n0", "q0", "n1", "q1", "n2", "n3", "n4");
+        assertThat(queue.size()).isZero();
+        assertThat(queue.getTenantQueueSizes()).isEmpty();
+    }
+
+    @Test
+    void givenQuantum_whenTaking_thenTenantTakesQuantumInARow() throws Exception {
+        TenantFairQueue<String> queue = new TenantFairQueue<>(100, 0, tenantId -> noisyTenant.equals(tenantId) ? 2 : 1);
+        for (int i = 0; i < 4; i++) {
+            queue.offer(noisyTenant, "n" + i);
+            queue.offer(quietTenant, "q" + i);
+        }
+
+        assertThat(takeAll(queue)).containsExactly("n0", "n1", "q0", "n2", "n3", "q1", "q2", "q3");
+    }
+
+    @Test
+    void givenTenantCapacity_whenOffering_thenOnlyThatTenantIsRejected() {
+        TenantFairQueue<String> queue = new TenantFairQueue<>(4, 2, tenantId -> 1);
+
+        assertThat(queue.offer(noisyTenant, "n0")).isTrue();
+        assertThat(queue.offer(noisyTenant, "n1")).isTrue();
+        assertThat(queue.offer(noisyTenant, "n2")).isFalse();
+        assertThat(queue.offer(quietTenant, "q0")).isTrue();
+        assertThat(queue.offer(quietTenant, "q1")).isTrue();
+        assertThat(queue.offer(quietTenant, "q2")).isFalse();
+        assertThat(queue.size()).isEqualTo(4);
+        assertThat(queue.getTenantQueueSizes()).containsEntry(noisyTenant, 2).containsEntry(quietTenant, 2);
+    }
+
+    @Test
+    void givenEmptyQueue_whenOffering_thenBlockedTakeIsWokenUp() throws Exception {
+        TenantFairQueue<String> queue = new TenantFairQueue<>(10, 0, tenantId -> 1);
+        CompletableFuture<String> taken = CompletableFuture.supplyAsync(() -> {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        queue.offer(quietTenant, "q0");
+
+        assertThat(taken.get(5, TimeUnit.SECONDS)).isEqualTo("q0");
+    }
+
+    private static List<String> takeAll(TenantFairQueue<String> queue) throws InterruptedException {
+        List<String> result = new ArrayList<>();
+        while (queue.size() > 0) {
+            result.add(queue.take());
+        }
+        return result;
+    }
+
+}
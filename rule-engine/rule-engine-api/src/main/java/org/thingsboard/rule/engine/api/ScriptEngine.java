@@ -21,6 +21,7 @@ import org.thingsboard.server.common.msg.TbMsg;
 
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 public interface ScriptEngine {
 
@@ -30,6 +31,20 @@ public interface ScriptEngine {
 
     ListenableFuture<Boolean> executeFilterAsync(TbMsg msg);
 
+    /**
+     * Executes the update script for several messages at once. Returns one result future per message, in the same order.
+     */
+    default List<ListenableFuture<List<TbMsg>>> executeUpdateBatchAsync(List<TbMsg> msgs) {
+        return msgs.stream().map(this::executeUpdateAsync).collect(Collectors.toList());
+    }
+
+    /**
+     * Executes the filter script for several messages at once. Returns one result future per message, in the same order.
+     */
+    default List<ListenableFuture<Boolean>> executeFilterBatchAsync(List<TbMsg> msgs) {
+        return msgs.stream().map(this::executeFilterAsync).collect(Collectors.toList());
+    }
+
     ListenableFuture<Set<String>> executeSwitchAsync(TbMsg msg);
 
     ListenableFuture<JsonNode> executeJsonAsync(TbMsg msg);
@@ -125,6 +125,16 @@ public interface TbContext {
      */
     void tellSelf(TbMsg msg, long delayMs);
 
+    /**
+     * Checks whether more messages are already queued for the current Rule Node.
+     * Lets a Rule Node collect the queued messages and process them as a batch.
+     *
+     * @return true if the mailbox of the current Rule Node is not empty, false by default
+     */
+    default boolean hasPendingMsgs() {
+        return false;
+    }
+
     /**
      * Notifies Rule Engine about failure to process current message.
      *
@@ -15,31 +15,178 @@
  */
 package org.thingsboard.rule.engine.deduplication;
 
-import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
 import org.thingsboard.server.common.msg.TbMsg;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
 
-@Data
+/**
+ * Pending state of a single deduplication id.
+ * <p>
+ * Messages are grouped into packs by metadata ts with the same rule for every strategy. A pack starts with the oldest
+ * message that is not covered by an open pack and holds the messages within one interval from it. A message that is older
+ * than an open pack starts a new pack that takes over the following packs that fit into its interval. A following pack that
+ * does not fit is kept as it is and the new pack ends where it starts, so members beyond the interval are never folded in.
+ * <p>
+ * For {@link DeduplicationStrategy#ALL} a pack keeps its messages sorted by metadata ts. For {@link DeduplicationStrategy#FIRST}
+ * and {@link DeduplicationStrategy#LAST} a pack keeps only the current candidate and the number of messages.
+ */
 public class DeduplicationData {
 
-    private final List<TbMsg> msgList;
+    private final DeduplicationStrategy strategy;
+    private final long interval;
+    private final NavigableMap<Long, Pack> packs = new TreeMap<>();
+
+    private int size;
+    @Getter
+    @Setter
     private boolean tickScheduled;
 
-    public DeduplicationData() {
-        msgList = new LinkedList<>();
+    public DeduplicationData(DeduplicationStrategy strategy, long interval) {
+        this.strategy = strategy;
+        this.interval = interval;
     }
 
     public int size() {
-        return msgList.size();
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
     }
 
     public void add(TbMsg msg) {
-        msgList.add(msg);
+        long ts = msg.getMetaDataTs();
+        Map.Entry<Long, Pack> entry = packs.floorEntry(ts);
+        if (entry != null && ts < entry.getValue().endTs) {
+            entry.getValue().add(ts, msg);
+        } else {
+            Pack pack = new Pack(ts + interval, ts, msg);
+            Map.Entry<Long, Pack> next = packs.higherEntry(ts);
+            while (next != null && next.getKey() < pack.endTs) {
+                if (next.getValue().maxTs >= pack.endTs) {
+                    pack.endTs = next.getKey();
+                    break;
+                }
+                packs.remove(next.getKey());
+                pack.merge(next.getValue());
+                next = packs.higherEntry(next.getKey());
+            }
+            packs.put(ts, pack);
+        }
+        size++;
     }
 
-    public boolean isEmpty() {
-        return msgList.isEmpty();
+    /**
+     * Removes all packs that started at least one interval before {@code ts}.
+     * For {@link DeduplicationStrategy#ALL} every returned list holds all messages of a pack ordered by metadata ts,
+     * otherwise every returned list holds only the message selected by the strategy.
+     */
+    public List<List<TbMsg>> pollExpiredPacks(long ts) {
+        if (isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<List<TbMsg>> result = new ArrayList<>();
+        Map.Entry<Long, Pack> entry = packs.firstEntry();
+        while (entry != null && entry.getKey() + interval <= ts) {
+            packs.pollFirstEntry();
+            Pack pack = entry.getValue();
+            result.add(pack.msgs != null ? pack.getMsgs() : Collections.singletonList(pack.candidate));
+            size -= pack.count;
+            entry = packs.firstEntry();
+        }
+        return result;
+    }
+
+    private class Pack {
+        private long endTs;
+        private long maxTs;
+        private long candidateTs;
+        private TbMsg candidate;
+        private final List<PendingMsg> msgs;
+        private int count;
+
+        private Pack(long endTs, long ts, TbMsg msg) {
+            this.endTs = endTs;
+            this.maxTs = ts;
+            this.count = 1;
+            if (DeduplicationStrategy.ALL.equals(strategy)) {
+                this.msgs = new ArrayList<>();
+                msgs.add(new PendingMsg(ts, msg));
+            } else {
+                this.msgs = null;
+                this.candidateTs = ts;
+                this.candidate = msg;
+            }
+        }
+
+        private void add(long ts, TbMsg msg) {
+            if (msgs != null) {
+                int idx = msgs.size();
+                if (msgs.get(idx - 1).ts > ts) {
+                    idx = upperBound(ts);
+                }
+                msgs.add(idx, new PendingMsg(ts, msg));
+            } else if (DeduplicationStrategy.FIRST.equals(strategy) ? ts < candidateTs : ts > candidateTs) {
+                // on equal ts the earliest received message stays the candidate
+                candidateTs = ts;
+                candidate = msg;
+            }
+            maxTs = Math.max(maxTs, ts);
+            count++;
+        }
+
+        /**
+         * Takes over a pack that starts after all messages of this one.
+         */
+        private void merge(Pack other) {
+            if (msgs != null) {
+                msgs.addAll(other.msgs);
+            } else if (DeduplicationStrategy.LAST.equals(strategy)) {
+                candidateTs = other.candidateTs;
+                candidate = other.candidate;
+            }
+            maxTs = Math.max(maxTs, other.maxTs);
+            count += other.count;
+        }
+
+        private int upperBound(long ts) {
+            int low = 0;
+            int high = msgs.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (msgs.get(mid).ts <= ts) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private List<TbMsg> getMsgs() {
+            List<TbMsg> result = new ArrayList<>(msgs.size());
+            for (PendingMsg pendingMsg : msgs) {
+                result.add(pendingMsg.msg);
+            }
+            return result;
+        }
     }
+
+    private static class PendingMsg {
+        private final long ts;
+        private final TbMsg msg;
+
+        private PendingMsg(long ts, TbMsg msg) {
+            this.ts = ts;
+            this.msg = msg;
+        }
+    }
+
 }
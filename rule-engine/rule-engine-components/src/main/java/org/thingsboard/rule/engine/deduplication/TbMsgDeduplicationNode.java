@@ -28,17 +28,13 @@ import org.thingsboard.rule.engine.api.TbRelationTypes;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.server.common.data.id.EntityId;
 import org.thingsboard.server.common.data.plugin.ComponentType;
-import org.thingsboard.server.common.data.util.TbPair;
 import org.thingsboard.server.common.msg.TbMsg;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -96,7 +92,7 @@ public class TbMsgDeduplicationNode implements TbNode {
 
     private void processOnRegularMsg(TbContext ctx, TbMsg msg) {
         EntityId id = msg.getOriginator();
-        DeduplicationData deduplicationMsgs = deduplicationMap.computeIfAbsent(id, k -> new DeduplicationData());
+        DeduplicationData deduplicationMsgs = deduplicationMap.computeIfAbsent(id, k -> new DeduplicationData(config.getStrategy(), deduplicationInterval));
         if (deduplicationMsgs.size() < config.getMaxPendingMsgs()) {
             log.trace("[{}][{}] Adding msg: [{}][{}] to the pending msgs map ...", ctx.getSelfId(), id, msg.getId(), msg.getMetaDataTs());
             deduplicationMsgs.add(msg);
@@ -120,20 +116,8 @@ public class TbMsgDeduplicationNode implements TbNode {
         long deduplicationTimeoutMs = System.currentTimeMillis();
         try {
             List<TbMsg> deduplicationResults = new ArrayList<>();
-            List<TbMsg> msgList = data.getMsgList();
-            Optional<TbPair<Long, Long>> packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
-            while (packBoundsOpt.isPresent()) {
-                TbPair<Long, Long> packBounds = packBoundsOpt.get();
+            for (List<TbMsg> pack : data.pollExpiredPacks(deduplicationTimeoutMs)) {
                 if (DeduplicationStrategy.ALL.equals(config.getStrategy())) {
-                    List<TbMsg> pack = new ArrayList<>();
-                    for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
-                        TbMsg msg = iterator.next();
-                        long msgTs = msg.getMetaDataTs();
-                        if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
-                            pack.add(msg);
-                            iterator.remove();
-                        }
-                    }
                     deduplicationResults.add(TbMsg.newMsg(
                             config.getQueueName(),
                             config.getOutMsgType(),
@@ -141,31 +125,15 @@ public class TbMsgDeduplicationNode implements TbNode {
                             getMetadata(),
                             getMergedData(pack)));
                 } else {
-                    TbMsg resultMsg = null;
-                    boolean searchMin = DeduplicationStrategy.FIRST.equals(config.getStrategy());
-                    for (Iterator<TbMsg> iterator = msgList.iterator(); iterator.hasNext(); ) {
-                        TbMsg msg = iterator.next();
-                        long msgTs = msg.getMetaDataTs();
-                        if (msgTs >= packBounds.getFirst() && msgTs < packBounds.getSecond()) {
-                            iterator.remove();
-                            if (resultMsg == null
-                                    || (searchMin && msg.getMetaDataTs() < resultMsg.getMetaDataTs())
-                                    || (!searchMin && msg.getMetaDataTs() > resultMsg.getMetaDataTs())) {
-                                resultMsg = msg;
-                            }
-                        }
-                    }
-                    if (resultMsg != null) {
-                        deduplicationResults.add(TbMsg.newMsg(
-                                resultMsg.getQueueName(),
-                                resultMsg.getType(),
-                                resultMsg.getOriginator(),
-                                resultMsg.getCustomerId(),
-                                resultMsg.getMetaData(),
-                                resultMsg.getData()));
-                    }
+                    TbMsg resultMsg = pack.get(0);
+                    deduplicationResults.add(TbMsg.newMsg(
+                            resultMsg.getQueueName(),
+                            resultMsg.getType(),
+                            resultMsg.getOriginator(),
+                            resultMsg.getCustomerId(),
+                            resultMsg.getMetaData(),
+                            resultMsg.getData()));
                 }
-                packBoundsOpt = findValidPack(msgList, deduplicationTimeoutMs);
             }
             deduplicationResults.forEach(outMsg -> enqueueForTellNextWithRetry(ctx, outMsg, 0));
         } finally {
@@ -182,18 +150,6 @@ public class TbMsgDeduplicationNode implements TbNode {
         }
     }
 
-    private Optional<TbPair<Long, Long>> findValidPack(List<TbMsg> msgs, long deduplicationTimeoutMs) {
-        Optional<TbMsg> min = msgs.stream().min(Comparator.comparing(TbMsg::getMetaDataTs));
-        return min.map(minTsMsg -> {
-            long packStartTs = minTsMsg.getMetaDataTs();
-            long packEndTs = packStartTs + deduplicationInterval;
-            if (packEndTs <= deduplicationTimeoutMs) {
-                return new TbPair<>(packStartTs, packEndTs);
-            }
-            return null;
-        });
-    }
-
     private void enqueueForTellNextWithRetry(TbContext ctx, TbMsg msg, int retryAttempt) {
         if (config.getMaxRetries() > retryAttempt) {
             ctx.enqueueForTellNext(msg, TbRelationTypes.SUCCESS,
@@ -15,6 +15,7 @@
  */
 package org.thingsboard.rule.engine.filter;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import lombok.extern.slf4j.Slf4j;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.ScriptEngine;
@@ -23,10 +24,14 @@ import org.thingsboard.rule.engine.api.TbNode;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.util.TbMsgBatcher;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.data.script.ScriptLanguage;
 import org.thingsboard.server.common.msg.TbMsg;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.thingsboard.common.util.DonAsynchron.withCallback;
 
 @Slf4j
@@ -46,20 +51,41 @@ import static org.thingsboard.common.util.DonAsynchron.withCallback;
 )
 public class TbJsFilterNode implements TbNode {
 
+    private static final String TB_JS_FILTER_NODE_FLUSH_MSG = "TbJsFilterNodeFlushMsg";
+
     private TbJsFilterNodeConfiguration config;
     private ScriptEngine scriptEngine;
+    private TbMsgBatcher batcher;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
         this.config = TbNodeUtils.convert(configuration, TbJsFilterNodeConfiguration.class);
         scriptEngine = ctx.createScriptEngine(config.getScriptLang(),
                 ScriptLanguage.TBEL.equals(config.getScriptLang()) ? config.getTbelScript() : config.getJsScript());
+        batcher = new TbMsgBatcher(TB_JS_FILTER_NODE_FLUSH_MSG, this::processBatch);
     }
 
     @Override
     public void onMsg(TbContext ctx, TbMsg msg) {
-        ctx.logJsEvalRequest();
-        withCallback(scriptEngine.executeFilterAsync(msg),
+        batcher.onMsg(ctx, msg);
+    }
+
+    private void processBatch(List<TbMsgBatcher.BatchedMsg> batch) {
+        batch.forEach(batchedMsg -> batchedMsg.getCtx().logJsEvalRequest());
+        if (batch.size() == 1) {
+            process(batch.get(0).getCtx(), batch.get(0).getMsg(), scriptEngine.executeFilterAsync(batch.get(0).getMsg()));
+            return;
+        }
+        List<TbMsg> msgs = new ArrayList<>(batch.size());
+        batch.forEach(batchedMsg -> msgs.add(batchedMsg.getMsg()));
+        List<ListenableFuture<Boolean>> results = scriptEngine.executeFilterBatchAsync(msgs);
+        for (int i = 0; i < batch.size(); i++) {
+            process(batch.get(i).getCtx(), msgs.get(i), results.get(i));
+        }
+    }
+
+    private void process(TbContext ctx, TbMsg msg, ListenableFuture<Boolean> result) {
+        withCallback(result,
                 filterResult -> {
                     ctx.logJsEvalResponse();
                     ctx.tellNext(msg, filterResult ? "True" : "False");
@@ -72,6 +98,9 @@ public class TbJsFilterNode implements TbNode {
 
     @Override
     public void destroy() {
+        if (batcher != null) {
+            batcher.flush();
+        }
         if (scriptEngine != null) {
             scriptEngine.destroy();
         }
@@ -0,0 +1,132 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.profile;
+
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.alarm.AlarmSeverity;
+import org.thingsboard.server.common.data.device.profile.DeviceProfileAlarm;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+import org.thingsboard.server.common.data.id.RuleNodeId;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Evaluation statistics of the alarm rules processed by a single device profile rule node,
+ * aggregated over all devices of the same profile. The statistics are collected only while debug logging is enabled.
+ */
+@Slf4j
+class AlarmRuleEvalStats {
+
+    private static final String CLEAR_RULE = "CLEAR";
+
+    private final Map<DeviceProfileId, Map<String, RuleStats>> rulesStats = new ConcurrentHashMap<>();
+
+    RuleStats getCreateRuleStats(DeviceProfile deviceProfile, DeviceProfileAlarm alarm, AlarmSeverity severity) {
+        return getRuleStats(deviceProfile, alarm, severity.name());
+    }
+
+    RuleStats getClearRuleStats(DeviceProfile deviceProfile, DeviceProfileAlarm alarm) {
+        return getRuleStats(deviceProfile, alarm, CLEAR_RULE);
+    }
+
+    private RuleStats getRuleStats(DeviceProfile deviceProfile, DeviceProfileAlarm alarm, String rule) {
+        String name = deviceProfile.getName() + "/" + alarm.getAlarmType() + "/" + rule;
+        return rulesStats.computeIfAbsent(deviceProfile.getId(), id -> new ConcurrentHashMap<>())
+                .computeIfAbsent(alarm.getId() + "/" + rule, k -> new RuleStats(name));
+    }
+
+    /**
+     * Removes the stats of the rules that are no longer present in the device profile.
+     */
+    void onProfileUpdate(DeviceProfile deviceProfile) {
+        Map<String, RuleStats> profileStats = rulesStats.get(deviceProfile.getId());
+        if (profileStats == null) {
+            return;
+        }
+        Set<String> rules = new HashSet<>();
+        List<DeviceProfileAlarm> alarms = deviceProfile.getProfileData().getAlarms();
+        if (alarms != null) {
+            for (DeviceProfileAlarm alarm : alarms) {
+                if (alarm.getCreateRules() != null) {
+                    alarm.getCreateRules().keySet().forEach(severity -> rules.add(alarm.getId() + "/" + severity.name()));
+                }
+                if (alarm.getClearRule() != null) {
+                    rules.add(alarm.getId() + "/" + CLEAR_RULE);
+                }
+            }
+        }
+        profileStats.keySet().retainAll(rules);
+    }
+
+    /**
+     * Removes the stats of the device profiles that are no longer used by any device state of the rule node.
+     */
+    void retainProfiles(Set<DeviceProfileId> deviceProfileIds) {
+        rulesStats.keySet().retainAll(deviceProfileIds);
+    }
+
+    void printStats(RuleNodeId ruleNodeId) {
+        if (!log.isDebugEnabled()) {
+            return;
+        }
+        rulesStats.values().forEach(profileStats -> profileStats.values().forEach(stats -> {
+            long evaluated = stats.evaluatedCnt.sumThenReset();
+            long skipped = stats.skippedCnt.sumThenReset();
+            long timeSpent = stats.evalTimeNs.sumThenReset();
+            if (evaluated > 0 || skipped > 0) {
+                log.debug("[{}][{}] Alarm rule stats: evaluated [{}] skipped [{}] evalTime [{}] us avgEvalTime [{}] ns",
+                        ruleNodeId, stats.name, evaluated, skipped, TimeUnit.NANOSECONDS.toMicros(timeSpent),
+                        evaluated > 0 ? timeSpent / evaluated : 0);
+            }
+        }));
+    }
+
+    static class RuleStats {
+
+        private final String name;
+        private final LongAdder evaluatedCnt = new LongAdder();
+        private final LongAdder skippedCnt = new LongAdder();
+        private final LongAdder evalTimeNs = new LongAdder();
+
+        RuleStats(String name) {
+            this.name = name;
+        }
+
+        boolean isEnabled() {
+            return log.isDebugEnabled();
+        }
+
+        void onEvaluated(long timeNs) {
+            evaluatedCnt.increment();
+            evalTimeNs.add(timeNs);
+        }
+
+        void onSkipped() {
+            if (isEnabled()) {
+                skippedCnt.increment();
+            }
+        }
+
+    }
+
+}
@@ -97,9 +97,10 @@ class AlarmState {
         for (AlarmRuleState state : createRulesSortedBySeverityDesc) {
             if (!validateUpdate(update, state)) {
                 log.debug("[{}][{}] Update is not valid for current rule state", alarmDefinition.getId(), state.getSeverity());
+                state.getCompiledRule().getStats().onSkipped();
                 continue;
             }
-            AlarmEvalResult evalResult = evalFunction.apply(state, data);
+            AlarmEvalResult evalResult = evalRule(state, data, evalFunction);
             stateUpdate |= state.checkUpdate();
             if (AlarmEvalResult.TRUE.equals(evalResult)) {
                 resultState = state;
@@ -117,9 +118,10 @@ class AlarmState {
         } else if (currentAlarm != null && clearState != null) {
             if (!validateUpdate(update, clearState)) {
                 log.debug("[{}] Update is not valid for current clear state", alarmDefinition.getId());
+                clearState.getCompiledRule().getStats().onSkipped();
                 return stateUpdate;
             }
-            AlarmEvalResult evalResult = evalFunction.apply(clearState, data);
+            AlarmEvalResult evalResult = evalRule(clearState, data, evalFunction);
             if (AlarmEvalResult.TRUE.equals(evalResult)) {
                 stateUpdate = clearAlarmState(stateUpdate, clearState);
                 for (AlarmRuleState state : createRulesSortedBySeverityDesc) {
@@ -139,6 +141,19 @@ class AlarmState {
         return stateUpdate;
     }
 
+    private <T> AlarmEvalResult evalRule(AlarmRuleState state, T data, BiFunction<AlarmRuleState, T, AlarmEvalResult> evalFunction) {
+        AlarmRuleEvalStats.RuleStats stats = state.getCompiledRule().getStats();
+        if (!stats.isEnabled()) {
+            return evalFunction.apply(state, data);
+        }
+        long startNs = System.nanoTime();
+        try {
+            return evalFunction.apply(state, data);
+        } finally {
+            stats.onEvaluated(System.nanoTime() - startNs);
+        }
+    }
+
     public boolean clearAlarmState(boolean stateUpdate, AlarmRuleState state) {
         if (state != null) {
             state.clear();
@@ -215,13 +230,13 @@ class AlarmState {
                     alarmState.getCreateRuleStates().put(severity, ruleState);
                 }
             }
-            createRulesSortedBySeverityDesc.add(new AlarmRuleState(severity, rule,
-                    deviceProfile.getCreateAlarmKeys(alarm.getId(), severity), ruleState, dynamicPredicateValueCtx));
+            createRulesSortedBySeverityDesc.add(new AlarmRuleState(severity, deviceProfile.getCreateAlarmRule(alarm, severity),
+                    ruleState, dynamicPredicateValueCtx));
         });
         createRulesSortedBySeverityDesc.sort(Comparator.comparingInt(state -> state.getSeverity().ordinal()));
         PersistedAlarmRuleState ruleState = alarmState == null ? null : alarmState.getClearRuleState();
         if (alarmDefinition.getClearRule() != null) {
-            clearState = new AlarmRuleState(null, alarmDefinition.getClearRule(), deviceProfile.getClearAlarmKeys(alarm.getId()), ruleState, dynamicPredicateValueCtx);
+            clearState = new AlarmRuleState(null, deviceProfile.getClearAlarmRule(alarm), ruleState, dynamicPredicateValueCtx);
         }
     }
 
@@ -0,0 +1,336 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.profile;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilter;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilterKey;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
+import org.thingsboard.server.common.data.device.profile.AlarmRule;
+import org.thingsboard.server.common.data.query.BooleanFilterPredicate;
+import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
+import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.KeyFilterPredicate;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Alarm rule compiled when the profile state of a device is built or updated, not on every message:
+ * a flat array of filters with pre-parsed constants and predicates resolved to their concrete types,
+ * together with the keys the rule depends on.
+ */
+@Slf4j
+class CompiledAlarmRule {
+
+    private static final CompiledFilter[] EMPTY_FILTERS = new CompiledFilter[0];
+
+    @Getter
+    private final AlarmRule alarmRule;
+    @Getter
+    private final Set<AlarmConditionFilterKey> keys;
+    @Getter
+    private final AlarmRuleEvalStats.RuleStats stats;
+    private final boolean timeseriesDependent;
+    private final CompiledFilter[] filters;
+
+    private CompiledAlarmRule(AlarmRule alarmRule, Set<AlarmConditionFilterKey> keys, AlarmRuleEvalStats.RuleStats stats) {
+        this.alarmRule = alarmRule;
+        this.keys = keys;
+        this.stats = stats;
+        this.timeseriesDependent = keys != null && keys.stream().anyMatch(key -> key.getType() == AlarmConditionKeyType.TIME_SERIES);
+        List<AlarmConditionFilter> conditionFilters = alarmRule.getCondition() != null ? alarmRule.getCondition().getCondition() : null;
+        if (conditionFilters == null || conditionFilters.isEmpty()) {
+            this.filters = EMPTY_FILTERS;
+        } else {
+            this.filters = conditionFilters.stream().map(CompiledFilter::new).toArray(CompiledFilter[]::new);
+        }
+    }
+
+    static CompiledAlarmRule compile(AlarmRule alarmRule, Set<AlarmConditionFilterKey> keys, AlarmRuleEvalStats.RuleStats stats) {
+        return new CompiledAlarmRule(alarmRule, keys, stats);
+    }
+
+    boolean isAffectedByTsUpdate(Set<AlarmConditionFilterKey> changedKeys) {
+        return intersects(changedKeys);
+    }
+
+    boolean isAffectedByAttrUpdate(Set<AlarmConditionFilterKey> changedKeys) {
+        //If the attribute was updated, but no new telemetry arrived - we ignore this until new telemetry is there.
+        return !timeseriesDependent && intersects(changedKeys);
+    }
+
+    private boolean intersects(Set<AlarmConditionFilterKey> changedKeys) {
+        Set<AlarmConditionFilterKey> smaller = changedKeys.size() <= keys.size() ? changedKeys : keys;
+        Set<AlarmConditionFilterKey> larger = smaller == changedKeys ? keys : changedKeys;
+        for (AlarmConditionFilterKey key : smaller) {
+            if (larger.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean evalCondition(DataSnapshot data, AlarmRuleState ruleState) {
+        for (CompiledFilter filter : filters) {
+            EntityKeyValue value = filter.constant ? filter.constantValue : data.getValue(filter.key);
+            if (value == null || !filter.predicate.eval(data, value, ruleState)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class CompiledFilter {
+
+        private final AlarmConditionFilterKey key;
+        private final boolean constant;
+        private final EntityKeyValue constantValue;
+        private final CompiledPredicate predicate;
+
+        CompiledFilter(AlarmConditionFilter filter) {
+            this.key = filter.getKey();
+            this.constant = AlarmConditionKeyType.CONSTANT.equals(filter.getKey().getType());
+            this.constantValue = constant ? parseConstantValue(filter) : null;
+            this.predicate = compilePredicate(filter.getPredicate(), constant);
+        }
+
+        private static EntityKeyValue parseConstantValue(AlarmConditionFilter filter) {
+            try {
+                EntityKeyValue value = new EntityKeyValue();
+                String valueStr = filter.getValue().toString();
+                switch (filter.getValueType()) {
+                    case STRING:
+                        value.setStrValue(valueStr);
+                        break;
+                    case DATE_TIME:
+                        value.setLngValue(Long.valueOf(valueStr));
+                        break;
+                    case NUMERIC:
+                        value.setDblValue(Double.valueOf(valueStr));
+                        break;
+                    case BOOLEAN:
+                        value.setBoolValue(Boolean.valueOf(valueStr));
+                        break;
+                }
+                return value;
+            } catch (RuntimeException e) {
+                log.warn("Failed to parse constant value from filter: {}", filter, e);
+                return null;
+            }
+        }
+    }
+
+    private interface CompiledPredicate {
+
+        boolean eval(DataSnapshot data, EntityKeyValue value, AlarmRuleState ruleState);
+
+    }
+
+    private static CompiledPredicate compilePredicate(KeyFilterPredicate predicate, boolean constantKey) {
+        switch (predicate.getType()) {
+            case STRING:
+                return new StringPredicate((StringFilterPredicate) predicate, constantKey);
+            case NUMERIC:
+                return new NumericPredicate((NumericFilterPredicate) predicate, constantKey);
+            case BOOLEAN:
+                return new BooleanPredicate((BooleanFilterPredicate) predicate, constantKey);
+            case COMPLEX:
+                return new ComplexPredicate((ComplexFilterPredicate) predicate, constantKey);
+            default:
+                return (data, value, ruleState) -> false;
+        }
+    }
+
+    /**
+     * Right-hand side of a simple predicate. Without a dynamic value it is resolved once at compile time.
+     */
+    private static class PredicateValue<T> {
+
+        private final FilterPredicateValue<T> value;
+        private final boolean constantKey;
+        private final Function<EntityKeyValue, T> transformFunction;
+        private final boolean dynamic;
+        private final T staticValue;
+
+        PredicateValue(FilterPredicateValue<T> value, boolean constantKey, Function<EntityKeyValue, T> transformFunction) {
+            this.value = value;
+            this.constantKey = constantKey;
+            this.transformFunction = transformFunction;
+            this.dynamic = value.getDynamicValue() != null;
+            this.staticValue = constantKey ? null : value.getDefaultValue();
+        }
+
+        T resolve(DataSnapshot data, AlarmRuleState ruleState) {
+            return dynamic ? ruleState.getPredicateValue(data, value, constantKey, transformFunction) : staticValue;
+        }
+    }
+
+    private static class StringPredicate implements CompiledPredicate {
+
+        private final StringFilterPredicate.StringOperation operation;
+        private final boolean ignoreCase;
+        private final PredicateValue<String> predicateValue;
+
+        StringPredicate(StringFilterPredicate predicate, boolean constantKey) {
+            this.operation = predicate.getOperation();
+            this.ignoreCase = predicate.isIgnoreCase();
+            this.predicateValue = new PredicateValue<>(predicate.getValue(), constantKey, AlarmRuleState::getStrValue);
+        }
+
+        @Override
+        public boolean eval(DataSnapshot data, EntityKeyValue ekv, AlarmRuleState ruleState) {
+            String val = AlarmRuleState.getStrValue(ekv);
+            if (val == null) {
+                return false;
+            }
+            String predicateValue = this.predicateValue.resolve(data, ruleState);
+            if (predicateValue == null) {
+                return false;
+            }
+            if (ignoreCase) {
+                val = val.toLowerCase();
+                predicateValue = predicateValue.toLowerCase();
+            }
+            switch (operation) {
+                case CONTAINS:
+                    return val.contains(predicateValue);
+                case EQUAL:
+                    return val.equals(predicateValue);
+                case STARTS_WITH:
+                    return val.startsWith(predicateValue);
+                case ENDS_WITH:
+                    return val.endsWith(predicateValue);
+                case NOT_EQUAL:
+                    return !val.equals(predicateValue);
+                case NOT_CONTAINS:
+                    return !val.contains(predicateValue);
+                default:
+                    throw new RuntimeException("Operation not supported: " + operation);
+            }
+        }
+    }
+
+    private static class NumericPredicate implements CompiledPredicate {
+
+        private final NumericFilterPredicate.NumericOperation operation;
+        private final PredicateValue<Double> predicateValue;
+
+        NumericPredicate(NumericFilterPredicate predicate, boolean constantKey) {
+            this.operation = predicate.getOperation();
+            this.predicateValue = new PredicateValue<>(predicate.getValue(), constantKey, AlarmRuleState::getDblValue);
+        }
+
+        @Override
+        public boolean eval(DataSnapshot data, EntityKeyValue ekv, AlarmRuleState ruleState) {
+            Double val = AlarmRuleState.getDblValue(ekv);
+            if (val == null) {
+                return false;
+            }
+            Double predicateValue = this.predicateValue.resolve(data, ruleState);
+            if (predicateValue == null) {
+                return false;
+            }
+            switch (operation) {
+                case NOT_EQUAL:
+                    return !val.equals(predicateValue);
+                case EQUAL:
+                    return val.equals(predicateValue);
+                case GREATER:
+                    return val > predicateValue;
+                case GREATER_OR_EQUAL:
+                    return val >= predicateValue;
+                case LESS:
+                    return val < predicateValue;
+                case LESS_OR_EQUAL:
+                    return val <= predicateValue;
+                default:
+                    throw new RuntimeException("Operation not supported: " + operation);
+            }
+        }
+    }
+
+    private static class BooleanPredicate implements CompiledPredicate {
+
+        private final BooleanFilterPredicate.BooleanOperation operation;
+        private final PredicateValue<Boolean> predicateValue;
+
+        BooleanPredicate(BooleanFilterPredicate predicate, boolean constantKey) {
+            this.operation = predicate.getOperation();
+            this.predicateValue = new PredicateValue<>(predicate.getValue(), constantKey, AlarmRuleState::getBoolValue);
+        }
+
+        @Override
+        public boolean eval(DataSnapshot data, EntityKeyValue ekv, AlarmRuleState ruleState) {
+            Boolean val = AlarmRuleState.getBoolValue(ekv);
+            if (val == null) {
+                return false;
+            }
+            Boolean predicateValue = this.predicateValue.resolve(data, ruleState);
+            if (predicateValue == null) {
+                return false;
+            }
+            switch (operation) {
+                case EQUAL:
+                    return val.equals(predicateValue);
+                case NOT_EQUAL:
+                    return !val.equals(predicateValue);
+                default:
+                    throw new RuntimeException("Operation not supported: " + operation);
+            }
+        }
+    }
+
+    private static class ComplexPredicate implements CompiledPredicate {
+
+        private final ComplexFilterPredicate.ComplexOperation operation;
+        private final CompiledPredicate[] predicates;
+
+        ComplexPredicate(ComplexFilterPredicate predicate, boolean constantKey) {
+            this.operation = predicate.getOperation();
+            this.predicates = predicate.getPredicates().stream()
+                    .map(child -> compilePredicate(child, constantKey))
+                    .toArray(CompiledPredicate[]::new);
+        }
+
+        @Override
+        public boolean eval(DataSnapshot data, EntityKeyValue ekv, AlarmRuleState ruleState) {
+            switch (operation) {
+                case OR:
+                    for (CompiledPredicate predicate : predicates) {
+                        if (predicate.eval(data, ekv, ruleState)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                case AND:
+                    for (CompiledPredicate predicate : predicates) {
+                        if (!predicate.eval(data, ekv, ruleState)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                default:
+                    throw new RuntimeException("Operation not supported: " + operation);
+            }
+        }
+    }
+
+}
@@ -53,25 +53,31 @@ class ProfileState {
     @Getter(AccessLevel.PACKAGE)
     private final Set<AlarmConditionFilterKey> entityKeys = ConcurrentHashMap.newKeySet();
 
-    private final Map<String, Map<AlarmSeverity, Set<AlarmConditionFilterKey>>> alarmCreateKeys = new HashMap<>();
-    private final Map<String, Set<AlarmConditionFilterKey>> alarmClearKeys = new HashMap<>();
+    private final Map<String, Map<AlarmSeverity, CompiledAlarmRule>> alarmCreateRules = new HashMap<>();
+    private final Map<String, CompiledAlarmRule> alarmClearRules = new HashMap<>();
+    private final AlarmRuleEvalStats evalStats;
 
     ProfileState(DeviceProfile deviceProfile) {
+        this(deviceProfile, new AlarmRuleEvalStats());
+    }
+
+    ProfileState(DeviceProfile deviceProfile, AlarmRuleEvalStats evalStats) {
+        this.evalStats = evalStats;
         updateDeviceProfile(deviceProfile);
     }
 
     void updateDeviceProfile(DeviceProfile deviceProfile) {
         this.deviceProfile = deviceProfile;
         alarmSettings.clear();
-        alarmCreateKeys.clear();
-        alarmClearKeys.clear();
+        alarmCreateRules.clear();
+        alarmClearRules.clear();
         entityKeys.clear();
         if (deviceProfile.getProfileData().getAlarms() != null) {
             alarmSettings.addAll(deviceProfile.getProfileData().getAlarms());
             for (DeviceProfileAlarm alarm : deviceProfile.getProfileData().getAlarms()) {
-                Map<AlarmSeverity, Set<AlarmConditionFilterKey>> createAlarmKeys = alarmCreateKeys.computeIfAbsent(alarm.getId(), id -> new HashMap<>());
+                Map<AlarmSeverity, CompiledAlarmRule> createRules = alarmCreateRules.computeIfAbsent(alarm.getId(), id -> new HashMap<>());
                 alarm.getCreateRules().forEach(((severity, alarmRule) -> {
-                    var ruleKeys = createAlarmKeys.computeIfAbsent(severity, id -> new HashSet<>());
+                    Set<AlarmConditionFilterKey> ruleKeys = new HashSet<>();
                     for (var keyFilter : alarmRule.getCondition().getCondition()) {
                         entityKeys.add(keyFilter.getKey());
                         ruleKeys.add(keyFilter.getKey());
@@ -82,15 +88,18 @@ class ProfileState {
                     if (schedule != null) {
                         addScheduleDynamicValues(schedule);
                     }
+                    createRules.put(severity, CompiledAlarmRule.compile(alarmRule, ruleKeys, evalStats.getCreateRuleStats(deviceProfile, alarm, severity)));
                 }));
                 if (alarm.getClearRule() != null) {
-                    var clearAlarmKeys = alarmClearKeys.computeIfAbsent(alarm.getId(), id -> new HashSet<>());
+                    Set<AlarmConditionFilterKey> clearAlarmKeys = new HashSet<>();
                     for (var keyFilter : alarm.getClearRule().getCondition().getCondition()) {
                         entityKeys.add(keyFilter.getKey());
                         clearAlarmKeys.add(keyFilter.getKey());
                         addDynamicValuesRecursively(keyFilter.getPredicate(), entityKeys, clearAlarmKeys);
                     }
                     addEntityKeysFromAlarmConditionSpec(alarm.getClearRule());
+                    alarmClearRules.put(alarm.getId(),
+                            CompiledAlarmRule.compile(alarm.getClearRule(), clearAlarmKeys, evalStats.getClearRuleStats(deviceProfile, alarm)));
                 }
             }
         }
@@ -163,26 +172,21 @@ class ProfileState {
         return deviceProfile.getId();
     }
 
-    Set<AlarmConditionFilterKey> getCreateAlarmKeys(String id, AlarmSeverity severity) {
-        Map<AlarmSeverity, Set<AlarmConditionFilterKey>> sKeys = alarmCreateKeys.get(id);
-        if (sKeys == null) {
-            return Collections.emptySet();
-        } else {
-            Set<AlarmConditionFilterKey> keys = sKeys.get(severity);
-            if (keys == null) {
-                return Collections.emptySet();
-            } else {
-                return keys;
-            }
+    CompiledAlarmRule getCreateAlarmRule(DeviceProfileAlarm alarm, AlarmSeverity severity) {
+        Map<AlarmSeverity, CompiledAlarmRule> rules = alarmCreateRules.get(alarm.getId());
+        CompiledAlarmRule rule = rules != null ? rules.get(severity) : null;
+        if (rule == null) {
+            rule = CompiledAlarmRule.compile(alarm.getCreateRules().get(severity), Collections.emptySet(),
+                    evalStats.getCreateRuleStats(deviceProfile, alarm, severity));
         }
+        return rule;
     }
 
-    Set<AlarmConditionFilterKey> getClearAlarmKeys(String id) {
-        Set<AlarmConditionFilterKey> keys = alarmClearKeys.get(id);
-        if (keys == null) {
-            return Collections.emptySet();
-        } else {
-            return keys;
+    CompiledAlarmRule getClearAlarmRule(DeviceProfileAlarm alarm) {
+        CompiledAlarmRule rule = alarmClearRules.get(alarm.getId());
+        if (rule == null) {
+            rule = CompiledAlarmRule.compile(alarm.getClearRule(), Collections.emptySet(), evalStats.getClearRuleStats(deviceProfile, alarm));
         }
+        return rule;
     }
 }
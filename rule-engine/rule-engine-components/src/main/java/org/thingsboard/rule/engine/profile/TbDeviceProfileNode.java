@@ -45,6 +45,7 @@ import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 @Slf4j
 @RuleNode(
@@ -68,6 +69,7 @@ public class TbDeviceProfileNode implements TbNode {
     private RuleEngineDeviceProfileCache cache;
     private TbContext ctx;
     private final Map<DeviceId, DeviceState> deviceStates = new ConcurrentHashMap<>();
+    private final AlarmRuleEvalStats evalStats = new AlarmRuleEvalStats();
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
@@ -110,6 +112,8 @@ public class TbDeviceProfileNode implements TbNode {
         if (msg.getType().equals(PERIODIC_MSG_TYPE)) {
             scheduleAlarmHarvesting(ctx, msg);
             harvestAlarms(ctx, System.currentTimeMillis());
+            evalStats.retainProfiles(deviceStates.values().stream().map(DeviceState::getProfileId).collect(Collectors.toSet()));
+            evalStats.printStats(ctx.getSelfId());
         } else if (msg.getType().equals(PROFILE_UPDATE_MSG_TYPE)) {
             updateProfile(ctx, new DeviceProfileId(UUID.fromString(msg.getData())));
         } else if (msg.getType().equals(DEVICE_UPDATE_MSG_TYPE)) {
@@ -161,7 +165,7 @@ public class TbDeviceProfileNode implements TbNode {
         if (deviceState == null) {
             DeviceProfile deviceProfile = cache.get(ctx.getTenantId(), deviceId);
             if (deviceProfile != null) {
-                deviceState = new DeviceState(ctx, config, deviceId, new ProfileState(deviceProfile), rns);
+                deviceState = new DeviceState(ctx, config, deviceId, new ProfileState(deviceProfile, evalStats), rns);
                 deviceStates.put(deviceId, deviceState);
             }
         }
@@ -183,6 +187,7 @@ public class TbDeviceProfileNode implements TbNode {
         DeviceProfile deviceProfile = cache.get(ctx.getTenantId(), deviceProfileId);
         if (deviceProfile != null) {
             log.debug("[{}] Received device profile update notification: {}", ctx.getSelfId(), deviceProfile);
+            evalStats.onProfileUpdate(deviceProfile);
             for (DeviceState state : deviceStates.values()) {
                 if (deviceProfile.getId().equals(state.getProfileId())) {
                     state.updateProfile(ctx, deviceProfile);
@@ -26,11 +26,18 @@ import org.thingsboard.rule.engine.api.util.TbNodeUtils;
 import org.thingsboard.server.common.data.StringUtils;
 import org.thingsboard.server.common.data.TenantProfile;
 import org.thingsboard.server.common.data.kv.BasicTsKvEntry;
+import org.thingsboard.server.common.data.kv.BooleanDataEntry;
+import org.thingsboard.server.common.data.kv.DoubleDataEntry;
+import org.thingsboard.server.common.data.kv.JsonDataEntry;
 import org.thingsboard.server.common.data.kv.KvEntry;
+import org.thingsboard.server.common.data.kv.LongDataEntry;
+import org.thingsboard.server.common.data.kv.StringDataEntry;
 import org.thingsboard.server.common.data.kv.TsKvEntry;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.data.tenant.profile.DefaultTenantProfileConfiguration;
 import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgDataType;
+import org.thingsboard.server.common.msg.gen.MsgProtos;
 import org.thingsboard.server.common.msg.session.SessionMsgType;
 import org.thingsboard.server.common.transport.adaptor.JsonConverter;
 
@@ -86,18 +93,23 @@ public class TbMsgTimeseriesNode implements TbNode {
             return;
         }
         long ts = computeTs(msg, config.isUseServerTs());
-        String src = msg.getData();
-        Map<Long, List<KvEntry>> tsKvMap = JsonConverter.convertToTelemetry(new JsonParser().parse(src), ts);
-        if (tsKvMap.isEmpty()) {
-            ctx.tellFailure(msg, new IllegalArgumentException("Msg body is empty: " + src));
-            return;
-        }
-        List<TsKvEntry> tsKvEntryList = new ArrayList<>();
-        for (Map.Entry<Long, List<KvEntry>> tsKvEntry : tsKvMap.entrySet()) {
-            for (KvEntry kvEntry : tsKvEntry.getValue()) {
-                tsKvEntryList.add(new BasicTsKvEntry(tsKvEntry.getKey(), kvEntry));
+        List<TsKvEntry> tsKvEntryList;
+        if (msg.getDataType() == TbMsgDataType.TS_KV_LIST) {
+            tsKvEntryList = toTsKvEntries(msg.getTsKvList(), ts);
+        } else {
+            String src = msg.getData();
+            Map<Long, List<KvEntry>> tsKvMap = JsonConverter.convertToTelemetry(new JsonParser().parse(src), ts);
+            tsKvEntryList = new ArrayList<>();
+            for (Map.Entry<Long, List<KvEntry>> tsKvEntry : tsKvMap.entrySet()) {
+                for (KvEntry kvEntry : tsKvEntry.getValue()) {
+                    tsKvEntryList.add(new BasicTsKvEntry(tsKvEntry.getKey(), kvEntry));
+                }
             }
         }
+        if (tsKvEntryList.isEmpty()) {
+            ctx.tellFailure(msg, new IllegalArgumentException("Msg body is empty: " + msg.getData()));
+            return;
+        }
         String ttlValue = msg.getMetaData().getValue("TTL");
         long ttl = !StringUtils.isEmpty(ttlValue) ? Long.parseLong(ttlValue) : config.getDefaultTTL();
         if (ttl == 0L) {
@@ -110,6 +122,34 @@ public class TbMsgTimeseriesNode implements TbNode {
         }
     }
 
+    private static List<TsKvEntry> toTsKvEntries(MsgProtos.TbMsgTsKvListProto tsKvList, long ts) {
+        List<TsKvEntry> result = new ArrayList<>(tsKvList.getKvCount());
+        for (MsgProtos.TbMsgKvProto kv : tsKvList.getKvList()) {
+            KvEntry kvEntry;
+            switch (kv.getType()) {
+                case BOOLEAN_V:
+                    kvEntry = new BooleanDataEntry(kv.getKey(), kv.getBoolV());
+                    break;
+                case LONG_V:
+                    kvEntry = new LongDataEntry(kv.getKey(), kv.getLongV());
+                    break;
+                case DOUBLE_V:
+                    kvEntry = new DoubleDataEntry(kv.getKey(), kv.getDoubleV());
+                    break;
+                case STRING_V:
+                    kvEntry = new StringDataEntry(kv.getKey(), kv.getStringV());
+                    break;
+                case JSON_V:
+                    kvEntry = new JsonDataEntry(kv.getKey(), kv.getJsonV());
+                    break;
+                default:
+                    continue;
+            }
+            result.add(new BasicTsKvEntry(ts, kvEntry));
+        }
+        return result;
+    }
+
     public static long computeTs(TbMsg msg, boolean ignoreMetadataTs) {
         return ignoreMetadataTs ? System.currentTimeMillis() : msg.getMetaDataTs();
     }
@@ -16,18 +16,23 @@
 package org.thingsboard.rule.engine.transform;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.thingsboard.rule.engine.api.RuleNode;
 import org.thingsboard.rule.engine.api.ScriptEngine;
 import org.thingsboard.rule.engine.api.TbContext;
 import org.thingsboard.rule.engine.api.TbNodeConfiguration;
 import org.thingsboard.rule.engine.api.TbNodeException;
 import org.thingsboard.rule.engine.api.util.TbNodeUtils;
+import org.thingsboard.rule.engine.util.TbMsgBatcher;
 import org.thingsboard.server.common.data.plugin.ComponentType;
 import org.thingsboard.server.common.data.script.ScriptLanguage;
 import org.thingsboard.server.common.msg.TbMsg;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import static org.thingsboard.common.util.DonAsynchron.withCallback;
+
 @RuleNode(
         type = ComponentType.TRANSFORMATION,
         name = "script",
@@ -45,8 +50,11 @@ import java.util.List;
 )
 public class TbTransformMsgNode extends TbAbstractTransformNode {
 
+    private static final String TB_TRANSFORM_MSG_NODE_FLUSH_MSG = "TbTransformMsgNodeFlushMsg";
+
     private TbTransformMsgNodeConfiguration config;
     private ScriptEngine scriptEngine;
+    private TbMsgBatcher batcher;
 
     @Override
     public void init(TbContext ctx, TbNodeConfiguration configuration) throws TbNodeException {
@@ -54,6 +62,33 @@ public class TbTransformMsgNode extends TbAbstractTransformNode {
         scriptEngine = ctx.createScriptEngine(config.getScriptLang(),
                 ScriptLanguage.TBEL.equals(config.getScriptLang()) ? config.getTbelScript() : config.getJsScript());
         setConfig(config);
+        batcher = new TbMsgBatcher(TB_TRANSFORM_MSG_NODE_FLUSH_MSG, this::processBatch);
+    }
+
+    @Override
+    public void onMsg(TbContext ctx, TbMsg msg) {
+        batcher.onMsg(ctx, msg);
+    }
+
+    private void processBatch(List<TbMsgBatcher.BatchedMsg> batch) {
+        if (batch.size() == 1) {
+            super.onMsg(batch.get(0).getCtx(), batch.get(0).getMsg());
+            return;
+        }
+        List<TbMsg> msgs = new ArrayList<>(batch.size());
+        batch.forEach(batchedMsg -> {
+            batchedMsg.getCtx().logJsEvalRequest();
+            msgs.add(batchedMsg.getMsg());
+        });
+        List<ListenableFuture<List<TbMsg>>> results = scriptEngine.executeUpdateBatchAsync(msgs);
+        for (int i = 0; i < batch.size(); i++) {
+            TbContext ctx = batch.get(i).getCtx();
+            TbMsg msg = msgs.get(i);
+            withCallback(results.get(i),
+                    m -> transformSuccess(ctx, msg, m),
+                    t -> transformFailure(ctx, msg, t),
+                    MoreExecutors.directExecutor());
+        }
     }
 
     @Override
@@ -76,6 +111,9 @@ public class TbTransformMsgNode extends TbAbstractTransformNode {
 
     @Override
     public void destroy() {
+        if (batcher != null) {
+            batcher.flush();
+        }
         if (scriptEngine != null) {
             scriptEngine.destroy();
         }
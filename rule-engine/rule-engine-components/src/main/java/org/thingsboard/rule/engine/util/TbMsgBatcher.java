@@ -0,0 +1,80 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.util;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.thingsboard.rule.engine.api.TbContext;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Collects the messages of a rule node while more messages are queued for the node, so they can be processed as a batch.
+ * <p>
+ * The batch is flushed when the mailbox of the node is empty or when the batch is full. If neither happens,
+ * a flush message sent to self right after the first deferred message flushes it once the messages queued before it are processed.
+ * Not thread safe, must be used from the rule node actor only.
+ */
+public class TbMsgBatcher {
+
+    public static final int MAX_BATCH_SIZE = 100;
+
+    private final String flushMsgType;
+    private final Consumer<List<BatchedMsg>> batchProcessor;
+
+    private List<BatchedMsg> pendingMsgs = new ArrayList<>();
+    private boolean flushScheduled;
+
+    public TbMsgBatcher(String flushMsgType, Consumer<List<BatchedMsg>> batchProcessor) {
+        this.flushMsgType = flushMsgType;
+        this.batchProcessor = batchProcessor;
+    }
+
+    public void onMsg(TbContext ctx, TbMsg msg) {
+        if (flushMsgType.equals(msg.getType())) {
+            flushScheduled = false;
+            flush();
+            return;
+        }
+        pendingMsgs.add(new BatchedMsg(ctx, msg));
+        if (pendingMsgs.size() >= MAX_BATCH_SIZE || !ctx.hasPendingMsgs()) {
+            flush();
+        } else if (!flushScheduled) {
+            flushScheduled = true;
+            ctx.tellSelf(ctx.newMsg(null, flushMsgType, ctx.getSelfId(), new TbMsgMetaData(), ""), 0);
+        }
+    }
+
+    public void flush() {
+        if (!pendingMsgs.isEmpty()) {
+            List<BatchedMsg> batch = pendingMsgs;
+            pendingMsgs = new ArrayList<>();
+            batchProcessor.accept(batch);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class BatchedMsg {
+        private final TbContext ctx;
+        private final TbMsg msg;
+    }
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.deduplication;
+
+import org.junit.jupiter.api.Test;
+import org.thingsboard.server.common.data.DataConstants;
+import org.thingsboard.server.common.data.id.DeviceId;
+import org.thingsboard.server.common.msg.TbMsg;
+import org.thingsboard.server.common.msg.TbMsgMetaData;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class DeduplicationDataTest {
+
+    private static final long INTERVAL = 100;
+
+    private final DeviceId deviceId = new DeviceId(UUID.randomUUID());
+
+    @Test
+    public void givenFirstStrategy_whenPollExpiredPacks_thenEarliestMsgOfEveryPackIsReturned() {
+        DeduplicationData data = new DeduplicationData(DeduplicationStrategy.FIRST, INTERVAL);
+        TbMsg first = createMsg(1000);
+        data.add(createMsg(1050));
+        data.add(first);
+        data.add(createMsg(1099));
+        TbMsg secondPackFirst = createMsg(1100);
+        data.add(secondPackFirst);
+        data.add(createMsg(1150));
+        assertThat(data.size()).isEqualTo(5);
+
+        assertThat(data.pollExpiredPacks(1099)).isEmpty();
+        assertThat(data.pollExpiredPacks(1100)).containsExactly(List.of(first));
+        assertThat(data.size()).isEqualTo(2);
+        assertThat(data.pollExpiredPacks(1200)).containsExactly(List.of(secondPackFirst));
+        assertThat(data.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void givenLastStrategy_whenPollExpiredPacks_thenLatestMsgOfEveryPackIsReturned() {
+        DeduplicationData data = new DeduplicationData(DeduplicationStrategy.LAST, INTERVAL);
+        data.add(createMsg(1000));
+        TbMsg last = createMsg(1099);
+        data.add(last);
+        data.add(createMsg(1020));
+        TbMsg secondPackLast = createMsg(1100);
+        data.add(secondPackLast);
+
+        assertThat(data.pollExpiredPacks(1200)).containsExactly(List.of(last), List.of(secondPackLast));
+        assertThat(data.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void givenLateMsgWhoseIntervalCoversTheNextPack_whenPollExpiredPacks_thenPacksAreMerged() {
+        TbMsg msg1050 = createMsg(1050);
+        TbMsg msg1080 = createMsg(1080);
+        TbMsg msg1000 = createMsg(1000);
+        TbMsg msg1120 = createMsg(1120);
+        List<TbMsg> msgs = List.of(msg1050, msg1080, msg1000, msg1120);
+
+        DeduplicationData first = createData(DeduplicationStrategy.FIRST, msgs);
+        assertThat(first.pollExpiredPacks(1100)).containsExactly(List.of(msg1000));
+        assertThat(first.size()).isEqualTo(1);
+        assertThat(first.pollExpiredPacks(1300)).containsExactly(List.of(msg1120));
+
+        DeduplicationData last = createData(DeduplicationStrategy.LAST, msgs);
+        assertThat(last.pollExpiredPacks(1300)).containsExactly(List.of(msg1080), List.of(msg1120));
+
+        DeduplicationData all = createData(DeduplicationStrategy.ALL, msgs);
+        assertThat(all.pollExpiredPacks(1300)).containsExactly(List.of(msg1000, msg1050, msg1080), List.of(msg1120));
+        assertThat(all.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void givenLateMsgWhoseIntervalEndsInsideTheNextPack_whenPollExpiredPacks_thenNextPackIsKept() {
+        TbMsg msg1050 = createMsg(1050);
+        TbMsg msg1149 = createMsg(1149);
+        TbMsg msg1000 = createMsg(1000);
+        TbMsg msg1020 = createMsg(1020);
+        List<TbMsg> msgs = List.of(msg1050, msg1149, msg1000, msg1020);
+
+        DeduplicationData first = createData(DeduplicationStrategy.FIRST, msgs);
+        assertThat(first.size()).isEqualTo(4);
+        assertThat(first.pollExpiredPacks(1100)).containsExactly(List.of(msg1000));
+        assertThat(first.size()).isEqualTo(2);
+        assertThat(first.pollExpiredPacks(1150)).containsExactly(List.of(msg1050));
+        assertThat(first.isEmpty()).isTrue();
+
+        DeduplicationData last = createData(DeduplicationStrategy.LAST, msgs);
+        assertThat(last.pollExpiredPacks(1300)).containsExactly(List.of(msg1020), List.of(msg1149));
+        assertThat(last.isEmpty()).isTrue();
+
+        DeduplicationData all = createData(DeduplicationStrategy.ALL, msgs);
+        assertThat(all.pollExpiredPacks(1300)).containsExactly(List.of(msg1000, msg1020), List.of(msg1050, msg1149));
+        assertThat(all.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void givenLastStrategyAndEqualTs_whenPollExpiredPacks_thenEarliestReceivedMsgIsReturned() {
+        DeduplicationData data = new DeduplicationData(DeduplicationStrategy.LAST, INTERVAL);
+        TbMsg last = createMsg(1050);
+        data.add(createMsg(1000));
+        data.add(last);
+        data.add(createMsg(1050));
+
+        assertThat(data.pollExpiredPacks(1100)).containsExactly(List.of(last));
+    }
+
+    @Test
+    public void givenAllStrategy_whenPollExpiredPacks_thenPacksAreOrderedByTs() {
+        DeduplicationData data = new DeduplicationData(DeduplicationStrategy.ALL, INTERVAL);
+        TbMsg msg1 = createMsg(1000);
+        TbMsg msg2 = createMsg(1050);
+        TbMsg msg3 = createMsg(1050);
+        TbMsg msg4 = createMsg(1120);
+        TbMsg msg5 = createMsg(1300);
+        data.add(msg2);
+        data.add(msg1);
+        data.add(msg4);
+        data.add(msg3);
+        data.add(msg5);
+
+        assertThat(data.pollExpiredPacks(1250)).containsExactly(List.of(msg1, msg2, msg3), List.of(msg4));
+        assertThat(data.size()).isEqualTo(1);
+        assertThat(data.pollExpiredPacks(1400)).containsExactly(List.of(msg5));
+        assertThat(data.isEmpty()).isTrue();
+    }
+
+    private DeduplicationData createData(DeduplicationStrategy strategy, List<TbMsg> msgs) {
+        DeduplicationData data = new DeduplicationData(strategy, INTERVAL);
+        msgs.forEach(data::add);
+        return data;
+    }
+
+    private TbMsg createMsg(long ts) {
+        TbMsgMetaData metaData = new TbMsgMetaData();
+        metaData.putValue("ts", String.valueOf(ts));
+        return TbMsg.newMsg(DataConstants.MAIN_QUEUE_NAME, "POST_TELEMETRY_REQUEST", deviceId, metaData, "{}");
+    }
+
+}
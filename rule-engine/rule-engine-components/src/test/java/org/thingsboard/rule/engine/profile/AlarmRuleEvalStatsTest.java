@@ -0,0 +1,94 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.profile;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.DeviceProfile;
+import org.thingsboard.server.common.data.alarm.AlarmSeverity;
+import org.thingsboard.server.common.data.device.profile.AlarmRule;
+import org.thingsboard.server.common.data.device.profile.DeviceProfileAlarm;
+import org.thingsboard.server.common.data.device.profile.DeviceProfileData;
+import org.thingsboard.server.common.data.id.DeviceProfileId;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class AlarmRuleEvalStatsTest {
+
+    @Test
+    public void testStatsOfRemovedRulesAreRemovedOnProfileUpdate() {
+        AlarmRuleEvalStats evalStats = new AlarmRuleEvalStats();
+        DeviceProfileAlarm highTemperature = createAlarm("highTemperature", true);
+        DeviceProfileAlarm lowTemperature = createAlarm("lowTemperature", false);
+        DeviceProfile deviceProfile = createDeviceProfile(highTemperature, lowTemperature);
+
+        AlarmRuleEvalStats.RuleStats createStats = evalStats.getCreateRuleStats(deviceProfile, highTemperature, AlarmSeverity.CRITICAL);
+        AlarmRuleEvalStats.RuleStats clearStats = evalStats.getClearRuleStats(deviceProfile, highTemperature);
+        AlarmRuleEvalStats.RuleStats removedStats = evalStats.getCreateRuleStats(deviceProfile, lowTemperature, AlarmSeverity.CRITICAL);
+
+        highTemperature.setClearRule(null);
+        deviceProfile.getProfileData().setAlarms(new ArrayList<>(List.of(highTemperature)));
+        evalStats.onProfileUpdate(deviceProfile);
+
+        assertSame(createStats, evalStats.getCreateRuleStats(deviceProfile, highTemperature, AlarmSeverity.CRITICAL));
+        assertNotSame(clearStats, evalStats.getClearRuleStats(deviceProfile, highTemperature));
+        assertNotSame(removedStats, evalStats.getCreateRuleStats(deviceProfile, lowTemperature, AlarmSeverity.CRITICAL));
+    }
+
+    @Test
+    public void testStatsOfUnusedProfilesAreRemoved() {
+        AlarmRuleEvalStats evalStats = new AlarmRuleEvalStats();
+        DeviceProfileAlarm alarm = createAlarm("highTemperature", false);
+        DeviceProfile usedProfile = createDeviceProfile(alarm);
+        DeviceProfile unusedProfile = createDeviceProfile(alarm);
+
+        AlarmRuleEvalStats.RuleStats usedStats = evalStats.getCreateRuleStats(usedProfile, alarm, AlarmSeverity.CRITICAL);
+        AlarmRuleEvalStats.RuleStats unusedStats = evalStats.getCreateRuleStats(unusedProfile, alarm, AlarmSeverity.CRITICAL);
+
+        evalStats.retainProfiles(Set.of(usedProfile.getId()));
+
+        assertSame(usedStats, evalStats.getCreateRuleStats(usedProfile, alarm, AlarmSeverity.CRITICAL));
+        assertNotSame(unusedStats, evalStats.getCreateRuleStats(unusedProfile, alarm, AlarmSeverity.CRITICAL));
+    }
+
+    private DeviceProfileAlarm createAlarm(String id, boolean withClearRule) {
+        DeviceProfileAlarm alarm = new DeviceProfileAlarm();
+        alarm.setId(id);
+        alarm.setAlarmType(id);
+        alarm.setCreateRules(new TreeMap<>(Collections.singletonMap(AlarmSeverity.CRITICAL, new AlarmRule())));
+        if (withClearRule) {
+            alarm.setClearRule(new AlarmRule());
+        }
+        return alarm;
+    }
+
+    private DeviceProfile createDeviceProfile(DeviceProfileAlarm... alarms) {
+        DeviceProfile deviceProfile = new DeviceProfile(new DeviceProfileId(UUID.randomUUID()));
+        deviceProfile.setName("Test profile");
+        DeviceProfileData profileData = new DeviceProfileData();
+        profileData.setAlarms(new ArrayList<>(List.of(alarms)));
+        deviceProfile.setProfileData(profileData);
+        return deviceProfile;
+    }
+
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright © 2016-2023 The Thingsboard Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.thingsboard.rule.engine.profile;
+
+import org.junit.Test;
+import org.thingsboard.server.common.data.device.profile.AlarmCondition;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilter;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionFilterKey;
+import org.thingsboard.server.common.data.device.profile.AlarmConditionKeyType;
+import org.thingsboard.server.common.data.device.profile.AlarmRule;
+import org.thingsboard.server.common.data.query.ComplexFilterPredicate;
+import org.thingsboard.server.common.data.query.DynamicValue;
+import org.thingsboard.server.common.data.query.DynamicValueSourceType;
+import org.thingsboard.server.common.data.query.EntityKeyValueType;
+import org.thingsboard.server.common.data.query.FilterPredicateValue;
+import org.thingsboard.server.common.data.query.NumericFilterPredicate;
+import org.thingsboard.server.common.data.query.StringFilterPredicate;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompiledAlarmRuleTest {
+
+    private static final AlarmConditionFilterKey TEMPERATURE = new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "temperature");
+    private static final AlarmConditionFilterKey HUMIDITY = new AlarmConditionFilterKey(AlarmConditionKeyType.TIME_SERIES, "humidity");
+    private static final AlarmConditionFilterKey MODE = new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, "mode");
+
+    @Test
+    public void testKeyDependencies() {
+        CompiledAlarmRule tsRule = compile(List.of(numericFilter(TEMPERATURE, NumericFilterPredicate.NumericOperation.GREATER, 20.0)), Set.of(TEMPERATURE, MODE));
+        assertTrue(tsRule.isAffectedByTsUpdate(Set.of(TEMPERATURE)));
+        assertFalse(tsRule.isAffectedByTsUpdate(Set.of(HUMIDITY)));
+        assertFalse(tsRule.isAffectedByAttrUpdate(Set.of(MODE)));
+
+        CompiledAlarmRule attrRule = compile(List.of(stringFilter(MODE, "eco")), Set.of(MODE));
+        assertTrue(attrRule.isAffectedByAttrUpdate(Set.of(MODE)));
+    }
+
+    @Test
+    public void testEvalCondition() {
+        AlarmConditionFilter temperatureFilter = numericFilter(TEMPERATURE, NumericFilterPredicate.NumericOperation.GREATER, 20.0);
+        AlarmConditionFilter modeFilter = stringFilter(MODE, "ECO");
+        CompiledAlarmRule rule = compile(List.of(temperatureFilter, modeFilter), Set.of(TEMPERATURE, MODE));
+        AlarmRuleState ruleState = new AlarmRuleState(null, rule, null, null);
+
+        DataSnapshot data = new DataSnapshot(Set.of(TEMPERATURE, MODE));
+        data.putValue(TEMPERATURE, 1L, doubleValue(25.0));
+        assertFalse(rule.evalCondition(data, ruleState));
+
+        data.putValue(MODE, 1L, stringValue("eco"));
+        assertTrue(rule.evalCondition(data, ruleState));
+
+        data.putValue(TEMPERATURE, 2L, doubleValue(15.0));
+        assertFalse(rule.evalCondition(data, ruleState));
+    }
+
+    @Test
+    public void testEvalConstantKeyWithDynamicValues() {
+        AlarmConditionFilterKey minKey = new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, "min");
+        AlarmConditionFilterKey maxKey = new AlarmConditionFilterKey(AlarmConditionKeyType.ATTRIBUTE, "max");
+        NumericFilterPredicate lower = numericPredicate(NumericFilterPredicate.NumericOperation.GREATER, 0.0);
+        lower.setValue(new FilterPredicateValue<>(0.0, null, new DynamicValue<>(DynamicValueSourceType.CURRENT_DEVICE, "min")));
+        NumericFilterPredicate upper = numericPredicate(NumericFilterPredicate.NumericOperation.LESS, 0.0);
+        upper.setValue(new FilterPredicateValue<>(0.0, null, new DynamicValue<>(DynamicValueSourceType.CURRENT_DEVICE, "max")));
+        ComplexFilterPredicate between = new ComplexFilterPredicate();
+        between.setOperation(ComplexFilterPredicate.ComplexOperation.AND);
+        between.setPredicates(List.of(lower, upper));
+
+        AlarmConditionFilter constantFilter = new AlarmConditionFilter();
+        constantFilter.setKey(new AlarmConditionFilterKey(AlarmConditionKeyType.CONSTANT, "threshold"));
+        constantFilter.setValueType(EntityKeyValueType.NUMERIC);
+        constantFilter.setValue(20);
+        constantFilter.setPredicate(between);
+
+        CompiledAlarmRule rule = compile(List.of(constantFilter), Set.of(minKey, maxKey));
+        AlarmRuleState ruleState = new AlarmRuleState(null, rule, null, null);
+        DataSnapshot data = new DataSnapshot(Set.of(minKey, maxKey));
+        data.putValue(minKey, 1L, doubleValue(10.0));
+        // constant keys never fall back to the default predicate value
+        assertFalse(rule.evalCondition(data, ruleState));
+
+        data.putValue(maxKey, 1L, doubleValue(30.0));
+        assertTrue(rule.evalCondition(data, ruleState));
+    }
+
+    private static CompiledAlarmRule compile(List<AlarmConditionFilter> filters, Set<AlarmConditionFilterKey> keys) {
+        AlarmCondition condition = new AlarmCondition();
+        condition.setCondition(filters);
+        AlarmRule alarmRule = new AlarmRule();
+        alarmRule.setCondition(condition);
+        return CompiledAlarmRule.compile(alarmRule, keys, new AlarmRuleEvalStats.RuleStats("test"));
+    }
+
+    private static AlarmConditionFilter numericFilter(AlarmConditionFilterKey key, NumericFilterPredicate.NumericOperation operation, double value) {
+        AlarmConditionFilter filter = new AlarmConditionFilter();
+        filter.setKey(key);
+        filter.setValueType(EntityKeyValueType.NUMERIC);
+        filter.setPredicate(numericPredicate(operation, value));
+        return filter;
+    }
+
+    private static NumericFilterPredicate numericPredicate(NumericFilterPredicate.NumericOperation operation, double value) {
+        NumericFilterPredicate predicate = new NumericFilterPredicate();
+        predicate.setOperation(operation);
+        predicate.setValue(new FilterPredicateValue<>(value));
+        return predicate;
+    }
+
+    private static AlarmConditionFilter stringFilter(AlarmConditionFilterKey key, String value) {
+        StringFilterPredicate predicate = new StringFilterPredicate();
+        predicate.setOperation(StringFilterPredicate.StringOperation.EQUAL);
+        predicate.setIgnoreCase(true);
+        predicate.setValue(new FilterPredicateValue<>(value));
+        AlarmConditionFilter filter = new AlarmConditionFilter();
+        filter.setKey(key);
+        filter.setValueType(EntityKeyValueType.STRING);
+        filter.setPredicate(predicate);
+        return filter;
+    }
+
+    private static EntityKeyValue doubleValue(double value) {
+        EntityKeyValue ekv = new EntityKeyValue();
+        ekv.setDblValue(value);
+        return ekv;
+    }
+
+    private static EntityKeyValue stringValue(String value) {
+        EntityKeyValue ekv = new EntityKeyValue();
+        ekv.setStrValue(value);
+        return ekv;
+    }
+
+}
@@ -35,9 +35,14 @@ import org.thingsboard.server.common.msg.TbMsgDataType;
 import org.thingsboard.server.common.msg.TbMsgMetaData;
 
 import java.util.Collections;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -87,6 +92,31 @@ public class TbTransformMsgNodeTest {
         verifyError(msg, "error", IllegalStateException.class);
     }
 
+    @Test
+    public void queuedMsgsAreTransformedAsBatch() throws TbNodeException {
+        initWithScript();
+        RuleChainId ruleChainId = new RuleChainId(Uuids.timeBased());
+        RuleNodeId ruleNodeId = new RuleNodeId(Uuids.timeBased());
+        TbMsg msg1 = TbMsg.newMsg("USER", null, new TbMsgMetaData(), TbMsgDataType.JSON, "{\"n\": 1}", ruleChainId, ruleNodeId);
+        TbMsg msg2 = TbMsg.newMsg("USER", null, new TbMsgMetaData(), TbMsgDataType.JSON, "{\"n\": 2}", ruleChainId, ruleNodeId);
+        TbMsg transformedMsg1 = TbMsg.newMsg("USER", null, new TbMsgMetaData(), TbMsgDataType.JSON, "{\"m\": 1}", ruleChainId, ruleNodeId);
+        TbMsg transformedMsg2 = TbMsg.newMsg("USER", null, new TbMsgMetaData(), TbMsgDataType.JSON, "{\"m\": 2}", ruleChainId, ruleNodeId);
+        when(ctx.hasPendingMsgs()).thenReturn(true, false);
+        when(scriptEngine.executeUpdateBatchAsync(List.of(msg1, msg2))).thenReturn(List.of(
+                Futures.immediateFuture(Collections.singletonList(transformedMsg1)),
+                Futures.immediateFuture(Collections.singletonList(transformedMsg2))));
+
+        node.onMsg(ctx, msg1);
+        verify(ctx, never()).tellSuccess(any());
+        verify(ctx).tellSelf(any(), anyLong());
+
+        node.onMsg(ctx, msg2);
+        ArgumentCaptor<TbMsg> captor = ArgumentCaptor.forClass(TbMsg.class);
+        verify(ctx, times(2)).tellSuccess(captor.capture());
+        assertEquals(List.of(transformedMsg1, transformedMsg2), captor.getAllValues());
+        verify(scriptEngine, never()).executeUpdateAsync(any());
+    }
+
     private void initWithScript() throws TbNodeException {
         TbTransformMsgNodeConfiguration config = new TbTransformMsgNodeConfiguration();
         config.setScriptLang(ScriptLanguage.JS);